@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2013 IBM Corporation and others.
+ * Copyright (c) 2009, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,9 +10,18 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.anttasks.tests;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.pde.api.tools.internal.IApiXmlConstants;
+import org.eclipse.pde.api.tools.internal.util.Util;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
 
 public class ApiToolingAnalysisAntTaskTests extends AntRunnerTestCase {
 	@Override
@@ -133,4 +142,73 @@ public class ApiToolingAnalysisAntTaskTests extends AntRunnerTestCase {
 		assertTrue("deltatest folder must exist", folder.exists()); //$NON-NLS-1$
 		assertTrue("report.xml file must be there", folder.getFile("report.xml").exists()); //$NON-NLS-1$ //$NON-NLS-2$
 	}
+
+	/**
+	 * Test that analyzing the components with several threads reports the
+	 * same problems as analyzing them one after the other
+	 */
+	public void test8() throws Exception {
+		IFolder buildFolder = newTest("test8"); //$NON-NLS-1$
+		String buildXMLPath = buildFolder.getFile("build.xml").getLocation().toOSString(); //$NON-NLS-1$
+		String[] names = new String[] {
+				"deltatest", "deltatest1", "deltatest2" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		IFolder serial = runAnalysis(buildFolder, buildXMLPath, "serial", 1); //$NON-NLS-1$
+		IFolder threaded = runAnalysis(buildFolder, buildXMLPath, "threaded", 4); //$NON-NLS-1$
+		assertFalse("allNonApiBundles must not exist", buildFolder.getFolder("allNonApiBundles").exists()); //$NON-NLS-1$ //$NON-NLS-2$
+		for (int i = 0; i < names.length; i++) {
+			IFile serialReport = serial.getFolder(names[i]).getFile("report.xml"); //$NON-NLS-1$
+			IFile threadedReport = threaded.getFolder(names[i]).getFile("report.xml"); //$NON-NLS-1$
+			assertTrue("report.xml file must be there", serialReport.exists()); //$NON-NLS-1$
+			assertTrue("report.xml file must be there", threadedReport.exists()); //$NON-NLS-1$
+			assertEquals("The problems of " + names[i] + " must not depend on the number of threads", getProblems(serialReport), getProblems(threadedReport)); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Runs the analysis of test8 with the given number of threads
+	 * 
+	 * @param buildFolder
+	 * @param buildXMLPath
+	 * @param reportName the name of the folder to write the reports to
+	 * @param threadCount
+	 * @return the folder of the reports
+	 * @throws Exception
+	 */
+	private IFolder runAnalysis(IFolder buildFolder, String buildXMLPath, String reportName, int threadCount) throws Exception {
+		IFolder reportFolder = buildFolder.getFolder(reportName);
+		Properties properties = new Properties();
+		properties.put("reference_location", buildFolder.getFile("before").getLocation().toOSString()); //$NON-NLS-1$ //$NON-NLS-2$
+		properties.put("current_location", buildFolder.getFile("after").getLocation().toOSString()); //$NON-NLS-1$ //$NON-NLS-2$
+		properties.put("report_location", reportFolder.getLocation().toOSString()); //$NON-NLS-1$
+		properties.put("thread_count", Integer.toString(threadCount)); //$NON-NLS-1$
+		runAntScript(buildXMLPath, new String[] { "run" }, buildFolder.getLocation().toOSString(), properties); //$NON-NLS-1$
+		reportFolder.refreshLocal(IResource.DEPTH_INFINITE, null);
+		return reportFolder;
+	}
+
+	/**
+	 * Returns the problems of the given report, sorted since the problems of a
+	 * type are reported in no particular order
+	 * 
+	 * @param report
+	 * @return the sorted list of problem descriptions
+	 * @throws Exception
+	 */
+	private List<String> getProblems(IFile report) throws Exception {
+		Element root = Util.parseDocument(Util.getFileContentAsString(report.getLocation().toFile()));
+		NodeList elements = root.getElementsByTagName(IApiXmlConstants.ELEMENT_API_PROBLEM);
+		List<String> problems = new ArrayList<String>(elements.getLength());
+		for (int i = 0; i < elements.getLength(); i++) {
+			Element element = (Element) elements.item(i);
+			StringBuffer buffer = new StringBuffer();
+			buffer.append(element.getAttribute(IApiXmlConstants.ATTR_TYPE_NAME)).append('|');
+			buffer.append(element.getAttribute(IApiXmlConstants.ATTR_ID)).append('|');
+			buffer.append(element.getAttribute(IApiXmlConstants.ATTR_SEVERITY)).append('|');
+			buffer.append(element.getAttribute(IApiXmlConstants.ATTR_LINE_NUMBER)).append('|');
+			buffer.append(element.getAttribute(IApiXmlConstants.ATTR_MESSAGE));
+			problems.add(buffer.toString());
+		}
+		Collections.sort(problems);
+		return problems;
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2013 IBM Corporation and others.
+ * Copyright (c) 2010, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,9 +10,18 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.anttasks.tests;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -21,6 +30,8 @@ import javax.xml.parsers.ParserConfigurationException;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.pde.api.tools.internal.IApiCoreConstants;
+import org.eclipse.pde.api.tools.internal.util.Util;
 import org.w3c.dom.Document;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
@@ -53,6 +64,128 @@ public class ApiToolingApiuseAntTaskTests extends AntRunnerTestCase {
 
 	}
 
+	/**
+	 * Name of the file added to the cached results of each component after the
+	 * first scan, it is gone from the results of the components searched again
+	 */
+	private static final String CACHED_MARKER = "cached.txt"; //$NON-NLS-1$
+
+	/**
+	 * Tests that a second use scan after a component changed searches that
+	 * component again, reuses the results kept by the first scan for the
+	 * unchanged components and produces the same report
+	 * 
+	 * @throws Exception
+	 */
+	public void testCacheLocation() throws Exception {
+		IFolder buildFolder = newTest(getTestResourcesFolder(), new String[] {
+				"testCache", "profile" }); //$NON-NLS-1$ //$NON-NLS-2$
+		String buildXMLPath = buildFolder.getFile("build.xml").getLocation().toOSString(); //$NON-NLS-1$
+		File baseline = buildFolder.getFile("OSGiProduct.zip").getLocation().toFile(); //$NON-NLS-1$
+		File cache = buildFolder.getLocation().append("cache").toFile(); //$NON-NLS-1$
+		Properties properties = new Properties();
+		properties.put("baseline_location", baseline.getAbsolutePath()); //$NON-NLS-1$
+		properties.put("report_location", buildFolder.getLocation().append("report").toOSString()); //$NON-NLS-1$ //$NON-NLS-2$
+		properties.put("cache_location", cache.getAbsolutePath()); //$NON-NLS-1$
+		properties.put("filter_location", buildFolder.getLocation().toOSString()); //$NON-NLS-1$
+		File report = buildFolder.getLocation().append("report").toFile(); //$NON-NLS-1$
+		runAntScript(buildXMLPath, new String[] { "run" }, buildFolder.getLocation().toOSString(), properties); //$NON-NLS-1$
+		Map<String, String> first = getReportContents(report, "", new TreeMap<String, String>()); //$NON-NLS-1$
+		assertTrue("The cache index must exist", new File(cache, "index.xml").exists()); //$NON-NLS-1$ //$NON-NLS-2$
+		File[] folders = cache.listFiles();
+		for (int i = 0; i < folders.length; i++) {
+			if (folders[i].isDirectory()) {
+				Util.saveFile(new File(folders[i], CACHED_MARKER), folders[i].getName());
+			}
+		}
+
+		// a file added to a component changes it without changing its references
+		addZipEntry(baseline, "eclipse/plugins/org.example.test.oldstyle_1.0.0.201304091124/about.txt", "changed"); //$NON-NLS-1$ //$NON-NLS-2$
+		runAntScript(buildXMLPath, new String[] { "run" }, buildFolder.getLocation().toOSString(), properties); //$NON-NLS-1$
+		Map<String, String> second = getReportContents(report, "", new TreeMap<String, String>()); //$NON-NLS-1$
+		assertTrue("None of the example plug-ins were scanned", first.size() > 3); //$NON-NLS-1$
+		assertEquals("The report using the cached results must be the same", first, second); //$NON-NLS-1$
+		assertCached(cache, "org.example.test.oldstyle (", false); //$NON-NLS-1$
+		assertCached(cache, "org.example.test.client (", true); //$NON-NLS-1$
+		assertCached(cache, "org.example.test.osgi.core (", true); //$NON-NLS-1$
+	}
+
+	/**
+	 * Asserts whether the results of the component whose id starts with the
+	 * given prefix were kept from the first scan or searched again
+	 * 
+	 * @param cache the cache location
+	 * @param prefix the start of the id of the component
+	 * @param cached whether the results should come from the first scan
+	 */
+	private void assertCached(File cache, String prefix, boolean cached) {
+		File[] folders = cache.listFiles();
+		for (int i = 0; i < folders.length; i++) {
+			if (folders[i].isDirectory() && folders[i].getName().startsWith(prefix)) {
+				if (cached) {
+					assertTrue("The results of " + folders[i].getName() + " should come from the cache", new File(folders[i], CACHED_MARKER).exists()); //$NON-NLS-1$ //$NON-NLS-2$
+				} else {
+					assertFalse("The component " + folders[i].getName() + " should have been searched again", new File(folders[i], CACHED_MARKER).exists()); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				return;
+			}
+		}
+		fail("Missing cached results for " + prefix); //$NON-NLS-1$
+	}
+
+	/**
+	 * Rewrites the given archive with an additional entry
+	 * 
+	 * @param archive
+	 * @param name the name of the entry to add
+	 * @param contents the contents of the entry
+	 * @throws IOException
+	 */
+	private void addZipEntry(File archive, String name, String contents) throws IOException {
+		File copy = new File(archive.getPath() + ".tmp"); //$NON-NLS-1$
+		ZipInputStream in = new ZipInputStream(new BufferedInputStream(new FileInputStream(archive)));
+		ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(copy)));
+		try {
+			ZipEntry entry = null;
+			while ((entry = in.getNextEntry()) != null) {
+				out.putNextEntry(new ZipEntry(entry.getName()));
+				out.write(Util.getInputStreamAsByteArray(in, -1));
+				out.closeEntry();
+			}
+			out.putNextEntry(new ZipEntry(name));
+			out.write(contents.getBytes(IApiCoreConstants.UTF_8));
+			out.closeEntry();
+		} finally {
+			in.close();
+			out.close();
+		}
+		assertTrue("The archive should be deleted", archive.delete()); //$NON-NLS-1$
+		assertTrue("The archive should be replaced", copy.renameTo(archive)); //$NON-NLS-1$
+	}
+
+	/**
+	 * Collects the contents of the files of the given report, except for the
+	 * meta data that contains the time of the scan
+	 * 
+	 * @param folder
+	 * @param path
+	 * @param contents
+	 * @return the map of paths to the file contents
+	 */
+	private Map<String, String> getReportContents(File folder, String path, Map<String, String> contents) {
+		File[] files = folder.listFiles();
+		assertNotNull("The report folder must exist", files); //$NON-NLS-1$
+		for (int i = 0; i < files.length; i++) {
+			String name = path + '/' + files[i].getName();
+			if (files[i].isDirectory()) {
+				getReportContents(files[i], name, contents);
+			} else if (!"meta.xml".equals(files[i].getName()) && !CACHED_MARKER.equals(files[i].getName())) { //$NON-NLS-1$
+				contents.put(name, Util.getFileContentAsString(files[i]));
+			}
+		}
+		return contents;
+	}
+
 	public void test1() throws Exception {
 		IFolder reportFolder = runTaskAndVerify("test1"); //$NON-NLS-1$
 		InputSource is = new InputSource(reportFolder.getFile("not_searched.xml").getContents()); //$NON-NLS-1$
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 IBM Corporation and others.
+ * Copyright (c) 2010, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,10 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.apiusescan.tests;
 
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
 import junit.framework.TestCase;
 
 import org.eclipse.core.resources.IProject;
@@ -21,7 +25,13 @@ import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
 import org.eclipse.pde.api.tools.internal.search.IReferenceCollection;
 import org.eclipse.pde.api.tools.internal.search.IReferenceDescriptor;
+import org.eclipse.pde.api.tools.internal.search.UseScanIndex;
 import org.eclipse.pde.api.tools.internal.search.UseScanManager;
+import org.eclipse.pde.api.tools.internal.search.UseScanParser;
+import org.eclipse.pde.api.tools.internal.search.UseScanReferenceVisitor;
+import org.eclipse.pde.api.tools.internal.search.UseReportConverter;
+import org.eclipse.pde.api.tools.internal.search.UseScanReferences;
+import org.eclipse.pde.api.tools.internal.util.Util;
 import org.eclipse.pde.api.tools.model.tests.TestSuiteHelper;
 
 public class ReferenceCountTests extends TestCase {
@@ -127,4 +137,137 @@ public class ReferenceCountTests extends TestCase {
 		assertFalse("References for org.eclipse.equinox.app.IApplication should have been purged from the cache", //$NON-NLS-1$
 				useScanRefs.hasReferencesTo("org.eclipse.equinox.app.IApplication")); //$NON-NLS-1$
 	}
+
+	/**
+	 * Tests that the references read from the index of a use scan are the
+	 * same as the ones parsed from its XML
+	 * 
+	 * @throws Exception
+	 */
+	public void testUseScanIndex() throws Exception {
+		String location = ExternalDependencyTestUtils.setupReport("PDEApiUseScanReport", true); //$NON-NLS-1$
+		if (location == null) {
+			fail("Could not setup the report : PDEApiUseScanReport.zip"); //$NON-NLS-1$
+		}
+		File file = File.createTempFile("usescan", ".idx"); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			long fingerprint = UseScanIndex.getFingerprint(location);
+			UseScanIndex.convert(location, file, fingerprint, new NullProgressMonitor());
+			UseScanIndex index = UseScanIndex.open(file);
+			assertEquals("The fingerprint of the index is not the one of the scan", fingerprint, index.getFingerprint()); //$NON-NLS-1$
+			IApiComponent apiComponent = TestSuiteHelper.createTestingApiComponent("org.eclipse.equinox.app", "org.eclipse.equinox.app", new ApiDescription(null)); //$NON-NLS-1$ //$NON-NLS-2$
+			UseScanReferences indexed = new UseScanReferences();
+			index.collect(apiComponent.getSymbolicName(), null, indexed);
+			UseScanReferences parsed = new UseScanReferences();
+			new UseScanParser().parse(location, new NullProgressMonitor(), new UseScanReferenceVisitor(apiComponent, null, parsed));
+			assertEquals("Incorrect number of references for org.eclipse.equinox.app", 13, indexed.getAllExternalDependencies().length); //$NON-NLS-1$
+			assertEquals("The index and the scan have different references", parsed.getAllExternalDependencies().length, indexed.getAllExternalDependencies().length); //$NON-NLS-1$
+			String[] types = new String[] { "org.eclipse.equinox.app.IApplication" }; //$NON-NLS-1$
+			UseScanReferences application = new UseScanReferences();
+			index.collect(apiComponent.getSymbolicName(), types, application);
+			assertEquals("The index and the scan have different references to IApplication", parsed.getExternalDependenciesTo(types).length, application.getAllExternalDependencies().length); //$NON-NLS-1$
+			UseScanReferences none = new UseScanReferences();
+			index.collect("does.not.exist", null, none); //$NON-NLS-1$
+			assertEquals("There should be no references to an unknown component", 0, none.getAllExternalDependencies().length); //$NON-NLS-1$
+		} finally {
+			Util.delete(file);
+		}
+	}
+
+	/**
+	 * Tests that converting a use scan to HTML with several threads produces
+	 * the same pages as converting it with a single thread
+	 * 
+	 * @throws Exception
+	 */
+	public void testParallelReportConversion() throws Exception {
+		String location = ExternalDependencyTestUtils.setupReport("PDEApiUseScanReport", true); //$NON-NLS-1$
+		if (location == null) {
+			fail("Could not setup the report : PDEApiUseScanReport.zip"); //$NON-NLS-1$
+		}
+		File root = new File(location).getParentFile();
+		File serial = new File(root, "html-serial"); //$NON-NLS-1$
+		File parallel = new File(root, "html-parallel"); //$NON-NLS-1$
+		try {
+			UseReportConverter converter = new UseReportConverter(serial.getAbsolutePath(), location, null, null);
+			converter.setThreadCount(1);
+			converter.convert(null, new NullProgressMonitor());
+			converter = new UseReportConverter(parallel.getAbsolutePath(), location, null, null);
+			converter.setThreadCount(4);
+			converter.convert(null, new NullProgressMonitor());
+			Map<String, String> expected = getPages(serial);
+			Map<String, String> actual = getPages(parallel);
+			assertTrue("No pages were written", expected.size() > 0); //$NON-NLS-1$
+			assertEquals("The conversions wrote different pages", expected.keySet(), actual.keySet()); //$NON-NLS-1$
+			for (Map.Entry<String, String> entry : expected.entrySet()) {
+				assertEquals("The page " + entry.getKey() + " is different", entry.getValue(), actual.get(entry.getKey())); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			assertTrue("The not searched page should have been written", actual.containsKey("not_searched.html")); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			Util.delete(serial);
+			Util.delete(parallel);
+		}
+	}
+
+	/**
+	 * Tests that the page of bundles that were not searched only links to the
+	 * summary of missing bundles when the report asks for it, as the default
+	 * XSLT does
+	 * 
+	 * @throws Exception
+	 */
+	public void testNotSearchedShowMissing() throws Exception {
+		File root = new File(System.getProperty("java.io.tmpdir"), "not_searched_tests"); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			assertFalse("The summary should not be linked without the ShowMissing attribute", convertNotSearched(root, null).contains("missing.html")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertFalse("The summary should not be linked when ShowMissing is false", convertNotSearched(root, "false").contains("missing.html")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			assertTrue("The summary should be linked when ShowMissing is true", convertNotSearched(root, "true").contains("missing.html")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		} finally {
+			Util.delete(root);
+		}
+	}
+
+	/**
+	 * Converts a report made of a not_searched.xml file with one bundle and
+	 * returns the page of bundles that were not searched
+	 * 
+	 * @param root the directory to write the report in
+	 * @param showMissing the value of the ShowMissing attribute or
+	 *            <code>null</code>
+	 * @return the not_searched.html page
+	 * @throws Exception
+	 */
+	private String convertNotSearched(File root, String showMissing) throws Exception {
+		Util.delete(root);
+		File xml = new File(root, "xml"); //$NON-NLS-1$
+		File html = new File(root, "html"); //$NON-NLS-1$
+		assertTrue("The report directory should have been created", xml.mkdirs()); //$NON-NLS-1$
+		StringBuffer buffer = new StringBuffer();
+		buffer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<components"); //$NON-NLS-1$
+		if (showMissing != null) {
+			buffer.append(" ShowMissing=\"").append(showMissing).append('"'); //$NON-NLS-1$
+		}
+		buffer.append(">\n<component id=\"a.bundle\" version=\"1.0.0\" details=\"&lt;Require-Bundle:other.bundle&gt;\"/>\n</components>\n"); //$NON-NLS-1$
+		Util.saveFile(new File(xml, "not_searched.xml"), buffer.toString()); //$NON-NLS-1$
+		UseReportConverter converter = new UseReportConverter(html.getAbsolutePath(), xml.getAbsolutePath(), null, null);
+		converter.convert(null, new NullProgressMonitor());
+		return Util.getFileContentAsString(new File(html, "not_searched.html")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the content of all the pages below the given root, keyed by
+	 * their path relative to the root
+	 * 
+	 * @param root
+	 * @return the pages below the root
+	 */
+	private Map<String, String> getPages(File root) {
+		Map<String, String> pages = new HashMap<String, String>();
+		File[] files = Util.getAllFiles(root, null);
+		for (int i = 0; i < files.length; i++) {
+			String path = files[i].getAbsolutePath().substring(root.getAbsolutePath().length() + 1);
+			pages.put(path.replace(File.separatorChar, '/'), Util.getFileContentAsString(files[i]));
+		}
+		return pages;
+	}
 }
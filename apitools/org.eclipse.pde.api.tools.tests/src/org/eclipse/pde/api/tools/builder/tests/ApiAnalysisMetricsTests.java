@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.builder.tests;
+
+import junit.framework.TestCase;
+
+import org.eclipse.pde.api.tools.internal.builder.ApiAnalysisMetrics;
+
+/**
+ * Tests the collection and export of {@link ApiAnalysisMetrics}
+ *
+ * @since 1.0.700
+ */
+public class ApiAnalysisMetricsTests extends TestCase {
+
+	private boolean fWasEnabled;
+
+	/*
+	 * (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fWasEnabled = ApiAnalysisMetrics.isEnabled();
+		ApiAnalysisMetrics.reset();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		ApiAnalysisMetrics.setEnabled(fWasEnabled);
+		ApiAnalysisMetrics.reset();
+		super.tearDown();
+	}
+
+	/**
+	 * Tests that nothing is recorded while metrics are disabled
+	 */
+	public void testDisabled() {
+		ApiAnalysisMetrics.setEnabled(false);
+		long count = ApiAnalysisMetrics.getModificationCount();
+		long start = ApiAnalysisMetrics.startPhase();
+		ApiAnalysisMetrics.endPhase("a", ApiAnalysisMetrics.PHASE_USAGE, start); //$NON-NLS-1$
+		ApiAnalysisMetrics.count("a", ApiAnalysisMetrics.COUNTER_PROBLEMS_CREATED, 3); //$NON-NLS-1$
+		ApiAnalysisMetrics.cacheLookup(ApiAnalysisMetrics.CACHE_TYPE_STRUCTURES, true);
+		assertEquals("Nothing should have been recorded", count, ApiAnalysisMetrics.getModificationCount()); //$NON-NLS-1$
+		assertEquals("There should be no components", 0, ApiAnalysisMetrics.getComponents().length); //$NON-NLS-1$
+	}
+
+	/**
+	 * Tests that counters, phases and cache lookups are recorded and exported
+	 */
+	public void testRecorded() {
+		ApiAnalysisMetrics.setEnabled(true);
+		long start = ApiAnalysisMetrics.startPhase();
+		ApiAnalysisMetrics.endPhase("b", ApiAnalysisMetrics.PHASE_COMPATIBILITY, start); //$NON-NLS-1$
+		ApiAnalysisMetrics.count("b", ApiAnalysisMetrics.COUNTER_TYPES_COMPARED, 2); //$NON-NLS-1$
+		ApiAnalysisMetrics.count("b", ApiAnalysisMetrics.COUNTER_TYPES_COMPARED, 3); //$NON-NLS-1$
+		ApiAnalysisMetrics.count("b", ApiAnalysisMetrics.COUNTER_TYPES_SCANNED, 4); //$NON-NLS-1$
+		ApiAnalysisMetrics.count("a\"1", ApiAnalysisMetrics.COUNTER_PROBLEMS_CREATED, 1); //$NON-NLS-1$
+		ApiAnalysisMetrics.cacheLookup(ApiAnalysisMetrics.CACHE_TYPE_STRUCTURES, true);
+		ApiAnalysisMetrics.cacheLookup(ApiAnalysisMetrics.CACHE_TYPE_STRUCTURES, true);
+		ApiAnalysisMetrics.cacheLookup(ApiAnalysisMetrics.CACHE_TYPE_STRUCTURES, true);
+		ApiAnalysisMetrics.cacheLookup(ApiAnalysisMetrics.CACHE_TYPE_STRUCTURES, false);
+
+		String[] components = ApiAnalysisMetrics.getComponents();
+		assertEquals("Wrong number of components", 2, components.length); //$NON-NLS-1$
+		assertEquals("Components should be sorted", "a\"1", components[0]); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("Wrong counter", 5, ApiAnalysisMetrics.getCounter("b", ApiAnalysisMetrics.COUNTER_TYPES_COMPARED)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("Wrong separate counter", 4, ApiAnalysisMetrics.getCounter("b", ApiAnalysisMetrics.COUNTER_TYPES_SCANNED)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("Wrong missing counter", 0, ApiAnalysisMetrics.getCounter("b", ApiAnalysisMetrics.COUNTER_PROBLEMS_CREATED)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("Wrong hit rate", 0.75, ApiAnalysisMetrics.getCacheHitRate(ApiAnalysisMetrics.CACHE_TYPE_STRUCTURES), 0.0001); //$NON-NLS-1$
+
+		String json = ApiAnalysisMetrics.toJSON();
+		assertTrue("Missing escaped component", json.indexOf("\"a\\\"1\": {") > 0); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue("Missing phase", json.indexOf("\"compatibility\": { \"millis\": ") > 0); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue("Missing counter", json.indexOf("\"typesCompared\": 5") > 0); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue("Missing separate counter", json.indexOf("\"typesScanned\": 4") > 0); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue("Missing cache", json.indexOf("\"typeStructures\": { \"hits\": 3, \"misses\": 1, \"hitRate\": 0.75 }") > 0); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Tests the export of empty metrics
+	 */
+	public void testEmpty() {
+		assertEquals("Wrong empty metrics", "{\n  \"components\": {},\n  \"caches\": {}\n}\n", ApiAnalysisMetrics.toJSON()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.builder.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.pde.api.tools.internal.builder.BuildState;
+import org.eclipse.pde.api.tools.internal.comparator.Delta;
+import org.eclipse.pde.api.tools.internal.provisional.comparator.IDelta;
+
+/**
+ * Tests the saved form of the {@link BuildState}
+ *
+ * @since 1.0.700
+ */
+public class BuildStateTests extends TestCase {
+
+	/**
+	 * Returns a delta for a method added to the given type
+	 *
+	 * @param typeName
+	 * @param method
+	 * @return a new delta
+	 */
+	static IDelta newDelta(String typeName, String method) {
+		return new Delta(null, IDelta.CLASS_ELEMENT_TYPE, IDelta.ADDED, IDelta.METHOD, typeName, method + "()V", method); //$NON-NLS-1$
+	}
+
+	/**
+	 * Writes the given state from scratch
+	 *
+	 * @param state
+	 * @param bytes the stream to write to
+	 * @throws IOException
+	 */
+	static void write(BuildState state, ByteArrayOutputStream bytes) throws IOException {
+		DataOutputStream out = new DataOutputStream(bytes);
+		BuildState.write(state, out);
+		out.flush();
+	}
+
+	/**
+	 * Appends the changes of the given state
+	 *
+	 * @param state
+	 * @param bytes the stream to append to
+	 * @throws IOException
+	 */
+	static void writeChanges(BuildState state, ByteArrayOutputStream bytes) throws IOException {
+		DataOutputStream out = new DataOutputStream(bytes);
+		BuildState.writeChanges(state, out);
+		out.flush();
+	}
+
+	/**
+	 * Reads a state from the given bytes
+	 *
+	 * @param bytes
+	 * @return the state read or <code>null</code>
+	 * @throws IOException
+	 */
+	static BuildState read(byte[] bytes) throws IOException {
+		return BuildState.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	/**
+	 * Tests that a state written from scratch is read back
+	 *
+	 * @throws Exception
+	 */
+	public void testWriteRead() throws Exception {
+		BuildState state = new BuildState();
+		state.addCompatibleChange(newDelta("a.A", "m1")); //$NON-NLS-1$ //$NON-NLS-2$
+		state.addCompatibleChange(newDelta("a.A", "m2")); //$NON-NLS-1$ //$NON-NLS-2$
+		state.addBreakingChange(newDelta("a.B", "m1")); //$NON-NLS-1$ //$NON-NLS-2$
+		state.setBuildPathCRC(42L);
+		state.addApiToolingDependentProject("p1"); //$NON-NLS-1$
+		Map<String, String> manifest = new HashMap<String, String>();
+		manifest.put("Bundle-SymbolicName", "a"); //$NON-NLS-1$ //$NON-NLS-2$
+		state.setManifestState(manifest);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		write(state, bytes);
+
+		BuildState read = read(bytes.toByteArray());
+		assertNotNull("The state should have been read", read); //$NON-NLS-1$
+		assertEquals("Wrong number of compatible changes", 2, read.getCompatibleChanges().length); //$NON-NLS-1$
+		assertEquals("Wrong number of breaking changes", 1, read.getBreakingChanges().length); //$NON-NLS-1$
+		assertEquals("Wrong build path CRC", 42L, read.getBuildPathCRC()); //$NON-NLS-1$
+		assertTrue("The dependent project should have been read", read.getApiToolingDependentProjects().contains("p1")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("Wrong manifest state", "a", read.getManifestState().get("Bundle-SymbolicName")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	/**
+	 * Tests that the sections appended for changed types replace the saved
+	 * ones
+	 *
+	 * @throws Exception
+	 */
+	public void testAppendedChanges() throws Exception {
+		BuildState state = new BuildState();
+		state.addCompatibleChange(newDelta("a.A", "m1")); //$NON-NLS-1$ //$NON-NLS-2$
+		state.addBreakingChange(newDelta("a.B", "m1")); //$NON-NLS-1$ //$NON-NLS-2$
+		state.addBreakingChange(newDelta("a.C", "m1")); //$NON-NLS-1$ //$NON-NLS-2$
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		write(state, bytes);
+		int size = bytes.size();
+
+		state.cleanup("a.A"); //$NON-NLS-1$
+		state.addBreakingChange(newDelta("a.A", "m2")); //$NON-NLS-1$ //$NON-NLS-2$
+		state.cleanup("a.B"); //$NON-NLS-1$
+		state.addCompatibleChange(newDelta("a.D", "m1")); //$NON-NLS-1$ //$NON-NLS-2$
+		writeChanges(state, bytes);
+		assertTrue("The changes should have been appended", bytes.size() > size); //$NON-NLS-1$
+
+		BuildState read = read(bytes.toByteArray());
+		assertNotNull("The state should have been read", read); //$NON-NLS-1$
+		IDelta[] compatible = read.getCompatibleChanges();
+		assertEquals("Wrong number of compatible changes", 1, compatible.length); //$NON-NLS-1$
+		assertEquals("Wrong compatible change", "a.D", compatible[0].getTypeName()); //$NON-NLS-1$ //$NON-NLS-2$
+		IDelta[] breaking = read.getBreakingChanges();
+		assertEquals("Wrong number of breaking changes", 2, breaking.length); //$NON-NLS-1$
+		for (int i = 0; i < breaking.length; i++) {
+			assertFalse("The breaking change of a.B should have been removed", "a.B".equals(breaking[i].getTypeName())); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Tests that nothing is appended when a type is cleaned up and the same
+	 * changes are recorded again
+	 *
+	 * @throws Exception
+	 */
+	public void testUnchangedStateWritesNothing() throws Exception {
+		BuildState state = new BuildState();
+		state.addBreakingChange(newDelta("a.A", "m1")); //$NON-NLS-1$ //$NON-NLS-2$
+		state.setBuildPathCRC(1L);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		write(state, bytes);
+		BuildState read = read(bytes.toByteArray());
+
+		read.cleanup("a.A"); //$NON-NLS-1$
+		read.addBreakingChange(newDelta("a.A", "m1")); //$NON-NLS-1$ //$NON-NLS-2$
+		read.setBuildPathCRC(1L);
+		ByteArrayOutputStream changes = new ByteArrayOutputStream();
+		writeChanges(read, changes);
+		assertEquals("Nothing should have been written", 0, changes.size()); //$NON-NLS-1$
+	}
+
+	/**
+	 * Tests that a state whose last section was only partly saved is not read
+	 *
+	 * @throws Exception
+	 */
+	public void testTruncatedState() throws Exception {
+		BuildState state = new BuildState();
+		state.addBreakingChange(newDelta("a.A", "m1")); //$NON-NLS-1$ //$NON-NLS-2$
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		write(state, bytes);
+		byte[] truncated = new byte[bytes.size() - 3];
+		System.arraycopy(bytes.toByteArray(), 0, truncated, 0, truncated.length);
+		assertNull("A truncated state should not be read", read(truncated)); //$NON-NLS-1$
+	}
+}
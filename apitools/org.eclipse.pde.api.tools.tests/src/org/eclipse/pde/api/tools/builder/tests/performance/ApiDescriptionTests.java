@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,12 +10,20 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.builder.tests.performance;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.Test;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.pde.api.tools.internal.ApiDescription;
+import org.eclipse.pde.api.tools.internal.CompactApiDescription;
 import org.eclipse.pde.api.tools.internal.provisional.ApiDescriptionVisitor;
 import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
+import org.eclipse.pde.api.tools.internal.provisional.IApiAnnotations;
+import org.eclipse.pde.api.tools.internal.provisional.IApiDescription;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IElementDescriptor;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
 import org.eclipse.pde.api.tools.model.tests.TestSuiteHelper;
@@ -28,6 +36,25 @@ import org.eclipse.test.performance.Dimension;
  */
 public class ApiDescriptionTests extends PerformanceTest {
 
+	/**
+	 * Visitor copying the annotations of the visited elements to another
+	 * description
+	 */
+	static class CopyVisitor extends ApiDescriptionVisitor {
+		IApiDescription fTarget = null;
+
+		CopyVisitor(IApiDescription target) {
+			fTarget = target;
+		}
+
+		@Override
+		public boolean visitElement(IElementDescriptor element, IApiAnnotations description) {
+			fTarget.setVisibility(element, description.getVisibility());
+			fTarget.setRestrictions(element, description.getRestrictions());
+			return true;
+		}
+	}
+
 	/**
 	 * Constructor
 	 * 
@@ -92,4 +119,88 @@ public class ApiDescriptionTests extends PerformanceTest {
 		commitMeasurements();
 		assertPerformance();
 	}
+
+	/**
+	 * Tests the heap used by the tree based {@link ApiDescription} holding the
+	 * API description of the jdt-ui source project
+	 * 
+	 * @throws Exception
+	 */
+	public void testTreeMemory() throws Exception {
+		measureMemory(false, "API description tree memory"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Tests the heap used by the {@link CompactApiDescription} holding the API
+	 * description of the jdt-ui source project
+	 * 
+	 * @throws Exception
+	 */
+	public void testCompactMemory() throws Exception {
+		measureMemory(true, "Compact API description memory"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Copies the API description of the jdt-ui source project into new
+	 * descriptions and measures the heap they use
+	 * 
+	 * @param compact if {@link CompactApiDescription}s should be measured
+	 * @param summary the summary of the measurement
+	 * @throws Exception
+	 */
+	private void measureMemory(boolean compact, String summary) throws Exception {
+		tagAsSummary(summary, Dimension.USED_JAVA_HEAP);
+		IProject proj = getEnv().getWorkspace().getRoot().getProject("org.eclipse.jdt.ui"); //$NON-NLS-1$
+		proj.build(IncrementalProjectBuilder.CLEAN_BUILD, ApiPlugin.BUILDER_ID, null, null);
+		IApiBaseline baseline = ApiPlugin.getDefault().getApiBaselineManager().getWorkspaceBaseline();
+		final IApiDescription source = baseline.getApiComponent(proj.getName()).getApiDescription();
+
+		// WARM-UP
+		for (int j = 0; j < 2; j++) {
+			final IApiDescription copy = copy(source, compact);
+			source.accept(new ApiDescriptionVisitor() {
+				@Override
+				public boolean visitElement(IElementDescriptor element, IApiAnnotations description) {
+					IApiAnnotations annotations = copy.resolveAnnotations(element);
+					assertNotNull("the copy must resolve " + element, annotations); //$NON-NLS-1$
+					assertEquals("wrong visibility for " + element, description.getVisibility(), annotations.getVisibility()); //$NON-NLS-1$
+					assertEquals("wrong restrictions for " + element, description.getRestrictions(), annotations.getRestrictions()); //$NON-NLS-1$
+					return true;
+				}
+			}, null);
+		}
+
+		// TEST
+		List<IApiDescription> descriptions = new ArrayList<IApiDescription>();
+		for (int j = 0; j < 10; j++) {
+			startMeasuring();
+			descriptions.add(copy(source, compact));
+			stopMeasuring();
+		}
+		assertEquals("the descriptions must be kept until measured", 10, descriptions.size()); //$NON-NLS-1$
+
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/**
+	 * Returns a copy of the given description
+	 * 
+	 * @param source
+	 * @param compact if the copy should be a {@link CompactApiDescription}
+	 * @return the copy
+	 */
+	private IApiDescription copy(IApiDescription source, boolean compact) {
+		IApiDescription copy = null;
+		if (compact) {
+			copy = new CompactApiDescription(null);
+		} else {
+			copy = new ApiDescription(null);
+		}
+		source.accept(new CopyVisitor(copy), null);
+		if (compact) {
+			((CompactApiDescription) copy).trimToSize();
+		}
+		return copy;
+	}
 }
@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.builder.tests.performance;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import junit.framework.Test;
+
+import org.eclipse.pde.api.tools.internal.builder.BuildState;
+import org.eclipse.pde.api.tools.internal.comparator.Delta;
+import org.eclipse.pde.api.tools.internal.provisional.comparator.IDelta;
+import org.eclipse.test.performance.Dimension;
+
+/**
+ * Performance tests for reading and writing the API tools build state with
+ * growing numbers of recorded deltas
+ *
+ * @since 1.0.700
+ */
+public class BuildStatePerfTests extends PerformanceTest {
+
+	/**
+	 * The number of deltas recorded per type
+	 */
+	static final int DELTAS_PER_TYPE = 10;
+
+	/**
+	 * Constructor
+	 *
+	 * @param name
+	 */
+	public BuildStatePerfTests(String name) {
+		super(name);
+	}
+
+	/**
+	 * @return the tests for this class
+	 */
+	public static Test suite() {
+		return buildTestSuite(BuildStatePerfTests.class);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.builder.tests.performance.PerformanceTest#
+	 * getWorkspaceLocation()
+	 */
+	@Override
+	protected String getWorkspaceLocation() {
+		return getTestSourcePath().append("source-ws.zip").toOSString(); //$NON-NLS-1$
+	}
+
+	public void testWrite1000Deltas() throws Exception {
+		measureWrite(1000, "Write build state - 1000 deltas"); //$NON-NLS-1$
+	}
+
+	public void testWrite10000Deltas() throws Exception {
+		measureWrite(10000, "Write build state - 10000 deltas"); //$NON-NLS-1$
+	}
+
+	public void testRead1000Deltas() throws Exception {
+		measureRead(1000, "Read build state - 1000 deltas"); //$NON-NLS-1$
+	}
+
+	public void testRead10000Deltas() throws Exception {
+		measureRead(10000, "Read build state - 10000 deltas"); //$NON-NLS-1$
+	}
+
+	public void testWriteChanges1000Deltas() throws Exception {
+		measureWriteChanges(1000, "Save one changed type of build state - 1000 deltas"); //$NON-NLS-1$
+	}
+
+	public void testWriteChanges10000Deltas() throws Exception {
+		measureWriteChanges(10000, "Save one changed type of build state - 10000 deltas"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Creates a build state holding the given number of breaking changes
+	 *
+	 * @param count the number of deltas
+	 * @return a new build state
+	 */
+	private BuildState createState(int count) {
+		BuildState state = new BuildState();
+		for (int i = 0; i < count; i++) {
+			state.addBreakingChange(newDelta(i / DELTAS_PER_TYPE, i));
+		}
+		return state;
+	}
+
+	private IDelta newDelta(int type, int method) {
+		String typeName = "p.Type" + type; //$NON-NLS-1$
+		return new Delta(null, IDelta.CLASS_ELEMENT_TYPE, IDelta.REMOVED, IDelta.METHOD, typeName, "m" + method + "()V", typeName); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private byte[] write(BuildState state) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		BuildState.write(state, out);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Measures writing a state with the given number of deltas from scratch
+	 *
+	 * @param count the number of deltas
+	 * @param summary the summary of the measurements
+	 * @throws Exception
+	 */
+	private void measureWrite(int count, String summary) throws Exception {
+		tagAsSummary(summary, Dimension.ELAPSED_PROCESS);
+		BuildState state = createState(count);
+
+		// WARM-UP
+		for (int j = 0; j < 5; j++) {
+			write(state);
+		}
+
+		// TEST
+		for (int j = 0; j < 20; j++) {
+			startMeasuring();
+			write(state);
+			stopMeasuring();
+		}
+
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/**
+	 * Measures reading a state with the given number of deltas
+	 *
+	 * @param count the number of deltas
+	 * @param summary the summary of the measurements
+	 * @throws Exception
+	 */
+	private void measureRead(int count, String summary) throws Exception {
+		tagAsSummary(summary, Dimension.ELAPSED_PROCESS);
+		byte[] bytes = write(createState(count));
+
+		// WARM-UP
+		for (int j = 0; j < 5; j++) {
+			BuildState.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+		}
+
+		// TEST
+		for (int j = 0; j < 20; j++) {
+			startMeasuring();
+			BuildState state = BuildState.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+			stopMeasuring();
+			assertEquals("Wrong number of deltas read", count, state.getBreakingChanges().length); //$NON-NLS-1$
+		}
+
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/**
+	 * Measures saving a state with the given number of deltas after the
+	 * changes of a single type were recomputed, as an incremental build does
+	 *
+	 * @param count the number of deltas
+	 * @param summary the summary of the measurements
+	 * @throws Exception
+	 */
+	private void measureWriteChanges(int count, String summary) throws Exception {
+		tagAsSummary(summary, Dimension.ELAPSED_PROCESS);
+		BuildState state = createState(count);
+		write(state);
+
+		// WARM-UP and TEST
+		for (int j = 0; j < 25; j++) {
+			state.cleanup("p.Type0"); //$NON-NLS-1$
+			state.addBreakingChange(newDelta(0, count + j));
+			if (j >= 5) {
+				startMeasuring();
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			BuildState.writeChanges(state, out);
+			out.close();
+			if (j >= 5) {
+				stopMeasuring();
+			}
+		}
+
+		commitMeasurements();
+		assertPerformance();
+	}
+}
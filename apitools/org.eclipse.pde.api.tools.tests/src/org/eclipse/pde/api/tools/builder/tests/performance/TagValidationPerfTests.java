@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.builder.tests.performance;
+
+import junit.framework.Test;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.pde.api.tools.internal.builder.BaseApiAnalyzer;
+import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
+import org.eclipse.test.performance.Dimension;
+
+/**
+ * Compares the throughput of full builds of a large source workspace when the
+ * Javadoc tags and annotations are validated by one thread and by a thread
+ * per processor
+ * 
+ * @since 1.0.700
+ */
+public class TagValidationPerfTests extends PerformanceTest {
+
+	/**
+	 * Constructor
+	 * 
+	 * @param name
+	 */
+	public TagValidationPerfTests(String name) {
+		super(name);
+	}
+
+	/**
+	 * @return the tests for this class
+	 */
+	public static Test suite() {
+		return buildTestSuite(TagValidationPerfTests.class);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.builder.tests.performance.PerformanceTest#
+	 * getBaselineLocation()
+	 */
+	@Override
+	protected String getBaselineLocation() {
+		return getTestSourcePath().append("bin-baseline.zip").toOSString(); //$NON-NLS-1$
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.builder.tests.performance.PerformanceTest#
+	 * getWorkspaceLocation()
+	 */
+	@Override
+	protected String getWorkspaceLocation() {
+		return getTestSourcePath().append("source-ws.zip").toOSString(); //$NON-NLS-1$
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		System.getProperties().remove(BaseApiAnalyzer.TAG_VALIDATION_THREADS_PROPERTY);
+		super.tearDown();
+	}
+
+	/**
+	 * Tests full builds of the workspace validating tags on a single thread
+	 * 
+	 * @throws Exception
+	 */
+	public void testSerialTagValidation() throws Exception {
+		System.setProperty(BaseApiAnalyzer.TAG_VALIDATION_THREADS_PROPERTY, "1"); //$NON-NLS-1$
+		measureFullBuilds("Full Build - Serial Tag Validation"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Tests full builds of the workspace validating tags on a thread per
+	 * available processor
+	 * 
+	 * @throws Exception
+	 */
+	public void testParallelTagValidation() throws Exception {
+		System.setProperty(BaseApiAnalyzer.TAG_VALIDATION_THREADS_PROPERTY, Integer.toString(Runtime.getRuntime().availableProcessors()));
+		measureFullBuilds("Full Build - Parallel Tag Validation"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Measures full API builds of every project of the workspace
+	 * 
+	 * @param summary the summary to tag the measurements with
+	 * @throws Exception
+	 */
+	private void measureFullBuilds(String summary) throws Exception {
+		tagAsSummary(summary, Dimension.ELAPSED_PROCESS);
+
+		// get everything built
+		fullBuild();
+		IProject[] projects = getEnv().getProjectBuildOrder();
+
+		// WARM-UP
+		for (int j = 0; j < 2; j++) {
+			orderedBuild(projects);
+		}
+
+		// TEST
+		for (int j = 0; j < 15; j++) {
+			startMeasuring();
+
+			// *** build each project ***
+			for (int i = 0; i < projects.length; i++) {
+				projects[i].build(IncrementalProjectBuilder.FULL_BUILD, ApiPlugin.BUILDER_ID, null, null);
+			}
+
+			stopMeasuring();
+		}
+
+		commitMeasurements();
+		assertPerformance();
+	}
+}
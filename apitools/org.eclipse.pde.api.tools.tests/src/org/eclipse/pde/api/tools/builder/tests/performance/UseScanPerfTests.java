@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.builder.tests.performance;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.Test;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
+import org.eclipse.pde.api.tools.internal.provisional.builder.IReference;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiElement;
+import org.eclipse.pde.api.tools.internal.provisional.search.ApiSearchEngine;
+import org.eclipse.pde.api.tools.internal.provisional.search.IApiSearchReporter;
+import org.eclipse.pde.api.tools.internal.provisional.search.IApiSearchRequestor;
+import org.eclipse.pde.api.tools.internal.provisional.search.IMetadata;
+import org.eclipse.pde.api.tools.internal.search.UseSearchRequestor;
+import org.eclipse.test.performance.Dimension;
+
+/**
+ * Performance tests for the use scan of a workspace of real bundles. The
+ * used java heap dimension shows the garbage produced by the reference
+ * extraction.
+ *
+ * @since 1.0.700
+ */
+public class UseScanPerfTests extends PerformanceTest {
+
+	/**
+	 * Reporter that only counts the references
+	 */
+	static class CountingReporter implements IApiSearchReporter {
+		int count = 0;
+
+		@Override
+		public void reportResults(IApiElement element, IReference[] references) {
+			count += references.length;
+		}
+
+		@Override
+		public void reportNotSearched(IApiElement[] elements) {
+		}
+
+		@Override
+		public void reportMetadata(IMetadata data) {
+		}
+
+		@Override
+		public void reportCounts() {
+		}
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param name
+	 */
+	public UseScanPerfTests(String name) {
+		super(name);
+	}
+
+	/**
+	 * @return the tests for this class
+	 */
+	public static Test suite() {
+		return buildTestSuite(UseScanPerfTests.class);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.builder.tests.performance.PerformanceTest#
+	 * getWorkspaceLocation()
+	 */
+	@Override
+	protected String getWorkspaceLocation() {
+		return getTestSourcePath().append("source-ws.zip").toOSString(); //$NON-NLS-1$
+	}
+
+	/**
+	 * Tests a use scan of all of the API and internal references between the
+	 * bundles of the workspace
+	 *
+	 * @throws Exception
+	 */
+	public void testUseScan() throws Exception {
+		tagAsSummary("Use scan", Dimension.ELAPSED_PROCESS); //$NON-NLS-1$
+
+		// get everything built
+		fullBuild();
+		IProject[] projects = getEnv().getProjectBuildOrder();
+		IApiBaseline baseline = ApiPlugin.getDefault().getApiBaselineManager().getWorkspaceBaseline();
+		Set<String> ids = new HashSet<String>();
+		List<IApiElement> scope = new ArrayList<IApiElement>();
+		for (int i = 0; i < projects.length; i++) {
+			IApiComponent component = baseline.getApiComponent(projects[i].getName());
+			if (component != null) {
+				ids.add(component.getSymbolicName());
+				scope.add(component);
+			}
+		}
+		IApiElement[] elements = scope.toArray(new IApiElement[scope.size()]);
+		int kinds = IApiSearchRequestor.INCLUDE_API | IApiSearchRequestor.INCLUDE_INTERNAL;
+		ApiSearchEngine engine = new ApiSearchEngine();
+
+		// WARM-UP
+		int count = 0;
+		for (int j = 0; j < 2; j++) {
+			CountingReporter reporter = new CountingReporter();
+			engine.search(baseline, new UseSearchRequestor(ids, elements, kinds), reporter, null);
+			count = reporter.count;
+		}
+		assertTrue("The scan should find references", count > 0); //$NON-NLS-1$
+
+		// TEST
+		for (int j = 0; j < 10; j++) {
+			CountingReporter reporter = new CountingReporter();
+			UseSearchRequestor requestor = new UseSearchRequestor(ids, elements, kinds);
+			startMeasuring();
+			engine.search(baseline, requestor, reporter, null);
+			stopMeasuring();
+			assertEquals("Each scan should find the same references", count, reporter.count); //$NON-NLS-1$
+		}
+
+		commitMeasurements();
+		assertPerformance();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -387,4 +387,28 @@ public class InvalidClassTagTests extends TagTest {
 		deployTagTest("test12.java", inc, false); //$NON-NLS-1$
 	}
 
+	/**
+	 * Tests that @noreference tags on local and anonymous classes are not
+	 * reported, only the one on the private member class (incremental build)
+	 */
+	public void testInvalidClassTag13I() {
+		x13(true);
+	}
+
+	/**
+	 * Tests that @noreference tags on local and anonymous classes are not
+	 * reported, only the one on the private member class (full build)
+	 */
+	public void testInvalidClassTag13F() {
+		x13(false);
+	}
+
+	private void x13(boolean inc) {
+		setExpectedProblemIds(getDefaultProblemSet(1));
+		setExpectedMessageArgs(new String[][] { {
+				"@noreference", BuilderMessages.TagValidator_a_private_class } //$NON-NLS-1$
+		});
+		deployTagTest("test13.java", inc, false); //$NON-NLS-1$
+	}
+
 }
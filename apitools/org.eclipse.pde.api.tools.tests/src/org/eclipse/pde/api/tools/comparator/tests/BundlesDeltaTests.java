@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 IBM Corporation and others.
+ * Copyright (c) 2007, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,9 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.comparator.tests;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
@@ -17,6 +20,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.pde.api.tools.internal.provisional.VisibilityModifiers;
 import org.eclipse.pde.api.tools.internal.provisional.comparator.ApiComparator;
 import org.eclipse.pde.api.tools.internal.provisional.comparator.DeltaProcessor;
+import org.eclipse.pde.api.tools.internal.provisional.comparator.DeltaVisitor;
 import org.eclipse.pde.api.tools.internal.provisional.comparator.IDelta;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
@@ -575,4 +579,42 @@ public class BundlesDeltaTests extends DeltaTestSetup {
 		assertNotNull("No delta", delta); //$NON-NLS-1$
 		assertFalse("Equals to NO_DELTA", delta == ApiComparator.NO_DELTA); //$NON-NLS-1$
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Test that comparing baselines with several threads reports the same
+	 * deltas, in the same order, as the comparison building the whole delta
+	 */
+	public void test17() {
+		deployBundles("test1"); //$NON-NLS-1$
+		IDelta delta = ApiComparator.compare(getBeforeState(), getAfterState(), VisibilityModifiers.ALL_VISIBILITIES, true, null);
+		assertNotNull("No delta", delta); //$NON-NLS-1$
+		final List<IDelta> expected = new ArrayList<IDelta>();
+		delta.accept(new DeltaVisitor() {
+			@Override
+			public void endVisit(IDelta localDelta) {
+				if (localDelta.getChildren().length == 0) {
+					expected.add(localDelta);
+				}
+			}
+		});
+		final List<IDelta> streamed = new ArrayList<IDelta>();
+		boolean reported = ApiComparator.compare(getBeforeState(), getAfterState(), VisibilityModifiers.ALL_VISIBILITIES, true, 2, new DeltaVisitor() {
+			@Override
+			public void endVisit(IDelta localDelta) {
+				if (localDelta.getChildren().length == 0) {
+					streamed.add(localDelta);
+				}
+			}
+		}, null);
+		assertTrue("Deltas should be reported", reported); //$NON-NLS-1$
+		assertEquals("Wrong size", expected.size(), streamed.size()); //$NON-NLS-1$
+		for (int i = 0; i < expected.size(); i++) {
+			IDelta expectedDelta = expected.get(i);
+			IDelta streamedDelta = streamed.get(i);
+			assertEquals("Wrong kind", expectedDelta.getKind(), streamedDelta.getKind()); //$NON-NLS-1$
+			assertEquals("Wrong flag", expectedDelta.getFlags(), streamedDelta.getFlags()); //$NON-NLS-1$
+			assertEquals("Wrong element type", expectedDelta.getElementType(), streamedDelta.getElementType()); //$NON-NLS-1$
+			assertEquals("Wrong key", expectedDelta.getKey(), streamedDelta.getKey()); //$NON-NLS-1$
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2013 IBM Corporation and others.
+ * Copyright (c) 2007, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,13 +10,18 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.model.tests;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.pde.api.tools.internal.BundleVersionRange;
 import org.eclipse.pde.api.tools.internal.RequiredComponentDescription;
+import org.eclipse.pde.api.tools.internal.model.ApiBaseline;
+import org.eclipse.pde.api.tools.internal.model.BundleComponent;
 import org.eclipse.pde.api.tools.internal.provisional.Factory;
 import org.eclipse.pde.api.tools.internal.provisional.IApiAnnotations;
 import org.eclipse.pde.api.tools.internal.provisional.IApiDescription;
@@ -101,6 +106,84 @@ public class ApiBaselineTests extends TestCase {
 		assertEquals("Wrong provider for package", fBaseline.getApiComponent(COMPONENT_A), components[0]); //$NON-NLS-1$
 	}
 
+	/**
+	 * Resolves the same packages from several threads and checks that every
+	 * thread sees the same providers, also after the package was cleared
+	 * 
+	 * @throws Exception
+	 */
+	public void testResolvePackageConcurrently() throws Exception {
+		assertNotNull("the testing baseline should exist", fBaseline); //$NON-NLS-1$
+		final IApiComponent componentA = fBaseline.getApiComponent(COMPONENT_A);
+		final IApiComponent componentB = fBaseline.getApiComponent(COMPONENT_B);
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < 100; j++) {
+							IApiComponent[] components = fBaseline.resolvePackage(componentB, COMPONENT_A);
+							assertEquals("Wrong size", 1, components.length); //$NON-NLS-1$
+							assertEquals("Wrong provider for package", componentA, components[0]); //$NON-NLS-1$
+							components = fBaseline.resolvePackage(componentA, "a.b.c"); //$NON-NLS-1$
+							assertEquals("Wrong size", 1, components.length); //$NON-NLS-1$
+							assertEquals("Wrong provider for package", componentA, components[0]); //$NON-NLS-1$
+							if (j % 10 == 0) {
+								((ApiBaseline) fBaseline).clearPackage(COMPONENT_A);
+							}
+						}
+					} catch (Throwable e) {
+						errors.add(e);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+		}
+		assertTrue("Resolution failed: " + errors, errors.isEmpty()); //$NON-NLS-1$
+		assertEquals("Wrong size", 0, fBaseline.resolvePackage(componentB, "does.not.exist").length); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Resolves a package that is added to the source component after a
+	 * lookup of it failed, without the package being cleared
+	 * 
+	 * @throws Exception
+	 */
+	public void testResolvePackageAddedAfterMiss() throws Exception {
+		IApiBaseline baseline = TestSuiteHelper.newApiBaseline("added", TestSuiteHelper.getEEDescriptionFile()); //$NON-NLS-1$
+		try {
+			final List<String> added = new ArrayList<String>();
+			File location = TestSuiteHelper.getPluginDirectoryPath().append(TEST_PLUGINS).append("component.a_1.0.0.jar").toFile(); //$NON-NLS-1$
+			IApiComponent component = new BundleComponent(baseline, location.getAbsolutePath(), 1000) {
+				@Override
+				public String[] getPackageNames() throws CoreException {
+					List<String> names = new ArrayList<String>(Arrays.asList(super.getPackageNames()));
+					names.addAll(added);
+					String[] result = names.toArray(new String[names.size()]);
+					Arrays.sort(result);
+					return result;
+				}
+			};
+			baseline.addApiComponents(new IApiComponent[] { component });
+			assertEquals("Package should not be found", 0, baseline.resolvePackage(component, "a.b.added").length); //$NON-NLS-1$ //$NON-NLS-2$
+
+			added.add("a.b.added"); //$NON-NLS-1$
+			IApiComponent[] components = baseline.resolvePackage(component, "a.b.added"); //$NON-NLS-1$
+			assertEquals("Added package should be found", 1, components.length); //$NON-NLS-1$
+			assertEquals("Wrong provider for package", component, components[0]); //$NON-NLS-1$
+
+			added.clear();
+			assertEquals("Removed package should not be found", 0, baseline.resolvePackage(component, "a.b.added").length); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			baseline.dispose();
+		}
+	}
+
 	/**
 	 * Resolves a system package
 	 * 
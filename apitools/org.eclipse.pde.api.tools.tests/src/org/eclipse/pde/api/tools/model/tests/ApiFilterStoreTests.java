@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2012 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -234,6 +234,44 @@ public class ApiFilterStoreTests extends AbstractApiTest {
 		}
 	}
 	
+	/**
+	 * Tests that the indexed lookup matches qualified and simple message
+	 * arguments the same way filters always did and records the filters used
+	 */
+	public void testIndexedFilterLookup() {
+		try {
+			IApiComponent component = getProjectApiComponent(TESTING_PLUGIN_PROJECT_NAME);
+			assertNotNull("the testing project api component must exist", component); //$NON-NLS-1$
+			IProject project = getTestingJavaProject(TESTING_PLUGIN_PROJECT_NAME).getProject();
+			IResource resource = project.findMember(new Path("src/x/y/z/C4.java")); //$NON-NLS-1$
+			assertNotNull("the resource src/x/y/z/C4.java must exist", resource); //$NON-NLS-1$
+			String path = resource.getProjectRelativePath().toPortableString();
+			IApiProblem problem = ApiProblemFactory.newApiProblem(path, "x.y.z.C4", new String[] { "C4", "m()" }, null, null, -1, -1, -1, IApiProblem.CATEGORY_USAGE, IElementDescriptor.METHOD, IApiProblem.ILLEGAL_OVERRIDE, IApiProblem.NO_FLAGS); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			IApiFilterStore store = component.getFilterStore();
+			assertTrue("the store must be an ApiFilterStore", store instanceof ApiFilterStore); //$NON-NLS-1$
+			ApiFilterStore fstore = (ApiFilterStore) store;
+			fstore.addFiltersFor(new IApiProblem[] { problem });
+			fstore.recordFilterUsage();
+			int unused = fstore.getUnusedFilters(resource, "x.y.z.C4", null).length; //$NON-NLS-1$
+			assertTrue("the new filter must be unused", unused > 0); //$NON-NLS-1$
+
+			IApiProblem other = ApiProblemFactory.newApiProblem(path, "x.y.z.C4", new String[] { "x.y.z.C5", "m()" }, null, null, -1, -1, -1, IApiProblem.CATEGORY_USAGE, IElementDescriptor.METHOD, IApiProblem.ILLEGAL_OVERRIDE, IApiProblem.NO_FLAGS); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			assertFalse("a problem with other arguments must not be filtered", fstore.isFiltered(other)); //$NON-NLS-1$
+			other = ApiProblemFactory.newApiProblem(path, null, new String[] { "C4", "m()" }, null, null, -1, -1, -1, IApiProblem.CATEGORY_USAGE, IElementDescriptor.METHOD, IApiProblem.ILLEGAL_OVERRIDE, IApiProblem.NO_FLAGS); //$NON-NLS-1$ //$NON-NLS-2$
+			assertFalse("a problem without type name must not be filtered", fstore.isFiltered(other)); //$NON-NLS-1$
+			assertEquals("no filter must have been used", unused, fstore.getUnusedFilters(resource, "x.y.z.C4", null).length); //$NON-NLS-1$ //$NON-NLS-2$
+
+			IApiProblem qualified = ApiProblemFactory.newApiProblem(path, "x.y.z.C4", new String[] { "x.y.z.C4", "m()" }, null, null, -1, -1, -1, IApiProblem.CATEGORY_USAGE, IElementDescriptor.METHOD, IApiProblem.ILLEGAL_OVERRIDE, IApiProblem.NO_FLAGS); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			assertTrue("the qualified argument must match the simple name of the filter", fstore.isFiltered(qualified)); //$NON-NLS-1$
+			assertEquals("the filter must have been used", unused - 1, fstore.getUnusedFilters(resource, "x.y.z.C4", null).length); //$NON-NLS-1$ //$NON-NLS-2$
+
+			fstore.removeFilters(new IApiProblemFilter[] { ApiProblemFactory.newProblemFilter(component.getSymbolicName(), problem, null) });
+			assertFalse("the removed filter must not be found anymore", fstore.isFiltered(qualified)); //$NON-NLS-1$
+		} catch (CoreException ce) {
+			fail(ce.getMessage());
+		}
+	}
+
 	/**
 	 * Tests that a filter store will not be annotated from a bundle
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -25,6 +25,8 @@ public class ApiModelCacheTests extends TestCase {
 
 	static final String TEST_COMP_ID = "testcomp-id"; //$NON-NLS-1$
 	static final String TEST_BASELINE_ID = "testbaseline-id"; //$NON-NLS-1$
+
+	long fMaxWeight = ApiModelCache.getCache().getMaxWeight();
 	
 	/* (non-Javadoc)
 	 * @see junit.framework.TestCase#tearDown()
@@ -32,6 +34,8 @@ public class ApiModelCacheTests extends TestCase {
 	@Override
 	protected void tearDown() throws Exception {
 		ApiModelCache.getCache().flushCaches();
+		ApiModelCache.getCache().setMaxWeight(fMaxWeight);
+		ApiModelCache.getCache().resetStatistics();
 		super.tearDown();
 	}
 	
@@ -161,4 +165,114 @@ public class ApiModelCacheTests extends TestCase {
 		assertTrue("The type 'a.b.c.testee1' should have been removed from the cache", ApiModelCache.getCache().removeElementInfo(element)); //$NON-NLS-1$
 		assertTrue("The cache should be empty", ApiModelCache.getCache().isEmpty()); //$NON-NLS-1$
 	}
+
+	/**
+	 * Tests that the hit and miss counters are updated by lookups
+	 *
+	 * @throws Exception
+	 */
+	public void testHitMissCounters() throws Exception {
+		ApiModelCache cache = ApiModelCache.getCache();
+		cache.resetStatistics();
+		cacheType("a.b.c.counted"); //$NON-NLS-1$
+		assertNotNull("The type should be cached", cache.getElementInfo(TEST_BASELINE_ID, TEST_COMP_ID, "a.b.c.counted", IApiElement.TYPE)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull("The type should not be cached", cache.getElementInfo(TEST_BASELINE_ID, TEST_COMP_ID, "a.b.c.missing", IApiElement.TYPE)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("There should be one hit", 1, cache.getHitCount()); //$NON-NLS-1$
+		assertEquals("There should be one miss", 1, cache.getMissCount()); //$NON-NLS-1$
+	}
+
+	/**
+	 * Tests that least recently used types are evicted once the cache exceeds
+	 * its maximum weight
+	 *
+	 * @throws Exception
+	 */
+	public void testEvictionByWeight() throws Exception {
+		ApiModelCache cache = ApiModelCache.getCache();
+		cache.resetStatistics();
+		// room for very few types in each segment
+		cache.setMaxWeight(16 * 600);
+		for (int i = 0; i < 200; i++) {
+			cacheType("a.b.c.evicted" + i); //$NON-NLS-1$
+		}
+		assertTrue("Some types should have been evicted", cache.getEvictionCount() > 0); //$NON-NLS-1$
+		assertTrue("The cache should not exceed its maximum weight", cache.getWeight() <= cache.getMaxWeight()); //$NON-NLS-1$
+		assertNotNull("The last type added should be cached", cache.getElementInfo(TEST_BASELINE_ID, TEST_COMP_ID, "a.b.c.evicted199", IApiElement.TYPE)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Tests removing all of the types of a component
+	 *
+	 * @throws Exception
+	 */
+	public void testRemoveComponent() throws Exception {
+		cacheType("a.b.c.testee1"); //$NON-NLS-1$
+		cacheType("a.b.c.testee1$inner"); //$NON-NLS-1$
+		cacheType("a.b.c.testee2"); //$NON-NLS-1$
+		assertTrue("The component types should have been removed", ApiModelCache.getCache().removeElementInfo(TEST_BASELINE_ID, TEST_COMP_ID, null, IApiElement.COMPONENT)); //$NON-NLS-1$
+		assertTrue("The cache should be empty", ApiModelCache.getCache().isEmpty()); //$NON-NLS-1$
+		assertEquals("The cache should have no weight", 0, ApiModelCache.getCache().getWeight()); //$NON-NLS-1$
+	}
+
+	/**
+	 * Tests that content digests are removed along with their types
+	 *
+	 * @throws Exception
+	 */
+	public void testContentDigests() throws Exception {
+		ApiModelCache cache = ApiModelCache.getCache();
+		byte[] digest = new byte[] { 1, 2, 3 };
+		cache.cacheContentDigest(TEST_BASELINE_ID, TEST_COMP_ID, "a.b.c.digest", digest); //$NON-NLS-1$
+		cache.cacheContentDigest(TEST_BASELINE_ID, TEST_COMP_ID, "a.b.c.digest$inner", digest); //$NON-NLS-1$
+		cache.cacheContentDigest(TEST_BASELINE_ID, TEST_COMP_ID, "a.b.c.other", digest); //$NON-NLS-1$
+		assertSame("The digest should be cached", digest, cache.getContentDigest(TEST_BASELINE_ID, TEST_COMP_ID, "a.b.c.digest$inner")); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.removeElementInfo(TEST_BASELINE_ID, TEST_COMP_ID, "a.b.c.digest", IApiElement.TYPE); //$NON-NLS-1$
+		assertNull("The digest of the root type should be removed", cache.getContentDigest(TEST_BASELINE_ID, TEST_COMP_ID, "a.b.c.digest")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull("The digest of the member type should be removed", cache.getContentDigest(TEST_BASELINE_ID, TEST_COMP_ID, "a.b.c.digest$inner")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame("The digest of the other type should be kept", digest, cache.getContentDigest(TEST_BASELINE_ID, TEST_COMP_ID, "a.b.c.other")); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.removeElementInfo(TEST_BASELINE_ID, null, null, IApiElement.BASELINE);
+		assertNull("The digests of the baseline should be removed", cache.getContentDigest(TEST_BASELINE_ID, TEST_COMP_ID, "a.b.c.other")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Tests that resolutions are cached per baseline and are dropped when a
+	 * type or the baseline is removed
+	 *
+	 * @throws Exception
+	 */
+	public void testResolutions() throws Exception {
+		ApiModelCache cache = ApiModelCache.getCache();
+		IApiType type = TestSuiteHelper.createTestingApiType(TEST_BASELINE_ID, TEST_COMP_ID, "a.b.c.resolved", "()V", null, 0, null); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.cacheResolution(TEST_BASELINE_ID, "comp#a.b.c.resolved", type); //$NON-NLS-1$
+		cache.cacheResolution(TEST_BASELINE_ID, "comp#a.b.c.missing", null); //$NON-NLS-1$
+		assertSame("The resolution should be cached", type, cache.getResolution(TEST_BASELINE_ID, "comp#a.b.c.resolved")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame("The reference should be cached as unresolved", ApiModelCache.UNRESOLVED, cache.getResolution(TEST_BASELINE_ID, "comp#a.b.c.missing")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull("The resolution should not be cached for another baseline", cache.getResolution("other-baseline", "comp#a.b.c.resolved")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		cache.removeElementInfo(TEST_BASELINE_ID, TEST_COMP_ID, "a.b.c.other", IApiElement.TYPE); //$NON-NLS-1$
+		assertNull("The resolutions should be removed when a type changes", cache.getResolution(TEST_BASELINE_ID, "comp#a.b.c.resolved")); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.cacheResolution(TEST_BASELINE_ID, "comp#a.b.c.resolved", type); //$NON-NLS-1$
+		cache.removeElementInfo(TEST_BASELINE_ID, null, null, IApiElement.BASELINE);
+		assertNull("The resolutions should be removed with the baseline", cache.getResolution(TEST_BASELINE_ID, "comp#a.b.c.resolved")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Tests that resolutions count against the maximum weight of the cache
+	 * and that the resolutions of other baselines are dropped first
+	 *
+	 * @throws Exception
+	 */
+	public void testResolutionWeight() throws Exception {
+		ApiModelCache cache = ApiModelCache.getCache();
+		cache.setMaxWeight(16 * 1024);
+		cache.cacheResolution("other-baseline", "comp#a.b.c.other", null); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue("The resolution should be weighed", cache.getWeight() > 0); //$NON-NLS-1$
+		for (int i = 0; i < 100; i++) {
+			cache.cacheResolution(TEST_BASELINE_ID, "comp#a.b.c.missing" + i, null); //$NON-NLS-1$
+			assertTrue("The cache should not exceed its maximum weight", cache.getWeight() <= cache.getMaxWeight()); //$NON-NLS-1$
+		}
+		assertNull("The resolutions of the other baseline should have been dropped", cache.getResolution("other-baseline", "comp#a.b.c.other")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertSame("The last resolution should be cached", ApiModelCache.UNRESOLVED, cache.getResolution(TEST_BASELINE_ID, "comp#a.b.c.missing99")); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.removeElementInfo(TEST_BASELINE_ID, null, null, IApiElement.BASELINE);
+		assertEquals("The cache should have no weight", 0, cache.getWeight()); //$NON-NLS-1$
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2008 IBM Corporation and others.
+ * Copyright (c) 2007, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,13 +10,24 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.model.tests;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
@@ -24,11 +35,18 @@ import junit.framework.TestSuite;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.pde.api.tools.internal.model.ApiType;
 import org.eclipse.pde.api.tools.internal.model.ArchiveApiTypeContainer;
+import org.eclipse.pde.api.tools.internal.model.ArchiveIndex;
 import org.eclipse.pde.api.tools.internal.model.DirectoryApiTypeContainer;
+import org.eclipse.pde.api.tools.internal.model.TarApiTypeContainer;
+import org.eclipse.pde.api.tools.internal.model.TypeStructureBuilder;
+import org.eclipse.pde.api.tools.internal.model.TypeStructureCache;
 import org.eclipse.pde.api.tools.internal.provisional.model.ApiTypeContainerVisitor;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiType;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeContainer;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeRoot;
+import org.eclipse.pde.api.tools.internal.util.Util;
 
 /**
  * Tests the class file containers
@@ -62,6 +80,20 @@ public class ApiTypeContainerTests extends TestCase {
 		return new ArchiveApiTypeContainer(null, path.toOSString());
 	}
 	
+	/**
+	 * Builds a sample container on sample.tar.gz, holding the same class files
+	 * as sample.jar
+	 * 
+	 * @return sample tar container
+	 */
+	protected IApiTypeContainer buildTarContainer() {
+		IPath path = TestSuiteHelper.getPluginDirectoryPath();
+		path = path.append("test-jars").append("sample.tar.gz"); //$NON-NLS-1$ //$NON-NLS-2$
+		File file = path.toFile();
+		assertTrue("Missing tar file", file.exists()); //$NON-NLS-1$
+		return new TarApiTypeContainer(null, path.toOSString());
+	}
+
 	/**
 	 * Builds a sample container on directory
 	 * 
@@ -84,6 +116,148 @@ public class ApiTypeContainerTests extends TestCase {
 		doTestPackageNames(buildArchiveContainer());
 	}	
 	
+	/**
+	 * Tests retrieving package names from a tar archive.
+	 * 
+	 * @throws CoreException
+	 */
+	public void testTarPackageNames() throws CoreException {
+		doTestPackageNames(buildTarContainer());
+	}
+
+	/**
+	 * Tests that a tar.gz archive made of a single GZIP member is extracted
+	 * with its class files, since reading them at random would decompress the
+	 * archive from its start again and again
+	 * 
+	 * @throws Exception
+	 */
+	public void testTarExtraction() throws Exception {
+		IPath path = TestSuiteHelper.getPluginDirectoryPath().append("test-jars").append("sample.tar.gz"); //$NON-NLS-1$ //$NON-NLS-2$
+		File location = new File(System.getProperty("java.io.tmpdir"), "tar_extraction_tests"); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			TarApiTypeContainer.extract(path.toOSString(), location);
+			assertTrue("The class files should be extracted", containsClassFile(location)); //$NON-NLS-1$
+			assertTrue("Missing class file", new File(location, "a/b/c/ClassC.class").isFile()); //$NON-NLS-1$ //$NON-NLS-2$
+			assertNull("The extracted folder should not be read from the archive", TarApiTypeContainer.getExtractedContainer(null, location)); //$NON-NLS-1$
+		} finally {
+			TarApiTypeContainer.forgetExtraction(location);
+			Util.delete(location);
+		}
+	}
+
+	/**
+	 * Tests that a tar.gz archive made of several GZIP members, which can be
+	 * read at random, is extracted without its class files, these being read
+	 * from the archive for the extracted folders
+	 * 
+	 * @throws Exception
+	 */
+	public void testMultiMemberTarExtraction() throws Exception {
+		File location = new File(System.getProperty("java.io.tmpdir"), "tar_extraction_tests"); //$NON-NLS-1$ //$NON-NLS-2$
+		File folder = new File(location, "extracted"); //$NON-NLS-1$
+		IApiTypeContainer container = null;
+		try {
+			File archive = buildMultiMemberArchive(new File(location, "sample.tar.gz")); //$NON-NLS-1$
+			TarApiTypeContainer.extract(archive.getAbsolutePath(), folder);
+			assertTrue("The folders of the class files should be extracted", folder.isDirectory()); //$NON-NLS-1$
+			assertFalse("No class file should be extracted", containsClassFile(folder)); //$NON-NLS-1$
+			container = TarApiTypeContainer.getExtractedContainer(null, folder);
+			assertNotNull("The extracted folder should be read from the archive", container); //$NON-NLS-1$
+			doTestPackageNames(container);
+			container.close();
+			container = TarApiTypeContainer.getExtractedContainer(null, new File(folder, "a")); //$NON-NLS-1$
+			assertNotNull("A sub folder should be read from the archive", container); //$NON-NLS-1$
+			assertNotNull("Missing type in sub folder", container.findTypeRoot("b.c.ClassC")); //$NON-NLS-1$ //$NON-NLS-2$
+			TarApiTypeContainer.forgetExtraction(folder);
+			assertNull("A forgotten extraction should not be read from the archive", TarApiTypeContainer.getExtractedContainer(null, folder)); //$NON-NLS-1$
+		} finally {
+			if (container != null) {
+				container.close();
+			}
+			TarApiTypeContainer.forgetExtraction(folder);
+			Util.delete(location);
+		}
+	}
+
+	/**
+	 * Writes the tar of sample.tar.gz to the given file as a series of GZIP
+	 * members of 1K each
+	 * 
+	 * @param file the file to write
+	 * @return the given file
+	 * @throws Exception
+	 */
+	private File buildMultiMemberArchive(File file) throws Exception {
+		InputStream in = new GZIPInputStream(new FileInputStream(TestSuiteHelper.getPluginDirectoryPath().append("test-jars").append("sample.tar.gz").toFile())); //$NON-NLS-1$ //$NON-NLS-2$
+		byte[] tar = null;
+		try {
+			tar = Util.getInputStreamAsByteArray(in, -1);
+		} finally {
+			in.close();
+		}
+		file.getParentFile().mkdirs();
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		try {
+			for (int offset = 0; offset < tar.length; offset += 1024) {
+				GZIPOutputStream member = new GZIPOutputStream(out);
+				member.write(tar, offset, Math.min(1024, tar.length - offset));
+				member.finish();
+			}
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Tests that types looked up out of order through several containers on
+	 * the same single member tar.gz archive have the contents of sample.jar
+	 * 
+	 * @throws Exception
+	 */
+	public void testTarRandomLookups() throws Exception {
+		IApiTypeContainer first = buildTarContainer();
+		IApiTypeContainer second = buildTarContainer();
+		String[] typeNames = new String[] {
+				"a.b.c.InterfaceC", "DefA", "a.b.c.ClassD", "a.ClassB$InsideB", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				"a.ClassA", "a.b.c.ClassC", "DefB", "a.ClassB" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		ZipFile zipFile = new ZipFile(TestSuiteHelper.getPluginDirectoryPath().append("test-jars").append("sample.jar").toFile()); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			// each type is looked up twice, through the other container the second time
+			for (int i = 0; i < typeNames.length * 2; i++) {
+				String typeName = typeNames[i % typeNames.length];
+				IApiTypeContainer container = i % 2 == 0 ? first : second;
+				InputStream stream = zipFile.getInputStream(zipFile.getEntry(typeName.replace('.', '/') + ".class")); //$NON-NLS-1$
+				try {
+					byte[] expected = Util.getInputStreamAsByteArray(stream, -1);
+					IApiTypeRoot root = container.findTypeRoot(typeName);
+					assertNotNull("Missing type " + typeName, root); //$NON-NLS-1$
+					assertTrue("Wrong contents for " + typeName, Arrays.equals(expected, root.getContents())); //$NON-NLS-1$
+				} finally {
+					stream.close();
+				}
+			}
+			first.close();
+			// the archive stays readable for the container still opened
+			assertNotNull("Missing type after closing the other container", second.findTypeRoot("DefB").getContents()); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			zipFile.close();
+			first.close();
+			second.close();
+		}
+	}
+
+	private boolean containsClassFile(File folder) {
+		File[] files = folder.listFiles();
+		for (int i = 0; i < files.length; i++) {
+			if (files[i].isDirectory() ? containsClassFile(files[i]) : Util.isClassFile(files[i].getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Tests retrieving package names from an directory.
 	 * 
@@ -121,6 +295,15 @@ public class ApiTypeContainerTests extends TestCase {
 		doTestVisitPackages(buildArchiveContainer());
 	}
 	
+	/**
+	 * Tests visiting packages in a tar archive.
+	 * 
+	 * @throws CoreException
+	 */
+	public void testTarVisitPackages() throws CoreException {
+		doTestVisitPackages(buildTarContainer());
+	}
+
 	/**
 	 * Tests visiting packages in an directory.
 	 * 
@@ -175,6 +358,280 @@ public class ApiTypeContainerTests extends TestCase {
 		doTestVisitClassFiles(buildArchiveContainer());
 	}
 	
+	/**
+	 * Tests visiting class files in a tar archive.
+	 * 
+	 * @throws CoreException
+	 */
+	public void testTarVisitClassFiles() throws CoreException {
+		doTestVisitClassFiles(buildTarContainer());
+	}
+
+	/**
+	 * Tests that the class files read from a tar archive, whether visited or
+	 * looked up in any order, are the same as the ones of the equivalent jar
+	 * 
+	 * @throws Exception
+	 */
+	public void testTarContents() throws Exception {
+		IApiTypeContainer container = buildTarContainer();
+		final List<IApiTypeRoot> roots = new ArrayList<IApiTypeRoot>();
+		final Map<String, byte[]> visited = new HashMap<String, byte[]>();
+		container.accept(new ApiTypeContainerVisitor() {
+			@Override
+			public void visit(String packageName, IApiTypeRoot typeroot) {
+				roots.add(typeroot);
+				try {
+					visited.put(typeroot.getTypeName(), typeroot.getContents());
+				} catch (CoreException e) {
+					fail(e.getMessage());
+				}
+			}
+		});
+		assertEquals("Wrong number of class files", 8, roots.size()); //$NON-NLS-1$
+		ZipFile zipFile = new ZipFile(TestSuiteHelper.getPluginDirectoryPath().append("test-jars").append("sample.jar").toFile()); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			// look the types up backwards to read the archive out of order
+			for (int i = roots.size() - 1; i >= 0; i--) {
+				String typeName = roots.get(i).getTypeName();
+				String entryName = typeName.replace('.', '/') + ".class"; //$NON-NLS-1$
+				InputStream stream = zipFile.getInputStream(zipFile.getEntry(entryName));
+				try {
+					byte[] expected = Util.getInputStreamAsByteArray(stream, -1);
+					assertTrue("Wrong visited contents for " + entryName, Arrays.equals(expected, visited.get(typeName))); //$NON-NLS-1$
+					IApiTypeRoot root = container.findTypeRoot(typeName);
+					assertNotNull("Missing type " + typeName, root); //$NON-NLS-1$
+					assertTrue("Wrong contents for " + entryName, Arrays.equals(expected, root.getContents())); //$NON-NLS-1$
+				} finally {
+					stream.close();
+				}
+			}
+			assertNull("There should be no such type", container.findTypeRoot("a.Missing")); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			zipFile.close();
+			container.close();
+		}
+	}
+
+	/**
+	 * Tests that the class files read from the (mapped) archive are the same as
+	 * the ones read through {@link ZipFile}
+	 * 
+	 * @throws Exception
+	 */
+	public void testArchiveContents() throws Exception {
+		IApiTypeContainer container = buildArchiveContainer();
+		final List<IApiTypeRoot> roots = new ArrayList<IApiTypeRoot>();
+		container.accept(new ApiTypeContainerVisitor() {
+			@Override
+			public void visit(String packageName, IApiTypeRoot typeroot) {
+				roots.add(typeroot);
+			}
+		});
+		assertFalse("There should be class files in the archive", roots.isEmpty()); //$NON-NLS-1$
+		ZipFile zipFile = new ZipFile(TestSuiteHelper.getPluginDirectoryPath().append("test-jars").append("sample.jar").toFile()); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			for (IApiTypeRoot root : roots) {
+				String entryName = root.getTypeName().replace('.', '/') + ".class"; //$NON-NLS-1$
+				ZipEntry entry = zipFile.getEntry(entryName);
+				assertNotNull("Missing entry " + entryName, entry); //$NON-NLS-1$
+				InputStream stream = zipFile.getInputStream(entry);
+				try {
+					byte[] expected = Util.getInputStreamAsByteArray(stream, -1);
+					assertTrue("Wrong contents for " + entryName, Arrays.equals(expected, root.getContents())); //$NON-NLS-1$
+				} finally {
+					stream.close();
+				}
+			}
+		} finally {
+			zipFile.close();
+			container.close();
+		}
+	}
+
+	/**
+	 * Tests that containers opened on the same archive share its packages
+	 * until the last of them is closed
+	 *
+	 * @throws Exception
+	 */
+	public void testSharedArchive() throws Exception {
+		// use a private copy of the archive, other tests do not close their
+		// containers
+		File location = new File(System.getProperty("java.io.tmpdir"), "shared_archive_tests"); //$NON-NLS-1$ //$NON-NLS-2$
+		location.mkdirs();
+		File archive = new File(location, "sample.jar"); //$NON-NLS-1$
+		assertTrue("The archive should have been copied", Util.copy(TestSuiteHelper.getPluginDirectoryPath().append("test-jars").append("sample.jar").toFile(), archive)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		IApiTypeContainer first = new ArchiveApiTypeContainer(null, archive.getAbsolutePath());
+		IApiTypeContainer second = new ArchiveApiTypeContainer(null, archive.getAbsolutePath());
+		IApiTypeContainer third = null;
+		try {
+			String[] names = first.getPackageNames();
+			assertSame("The packages should be shared", names, second.getPackageNames()); //$NON-NLS-1$
+			first.close();
+			third = new ArchiveApiTypeContainer(null, archive.getAbsolutePath());
+			assertSame("The packages should be shared while the archive is in use", names, third.getPackageNames()); //$NON-NLS-1$
+			second.close();
+			third.close();
+			third = new ArchiveApiTypeContainer(null, archive.getAbsolutePath());
+			String[] reopened = third.getPackageNames();
+			assertNotSame("The archive should have been released", names, reopened); //$NON-NLS-1$
+			assertTrue("Wrong packages", Arrays.equals(names, reopened)); //$NON-NLS-1$
+			assertSame("A closed container should acquire the archive again", reopened, first.getPackageNames()); //$NON-NLS-1$
+		} finally {
+			first.close();
+			second.close();
+			if (third != null) {
+				third.close();
+			}
+			Util.delete(location);
+		}
+	}
+
+	/**
+	 * Tests that an archive whose containers were not closed is not kept
+	 * alive by the table of shared archives
+	 *
+	 * @throws Exception
+	 */
+	public void testSharedArchiveNotPinned() throws Exception {
+		File location = new File(System.getProperty("java.io.tmpdir"), "shared_archive_pinned_tests"); //$NON-NLS-1$ //$NON-NLS-2$
+		location.mkdirs();
+		File archive = new File(location, "sample.jar"); //$NON-NLS-1$
+		assertTrue("The archive should have been copied", Util.copy(TestSuiteHelper.getPluginDirectoryPath().append("test-jars").append("sample.jar").toFile(), archive)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		try {
+			IApiTypeContainer container = new ArchiveApiTypeContainer(null, archive.getAbsolutePath());
+			WeakReference<String[]> names = new WeakReference<String[]>(container.getPackageNames());
+			container = null;
+			for (int i = 0; i < 20 && names.get() != null; i++) {
+				System.gc();
+				Thread.sleep(50);
+			}
+			assertNull("The archive should have been collected", names.get()); //$NON-NLS-1$
+			container = new ArchiveApiTypeContainer(null, archive.getAbsolutePath());
+			assertTrue("The archive should be acquired again", container.getPackageNames().length > 0); //$NON-NLS-1$
+			container.close();
+		} finally {
+			Util.delete(location);
+		}
+	}
+
+	/**
+	 * Tests that type structures read back from a persisted
+	 * {@link TypeStructureCache} match the ones built from the class files
+	 * 
+	 * @throws Exception
+	 */
+	public void testTypeStructureCache() throws Exception {
+		File location = new File(System.getProperty("java.io.tmpdir"), "type_structure_cache_tests"); //$NON-NLS-1$ //$NON-NLS-2$
+		String previous = System.getProperty(TypeStructureCache.CACHE_LOCATION_PROPERTY);
+		System.setProperty(TypeStructureCache.CACHE_LOCATION_PROPERTY, location.getAbsolutePath());
+		IApiTypeContainer container = buildArchiveContainer();
+		try {
+			final List<IApiTypeRoot> roots = new ArrayList<IApiTypeRoot>();
+			container.accept(new ApiTypeContainerVisitor() {
+				@Override
+				public void visit(String packageName, IApiTypeRoot typeroot) {
+					roots.add(typeroot);
+				}
+			});
+			File archive = TestSuiteHelper.getPluginDirectoryPath().append("test-jars").append("sample.jar").toFile(); //$NON-NLS-1$ //$NON-NLS-2$
+			ArchiveIndex index = ArchiveIndex.getIndex(archive);
+			TypeStructureCache cache = TypeStructureCache.open(archive);
+			assertNotNull("The cache should be available", cache); //$NON-NLS-1$
+			Map<String, IApiType> built = new HashMap<String, IApiType>();
+			for (IApiTypeRoot root : roots) {
+				String entryName = root.getTypeName().replace('.', '/') + ".class"; //$NON-NLS-1$
+				IApiType type = TypeStructureBuilder.buildTypeStructure(root.getContents(), null, root);
+				assertNotNull("Missing structure for " + entryName, type); //$NON-NLS-1$
+				cache.putType(index.getEntry(entryName), (ApiType) type);
+				built.put(entryName, type);
+			}
+			cache.save(index);
+
+			cache = TypeStructureCache.open(archive);
+			for (IApiTypeRoot root : roots) {
+				String entryName = root.getTypeName().replace('.', '/') + ".class"; //$NON-NLS-1$
+				IApiType expected = built.get(entryName);
+				IApiType type = cache.getType(index.getEntry(entryName), null, root);
+				assertNotNull("Structure not cached for " + entryName, type); //$NON-NLS-1$
+				assertEquals("Wrong structure for " + entryName, expected.toString(), type.toString()); //$NON-NLS-1$
+				assertEquals("Wrong simple name for " + entryName, expected.getSimpleName(), type.getSimpleName()); //$NON-NLS-1$
+				assertEquals("Wrong member type flag for " + entryName, expected.isMemberType(), type.isMemberType()); //$NON-NLS-1$
+				assertEquals("Wrong modifiers for " + entryName, expected.getModifiers(), type.getModifiers()); //$NON-NLS-1$
+				assertTrue("Wrong type root for " + entryName, root == type.getTypeRoot()); //$NON-NLS-1$
+			}
+		} finally {
+			container.close();
+			if (previous == null) {
+				System.getProperties().remove(TypeStructureCache.CACHE_LOCATION_PROPERTY);
+			} else {
+				System.setProperty(TypeStructureCache.CACHE_LOCATION_PROPERTY, previous);
+			}
+			Util.delete(location);
+		}
+	}
+
+	/**
+	 * Tests that a {@link TypeStructureCache} is updated when saved while the
+	 * previous cache file is still mapped by another reader
+	 * 
+	 * @throws Exception
+	 */
+	public void testTypeStructureCacheUpdate() throws Exception {
+		File location = new File(System.getProperty("java.io.tmpdir"), "type_structure_cache_update_tests"); //$NON-NLS-1$ //$NON-NLS-2$
+		String previous = System.getProperty(TypeStructureCache.CACHE_LOCATION_PROPERTY);
+		System.setProperty(TypeStructureCache.CACHE_LOCATION_PROPERTY, location.getAbsolutePath());
+		IApiTypeContainer container = buildArchiveContainer();
+		try {
+			final List<IApiTypeRoot> roots = new ArrayList<IApiTypeRoot>();
+			container.accept(new ApiTypeContainerVisitor() {
+				@Override
+				public void visit(String packageName, IApiTypeRoot typeroot) {
+					roots.add(typeroot);
+				}
+			});
+			assertTrue("The archive should have more than one type", roots.size() > 1); //$NON-NLS-1$
+			File archive = TestSuiteHelper.getPluginDirectoryPath().append("test-jars").append("sample.jar").toFile(); //$NON-NLS-1$ //$NON-NLS-2$
+			ArchiveIndex index = ArchiveIndex.getIndex(archive);
+			int half = roots.size() / 2;
+			TypeStructureCache cache = TypeStructureCache.open(archive);
+			for (int i = 0; i < half; i++) {
+				IApiTypeRoot root = roots.get(i);
+				String entryName = root.getTypeName().replace('.', '/') + ".class"; //$NON-NLS-1$
+				cache.putType(index.getEntry(entryName), (ApiType) TypeStructureBuilder.buildTypeStructure(root.getContents(), null, root));
+			}
+			cache.save(index);
+
+			// keeps the saved file mapped while the cache is updated
+			TypeStructureCache reader = TypeStructureCache.open(archive);
+			cache = TypeStructureCache.open(archive);
+			for (int i = half; i < roots.size(); i++) {
+				IApiTypeRoot root = roots.get(i);
+				String entryName = root.getTypeName().replace('.', '/') + ".class"; //$NON-NLS-1$
+				assertNull("Structure should not be cached yet for " + entryName, cache.getType(index.getEntry(entryName), null, root)); //$NON-NLS-1$
+				cache.putType(index.getEntry(entryName), (ApiType) TypeStructureBuilder.buildTypeStructure(root.getContents(), null, root));
+			}
+			cache.save(index);
+
+			cache = TypeStructureCache.open(archive);
+			for (IApiTypeRoot root : roots) {
+				String entryName = root.getTypeName().replace('.', '/') + ".class"; //$NON-NLS-1$
+				assertNotNull("Structure not cached for " + entryName, cache.getType(index.getEntry(entryName), null, root)); //$NON-NLS-1$
+			}
+			IApiTypeRoot first = roots.get(0);
+			assertNotNull("The previous cache should still be readable", reader.getType(index.getEntry(first.getTypeName().replace('.', '/') + ".class"), null, first)); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			container.close();
+			if (previous == null) {
+				System.getProperties().remove(TypeStructureCache.CACHE_LOCATION_PROPERTY);
+			} else {
+				System.setProperty(TypeStructureCache.CACHE_LOCATION_PROPERTY, previous);
+			}
+			Util.delete(location);
+		}
+	}
+
 	/**
 	 * Tests visiting class files in a directory.
 	 * 
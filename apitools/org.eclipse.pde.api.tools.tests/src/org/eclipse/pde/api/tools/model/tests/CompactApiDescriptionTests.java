@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.model.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.pde.api.tools.internal.CompactApiDescription;
+import org.eclipse.pde.api.tools.internal.provisional.ApiDescriptionVisitor;
+import org.eclipse.pde.api.tools.internal.provisional.Factory;
+import org.eclipse.pde.api.tools.internal.provisional.IApiAnnotations;
+import org.eclipse.pde.api.tools.internal.provisional.IApiDescription;
+import org.eclipse.pde.api.tools.internal.provisional.RestrictionModifiers;
+import org.eclipse.pde.api.tools.internal.provisional.VisibilityModifiers;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IElementDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IPackageDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IReferenceTypeDescriptor;
+
+/**
+ * Runs the API description tests against the {@link CompactApiDescription}
+ * 
+ * @since 1.0.700
+ */
+public class CompactApiDescriptionTests extends ApiDescriptionTests {
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.model.tests.ApiDescriptionTests#newDescription()
+	 */
+	@Override
+	protected IApiDescription newDescription() {
+		return new CompactApiDescription(null);
+	}
+
+	/**
+	 * Tests that member types and their members inherit the visibility of
+	 * their enclosing types and are visited inside them
+	 */
+	public void testMemberTypes() {
+		IApiDescription description = newDescription();
+		IPackageDescriptor pkg = Factory.packageDescriptor("a.b"); //$NON-NLS-1$
+		IReferenceTypeDescriptor outer = pkg.getType("Outer"); //$NON-NLS-1$
+		IReferenceTypeDescriptor inner = pkg.getType("Outer$Inner"); //$NON-NLS-1$
+		IElementDescriptor method = inner.getMethod("m", "()V"); //$NON-NLS-1$ //$NON-NLS-2$
+		IElementDescriptor field = inner.getField("this$0"); //$NON-NLS-1$
+		IReferenceTypeDescriptor other = pkg.getType("OuterX"); //$NON-NLS-1$
+		description.setVisibility(outer, VisibilityModifiers.PRIVATE);
+		description.setRestrictions(method, RestrictionModifiers.NO_REFERENCE);
+		description.setRestrictions(field, RestrictionModifiers.NO_REFERENCE);
+		description.setRestrictions(other, RestrictionModifiers.NO_EXTEND);
+		((CompactApiDescription) description).trimToSize();
+
+		IApiAnnotations annotations = description.resolveAnnotations(method);
+		assertEquals("the method should inherit the visibility of the outer type", VisibilityModifiers.PRIVATE, annotations.getVisibility()); //$NON-NLS-1$
+		assertEquals("wrong method restrictions", RestrictionModifiers.NO_REFERENCE, annotations.getRestrictions()); //$NON-NLS-1$
+		annotations = description.resolveAnnotations(inner.getMethod("m", "(I)V")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("an unknown method should resolve to its type", VisibilityModifiers.PRIVATE, annotations.getVisibility()); //$NON-NLS-1$
+		assertEquals("an unknown method should have no restrictions", RestrictionModifiers.NO_RESTRICTIONS, annotations.getRestrictions()); //$NON-NLS-1$
+		annotations = description.resolveAnnotations(other);
+		assertEquals("the other type should have the package visibility", VisibilityModifiers.API, annotations.getVisibility()); //$NON-NLS-1$
+		assertEquals("wrong other type restrictions", RestrictionModifiers.NO_EXTEND, annotations.getRestrictions()); //$NON-NLS-1$
+
+		final List<IElementDescriptor> visited = new ArrayList<IElementDescriptor>();
+		description.accept(new ApiDescriptionVisitor() {
+			@Override
+			public boolean visitElement(IElementDescriptor element, IApiAnnotations desc) {
+				visited.add(element);
+				return true;
+			}
+
+			@Override
+			public void endVisitElement(IElementDescriptor element, IApiAnnotations desc) {
+				visited.add(element);
+			}
+		}, null);
+		IElementDescriptor[] expected = new IElementDescriptor[] {
+				pkg, outer, inner, method, method, field, field, inner, outer, other, other, pkg };
+		assertEquals("wrong number of visits", expected.length, visited.size()); //$NON-NLS-1$
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals("wrong element visited", expected[i], visited.get(i)); //$NON-NLS-1$
+		}
+	}
+}
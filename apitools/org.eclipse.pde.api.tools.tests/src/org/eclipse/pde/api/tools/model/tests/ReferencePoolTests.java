@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.model.tests;
+
+import junit.framework.TestCase;
+
+import org.eclipse.pde.api.tools.internal.builder.Reference;
+import org.eclipse.pde.api.tools.internal.builder.ReferencePool;
+import org.eclipse.pde.api.tools.internal.provisional.builder.IReference;
+
+/**
+ * Tests the {@link ReferencePool} used by the use scan
+ *
+ * @since 1.0.700
+ */
+public class ReferencePoolTests extends TestCase {
+
+	/**
+	 * Tests that a recycled reference is handed out again, without any state
+	 * from its previous use
+	 */
+	public void testRecycle() {
+		ReferencePool pool = new ReferencePool();
+		Reference ref = pool.methodReference(null, "a.b.C", "m", "()V", IReference.REF_VIRTUALMETHOD, IReference.F_DEFAULT_METHOD); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals("One reference should have been created", 1, pool.getCreatedCount()); //$NON-NLS-1$
+		pool.recycle(ref);
+		Reference ref2 = pool.typeReference(null, "a.b.D", null, IReference.REF_INSTANTIATE, 0); //$NON-NLS-1$
+		assertSame("The recycled reference should be reused", ref, ref2); //$NON-NLS-1$
+		assertEquals("One reference should have been reused", 1, pool.getReusedCount()); //$NON-NLS-1$
+		assertEquals("Wrong reference type", IReference.T_TYPE_REFERENCE, ref2.getReferenceType()); //$NON-NLS-1$
+		assertEquals("Wrong referenced type", "a.b.D", ref2.getReferencedTypeName()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull("The member name should be reset", ref2.getReferencedMemberName()); //$NON-NLS-1$
+		assertNull("The signature should be reset", ref2.getReferencedSignature()); //$NON-NLS-1$
+		assertEquals("The flags should be reset", 0, ref2.getReferenceFlags()); //$NON-NLS-1$
+		assertEquals("The line number should be reset", -1, ref2.getLineNumber()); //$NON-NLS-1$
+		assertNull("The resolution should be reset", ref2.getResolvedReference()); //$NON-NLS-1$
+	}
+
+	/**
+	 * Tests that the names of the references are shared
+	 */
+	public void testSymbols() {
+		ReferencePool pool = new ReferencePool();
+		String name = pool.getQualifiedName("a/b/C"); //$NON-NLS-1$
+		assertEquals("Wrong qualified name", "a.b.C", name); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame("The qualified name should be shared", name, pool.getQualifiedName(new String("a/b/C"))); //$NON-NLS-1$
+		Reference ref = pool.fieldReference(null, new String("a.b.C"), "f", IReference.REF_GETSTATIC, 0); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame("The type name should be shared", name, ref.getReferencedTypeName()); //$NON-NLS-1$
+		assertSame("The name should be shared", pool.intern("f"), pool.intern(new String("f"))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
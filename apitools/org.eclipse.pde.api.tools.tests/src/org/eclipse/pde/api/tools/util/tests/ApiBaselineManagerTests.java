@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 IBM Corporation and others.
+ * Copyright (c) 2007, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,7 +10,9 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.util.tests;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Iterator;
 import java.util.List;
@@ -49,7 +51,11 @@ import org.eclipse.jdt.core.dom.rewrite.ListRewrite;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.pde.api.tools.internal.ApiBaselineManager;
+import org.eclipse.pde.api.tools.internal.ApiDescriptionManager;
+import org.eclipse.pde.api.tools.internal.IApiCoreConstants;
+import org.eclipse.pde.api.tools.internal.ProjectApiDescription;
 import org.eclipse.pde.api.tools.internal.model.ApiModelFactory;
+import org.eclipse.pde.api.tools.internal.model.ProjectComponent;
 import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
 import org.eclipse.pde.api.tools.internal.provisional.Factory;
 import org.eclipse.pde.api.tools.internal.provisional.IApiAnnotations;
@@ -60,6 +66,7 @@ import org.eclipse.pde.api.tools.internal.provisional.VisibilityModifiers;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
 import org.eclipse.pde.api.tools.internal.util.Signatures;
+import org.eclipse.pde.api.tools.internal.util.Util;
 import org.eclipse.pde.api.tools.model.tests.TestSuiteHelper;
 import org.eclipse.pde.api.tools.tests.AbstractApiTest;
 import org.eclipse.pde.api.tools.tests.util.FileUtils;
@@ -838,6 +845,123 @@ public class ApiBaselineManagerTests extends AbstractApiTest {
 		assertTrue("unexported package must be private", VisibilityModifiers.isPrivate(annot.getVisibility())); //$NON-NLS-1$
 	}
 
+	/**
+	 * Tests that a saved project API description is restored from its binary
+	 * form, with its type-level and member-level annotations
+	 */
+	public void testSavedDescriptionRestored() throws Exception {
+		ProjectApiDescription saved = assertSavedDescription();
+		File file = getSavedDescriptionFile(IApiCoreConstants.API_DESCRIPTION_BINARY_NAME);
+		assertTrue("the binary description must have been saved", file.exists()); //$NON-NLS-1$
+		assertFalse("there must be no XML description", getSavedDescriptionFile(IApiCoreConstants.API_DESCRIPTION_XML_NAME).exists()); //$NON-NLS-1$
+		ProjectApiDescription restored = getRestoredDescription();
+		assertNotSame("the description must have been restored", saved, restored); //$NON-NLS-1$
+		assertTrue("the restored description must hold the saved types", restored.getXML().indexOf("TestClass1") > -1); //$NON-NLS-1$ //$NON-NLS-2$
+		assertDescriptionAnnotations(restored);
+	}
+
+	/**
+	 * Tests that a binary description written in another version of the
+	 * binary form is ignored and the description is rebuilt from the project
+	 */
+	public void testSavedDescriptionVersionMismatch() throws Exception {
+		assertSavedDescription();
+		File file = getSavedDescriptionFile(IApiCoreConstants.API_DESCRIPTION_BINARY_NAME);
+		assertTrue("the binary description must have been saved", file.exists()); //$NON-NLS-1$
+		RandomAccessFile raf = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+		try {
+			// the version follows the magic number
+			raf.seek(4);
+			int version = raf.readInt();
+			raf.seek(4);
+			raf.writeInt(version + 1);
+		} finally {
+			raf.close();
+		}
+		ProjectApiDescription restored = getRestoredDescription();
+		assertTrue("the description must not have been restored", restored.getXML().indexOf("TestClass1") < 0); //$NON-NLS-1$ //$NON-NLS-2$
+		assertDescriptionAnnotations(restored);
+	}
+
+	/**
+	 * Tests that a description saved as XML by an earlier version is restored
+	 */
+	public void testSavedXMLDescriptionMigrated() throws Exception {
+		ProjectApiDescription saved = assertSavedDescription();
+		File file = getSavedDescriptionFile(IApiCoreConstants.API_DESCRIPTION_BINARY_NAME);
+		assertTrue("the binary description must be deleted", file.delete()); //$NON-NLS-1$
+		Util.saveFile(getSavedDescriptionFile(IApiCoreConstants.API_DESCRIPTION_XML_NAME), saved.getXML());
+		ProjectApiDescription restored = getRestoredDescription();
+		assertTrue("the restored description must hold the saved types", restored.getXML().indexOf("TestClass1") > -1); //$NON-NLS-1$ //$NON-NLS-2$
+		assertDescriptionAnnotations(restored);
+	}
+
+	/**
+	 * Adds <code>a.b.c.TestClass1</code> with a tagged method to the testing
+	 * project, resolves its annotations and saves the workspace
+	 * 
+	 * @return the saved description
+	 */
+	private ProjectApiDescription assertSavedDescription() throws Exception {
+		IJavaProject project = getTestingProject();
+		assertNotNull("The testing project must exist", project); //$NON-NLS-1$
+		IPackageFragmentRoot root = project.findPackageFragmentRoot(new Path(project.getElementName()).append(ProjectUtils.SRC_FOLDER).makeAbsolute());
+		assertNotNull("the 'src' package fragment root must exist", root); //$NON-NLS-1$
+		assertTestSource(root, TESTING_PACKAGE, "TestClass1"); //$NON-NLS-1$
+		ICompilationUnit element = (ICompilationUnit) project.findElement(new Path("a/b/c/TestClass1.java")); //$NON-NLS-1$
+		assertNotNull("TestClass1 must exist in the test project", element); //$NON-NLS-1$
+		updateTagInSource(element, "foo", "()V", "@nooverride", false); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		IApiDescription desc = getTestProjectApiDescription();
+		assertNotNull("the testing project api description must exist", desc); //$NON-NLS-1$
+		assertDescriptionAnnotations(desc);
+		ResourcesPlugin.getWorkspace().save(true, new NullProgressMonitor());
+		return (ProjectApiDescription) desc;
+	}
+
+	/**
+	 * Asserts the annotations of the package, type and method of the testing
+	 * project set up by {@link #assertSavedDescription()}
+	 * 
+	 * @param desc the description of the testing project
+	 */
+	private void assertDescriptionAnnotations(IApiDescription desc) {
+		IApiAnnotations annot = desc.resolveAnnotations(Factory.packageDescriptor(TESTING_PACKAGE));
+		assertNotNull("the annotations for " + TESTING_PACKAGE + " cannot be null", annot); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue("the exported package must be API", VisibilityModifiers.isAPI(annot.getVisibility())); //$NON-NLS-1$
+		annot = desc.resolveAnnotations(Factory.typeDescriptor("a.b.c.TestClass1")); //$NON-NLS-1$
+		assertNotNull("the annotations for a.b.c.TestClass1 cannot be null", annot); //$NON-NLS-1$
+		assertEquals("there must be a noinstantiate setting for TestClass1", RestrictionModifiers.NO_INSTANTIATE, annot.getRestrictions()); //$NON-NLS-1$
+		annot = desc.resolveAnnotations(Factory.methodDescriptor("a.b.c.TestClass1", "foo", "()V")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertNotNull("the annotations for foo() cannot be null", annot); //$NON-NLS-1$
+		assertTrue("there must be a nooverride setting for foo()", (annot.getRestrictions() & RestrictionModifiers.NO_OVERRIDE) != 0); //$NON-NLS-1$
+	}
+
+	/**
+	 * Drops the cached description of the testing project, keeping its saved
+	 * files, and returns the description restored by the
+	 * {@link ApiDescriptionManager}
+	 * 
+	 * @return the restored description
+	 */
+	private ProjectApiDescription getRestoredDescription() throws CoreException {
+		IJavaProject project = getTestingProject();
+		ApiDescriptionManager.getManager().clean(project, false, true);
+		ProjectComponent component = (ProjectComponent) getWorkspaceBaseline().getApiComponent(TESTING_PLUGIN_PROJECT_NAME);
+		assertNotNull("the testing project component must exist", component); //$NON-NLS-1$
+		return (ProjectApiDescription) ApiDescriptionManager.getManager().getApiDescription(component, component.getBundleDescription());
+	}
+
+	/**
+	 * Returns the saved description file of the testing project with the given
+	 * name
+	 * 
+	 * @param name the name of the file
+	 * @return the file handle
+	 */
+	private File getSavedDescriptionFile(String name) {
+		return ApiDescriptionManager.API_DESCRIPTIONS_CONTAINER_PATH.append(TESTING_PLUGIN_PROJECT_NAME).append(name).toFile();
+	}
+
 	/**
 	 * sets the given package name to be an Exported-Package
 	 * 
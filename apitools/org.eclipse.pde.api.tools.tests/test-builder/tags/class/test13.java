@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package a.b.c;
+
+/**
+ * Tests @noreference tags on local and anonymous classes are not reported
+ */
+public class test13 {
+
+	/**
+	 * @noreference
+	 */
+	private class inner {
+		
+	}
+
+	public void m1() {
+		/**
+		 * @noreference
+		 */
+		class local {
+			
+		}
+		new local();
+	}
+
+	public Object m2() {
+		return new Object() {
+			/**
+			 * @noreference
+			 */
+			class inner2 {
+				
+			}
+		};
+	}
+}
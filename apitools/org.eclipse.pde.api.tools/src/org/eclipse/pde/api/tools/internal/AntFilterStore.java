@@ -16,8 +16,10 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.eclipse.pde.api.tools.internal.problems.ApiProblemFilter;
@@ -32,7 +34,11 @@ public class AntFilterStore extends FilterStore {
 
 	String fComponentId = null;
 	String fFiltersRoot = null;
-	public static ArrayList<IApiProblem> filteredAPIProblems = new ArrayList<IApiProblem>();
+	/**
+	 * The problems filtered by all Ant filter stores. Synchronized since
+	 * components may be analyzed concurrently by the Ant tasks.
+	 */
+	public static List<IApiProblem> filteredAPIProblems = Collections.synchronizedList(new ArrayList<IApiProblem>());
 	/**
 	 * Constructor
 	 * 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2013 IBM Corporation and others.
+ * Copyright (c) 2007, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -453,6 +453,11 @@ public final class ApiBaselineManager implements IApiBaselineManager, ISaveParti
 				if (baselineLocation != null && !baselineLocation.equals(Util.EMPTY_STRING)) {
 					baseline.setLocation(Path.fromPortableString(baselineLocation).toOSString());
 				}
+				if (baseline instanceof ApiBaseline) {
+					// restored baselines rarely change, reuse the type
+					// structures built the last time they were loaded
+					((ApiBaseline) baseline).setCachingTypeStructures(true);
+				}
 				// un-pooled components
 				NodeList children = root.getElementsByTagName(IApiXmlConstants.ELEMENT_APICOMPONENT);
 				List<IApiComponent> components = new ArrayList<IApiComponent>();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 IBM Corporation and others.
+ * Copyright (c) 2007, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,8 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.internal;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -55,6 +57,17 @@ public class ApiDescription implements IApiDescription {
 	// flag to indicate visibility should be inherited from parent node
 	protected static final int VISIBILITY_INHERITED = 0;
 
+	/**
+	 * Kinds of the nodes in the binary form of a description, see
+	 * {@link ManifestNode#persistBinary(DataOutputStream)}. Package and type
+	 * nodes are followed by their children and a {@link #NODE_END}.
+	 */
+	static final byte NODE_END = 0;
+	static final byte NODE_PACKAGE = 1;
+	static final byte NODE_TYPE = 2;
+	static final byte NODE_FIELD = 3;
+	static final byte NODE_METHOD = 4;
+
 	/**
 	 * API component identifier of the API component that owns this description.
 	 * All references within a component have no restrictions. We allow this to
@@ -254,6 +267,40 @@ public class ApiDescription implements IApiDescription {
 			}
 		}
 
+		/**
+		 * Persists this node in the binary format restored by the
+		 * {@link ApiDescriptionManager}. The same nodes are written as by
+		 * {@link #persistXML(Document, Element)}.
+		 * 
+		 * @param out the stream to write to
+		 * @throws IOException if the node cannot be written
+		 */
+		void persistBinary(DataOutputStream out) throws IOException {
+			if (RestrictionModifiers.isUnrestricted(this.restrictions)) {
+				return;
+			}
+			switch (element.getElementType()) {
+				case IElementDescriptor.METHOD: {
+					IMethodDescriptor md = (IMethodDescriptor) element;
+					out.writeByte(NODE_METHOD);
+					out.writeUTF(md.getName());
+					out.writeUTF(md.getSignature());
+					out.writeInt(this.visibility);
+					out.writeInt(this.restrictions);
+					break;
+				}
+				case IElementDescriptor.FIELD: {
+					out.writeByte(NODE_FIELD);
+					out.writeUTF(((IFieldDescriptor) element).getName());
+					out.writeInt(this.visibility);
+					out.writeInt(this.restrictions);
+					break;
+				}
+				default:
+					break;
+			}
+		}
+
 		/**
 		 * Adds visibility and restrictions to the XML element.
 		 * 
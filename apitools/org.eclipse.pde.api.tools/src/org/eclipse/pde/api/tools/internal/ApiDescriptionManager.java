@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2014 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,8 +11,12 @@
 package org.eclipse.pde.api.tools.internal;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -42,6 +46,7 @@ import org.eclipse.pde.api.tools.internal.model.ProjectComponent;
 import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
 import org.eclipse.pde.api.tools.internal.provisional.Factory;
 import org.eclipse.pde.api.tools.internal.provisional.IApiDescription;
+import org.eclipse.pde.api.tools.internal.provisional.RestrictionModifiers;
 import org.eclipse.pde.api.tools.internal.provisional.descriptors.IElementDescriptor;
 import org.eclipse.pde.api.tools.internal.provisional.descriptors.IReferenceTypeDescriptor;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiElement;
@@ -56,6 +61,12 @@ import com.ibm.icu.text.MessageFormat;
 /**
  * Manages a cache of API descriptions for Java projects. Descriptions are
  * re-used between API components for the same project.
+ * <p>
+ * Descriptions modified since the last save are persisted in a compact binary
+ * form in the API tools state location. Descriptions saved as XML by earlier
+ * versions are still restored and are replaced by the binary form the next
+ * time they are saved.
+ * </p>
  * 
  * @since 1.0
  */
@@ -152,7 +163,11 @@ public final class ApiDescriptionManager implements ISaveParticipant {
 			desc.clean();
 		}
 		if (delete) {
-			File file = API_DESCRIPTIONS_CONTAINER_PATH.append(project.getElementName()).append(IApiCoreConstants.API_DESCRIPTION_XML_NAME).toFile();
+			File file = API_DESCRIPTIONS_CONTAINER_PATH.append(project.getElementName()).append(IApiCoreConstants.API_DESCRIPTION_BINARY_NAME).toFile();
+			if (file.exists()) {
+				file.delete();
+			}
+			file = API_DESCRIPTIONS_CONTAINER_PATH.append(project.getElementName()).append(IApiCoreConstants.API_DESCRIPTION_XML_NAME).toFile();
 			if (file.exists()) {
 				file.delete();
 			}
@@ -198,8 +213,18 @@ public final class ApiDescriptionManager implements ISaveParticipant {
 			case IJavaElement.COMPILATION_UNIT: {
 				ICompilationUnit unit = (ICompilationUnit) element;
 				IType type = unit.findPrimaryType();
+				String typename = null;
 				if (type != null) {
-					ApiModelCache.getCache().removeElementInfo(ApiBaselineManager.WORKSPACE_API_BASELINE_ID, element.getJavaProject().getElementName(), type.getFullyQualifiedName(), IApiElement.TYPE);
+					typename = type.getFullyQualifiedName();
+				} else if (unit.getParent() instanceof IPackageFragment) {
+					// the unit has been removed, flush its primary type by
+					// name
+					String pkg = unit.getParent().getElementName();
+					String name = JavaCore.removeJavaLikeExtension(unit.getElementName());
+					typename = pkg.length() == 0 ? name : pkg + '.' + name;
+				}
+				if (typename != null) {
+					ApiModelCache.getCache().removeElementInfo(ApiBaselineManager.WORKSPACE_API_BASELINE_ID, element.getJavaProject().getElementName(), typename, IApiElement.TYPE);
 				}
 				break;
 			}
@@ -258,13 +283,15 @@ public final class ApiDescriptionManager implements ISaveParticipant {
 		while (entries.hasNext()) {
 			Entry<IJavaProject, IApiDescription> entry = entries.next();
 			IJavaProject project = entry.getKey();
+			if (context.getKind() == ISaveContext.PROJECT_SAVE && !project.getProject().equals(context.getProject())) {
+				continue;
+			}
 			ProjectApiDescription desc = (ProjectApiDescription) entry.getValue();
 			if (desc.isModified()) {
 				File dir = API_DESCRIPTIONS_CONTAINER_PATH.append(project.getElementName()).toFile();
 				dir.mkdirs();
-				String xml = desc.getXML();
 				try {
-					Util.saveFile(new File(dir, IApiCoreConstants.API_DESCRIPTION_XML_NAME), xml);
+					saveDescription(desc, dir);
 					desc.setModified(false);
 				} catch (IOException e) {
 					abort(MessageFormat.format(ScannerMessages.ApiDescriptionManager_0, new Object[] { project.getElementName() }), e);
@@ -273,6 +300,40 @@ public final class ApiDescriptionManager implements ISaveParticipant {
 		}
 	}
 
+	/**
+	 * Writes the binary form of the given description in the given directory.
+	 * The file is written aside and then renamed, so an interrupted save does
+	 * not leave a truncated description behind. The XML form of the
+	 * description saved by earlier versions is removed once the binary form is
+	 * written.
+	 * 
+	 * @param description the description to save
+	 * @param dir the directory of the description's project
+	 * @throws IOException if the description cannot be written
+	 */
+	private void saveDescription(ProjectApiDescription description, File dir) throws IOException {
+		File file = new File(dir, IApiCoreConstants.API_DESCRIPTION_BINARY_NAME);
+		File tmp = new File(dir, IApiCoreConstants.API_DESCRIPTION_BINARY_NAME + ".tmp"); //$NON-NLS-1$
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			description.persistBinary(out);
+		} finally {
+			out.close();
+		}
+		if (file.exists() && !file.delete()) {
+			tmp.delete();
+			throw new IOException(file.getAbsolutePath());
+		}
+		if (!tmp.renameTo(file)) {
+			tmp.delete();
+			throw new IOException(file.getAbsolutePath());
+		}
+		File xml = new File(dir, IApiCoreConstants.API_DESCRIPTION_XML_NAME);
+		if (xml.exists()) {
+			xml.delete();
+		}
+	}
+
 	/**
 	 * Restores the API description from its saved file, if any and returns true
 	 * if successful.
@@ -283,7 +344,12 @@ public final class ApiDescriptionManager implements ISaveParticipant {
 	 * @throws CoreException
 	 */
 	private boolean restoreDescription(IJavaProject project, ProjectApiDescription description) throws CoreException {
-		File file = API_DESCRIPTIONS_CONTAINER_PATH.append(project.getElementName()).append(IApiCoreConstants.API_DESCRIPTION_XML_NAME).toFile();
+		File file = API_DESCRIPTIONS_CONTAINER_PATH.append(project.getElementName()).append(IApiCoreConstants.API_DESCRIPTION_BINARY_NAME).toFile();
+		if (file.exists()) {
+			return restoreBinaryDescription(project, description, file);
+		}
+		// migrate the XML form saved by earlier versions
+		file = API_DESCRIPTIONS_CONTAINER_PATH.append(project.getElementName()).append(IApiCoreConstants.API_DESCRIPTION_XML_NAME).toFile();
 		if (file.exists()) {
 			BufferedInputStream stream = null;
 			try {
@@ -317,6 +383,127 @@ public final class ApiDescriptionManager implements ISaveParticipant {
 		return false;
 	}
 
+	/**
+	 * Restores the API description from its binary form and returns true if
+	 * successful. A file written in another version of the binary form is
+	 * ignored and the description is rebuilt from the project.
+	 * 
+	 * @param project
+	 * @param description
+	 * @param file the binary form of the description
+	 * @return whether the restore succeeded
+	 * @throws CoreException
+	 */
+	private boolean restoreBinaryDescription(IJavaProject project, ProjectApiDescription description, File file) throws CoreException {
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if (in.readInt() != ProjectApiDescription.BINARY_MAGIC || in.readInt() != ProjectApiDescription.BINARY_VERSION) {
+				return false;
+			}
+			String version = in.readUTF();
+			long timestamp = in.readLong();
+			description.setEmbeddedVersion(version);
+			if (IApiXmlConstants.API_DESCRIPTION_CURRENT_VERSION.equals(version)) {
+				description.fPackageTimeStamp = timestamp;
+				description.fManifestFile = project.getProject().getFile(JarFile.MANIFEST_NAME);
+				restoreChildren(description, in, null, description.fPackageMap);
+				return true;
+			}
+		} catch (IOException e) {
+			abort(MessageFormat.format(ScannerMessages.ApiDescriptionManager_1, new Object[] { project.getElementName() }), e);
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+		return false;
+	}
+
+	private void restoreChildren(ProjectApiDescription apiDesc, DataInputStream in, ManifestNode parentNode, Map<IElementDescriptor, ManifestNode> childrenMap) throws CoreException, IOException {
+		byte kind = in.readByte();
+		while (kind != ApiDescription.NODE_END) {
+			restoreNode(apiDesc, kind, in, parentNode, childrenMap);
+			kind = in.readByte();
+		}
+	}
+
+	private void restoreNode(ProjectApiDescription apiDesc, byte kind, DataInputStream in, ManifestNode parentNode, Map<IElementDescriptor, ManifestNode> childrenMap) throws CoreException, IOException {
+		ManifestNode node = null;
+		IElementDescriptor elementDesc = null;
+		switch (kind) {
+			case ApiDescription.NODE_PACKAGE: {
+				int vis = in.readInt();
+				IPackageFragment[] fragments = new IPackageFragment[in.readInt()];
+				for (int i = 0; i < fragments.length; i++) {
+					String handle = in.readUTF();
+					IJavaElement je = JavaCore.create(handle);
+					if (je == null || je.getElementType() != IJavaElement.PACKAGE_FRAGMENT) {
+						abort(ScannerMessages.ApiDescriptionManager_2 + handle, null);
+					}
+					fragments[i] = (IPackageFragment) je;
+				}
+				if (fragments.length == 0) {
+					abort(ScannerMessages.ApiDescriptionManager_2, null);
+				}
+				elementDesc = Factory.packageDescriptor(fragments[0].getElementName());
+				node = apiDesc.newPackageNode(fragments, parentNode, elementDesc, vis, RestrictionModifiers.NO_RESTRICTIONS);
+				childrenMap.put(elementDesc, node);
+				restoreChildren(apiDesc, in, node, node.children);
+				return;
+			}
+			case ApiDescription.NODE_TYPE: {
+				String handle = in.readUTF();
+				int vis = in.readInt();
+				int res = in.readInt();
+				long timestamp = in.readLong();
+				IJavaElement je = JavaCore.create(handle);
+				if (je == null || je.getElementType() != IJavaElement.TYPE) {
+					abort(ScannerMessages.ApiDescriptionManager_3 + handle, null);
+				}
+				IType type = (IType) je;
+				elementDesc = Factory.typeDescriptor(type.getFullyQualifiedName('$'));
+				TypeNode tn = apiDesc.newTypeNode(type, parentNode, elementDesc, vis, res);
+				tn.fTimeStamp = timestamp;
+				childrenMap.put(elementDesc, tn);
+				restoreChildren(apiDesc, in, tn, tn.children);
+				return;
+			}
+			case ApiDescription.NODE_FIELD: {
+				String name = in.readUTF();
+				int vis = in.readInt();
+				int res = in.readInt();
+				if (parentNode != null && parentNode.element instanceof IReferenceTypeDescriptor) {
+					elementDesc = ((IReferenceTypeDescriptor) parentNode.element).getField(name);
+					node = apiDesc.newNode(parentNode, elementDesc, vis, res);
+				}
+				break;
+			}
+			case ApiDescription.NODE_METHOD: {
+				String name = in.readUTF();
+				String sig = in.readUTF();
+				int vis = in.readInt();
+				int res = in.readInt();
+				if (parentNode != null && parentNode.element instanceof IReferenceTypeDescriptor) {
+					elementDesc = ((IReferenceTypeDescriptor) parentNode.element).getMethod(name, sig);
+					node = apiDesc.newNode(parentNode, elementDesc, vis, res);
+				}
+				break;
+			}
+			default:
+				break;
+		}
+		if (node != null) {
+			childrenMap.put(elementDesc, node);
+		} else {
+			abort(ScannerMessages.ApiDescriptionManager_4, null);
+		}
+	}
+
 	private void restoreChildren(ProjectApiDescription apiDesc, Element element, ManifestNode parentNode, Map<IElementDescriptor, ManifestNode> childrenMap) throws CoreException {
 		NodeList children = element.getChildNodes();
 		for (int i = 0; i < children.getLength(); i++) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
@@ -66,9 +67,20 @@ import org.w3c.dom.Element;
 public class ApiFilterStore extends FilterStore implements IResourceChangeListener {
 
 	/**
-	 * Map used to collect unused {@link IApiProblemFilter}s
+	 * Map used to collect unused {@link IApiProblemFilter}s. The map and its
+	 * sets are concurrent so filters can be marked as used without locking the
+	 * store.
 	 */
-	private HashMap<IResource, Set<IApiProblemFilter>> fUnusedFilters = null;
+	private volatile ConcurrentHashMap<IResource, Set<IApiProblemFilter>> fUnusedFilters = null;
+
+	/**
+	 * Index used by {@link #isFiltered(IApiProblem)}: maps the project relative
+	 * path of each resource to its filters, keyed by
+	 * {@link #getFilterKey(IApiProblem)}. The index is never modified once it
+	 * is built, it is discarded whenever the filters change and rebuilt on the
+	 * next lookup.
+	 */
+	private volatile HashMap<String, ResourceFilters> fFilterIndex = null;
 
 	/**
 	 * The backing {@link IJavaProject}
@@ -79,6 +91,18 @@ public class ApiFilterStore extends FilterStore implements IResourceChangeListen
 	boolean fTriggeredChange = false;
 	HashMap<IResource, Map<String, Set<IApiProblemFilter>>> fFilterMap;
 
+	/**
+	 * The indexed filters of one resource
+	 */
+	static final class ResourceFilters {
+		final IResource fResource;
+		final HashMap<String, IApiProblemFilter[]> fFilters = new HashMap<String, IApiProblemFilter[]>();
+
+		ResourceFilters(IResource resource) {
+			fResource = resource;
+		}
+	}
+
 	/**
 	 * Constructor
 	 * 
@@ -217,6 +241,7 @@ public class ApiFilterStore extends FilterStore implements IResourceChangeListen
 			}
 			fNeedsSaving |= pfilters.add(filters[i]);
 		}
+		fFilterIndex = null;
 		persistApiFilters();
 	}
 
@@ -273,35 +298,36 @@ public class ApiFilterStore extends FilterStore implements IResourceChangeListen
 	 * (org.eclipse.pde.api.tools.internal.provisional.IApiProblem)
 	 */
 	@Override
-	public synchronized boolean isFiltered(IApiProblem problem) {
-		initializeApiFilters();
+	public boolean isFiltered(IApiProblem problem) {
 		String resourcePath = problem.getResourcePath();
 		if (resourcePath == null) {
 			return false;
 		}
-		IResource resource = fProject.getProject().findMember(new Path(resourcePath));
-		if (resource == null) {
-			if (ApiPlugin.DEBUG_FILTER_STORE) {
-				System.out.println("no resource exists: [" + resourcePath + "]"); //$NON-NLS-1$ //$NON-NLS-2$
-			}
-			return false;
-		}
-		IApiProblemFilter[] filters = this.getFilters(resource);
+		ResourceFilters filters = getFilterIndex().get(new Path(resourcePath).makeRelative().toPortableString());
 		if (filters == null) {
 			if (ApiPlugin.DEBUG_FILTER_STORE) {
 				System.out.println("no filters defined for [" + resourcePath + "] return not filtered"); //$NON-NLS-1$ //$NON-NLS-2$
 			}
 			return false;
 		}
-		IApiProblemFilter filter = null;
-		for (int i = 0, max = filters.length; i < max; i++) {
-			filter = filters[i];
-			if (problemsMatch(filter.getUnderlyingProblem(), problem)) {
+		IApiProblemFilter[] candidates = filters.fFilters.get(getFilterKey(problem));
+		if (candidates != null) {
+			if (!filters.fResource.exists()) {
 				if (ApiPlugin.DEBUG_FILTER_STORE) {
-					System.out.println("recording filter used: [" + filter.toString() + "]"); //$NON-NLS-1$ //$NON-NLS-2$
+					System.out.println("no resource exists: [" + resourcePath + "]"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				return false;
+			}
+			IApiProblemFilter filter = null;
+			for (int i = 0; i < candidates.length; i++) {
+				filter = candidates[i];
+				if (problemsMatch(filter.getUnderlyingProblem(), problem)) {
+					if (ApiPlugin.DEBUG_FILTER_STORE) {
+						System.out.println("recording filter used: [" + filter.toString() + "]"); //$NON-NLS-1$ //$NON-NLS-2$
+					}
+					recordFilterUsed(filters.fResource, filter);
+					return true;
 				}
-				recordFilterUsed(resource, filter);
-				return true;
 			}
 		}
 		if (ApiPlugin.DEBUG_FILTER_STORE) {
@@ -310,6 +336,68 @@ public class ApiFilterStore extends FilterStore implements IResourceChangeListen
 		return false;
 	}
 
+	/**
+	 * Returns the filter index, building it if the filters changed since it
+	 * was last built
+	 * 
+	 * @return the filter index, never <code>null</code>
+	 */
+	private Map<String, ResourceFilters> getFilterIndex() {
+		HashMap<String, ResourceFilters> index = fFilterIndex;
+		if (index == null) {
+			synchronized (this) {
+				initializeApiFilters();
+				index = fFilterIndex;
+				if (index == null) {
+					index = new HashMap<String, ResourceFilters>(fFilterMap.size());
+					for (Entry<IResource, Map<String, Set<IApiProblemFilter>>> entry : fFilterMap.entrySet()) {
+						IResource resource = entry.getKey();
+						ResourceFilters filters = new ResourceFilters(resource);
+						for (Set<IApiProblemFilter> values : entry.getValue().values()) {
+							for (IApiProblemFilter filter : values) {
+								String key = getFilterKey(filter.getUnderlyingProblem());
+								IApiProblemFilter[] existing = filters.fFilters.get(key);
+								if (existing == null) {
+									filters.fFilters.put(key, new IApiProblemFilter[] { filter });
+								} else {
+									IApiProblemFilter[] grown = new IApiProblemFilter[existing.length + 1];
+									System.arraycopy(existing, 0, grown, 0, existing.length);
+									grown[existing.length] = filter;
+									filters.fFilters.put(key, grown);
+								}
+							}
+						}
+						index.put(resource.getProjectRelativePath().toPortableString(), filters);
+					}
+					fFilterIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the key of the given problem in the filter index. Problems that
+	 * {@link #problemsMatch(IApiProblem, IApiProblem)} always have the same
+	 * key: message arguments are only compared by their simple names, so the
+	 * few filters sharing a key are still matched one by one.
+	 * 
+	 * @param problem the problem to compute the key for
+	 * @return the index key for the problem
+	 */
+	static String getFilterKey(IApiProblem problem) {
+		StringBuffer buffer = new StringBuffer();
+		buffer.append(problem.getId()).append('#');
+		String typeName = problem.getTypeName();
+		buffer.append(typeName == null ? GLOBAL : typeName);
+		String[] arguments = problem.getMessageArguments();
+		for (int i = 0; i < arguments.length; i++) {
+			String argument = String.valueOf(arguments[i]);
+			buffer.append('#').append(argument, argument.lastIndexOf('.') + 1, argument.length());
+		}
+		return buffer.toString();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see
@@ -398,6 +486,7 @@ public class ApiFilterStore extends FilterStore implements IResourceChangeListen
 				success &= false;
 			}
 		}
+		fFilterIndex = null;
 		persistApiFilters();
 		return success;
 	}
@@ -622,6 +711,7 @@ public class ApiFilterStore extends FilterStore implements IResourceChangeListen
 			}
 			fNeedsSaving |= filters.add(filter);
 		}
+		fFilterIndex = null;
 	}
 
 	/**
@@ -665,33 +755,34 @@ public class ApiFilterStore extends FilterStore implements IResourceChangeListen
 	 */
 	public synchronized void recordFilterUsage() {
 		initializeApiFilters();
-		fUnusedFilters = new HashMap<IResource, Set<IApiProblemFilter>>();
+		ConcurrentHashMap<IResource, Set<IApiProblemFilter>> unusedFilters = new ConcurrentHashMap<IResource, Set<IApiProblemFilter>>();
 		Map<String, Set<IApiProblemFilter>> types = null;
 		Set<IApiProblemFilter> values = null;
 		for (IResource resource : fFilterMap.keySet()) {
 			types = fFilterMap.get(resource);
-			values = new HashSet<IApiProblemFilter>();
-			fUnusedFilters.put(resource, values);
+			values = Collections.newSetFromMap(new ConcurrentHashMap<IApiProblemFilter, Boolean>());
+			unusedFilters.put(resource, values);
 			for (Entry<String, Set<IApiProblemFilter>> entry : types.entrySet()) {
 				values.addAll(entry.getValue());
 			}
 		}
+		fUnusedFilters = unusedFilters;
 	}
 
 	/**
-	 * records that the following filter has been used
+	 * records that the following filter has been used. Does not lock the
+	 * store, so analyzers running in parallel can record their filters
+	 * concurrently.
 	 * 
 	 * @param resource
 	 * @param filter
 	 */
 	private void recordFilterUsed(IResource resource, IApiProblemFilter filter) {
-		if (fUnusedFilters != null) {
-			Set<IApiProblemFilter> unused = fUnusedFilters.get(resource);
-			if (unused != null) {
-				unused.remove(filter);
-				if (unused.isEmpty()) {
-					fUnusedFilters.remove(resource);
-				}
+		ConcurrentHashMap<IResource, Set<IApiProblemFilter>> unusedFilters = fUnusedFilters;
+		if (unusedFilters != null) {
+			Set<IApiProblemFilter> unused = unusedFilters.get(resource);
+			if (unused != null && unused.remove(filter) && unused.isEmpty()) {
+				unusedFilters.remove(resource, unused);
 			}
 		}
 	}
@@ -709,12 +800,13 @@ public class ApiFilterStore extends FilterStore implements IResourceChangeListen
 	 *         <code>null</code>
 	 */
 	public IApiProblemFilter[] getUnusedFilters(IResource resource, String typeName, int[] categories) {
-		if (fUnusedFilters != null) {
+		ConcurrentHashMap<IResource, Set<IApiProblemFilter>> unusedFilters = fUnusedFilters;
+		if (unusedFilters != null) {
 			Set<IApiProblemFilter> unused = new HashSet<IApiProblemFilter>();
 			Set<IApiProblemFilter> set = null;
 			if (resource != null) {
 				// add any unused filters for the resource
-				set = fUnusedFilters.get(resource);
+				set = unusedFilters.get(resource);
 				if (set != null) {
 					collectFilterFor(set, typeName, unused, categories);
 				}
@@ -724,17 +816,17 @@ public class ApiFilterStore extends FilterStore implements IResourceChangeListen
 					// deleted types are only ever passed in with the manifest
 					// associated with them
 					IResource res = null;
-					for (Entry<IResource, Set<IApiProblemFilter>> entry : fUnusedFilters.entrySet()) {
+					for (Entry<IResource, Set<IApiProblemFilter>> entry : unusedFilters.entrySet()) {
 						res = entry.getKey();
 						if (res == null || !res.exists() || !res.getProject().equals(resource.getProject())) {
 							continue;
 						}
-						set = fUnusedFilters.get(res);
+						set = entry.getValue();
 						collectFilterFor(set, typeName, unused, categories);
 					}
 				}
 			} else {
-				for (Entry<IResource, Set<IApiProblemFilter>> entry : fUnusedFilters.entrySet()) {
+				for (Entry<IResource, Set<IApiProblemFilter>> entry : unusedFilters.entrySet()) {
 					set = entry.getValue();
 					if (set != null) {
 						unused.addAll(set);
@@ -839,6 +931,7 @@ public class ApiFilterStore extends FilterStore implements IResourceChangeListen
 				}
 				if (fFilterMap != null) {
 					fFilterMap.clear();
+					fFilterIndex = null;
 					needsbuild = fProject.getProject().isAccessible();
 				}
 			} else if (leafdelta.getKind() == IResourceDelta.ADDED || (leafdelta.getFlags() & IResourceDelta.CONTENT) != 0 || (leafdelta.getFlags() & IResourceDelta.REPLACED) != 0) {
@@ -875,5 +968,6 @@ public class ApiFilterStore extends FilterStore implements IResourceChangeListen
 			fFilterMap.clear();
 			fFilterMap = null;
 		}
+		fFilterIndex = null;
 	}
 }
@@ -0,0 +1,536 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.pde.api.tools.internal.provisional.ApiDescriptionVisitor;
+import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
+import org.eclipse.pde.api.tools.internal.provisional.Factory;
+import org.eclipse.pde.api.tools.internal.provisional.IApiAnnotations;
+import org.eclipse.pde.api.tools.internal.provisional.RestrictionModifiers;
+import org.eclipse.pde.api.tools.internal.provisional.VisibilityModifiers;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IElementDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IFieldDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IMethodDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IPackageDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IReferenceTypeDescriptor;
+import org.eclipse.pde.api.tools.internal.util.Util;
+
+import com.ibm.icu.text.MessageFormat;
+
+/**
+ * An {@link ApiDescription} that does not keep a tree of nodes. Each package
+ * keeps the elements annotated below it in one sorted array of keys with a
+ * parallel array of visibility and restrictions packed in an <code>int</code>
+ * , so a description costs a few arrays per package instead of a node and a
+ * map per element. It is meant for the descriptions of system libraries and
+ * binary bundles, which are built once and then only resolved and visited.
+ * <p>
+ * The key of an element is its path below the package: the names of the
+ * enclosing types separated by <code>'$'</code>, followed by
+ * <code>'#'</code> and the name (and signature) of a field or a method. Both
+ * separators sort before any character of a Java identifier, so the elements
+ * of a type directly follow the type in the array. Descriptors are created
+ * again when the description is visited.
+ * </p>
+ * <p>
+ * Resolving and visiting behave exactly as in an {@link ApiDescription}: the
+ * closest annotated element is resolved and inherited visibility comes from
+ * the enclosing elements. The fields and methods of a type are visited before
+ * its member types.
+ * </p>
+ * <p>
+ * Note, the implementation is not thread safe.
+ * </p>
+ *
+ * @since 1.0.700
+ */
+public class CompactApiDescription extends ApiDescription {
+
+	/**
+	 * Mask of the visibility in a packed annotation, the restrictions are
+	 * stored in the upper bits
+	 */
+	static final int VISIBILITY_MASK = 0xFFFF;
+
+	/**
+	 * Separator of enclosing and member types in a key
+	 */
+	static final char TYPE_SEPARATOR = '$';
+
+	/**
+	 * Separator of a type and its fields and methods in a key
+	 */
+	static final char MEMBER_SEPARATOR = '#';
+
+	/**
+	 * The elements annotated in one package
+	 */
+	static final class PackageEntry {
+		final String fName;
+		int fAnnotations = pack(VisibilityModifiers.API, RestrictionModifiers.NO_RESTRICTIONS);
+		String[] fKeys = null;
+		int[] fValues = null;
+		int fSize = 0;
+
+		PackageEntry(String name) {
+			fName = name;
+		}
+
+		/**
+		 * Returns the index of the given key or <code>-(insertion point) - 1</code>
+		 *
+		 * @param key
+		 * @return the index of the key
+		 */
+		int indexOf(String key) {
+			if (fKeys == null) {
+				return -1;
+			}
+			return Arrays.binarySearch(fKeys, 0, fSize, key);
+		}
+
+		/**
+		 * Inserts the given key with inherited visibility and no restrictions
+		 *
+		 * @param index the insertion point
+		 * @param key the key to insert
+		 */
+		void insert(int index, String key) {
+			if (fKeys == null) {
+				fKeys = new String[4];
+				fValues = new int[4];
+			} else if (fSize == fKeys.length) {
+				int length = fSize + (fSize >> 1) + 1;
+				String[] keys = new String[length];
+				int[] values = new int[length];
+				System.arraycopy(fKeys, 0, keys, 0, fSize);
+				System.arraycopy(fValues, 0, values, 0, fSize);
+				fKeys = keys;
+				fValues = values;
+			}
+			System.arraycopy(fKeys, index, fKeys, index + 1, fSize - index);
+			System.arraycopy(fValues, index, fValues, index + 1, fSize - index);
+			fKeys[index] = key;
+			fValues[index] = pack(VISIBILITY_INHERITED, RestrictionModifiers.NO_RESTRICTIONS);
+			fSize++;
+		}
+
+		/**
+		 * Releases the unused capacity of the arrays
+		 */
+		void trim() {
+			if (fKeys != null && fKeys.length > fSize) {
+				String[] keys = new String[fSize];
+				int[] values = new int[fSize];
+				System.arraycopy(fKeys, 0, keys, 0, fSize);
+				System.arraycopy(fValues, 0, values, 0, fSize);
+				fKeys = keys;
+				fValues = values;
+			}
+		}
+	}
+
+	/**
+	 * Map of package names to their entries
+	 */
+	private HashMap<String, PackageEntry> fPackages = new HashMap<String, PackageEntry>();
+
+	/**
+	 * Constructs an API description owned by the specified component.
+	 *
+	 * @param owningComponentId API component identifier or <code>null</code> if
+	 *            there is no specific owner.
+	 */
+	public CompactApiDescription(String owningComponentId) {
+		super(owningComponentId);
+		// the tree of the super class is never used and the access map is
+		// only created for packages with friends
+		fPackageMap = null;
+		fAccessMap = null;
+	}
+
+	/**
+	 * Packs the given visibility and restrictions in one <code>int</code>
+	 *
+	 * @param visibility
+	 * @param restrictions
+	 * @return the packed annotations
+	 */
+	static int pack(int visibility, int restrictions) {
+		return (restrictions << 16) | (visibility & VISIBILITY_MASK);
+	}
+
+	/**
+	 * @param annotations packed annotations
+	 * @return the visibility of the packed annotations
+	 */
+	static int getVisibility(int annotations) {
+		return annotations & VISIBILITY_MASK;
+	}
+
+	/**
+	 * @param annotations packed annotations
+	 * @return the restrictions of the packed annotations
+	 */
+	static int getRestrictions(int annotations) {
+		return annotations >>> 16;
+	}
+
+	/**
+	 * Returns the keys of the elements on the given path below its package,
+	 * or <code>null</code> if the path does not start with a package or
+	 * contains elements that cannot be annotated
+	 *
+	 * @param path the path of an element
+	 * @return the keys of the path below the package or <code>null</code>
+	 */
+	static String[] getKeys(IElementDescriptor[] path) {
+		if (path[0].getElementType() != IElementDescriptor.PACKAGE) {
+			return null;
+		}
+		String[] keys = new String[path.length - 1];
+		StringBuffer buffer = new StringBuffer();
+		for (int i = 1; i < path.length; i++) {
+			IElementDescriptor current = path[i];
+			switch (current.getElementType()) {
+				case IElementDescriptor.TYPE: {
+					if (i > 1) {
+						buffer.append(TYPE_SEPARATOR);
+					}
+					buffer.append(((IReferenceTypeDescriptor) current).getName());
+					break;
+				}
+				case IElementDescriptor.METHOD: {
+					IMethodDescriptor method = (IMethodDescriptor) current;
+					buffer.append(MEMBER_SEPARATOR).append(method.getName()).append(method.getSignature());
+					break;
+				}
+				case IElementDescriptor.FIELD: {
+					buffer.append(MEMBER_SEPARATOR).append(((IFieldDescriptor) current).getName());
+					break;
+				}
+				default:
+					return null;
+			}
+			keys[i - 1] = buffer.toString();
+		}
+		return keys;
+	}
+
+	/**
+	 * Creates the descriptor of the element with the given key
+	 *
+	 * @param pkg the package of the element
+	 * @param key the key of the element
+	 * @return the element descriptor
+	 */
+	static IElementDescriptor getElement(IPackageDescriptor pkg, String key) {
+		int index = key.indexOf(MEMBER_SEPARATOR);
+		if (index == -1) {
+			return pkg.getType(key);
+		}
+		IReferenceTypeDescriptor type = pkg.getType(key.substring(0, index));
+		int signature = key.indexOf('(', index);
+		if (signature == -1) {
+			return type.getField(key.substring(index + 1));
+		}
+		return type.getMethod(key.substring(index + 1, signature), key.substring(signature));
+	}
+
+	/**
+	 * Returns if the element with the given key is enclosed in the element
+	 * with the given parent key
+	 *
+	 * @param key
+	 * @param parent the parent key or <code>null</code> for the package
+	 * @return if the key is below the parent
+	 */
+	static boolean isEnclosedIn(String key, String parent) {
+		if (parent == null) {
+			return true;
+		}
+		int length = parent.length();
+		if (key.length() <= length || !key.startsWith(parent)) {
+			return false;
+		}
+		char c = key.charAt(length);
+		return c == TYPE_SEPARATOR || c == MEMBER_SEPARATOR;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * org.eclipse.pde.api.tools.internal.ApiDescription#accept(org.eclipse.
+	 * pde.api.tools.internal.provisional.ApiDescriptionVisitor,
+	 * org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	@Override
+	public void accept(ApiDescriptionVisitor visitor, IProgressMonitor monitor) {
+		List<String> names = new ArrayList<String>(fPackages.keySet());
+		Collections.sort(names);
+		for (String name : names) {
+			Util.updateMonitor(monitor);
+			visitPackage(visitor, fPackages.get(name));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * org.eclipse.pde.api.tools.internal.ApiDescription#accept(org.eclipse.
+	 * pde.api.tools.internal.provisional.ApiDescriptionVisitor,
+	 * org.eclipse.pde.api.tools.internal.provisional.descriptors.
+	 * IElementDescriptor, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	@Override
+	public boolean accept(ApiDescriptionVisitor visitor, IElementDescriptor element, IProgressMonitor monitor) {
+		IElementDescriptor[] path = element.getPath();
+		String[] keys = getKeys(path);
+		if (keys == null) {
+			return false;
+		}
+		PackageEntry entry = fPackages.get(((IPackageDescriptor) path[0]).getName());
+		if (entry == null) {
+			return false;
+		}
+		int vis = getVisibility(entry.fAnnotations);
+		int parentVis = vis;
+		int found = -1;
+		for (int i = 0; i < keys.length; i++) {
+			int index = entry.indexOf(keys[i]);
+			if (index < 0) {
+				break;
+			}
+			parentVis = vis;
+			int current = getVisibility(entry.fValues[index]);
+			if (current != VISIBILITY_INHERITED) {
+				vis = current;
+			}
+			found = index;
+		}
+		if (found == -1) {
+			visitPackage(visitor, entry);
+		} else {
+			visitEntry(visitor, entry, (IPackageDescriptor) path[0], found, parentVis);
+		}
+		return true;
+	}
+
+	/**
+	 * Visits a package and the elements annotated in it
+	 *
+	 * @param visitor
+	 * @param entry
+	 */
+	private void visitPackage(ApiDescriptionVisitor visitor, PackageEntry entry) {
+		IPackageDescriptor pkg = Factory.packageDescriptor(entry.fName);
+		int vis = getVisibility(entry.fAnnotations);
+		IApiAnnotations desc = new ApiAnnotations(vis, getRestrictions(entry.fAnnotations));
+		if (visitor.visitElement(pkg, desc)) {
+			int index = 0;
+			while (index < entry.fSize) {
+				index = visitEntry(visitor, entry, pkg, index, vis);
+			}
+		}
+		visitor.endVisitElement(pkg, desc);
+	}
+
+	/**
+	 * Visits the element at the given index and the elements enclosed in it
+	 *
+	 * @param visitor
+	 * @param entry the package entry
+	 * @param pkg the package descriptor
+	 * @param index the index of the element to visit
+	 * @param parentVis the resolved visibility of the enclosing element
+	 * @return the index of the first element not enclosed in the visited one
+	 */
+	private int visitEntry(ApiDescriptionVisitor visitor, PackageEntry entry, IPackageDescriptor pkg, int index, int parentVis) {
+		String key = entry.fKeys[index];
+		int annotations = entry.fValues[index];
+		int vis = getVisibility(annotations);
+		if (vis == VISIBILITY_INHERITED) {
+			vis = parentVis;
+		}
+		IElementDescriptor element = getElement(pkg, key);
+		IApiAnnotations desc = new ApiAnnotations(vis, getRestrictions(annotations));
+		int next = index + 1;
+		if (visitor.visitElement(element, desc)) {
+			while (next < entry.fSize && isEnclosedIn(entry.fKeys[next], key)) {
+				next = visitEntry(visitor, entry, pkg, next, vis);
+			}
+		} else {
+			while (next < entry.fSize && isEnclosedIn(entry.fKeys[next], key)) {
+				next++;
+			}
+		}
+		visitor.endVisitElement(element, desc);
+		return next;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * org.eclipse.pde.api.tools.internal.ApiDescription#resolveAnnotations(
+	 * org.eclipse.pde.api.tools.internal.provisional.descriptors.
+	 * IElementDescriptor)
+	 */
+	@Override
+	public IApiAnnotations resolveAnnotations(IElementDescriptor element) {
+		IElementDescriptor[] path = element.getPath();
+		String[] keys = getKeys(path);
+		if (keys == null) {
+			return null;
+		}
+		PackageEntry entry = fPackages.get(((IPackageDescriptor) path[0]).getName());
+		if (entry == null) {
+			if (ApiPlugin.DEBUG_API_DESCRIPTION) {
+				System.out.println("No package entry found to resolve annotations for: " + element); //$NON-NLS-1$
+			}
+			return null;
+		}
+		int vis = getVisibility(entry.fAnnotations);
+		int res = keys.length == 0 ? getRestrictions(entry.fAnnotations) : RestrictionModifiers.NO_RESTRICTIONS;
+		for (int i = 0; i < keys.length; i++) {
+			int index = entry.indexOf(keys[i]);
+			if (index < 0) {
+				break;
+			}
+			int annotations = entry.fValues[index];
+			if (getVisibility(annotations) != VISIBILITY_INHERITED) {
+				vis = getVisibility(annotations);
+			}
+			if (i == keys.length - 1) {
+				res = getRestrictions(annotations);
+			}
+		}
+		return new ApiAnnotations(vis, res);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * org.eclipse.pde.api.tools.internal.ApiDescription#setRestrictions(org
+	 * .eclipse.pde.api.tools.internal.provisional.descriptors.
+	 * IElementDescriptor, int)
+	 */
+	@Override
+	public IStatus setRestrictions(IElementDescriptor element, int restrictions) {
+		PackageEntry entry = getEntry(element);
+		if (entry != null) {
+			int index = getIndex(entry, element);
+			modified();
+			if (index == -1) {
+				entry.fAnnotations = pack(getVisibility(entry.fAnnotations), restrictions);
+			} else {
+				entry.fValues[index] = pack(getVisibility(entry.fValues[index]), restrictions);
+			}
+			return Status.OK_STATUS;
+		}
+		return new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, ELEMENT_NOT_FOUND, MessageFormat.format("Failed to set API restriction: {0} not found in {1}", //$NON-NLS-1$
+				new Object[] { element.toString(), fOwningComponentId }), null);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * org.eclipse.pde.api.tools.internal.ApiDescription#setVisibility(org.eclipse
+	 * .pde.api.tools.internal.provisional.descriptors.IElementDescriptor,
+	 * int)
+	 */
+	@Override
+	public IStatus setVisibility(IElementDescriptor element, int visibility) {
+		PackageEntry entry = getEntry(element);
+		if (entry != null) {
+			int index = getIndex(entry, element);
+			modified();
+			if (index == -1) {
+				entry.fAnnotations = pack(visibility, getRestrictions(entry.fAnnotations));
+			} else {
+				entry.fValues[index] = pack(visibility, getRestrictions(entry.fValues[index]));
+			}
+			return Status.OK_STATUS;
+		}
+		return new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, ELEMENT_NOT_FOUND, MessageFormat.format("Failed to set API visibility: {0} not found in {1}", //$NON-NLS-1$
+				new Object[] { element.toString(), fOwningComponentId }), null);
+	}
+
+	/**
+	 * Returns the entry of the package of the given element, creating it if
+	 * needed, or <code>null</code> if the element cannot be annotated
+	 *
+	 * @param element
+	 * @return the package entry or <code>null</code>
+	 */
+	private PackageEntry getEntry(IElementDescriptor element) {
+		IElementDescriptor[] path = element.getPath();
+		if (getKeys(path) == null) {
+			return null;
+		}
+		String name = ((IPackageDescriptor) path[0]).getName();
+		PackageEntry entry = fPackages.get(name);
+		if (entry == null) {
+			entry = new PackageEntry(name);
+			fPackages.put(name, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns the index of the given element in the package entry, inserting
+	 * it and its enclosing elements if needed
+	 *
+	 * @param entry the package entry of the element
+	 * @param element
+	 * @return the index of the element or <code>-1</code> for the package
+	 *         itself
+	 */
+	private int getIndex(PackageEntry entry, IElementDescriptor element) {
+		String[] keys = getKeys(element.getPath());
+		int index = -1;
+		for (int i = 0; i < keys.length; i++) {
+			index = entry.indexOf(keys[i]);
+			if (index < 0) {
+				index = -index - 1;
+				entry.insert(index, keys[i]);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Releases the memory reserved for elements that were never added. Should
+	 * be called once the description has been populated.
+	 */
+	public void trimToSize() {
+		for (PackageEntry entry : fPackages.values()) {
+			entry.trim();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.internal.ApiDescription#clearPackages()
+	 */
+	@Override
+	protected void clearPackages() {
+		fPackages.clear();
+	}
+}
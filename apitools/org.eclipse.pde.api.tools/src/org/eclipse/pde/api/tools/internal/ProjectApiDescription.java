@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,8 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.internal;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -59,6 +61,17 @@ import org.w3c.dom.Element;
  */
 public class ProjectApiDescription extends ApiDescription {
 
+	/**
+	 * Header of the binary form of a project description
+	 */
+	static final int BINARY_MAGIC = 0x41504944;
+
+	/**
+	 * Version of the binary form of a project description, to increment when
+	 * the layout written by {@link #persistBinary(DataOutputStream)} changes
+	 */
+	static final int BINARY_VERSION = 1;
+
 	/**
 	 * Associated Java project
 	 */
@@ -146,6 +159,25 @@ public class ProjectApiDescription extends ApiDescription {
 			}
 		}
 
+		/*
+		 * (non-Javadoc)
+		 * @see org.eclipse.pde.api.tools.internal.ApiDescription.ManifestNode#
+		 * persistBinary(java.io.DataOutputStream)
+		 */
+		@Override
+		void persistBinary(DataOutputStream out) throws IOException {
+			if (hasApiVisibility(this)) {
+				out.writeByte(NODE_PACKAGE);
+				out.writeInt(this.visibility);
+				out.writeInt(fFragments.length);
+				for (int i = 0; i < fFragments.length; i++) {
+					out.writeUTF(fFragments[i].getHandleIdentifier());
+				}
+				persistChildren(out, children);
+				out.writeByte(NODE_END);
+			}
+		}
+
 		/*
 		 * (non-Javadoc)
 		 * @see
@@ -338,6 +370,24 @@ public class ProjectApiDescription extends ApiDescription {
 			}
 		}
 
+		/*
+		 * (non-Javadoc)
+		 * @see org.eclipse.pde.api.tools.internal.ApiDescription.ManifestNode#
+		 * persistBinary(java.io.DataOutputStream)
+		 */
+		@Override
+		void persistBinary(DataOutputStream out) throws IOException {
+			if (hasApiVisibility(this)) {
+				out.writeByte(NODE_TYPE);
+				out.writeUTF(fType.getHandleIdentifier());
+				out.writeInt(this.visibility);
+				out.writeInt(this.restrictions);
+				out.writeLong(fTimeStamp);
+				persistChildren(out, children);
+				out.writeByte(NODE_END);
+			}
+		}
+
 		/*
 		 * (non-Javadoc)
 		 * @see
@@ -744,6 +794,38 @@ public class ProjectApiDescription extends ApiDescription {
 		}
 	}
 
+	/**
+	 * Writes this API description in the binary form restored by the
+	 * {@link ApiDescriptionManager}. The binary form holds the same nodes as
+	 * {@link #getXML()}, which remains the format used for exporting
+	 * descriptions.
+	 * 
+	 * @param out the stream to write to
+	 * @throws IOException if the description cannot be written
+	 */
+	public synchronized void persistBinary(DataOutputStream out) throws IOException {
+		out.writeInt(BINARY_MAGIC);
+		out.writeInt(BINARY_VERSION);
+		out.writeUTF(IApiXmlConstants.API_DESCRIPTION_CURRENT_VERSION);
+		out.writeLong(fPackageTimeStamp);
+		persistChildren(out, fPackageMap);
+		out.writeByte(NODE_END);
+	}
+
+	/**
+	 * Persists the elements in the given map in binary form
+	 * 
+	 * @param out the stream to write to
+	 * @param elementMap elements to persist
+	 * @throws IOException
+	 */
+	void persistChildren(DataOutputStream out, Map<IElementDescriptor, ManifestNode> elementMap) throws IOException {
+		Iterator<ManifestNode> iterator = elementMap.values().iterator();
+		while (iterator.hasNext()) {
+			iterator.next().persistBinary(out);
+		}
+	}
+
 	/**
 	 * Cleans this API description so it will be re-populated with fresh data.
 	 */
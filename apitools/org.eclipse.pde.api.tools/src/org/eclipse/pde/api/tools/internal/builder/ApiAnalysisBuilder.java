@@ -422,7 +422,6 @@ public class ApiAnalysisBuilder extends IncrementalProjectBuilder {
 									buildAll(baseline, wbaseline, localMonitor.newChild(1));
 									break;
 								}
-								BuildState.setLastBuiltState(this.currentproject, null);
 								IncrementalApiBuilder builder = new IncrementalApiBuilder(this);
 								builder.build(baseline, wbaseline, deltas, state, this.buildstate, localMonitor.newChild(1));
 							}
@@ -0,0 +1,423 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.builder;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects metrics about the API analysis of components: the time spent in
+ * each phase of the analysis, counters such as the number of types visited or
+ * problems created, and the hit rates of the caches used along the way.
+ * <p>
+ * Metrics are only collected once enabled, either with the
+ * {@value #ENABLED_PROPERTY} system property, the
+ * <code>org.eclipse.pde.api.tools/debug/metrics</code> tracing option or
+ * {@link #setEnabled(boolean)}; otherwise recording a metric costs a single
+ * field read. Collected metrics can be polled per component, for example by a
+ * view refreshing when {@link #getModificationCount()} changes, or dumped as
+ * JSON with {@link #toJSON()}.
+ * </p>
+ * <p>
+ * Phases may nest: the time of the since tag checks is included in the time
+ * of the compatibility checks that trigger them.
+ * </p>
+ *
+ * @since 1.0.700
+ */
+public final class ApiAnalysisMetrics {
+
+	/**
+	 * System property enabling the collection of metrics
+	 */
+	public static final String ENABLED_PROPERTY = "org.eclipse.pde.api.tools.metrics"; //$NON-NLS-1$
+
+	/**
+	 * Phase comparing the component against the baseline
+	 */
+	public static final String PHASE_COMPATIBILITY = "compatibility"; //$NON-NLS-1$
+	/**
+	 * Phase checking the <code>@since</code> tags of the changed elements
+	 */
+	public static final String PHASE_SINCE_TAGS = "sinceTags"; //$NON-NLS-1$
+	/**
+	 * Phase checking the version of the component
+	 */
+	public static final String PHASE_VERSION = "version"; //$NON-NLS-1$
+	/**
+	 * Phase scanning the component for illegal API use
+	 */
+	public static final String PHASE_USAGE = "usage"; //$NON-NLS-1$
+	/**
+	 * Phase validating the javadoc tags and annotations
+	 */
+	public static final String PHASE_TAG_VALIDATION = "tagValidation"; //$NON-NLS-1$
+	/**
+	 * Phase reporting the problem filters that are no longer used
+	 */
+	public static final String PHASE_UNUSED_FILTERS = "unusedFilters"; //$NON-NLS-1$
+	/**
+	 * Phase checking the use of external dependencies
+	 */
+	public static final String PHASE_EXTERNAL_DEPENDENCIES = "externalDependencies"; //$NON-NLS-1$
+
+	/**
+	 * Counter of the types compared with the reference baseline
+	 */
+	public static final String COUNTER_TYPES_COMPARED = "typesCompared"; //$NON-NLS-1$
+	/**
+	 * Counter of the types scanned by the usage scan
+	 */
+	public static final String COUNTER_TYPES_SCANNED = "typesScanned"; //$NON-NLS-1$
+	/**
+	 * Counter of the references resolved by the usage scan
+	 */
+	public static final String COUNTER_REFERENCES_RESOLVED = "referencesResolved"; //$NON-NLS-1$
+	/**
+	 * Counter of the problems created
+	 */
+	public static final String COUNTER_PROBLEMS_CREATED = "problemsCreated"; //$NON-NLS-1$
+
+	/**
+	 * Cache of the type structures of archives
+	 */
+	public static final String CACHE_TYPE_STRUCTURES = "typeStructures"; //$NON-NLS-1$
+	/**
+	 * Cache of the build states kept in memory between builds
+	 */
+	public static final String CACHE_BUILD_STATES = "buildStates"; //$NON-NLS-1$
+
+	/**
+	 * Metrics of a component
+	 */
+	static class ComponentMetrics {
+		/**
+		 * Phase names to elapsed nanoseconds and number of runs
+		 */
+		final Map<String, long[]> phases = new TreeMap<String, long[]>();
+		/**
+		 * Counter names to values
+		 */
+		final Map<String, long[]> counters = new TreeMap<String, long[]>();
+	}
+
+	private static volatile boolean fEnabled = Boolean.getBoolean(ENABLED_PROPERTY);
+
+	/**
+	 * Component ids to their metrics
+	 */
+	private static Map<String, ComponentMetrics> fComponents = new TreeMap<String, ComponentMetrics>();
+
+	/**
+	 * Cache names to hits and misses
+	 */
+	private static Map<String, long[]> fCaches = new TreeMap<String, long[]>();
+
+	private static long fModificationCount = 0;
+
+	private ApiAnalysisMetrics() {
+		// no instantiation
+	}
+
+	/**
+	 * @return whether metrics are collected
+	 */
+	public static boolean isEnabled() {
+		return fEnabled;
+	}
+
+	/**
+	 * Sets whether metrics are collected. Metrics already collected are kept.
+	 *
+	 * @param enabled
+	 */
+	public static void setEnabled(boolean enabled) {
+		fEnabled = enabled;
+	}
+
+	/**
+	 * Forgets all the metrics collected so far
+	 */
+	public static synchronized void reset() {
+		fComponents.clear();
+		fCaches.clear();
+		fModificationCount++;
+	}
+
+	/**
+	 * Returns the start time of a phase, to be passed to
+	 * {@link #endPhase(String, String, long)}
+	 *
+	 * @return the start time or <code>-1</code> if metrics are not collected
+	 */
+	public static long startPhase() {
+		return fEnabled ? System.nanoTime() : -1;
+	}
+
+	/**
+	 * Records the time spent in a phase of the analysis of a component
+	 *
+	 * @param component the id of the component
+	 * @param phase the phase
+	 * @param start the time returned by {@link #startPhase()}
+	 */
+	public static void endPhase(String component, String phase, long start) {
+		if (start == -1 || !fEnabled) {
+			return;
+		}
+		long elapsed = System.nanoTime() - start;
+		synchronized (ApiAnalysisMetrics.class) {
+			long[] phaseTime = getValue(getComponent(component).phases, phase);
+			phaseTime[0] += elapsed;
+			phaseTime[1]++;
+			fModificationCount++;
+		}
+	}
+
+	/**
+	 * Adds the given amount to a counter of a component
+	 *
+	 * @param component the id of the component
+	 * @param counter the counter
+	 * @param amount the amount to add
+	 */
+	public static void count(String component, String counter, long amount) {
+		if (!fEnabled) {
+			return;
+		}
+		synchronized (ApiAnalysisMetrics.class) {
+			getValue(getComponent(component).counters, counter)[0] += amount;
+			fModificationCount++;
+		}
+	}
+
+	/**
+	 * Records a lookup in a cache
+	 *
+	 * @param cache the cache
+	 * @param hit whether the lookup was served by the cache
+	 */
+	public static void cacheLookup(String cache, boolean hit) {
+		if (!fEnabled) {
+			return;
+		}
+		synchronized (ApiAnalysisMetrics.class) {
+			getValue(fCaches, cache)[hit ? 0 : 1]++;
+			fModificationCount++;
+		}
+	}
+
+	private static ComponentMetrics getComponent(String component) {
+		ComponentMetrics metrics = fComponents.get(component);
+		if (metrics == null) {
+			metrics = new ComponentMetrics();
+			fComponents.put(component, metrics);
+		}
+		return metrics;
+	}
+
+	private static long[] getValue(Map<String, long[]> values, String name) {
+		long[] value = values.get(name);
+		if (value == null) {
+			value = new long[2];
+			values.put(name, value);
+		}
+		return value;
+	}
+
+	/**
+	 * Returns a number that changes each time a metric is recorded, so
+	 * pollers can tell whether the metrics changed since they last read them
+	 *
+	 * @return the modification count
+	 */
+	public static synchronized long getModificationCount() {
+		return fModificationCount;
+	}
+
+	/**
+	 * @return the ids of the components metrics were recorded for, sorted
+	 */
+	public static synchronized String[] getComponents() {
+		return fComponents.keySet().toArray(new String[fComponents.size()]);
+	}
+
+	/**
+	 * Returns the time spent in a phase of the analysis of a component
+	 *
+	 * @param component the id of the component
+	 * @param phase the phase
+	 * @return the time spent in milliseconds
+	 */
+	public static synchronized long getPhaseTime(String component, String phase) {
+		ComponentMetrics metrics = fComponents.get(component);
+		long[] value = metrics == null ? null : metrics.phases.get(phase);
+		return value == null ? 0 : value[0] / 1000000;
+	}
+
+	/**
+	 * Returns the value of a counter of a component
+	 *
+	 * @param component the id of the component
+	 * @param counter the counter
+	 * @return the value of the counter
+	 */
+	public static synchronized long getCounter(String component, String counter) {
+		ComponentMetrics metrics = fComponents.get(component);
+		long[] value = metrics == null ? null : metrics.counters.get(counter);
+		return value == null ? 0 : value[0];
+	}
+
+	/**
+	 * Returns the ratio of the lookups in a cache that it served
+	 *
+	 * @param cache the cache
+	 * @return the hit rate between <code>0</code> and <code>1</code>, or
+	 *         <code>0</code> if the cache was not used
+	 */
+	public static synchronized double getCacheHitRate(String cache) {
+		long[] value = fCaches.get(cache);
+		if (value == null || value[0] + value[1] == 0) {
+			return 0;
+		}
+		return (double) value[0] / (value[0] + value[1]);
+	}
+
+	/**
+	 * Returns the collected metrics as a JSON document of the form:
+	 *
+	 * <pre>
+	 * {
+	 *   "components": {
+	 *     "&lt;id&gt;": {
+	 *       "phases": { "&lt;phase&gt;": { "millis": 12, "runs": 1 } },
+	 *       "counters": { "&lt;counter&gt;": 42 }
+	 *     }
+	 *   },
+	 *   "caches": { "&lt;cache&gt;": { "hits": 10, "misses": 2, "hitRate": 0.833 } }
+	 * }
+	 * </pre>
+	 *
+	 * @return the metrics as JSON
+	 */
+	public static synchronized String toJSON() {
+		StringBuffer buffer = new StringBuffer();
+		buffer.append("{\n  \"components\": {"); //$NON-NLS-1$
+		boolean first = true;
+		for (Map.Entry<String, ComponentMetrics> component : fComponents.entrySet()) {
+			buffer.append(first ? "\n" : ",\n").append("    "); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			first = false;
+			appendString(buffer, component.getKey());
+			buffer.append(": {\n      \"phases\": {"); //$NON-NLS-1$
+			boolean firstValue = true;
+			for (Map.Entry<String, long[]> phase : component.getValue().phases.entrySet()) {
+				buffer.append(firstValue ? " " : ", "); //$NON-NLS-1$ //$NON-NLS-2$
+				firstValue = false;
+				appendString(buffer, phase.getKey());
+				buffer.append(": { \"millis\": ").append(phase.getValue()[0] / 1000000); //$NON-NLS-1$
+				buffer.append(", \"runs\": ").append(phase.getValue()[1]).append(" }"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			buffer.append(firstValue ? "},\n      \"counters\": {" : " },\n      \"counters\": {"); //$NON-NLS-1$ //$NON-NLS-2$
+			firstValue = true;
+			for (Map.Entry<String, long[]> counter : component.getValue().counters.entrySet()) {
+				buffer.append(firstValue ? " " : ", "); //$NON-NLS-1$ //$NON-NLS-2$
+				firstValue = false;
+				appendString(buffer, counter.getKey());
+				buffer.append(": ").append(counter.getValue()[0]); //$NON-NLS-1$
+			}
+			buffer.append(firstValue ? "}\n    }" : " }\n    }"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		buffer.append(first ? "},\n" : "\n  },\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		buffer.append("  \"caches\": {"); //$NON-NLS-1$
+		first = true;
+		for (Map.Entry<String, long[]> cache : fCaches.entrySet()) {
+			buffer.append(first ? "\n" : ",\n").append("    "); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			first = false;
+			long hits = cache.getValue()[0];
+			long misses = cache.getValue()[1];
+			appendString(buffer, cache.getKey());
+			buffer.append(": { \"hits\": ").append(hits); //$NON-NLS-1$
+			buffer.append(", \"misses\": ").append(misses); //$NON-NLS-1$
+			buffer.append(", \"hitRate\": ").append(hits + misses == 0 ? 0 : Math.round(hits * 1000.0 / (hits + misses)) / 1000.0).append(" }"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		buffer.append(first ? "}\n}\n" : "\n  }\n}\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		return buffer.toString();
+	}
+
+	/**
+	 * Writes the collected metrics as JSON to the given file
+	 *
+	 * @param file
+	 * @throws IOException
+	 * @see #toJSON()
+	 */
+	public static void writeJSON(File file) throws IOException {
+		String json = toJSON();
+		File parent = file.getParentFile();
+		if (parent != null && !parent.exists()) {
+			parent.mkdirs();
+		}
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8")); //$NON-NLS-1$
+		try {
+			writer.write(json);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Appends the given string as a JSON string literal
+	 *
+	 * @param buffer
+	 * @param value
+	 */
+	private static void appendString(StringBuffer buffer, String value) {
+		buffer.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					buffer.append("\\\""); //$NON-NLS-1$
+					break;
+				case '\\':
+					buffer.append("\\\\"); //$NON-NLS-1$
+					break;
+				case '\n':
+					buffer.append("\\n"); //$NON-NLS-1$
+					break;
+				case '\r':
+					buffer.append("\\r"); //$NON-NLS-1$
+					break;
+				case '\t':
+					buffer.append("\\t"); //$NON-NLS-1$
+					break;
+				default:
+					if (c < 0x20) {
+						String hex = Integer.toHexString(c);
+						buffer.append("\\u"); //$NON-NLS-1$
+						for (int j = hex.length(); j < 4; j++) {
+							buffer.append('0');
+						}
+						buffer.append(hex);
+					} else {
+						buffer.append(c);
+					}
+			}
+		}
+		buffer.append('"');
+	}
+}
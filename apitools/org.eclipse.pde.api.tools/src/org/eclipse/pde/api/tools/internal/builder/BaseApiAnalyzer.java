@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2014 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,11 +19,18 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarFile;
 
 import org.eclipse.core.resources.IFile;
@@ -55,6 +62,7 @@ import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
@@ -111,7 +119,12 @@ import com.ibm.icu.text.MessageFormat;
 
 /**
  * Base implementation of the analyzer used in the {@link ApiAnalysisBuilder}
- * 
+ * <p>
+ * An analyzer keeps the state of a single analysis run (problems found, pending
+ * since tag checks, build state) and is not thread safe. Clients analyzing
+ * several components concurrently must create one analyzer per worker.
+ * </p>
+ *
  * @since 1.0.0
  */
 public class BaseApiAnalyzer implements IApiAnalyzer {
@@ -121,6 +134,22 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 	 */
 	static final String[] NO_TYPES = new String[0];
 
+	/**
+	 * Name of the system property giving the number of threads used to
+	 * validate the Javadoc tags and annotations of a project. Defaults to the
+	 * number of available processors.
+	 * 
+	 * @since 1.0.700
+	 */
+	public static final String TAG_VALIDATION_THREADS_PROPERTY = "org.eclipse.pde.api.tools.tagValidationThreads"; //$NON-NLS-1$
+
+	/**
+	 * Number of compilation units parsed together when validating tags
+	 * 
+	 * @since 1.0.700
+	 */
+	static final int TAG_VALIDATION_BATCH_SIZE = 32;
+
 	private static class ReexportedBundleVersionInfo {
 		String componentID;
 		int kind;
@@ -181,6 +210,8 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 	@Override
 	public void analyzeComponent(final BuildState state, final IApiFilterStore filterStore, final Properties preferences, final IApiBaseline baseline, final IApiComponent component, final IBuildContext context, IProgressMonitor monitor) {
 		SubMonitor localMonitor = SubMonitor.convert(monitor, BuilderMessages.BaseApiAnalyzer_analyzing_api, 8);
+		String id = component.getSymbolicName();
+		int problemCount = fProblems == null ? 0 : fProblems.size();
 		try {
 			fJavaProject = getJavaProject(component);
 			this.fFilterStore = filterStore;
@@ -238,6 +269,7 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 				if (reference != null) {
 					localMonitor.subTask(NLS.bind(BuilderMessages.BaseApiAnalyzer_comparing_api_profiles, new String[] {
 							reference.getSymbolicName(), baseline.getName() }));
+					long start = ApiAnalysisMetrics.startPhase();
 					if (bcontext.hasTypes()) {
 						String[] changedtypes = bcontext.getStructurallyChangedTypes();
 						checkCompatibility(changedtypes, reference, component, localMonitor);
@@ -246,15 +278,20 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 						checkCompatibility(reference, component, localMonitor.newChild(1));
 						Util.updateMonitor(localMonitor);
 					}
+					ApiAnalysisMetrics.endPhase(id, ApiAnalysisMetrics.PHASE_COMPATIBILITY, start);
 					this.fBuildState.setReexportedComponents(Util.getReexportedComponents(component));
 				} else {
 					localMonitor.subTask(NLS.bind(BuilderMessages.BaseApiAnalyzer_comparing_api_profiles, new String[] {
 							component.getSymbolicName(), baseline.getName() }));
+					long start = ApiAnalysisMetrics.startPhase();
 					checkCompatibility(null, component, localMonitor.newChild(1));
+					ApiAnalysisMetrics.endPhase(id, ApiAnalysisMetrics.PHASE_COMPATIBILITY, start);
 					Util.updateMonitor(localMonitor);
 				}
 				// version checks
+				long start = ApiAnalysisMetrics.startPhase();
 				checkApiComponentVersion(reference, component);
+				ApiAnalysisMetrics.endPhase(id, ApiAnalysisMetrics.PHASE_VERSION, start);
 				Util.updateMonitor(localMonitor);
 				checkfilters = true;
 			} else {
@@ -268,19 +305,27 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 			checkEEDescriptions();
 
 			// usage checks
+			long start = ApiAnalysisMetrics.startPhase();
 			checkApiUsage(bcontext, component, localMonitor.newChild(1));
+			ApiAnalysisMetrics.endPhase(id, ApiAnalysisMetrics.PHASE_USAGE, start);
 			Util.updateMonitor(localMonitor);
 			// tag validation
+			start = ApiAnalysisMetrics.startPhase();
 			checkTagValidation(bcontext, component, localMonitor.newChild(1));
+			ApiAnalysisMetrics.endPhase(id, ApiAnalysisMetrics.PHASE_TAG_VALIDATION, start);
 			Util.updateMonitor(localMonitor);
 			if (checkfilters) {
 				// check for unused filters only if the scans have been done
+				start = ApiAnalysisMetrics.startPhase();
 				checkUnusedProblemFilters(bcontext, component, localMonitor.newChild(1));
+				ApiAnalysisMetrics.endPhase(id, ApiAnalysisMetrics.PHASE_UNUSED_FILTERS, start);
 			}
 			Util.updateMonitor(localMonitor);
 
 			if (component instanceof ProjectComponent) {
+				start = ApiAnalysisMetrics.startPhase();
 				checkExternalDependencies(component, bcontext, null, localMonitor.newChild(1));
+				ApiAnalysisMetrics.endPhase(id, ApiAnalysisMetrics.PHASE_EXTERNAL_DEPENDENCIES, start);
 			}
 		} catch (CoreException e) {
 			ApiPlugin.log(e);
@@ -291,6 +336,9 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 				System.out.println("Trapped OperationCanceledException"); //$NON-NLS-1$
 			}
 		} finally {
+			if (fProblems != null) {
+				ApiAnalysisMetrics.count(id, ApiAnalysisMetrics.COUNTER_PROBLEMS_CREATED, fProblems.size() - problemCount);
+			}
 			localMonitor.done();
 		}
 	}
@@ -576,6 +624,7 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 				continue;
 			}
 			checkCompatibility(changedtypes[i], reference, component, localMonitor.newChild(1));
+			ApiAnalysisMetrics.count(component.getSymbolicName(), ApiAnalysisMetrics.COUNTER_TYPES_COMPARED, 1);
 			Util.updateMonitor(localMonitor);
 		}
 	}
@@ -1046,7 +1095,9 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 	}
 
 	/**
-	 * Checks the validation of tags for the given {@link IApiComponent}
+	 * Checks the validation of tags for the given {@link IApiComponent}. The
+	 * compilation units to validate are parsed in batches and, when there is
+	 * more than one batch, the batches are validated concurrently.
 	 * 
 	 * @param context
 	 * @param component
@@ -1060,17 +1111,17 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 		}
 		SubMonitor localMonitor = null;
 		try {
-
-			localMonitor = SubMonitor.convert(monitor, BuilderMessages.BaseApiAnalyzer_validating_javadoc_tags, 1 + component.getApiTypeContainers().length);
+			localMonitor = SubMonitor.convert(monitor, BuilderMessages.BaseApiAnalyzer_validating_javadoc_tags, 2);
+			// a compilation unit is only validated once, whatever the number
+			// of its types that changed
+			LinkedHashSet<ICompilationUnit> units = new LinkedHashSet<ICompilationUnit>();
 			if (context.hasTypes()) {
 				String[] typenames = context.getStructurallyChangedTypes();
 				for (int i = 0; i < typenames.length; i++) {
 					if (typenames[i] == null) {
 						continue;
 					}
-					localMonitor.subTask(NLS.bind(BuilderMessages.BaseApiAnalyzer_scanning_0, typenames[i]));
-					processType(typenames[i], !tags, !annotations);
-					Util.updateMonitor(localMonitor);
+					collectUnit(typenames[i], units);
 				}
 			} else {
 				try {
@@ -1078,7 +1129,7 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 					for (int i = 0; i < roots.length; i++) {
 						if (roots[i].getKind() == IPackageFragmentRoot.K_SOURCE) {
 							localMonitor.subTask(NLS.bind(BuilderMessages.BaseApiAnalyzer_scanning_0, roots[i].getPath().toOSString()));
-							scanSource(roots[i], !tags, !annotations, localMonitor.newChild(1));
+							collectUnits(roots[i], units);
 							Util.updateMonitor(localMonitor);
 						}
 					}
@@ -1086,9 +1137,8 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 					ApiPlugin.log(jme);
 				}
 			}
-			Util.updateMonitor(localMonitor);
-		} catch (CoreException e) {
-			ApiPlugin.log(e);
+			Util.updateMonitor(localMonitor, 1);
+			validateTags(units.toArray(new ICompilationUnit[units.size()]), !tags, !annotations, localMonitor.newChild(1));
 		} finally {
 			if (localMonitor != null) {
 				localMonitor.done();
@@ -1097,49 +1147,41 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 	}
 
 	/**
-	 * Recursively finds all source in the given project and scans it for
-	 * invalid tags
+	 * Recursively finds all source in the given element and collects the
+	 * compilation units to scan for invalid tags
 	 * 
 	 * @param element
-	 * @param monitor
+	 * @param units the collection to add the compilation units to
 	 * @throws JavaModelException
 	 */
-	private void scanSource(IJavaElement element, boolean tags, boolean annotations, IProgressMonitor monitor) throws JavaModelException {
-		try {
-			switch (element.getElementType()) {
-				case IJavaElement.PACKAGE_FRAGMENT_ROOT:
-				case IJavaElement.PACKAGE_FRAGMENT: {
-					IParent parent = (IParent) element;
-					IJavaElement[] children = parent.getChildren();
-					for (int i = 0; i < children.length; i++) {
-						scanSource(children[i], tags, annotations, monitor);
-						Util.updateMonitor(monitor, 0);
-					}
-					break;
+	private void collectUnits(IJavaElement element, Collection<ICompilationUnit> units) throws JavaModelException {
+		switch (element.getElementType()) {
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+			case IJavaElement.PACKAGE_FRAGMENT: {
+				IParent parent = (IParent) element;
+				IJavaElement[] children = parent.getChildren();
+				for (int i = 0; i < children.length; i++) {
+					collectUnits(children[i], units);
 				}
-				case IJavaElement.COMPILATION_UNIT: {
-					ICompilationUnit unit = (ICompilationUnit) element;
-					processType(unit, tags, annotations);
-					Util.updateMonitor(monitor, 0);
-					break;
-				}
-				default:
-					break;
+				break;
 			}
-		} finally {
-			if (monitor != null) {
-				Util.updateMonitor(monitor);
-				monitor.done();
+			case IJavaElement.COMPILATION_UNIT: {
+				units.add((ICompilationUnit) element);
+				break;
 			}
+			default:
+				break;
 		}
 	}
 
 	/**
-	 * Processes the given type name for invalid Javadoc tags
+	 * Collects the compilation unit of the given type name to scan for invalid
+	 * Javadoc tags
 	 * 
 	 * @param typename
+	 * @param units the collection to add the compilation unit to
 	 */
-	private void processType(String typename, boolean tags, boolean annotations) {
+	private void collectUnit(String typename, Collection<ICompilationUnit> units) {
 		try {
 			IType type = fJavaProject.findType(typename);
 			if (type != null && !type.isMember()) {
@@ -1147,7 +1189,7 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 				// unit
 				ICompilationUnit cunit = type.getCompilationUnit();
 				if (cunit != null) {
-					processType(cunit, tags, annotations);
+					units.add(cunit);
 				}
 			}
 		} catch (JavaModelException e) {
@@ -1156,20 +1198,130 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 	}
 
 	/**
-	 * Processes the given {@link ICompilationUnit} for invalid tags
+	 * Validates the tags of the given compilation units. The units are parsed
+	 * in batches of {@link #TAG_VALIDATION_BATCH_SIZE} with
+	 * {@link ASTParser#createASTs}; when there is more than one batch they are
+	 * validated by a pool of threads (see
+	 * {@link #TAG_VALIDATION_THREADS_PROPERTY}). The problems of each batch are
+	 * added in the order of the units, whatever the number of threads.
 	 * 
-	 * @param cunit
+	 * @param units the compilation units to validate
+	 * @param tags whether Javadoc tags should be validated
+	 * @param annotations whether annotations should be validated
+	 * @param monitor
 	 */
-	private void processType(ICompilationUnit cunit, boolean tags, boolean annotations) {
-		CompilationUnit comp = createAST(cunit, 0);
-		if (comp == null) {
+	private void validateTags(ICompilationUnit[] units, final boolean tags, final boolean annotations, IProgressMonitor monitor) {
+		if (units.length == 0 || fJavaProject == null) {
 			return;
 		}
-		TagValidator tv = new TagValidator(cunit, tags, annotations);
-		comp.accept(tv);
-		IApiProblem[] tagProblems = tv.getProblems();
-		for (int i = 0; i < tagProblems.length; i++) {
-			addProblem(tagProblems[i]);
+		SubMonitor localMonitor = SubMonitor.convert(monitor, units.length);
+		final Map<String, String> options = fJavaProject.getOptions(true);
+		options.put(JavaCore.COMPILER_DOC_COMMENT_SUPPORT, JavaCore.ENABLED);
+		// the tag manager is created lazily, create it before the workers
+		// ask for it
+		ApiPlugin.getJavadocTagManager();
+		int batches = (units.length + TAG_VALIDATION_BATCH_SIZE - 1) / TAG_VALIDATION_BATCH_SIZE;
+		int threads = Math.min(getTagValidationThreads(), batches);
+		ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+		try {
+			List<Future<List<IApiProblem>>> pending = new ArrayList<Future<List<IApiProblem>>>(batches);
+			List<Integer> sizes = new ArrayList<Integer>(batches);
+			for (int i = 0; i < units.length; i += TAG_VALIDATION_BATCH_SIZE) {
+				final ICompilationUnit[] batch = Arrays.copyOfRange(units, i, Math.min(units.length, i + TAG_VALIDATION_BATCH_SIZE));
+				if (executor == null) {
+					Util.updateMonitor(localMonitor);
+					addProblems(validateTags(batch, options, tags, annotations));
+					localMonitor.worked(batch.length);
+					continue;
+				}
+				pending.add(executor.submit(new Callable<List<IApiProblem>>() {
+					@Override
+					public List<IApiProblem> call() throws Exception {
+						return validateTags(batch, options, tags, annotations);
+					}
+				}));
+				sizes.add(Integer.valueOf(batch.length));
+			}
+			for (int i = 0; i < pending.size(); i++) {
+				Util.updateMonitor(localMonitor);
+				List<IApiProblem> problems = null;
+				try {
+					problems = pending.get(i).get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new OperationCanceledException();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new IllegalStateException(cause);
+				}
+				addProblems(problems);
+				localMonitor.worked(sizes.get(i).intValue());
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+			localMonitor.done();
+		}
+	}
+
+	/**
+	 * Parses the given compilation units together and validates their tags.
+	 * May be called from any thread. Method bodies are not parsed, so types
+	 * declared in a method body are not validated.
+	 * 
+	 * @param units the units to validate
+	 * @param options the compiler options to parse the units with
+	 * @param tags whether Javadoc tags should be validated
+	 * @param annotations whether annotations should be validated
+	 * @return the problems found in the units, in the order of the units
+	 */
+	static List<IApiProblem> validateTags(ICompilationUnit[] units, Map<String, String> options, final boolean tags, final boolean annotations) {
+		final List<IApiProblem> problems = new ArrayList<IApiProblem>();
+		ASTParser parser = ASTParser.newParser(AST.JLS8);
+		parser.setResolveBindings(false);
+		parser.setIgnoreMethodBodies(true);
+		parser.setCompilerOptions(new HashMap<String, String>(options));
+		parser.createASTs(units, NO_TYPES, new ASTRequestor() {
+			@Override
+			public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+				TagValidator tv = new TagValidator(source, tags, annotations);
+				ast.accept(tv);
+				problems.addAll(Arrays.asList(tv.getProblems()));
+			}
+		}, null);
+		return problems;
+	}
+
+	/**
+	 * @return the number of threads to validate tags with, at least one
+	 */
+	private static int getTagValidationThreads() {
+		String value = System.getProperty(TAG_VALIDATION_THREADS_PROPERTY);
+		if (value != null) {
+			try {
+				return Math.max(1, Integer.parseInt(value));
+			} catch (NumberFormatException e) {
+				// use the default
+			}
+		}
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Adds the given problems that are not filtered
+	 * 
+	 * @param problems
+	 */
+	private void addProblems(List<IApiProblem> problems) {
+		for (int i = 0, max = problems.size(); i < max; i++) {
+			addProblem(problems.get(i));
 		}
 	}
 
@@ -1204,6 +1356,8 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 		try {
 			long start = System.currentTimeMillis();
 			IApiProblem[] illegal = analyzer.analyze(component, scope, localMonitor.newChild(2));
+			ApiAnalysisMetrics.count(component.getSymbolicName(), ApiAnalysisMetrics.COUNTER_TYPES_SCANNED, analyzer.getTypesVisited());
+			ApiAnalysisMetrics.count(component.getSymbolicName(), ApiAnalysisMetrics.COUNTER_REFERENCES_RESOLVED, analyzer.getReferencesResolved());
 			Util.updateMonitor(localMonitor);
 			long end = System.currentTimeMillis();
 			if (ApiPlugin.DEBUG_API_ANALYZER) {
@@ -1483,6 +1637,22 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 		if (ignoreSinceTagCheck(null)) {
 			return;
 		}
+		long start = ApiAnalysisMetrics.startPhase();
+		try {
+			doCheckSinceTags(delta, component);
+		} finally {
+			ApiAnalysisMetrics.endPhase(component.getSymbolicName(), ApiAnalysisMetrics.PHASE_SINCE_TAGS, start);
+		}
+	}
+
+	/**
+	 * Checks the <code>@since</code> tags of the element the given delta is
+	 * about
+	 * 
+	 * @param delta
+	 * @param component
+	 */
+	private void doCheckSinceTags(final Delta delta, final IApiComponent component) {
 		IMember member = Util.getIMember(delta, fJavaProject);
 		if (member == null || member.isBinary()) {
 			return;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,13 +12,17 @@ package org.eclipse.pde.api.tools.internal.builder;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -27,6 +31,8 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.zip.CRC32;
 
 import org.eclipse.core.resources.IProject;
@@ -51,13 +57,55 @@ import org.eclipse.pde.core.build.IBuildModel;
 
 /**
  * The API tools build state
+ * <p>
+ * The state is saved as a header section followed by one section per type
+ * with recorded changes. Once a state has been read or written, only the
+ * sections that changed are appended when it is saved again: a later section
+ * replaces an earlier one with the same type name. The last built state of a
+ * project is also kept in memory while its file is unchanged, so it is not
+ * read again on each incremental build.
+ * </p>
  * 
  * @since 1.0.1
  */
 public class BuildState {
 	private static final IDelta[] EMPTY_DELTAS = new IDelta[0];
 	private static final String[] NO_REEXPORTED_COMPONENTS = new String[0];
-	private static final int VERSION = 0x20;
+	private static final int VERSION = 0x21;
+	/**
+	 * Section holding the build path CRC, the re-exported components, the
+	 * dependent projects and the manifest and build.properties states
+	 */
+	private static final int HEADER_SECTION = 1;
+	/**
+	 * Section holding the compatible and breaking changes of one type
+	 */
+	private static final int TYPE_SECTION = 2;
+	/**
+	 * The least number of sections that can be appended to a saved state
+	 * before it is written again from scratch
+	 */
+	private static final int COMPACTION_THRESHOLD = 64;
+
+	/**
+	 * The last built states of projects, kept as long as their saved file is
+	 * the one they were read from or written to
+	 */
+	private static Map<IProject, BuildState> fStates = new HashMap<IProject, BuildState>();
+
+	/**
+	 * The sections of the types changed since the state was last read or
+	 * written, as they were at that time
+	 */
+	static final class Section {
+		Set<IDelta> compatible;
+		Set<IDelta> breaking;
+
+		Section(Set<IDelta> compatible, Set<IDelta> breaking) {
+			this.compatible = compatible;
+			this.breaking = breaking;
+		}
+	}
 
 	private Map<String, Set<IDelta>> compatibleChanges;
 	private Map<String, Set<IDelta>> breakingChanges;
@@ -77,10 +125,33 @@ public class BuildState {
 	private Set<String> apiToolingDependentProjects;
 	private long buildpathCRC = -1L;
 
+	/**
+	 * The sections of the types changed since the state was last read or
+	 * written or <code>null</code> if it has not been read or written yet
+	 */
+	private Map<String, Section> savedSections;
+	/**
+	 * The header as it was last read or written
+	 */
+	private byte[] savedHeader;
+	/**
+	 * The number of saved sections replaced by sections appended since the
+	 * state was last written from scratch
+	 */
+	private int appendedSections = 0;
+	/**
+	 * The length and time stamp of the file the state was last read from or
+	 * saved to
+	 */
+	private long fileLength = -1L;
+	private long fileTimeStamp = -1L;
+
 	/**
 	 * Constructor
+	 * 
+	 * @since 1.0.700
 	 */
-	BuildState() {
+	public BuildState() {
 		this.compatibleChanges = new HashMap<String, Set<IDelta>>();
 		this.breakingChanges = new HashMap<String, Set<IDelta>>();
 		this.manifestChanges = new HashMap<String, String>();
@@ -110,59 +181,99 @@ public class BuildState {
 		if (in.readBoolean()) {
 			// continue to read
 			BuildState state = new BuildState();
-			state.buildpathCRC = in.readLong();
-			int count = in.readInt();
-			// read all compatible deltas
-			for (int i = 0; i < count; i++) {
-				state.addCompatibleChange(readDelta(in));
-			}
-			count = in.readInt();
-			// read all breaking deltas
-			for (int i = 0; i < count; i++) {
-				state.addBreakingChange(readDelta(in));
-			}
-			count = in.readInt();
-			// read all re-exported component names
-			String[] components = new String[count];
-			for (int i = 0; i < count; i++) {
-				components[i] = in.readUTF();
-			}
-			state.reexportedComponents = components;
-			count = in.readInt();
-			for (int i = 0; i < count; i++) {
-				state.addApiToolingDependentProject(in.readUTF());
-			}
-			if (in.available() > 0) {
-				count = in.readInt();
-				if (count > 0) {
-					// read the saved headers
-					HashMap<String, String> map = new HashMap<String, String>(count);
-					for (int i = 0; i < count; i++) {
-						String key = in.readUTF();
-						String value = in.readUTF();
-						map.put(key, value);
-					}
-					state.setManifestState(map);
-				}
-				count = in.readInt();
-				if (count > 0) {
-					// read the saved headers
-					HashMap<String, String> map = new HashMap<String, String>(count);
-					for (int i = 0; i < count; i++) {
-						String key = in.readUTF();
-						String value = in.readUTF();
-						map.put(key, value);
+			byte[] header = null;
+			try {
+				int section = 0;
+				while ((section = in.read()) != -1) {
+					switch (section) {
+						case HEADER_SECTION: {
+							header = new byte[in.readInt()];
+							in.readFully(header);
+							state.readHeader(new DataInputStream(new ByteArrayInputStream(header)));
+							state.appendedSections++;
+							break;
+						}
+						case TYPE_SECTION: {
+							String typeName = in.readUTF();
+							state.compatibleChanges.remove(typeName);
+							state.breakingChanges.remove(typeName);
+							int count = in.readInt();
+							for (int i = 0; i < count; i++) {
+								state.addCompatibleChange(readDelta(in));
+							}
+							count = in.readInt();
+							for (int i = 0; i < count; i++) {
+								state.addBreakingChange(readDelta(in));
+							}
+							state.appendedSections++;
+							break;
+						}
+						default: {
+							throw new IOException(BuilderMessages.build_wrongFileFormat);
+						}
 					}
-					state.setBuildPropertiesState(map);
 				}
+			} catch (EOFException e) {
+				// the last section was not completely saved - a full build is
+				// required
+				return null;
+			}
+			if (header == null) {
+				return null;
 			}
+			// only count the sections replaced by later ones
+			state.appendedSections -= state.getTypeNames().size() + 1;
+			state.savedHeader = header;
+			state.savedSections = new HashMap<String, Section>();
 			return state;
 		}
 		return null;
 	}
 
 	/**
-	 * Writes the given {@link BuildState} to the given output stream
+	 * Reads the header section of the state
+	 * 
+	 * @param in
+	 * @throws IOException
+	 */
+	private void readHeader(DataInputStream in) throws IOException {
+		this.buildpathCRC = in.readLong();
+		int count = in.readInt();
+		// read all re-exported component names
+		String[] components = new String[count];
+		for (int i = 0; i < count; i++) {
+			components[i] = in.readUTF();
+		}
+		this.reexportedComponents = components;
+		count = in.readInt();
+		this.apiToolingDependentProjects = null;
+		for (int i = 0; i < count; i++) {
+			addApiToolingDependentProject(in.readUTF());
+		}
+		count = in.readInt();
+		// read the saved headers
+		HashMap<String, String> map = new HashMap<String, String>(count);
+		for (int i = 0; i < count; i++) {
+			String key = in.readUTF();
+			String value = in.readUTF();
+			map.put(key, value);
+		}
+		this.manifestChanges = map;
+		count = in.readInt();
+		// read the saved build.properties entries
+		map = new HashMap<String, String>(count);
+		for (int i = 0; i < count; i++) {
+			String key = in.readUTF();
+			String value = in.readUTF();
+			map.put(key, value);
+		}
+		this.buildPropChanges = map;
+	}
+
+	/**
+	 * Writes the given {@link BuildState} to the given output stream. Once
+	 * written, only the changes made to the state afterwards are written by
+	 * {@link #writeChanges(BuildState, DataOutputStream)}.
 	 * 
 	 * @param state
 	 * @param out
@@ -173,32 +284,97 @@ public class BuildState {
 		out.writeUTF("STATE"); //$NON-NLS-1$
 		out.writeInt(VERSION);
 		out.writeBoolean(true);
-		out.writeLong(state.buildpathCRC);
-		IDelta[] compatibleChangesDeltas = state.getCompatibleChanges();
-		int length = compatibleChangesDeltas.length;
-		out.writeInt(length);
-		for (int i = 0; i < length; i++) {
-			writeDelta(compatibleChangesDeltas[i], out);
+		byte[] header = state.getHeader();
+		writeHeader(header, out);
+		for (Iterator<String> iterator = state.getTypeNames().iterator(); iterator.hasNext();) {
+			String typeName = iterator.next();
+			writeSection(typeName, state.compatibleChanges.get(typeName), state.breakingChanges.get(typeName), out);
 		}
-		IDelta[] breakingChangesDeltas = state.getBreakingChanges();
-		length = breakingChangesDeltas.length;
-		out.writeInt(length);
-		for (int i = 0; i < length; i++) {
-			writeDelta(breakingChangesDeltas[i], out);
+		state.savedHeader = header;
+		state.savedSections = new HashMap<String, Section>();
+		state.appendedSections = 0;
+	}
+
+	/**
+	 * Writes the sections of the given {@link BuildState} that changed since it
+	 * was last read or written to the given output stream, to be appended to
+	 * the saved state.
+	 * 
+	 * @param state the state to write the changes of
+	 * @param out the stream positioned at the end of the saved state
+	 * @throws IOException
+	 * @throws IllegalStateException if the state was never read or written
+	 * @since 1.0.700
+	 */
+	public static void writeChanges(BuildState state, DataOutputStream out) throws IOException {
+		if (state.savedSections == null) {
+			throw new IllegalStateException();
 		}
-		String[] reexportedComponents = state.getReexportedComponents();
-		length = reexportedComponents.length;
-		out.writeInt(length);
-		for (int i = 0; i < length; i++) {
-			out.writeUTF(reexportedComponents[i]);
+		byte[] header = state.getHeader();
+		if (!Arrays.equals(header, state.savedHeader)) {
+			writeHeader(header, out);
+			state.appendedSections++;
 		}
-		Set<String> apiToolingDependentsProjects = state.getApiToolingDependentProjects();
-		length = apiToolingDependentsProjects.size();
-		out.writeInt(length);
-		for (Iterator<String> iterator = apiToolingDependentsProjects.iterator(); iterator.hasNext();) {
+		for (Iterator<Entry<String, Section>> iterator = state.savedSections.entrySet().iterator(); iterator.hasNext();) {
+			Entry<String, Section> entry = iterator.next();
+			String typeName = entry.getKey();
+			Set<IDelta> compatible = state.compatibleChanges.get(typeName);
+			Set<IDelta> breaking = state.breakingChanges.get(typeName);
+			Section saved = entry.getValue();
+			if (!sameDeltas(saved.compatible, compatible) || !sameDeltas(saved.breaking, breaking)) {
+				writeSection(typeName, compatible, breaking, out);
+				state.appendedSections++;
+			}
+		}
+		state.savedHeader = header;
+		state.savedSections = new HashMap<String, Section>();
+	}
+
+	/**
+	 * Returns if the changes of this state should be appended to its saved
+	 * form rather than written from scratch
+	 * 
+	 * @return <code>true</code> if the changes should be appended
+	 */
+	boolean shouldAppendChanges() {
+		return this.savedSections != null && this.appendedSections < Math.max(COMPACTION_THRESHOLD, getTypeNames().size());
+	}
+
+	/**
+	 * Returns the serialized header of the state
+	 * 
+	 * @return the header bytes
+	 * @throws IOException
+	 */
+	private byte[] getHeader() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeLong(this.buildpathCRC);
+		String[] components = getReexportedComponents();
+		out.writeInt(components.length);
+		for (int i = 0; i < components.length; i++) {
+			out.writeUTF(components[i]);
+		}
+		// sort so that an unchanged header is always written the same way
+		Set<String> projects = new TreeSet<String>(getApiToolingDependentProjects());
+		out.writeInt(projects.size());
+		for (Iterator<String> iterator = projects.iterator(); iterator.hasNext();) {
 			out.writeUTF(iterator.next());
 		}
-		Map<String, String> map = state.getManifestState();
+		writeMap(new TreeMap<String, String>(getManifestState()), out);
+		writeMap(new TreeMap<String, String>(getBuildPropertiesState()), out);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Writes the given map of strings to the given stream
+	 * 
+	 * @param map
+	 * @param out
+	 * @throws IOException
+	 */
+	private static void writeMap(Map<String, String> map, DataOutputStream out) throws IOException {
 		out.writeInt(map.size());
 		Entry<String, String> entry = null;
 		for (Iterator<Entry<String, String>> i = map.entrySet().iterator(); i.hasNext();) {
@@ -206,14 +382,106 @@ public class BuildState {
 			out.writeUTF(entry.getKey());
 			out.writeUTF(entry.getValue());
 		}
-		map = state.getBuildPropertiesState();
-		out.writeInt(map.size());
-		entry = null;
-		for (Iterator<Entry<String, String>> i = map.entrySet().iterator(); i.hasNext();) {
-			entry = i.next();
-			out.writeUTF(entry.getKey());
-			out.writeUTF(entry.getValue());
+	}
+
+	/**
+	 * Writes the header section
+	 * 
+	 * @param header the serialized header
+	 * @param out
+	 * @throws IOException
+	 */
+	private static void writeHeader(byte[] header, DataOutputStream out) throws IOException {
+		out.writeByte(HEADER_SECTION);
+		out.writeInt(header.length);
+		out.write(header);
+	}
+
+	/**
+	 * Writes the section of the given type, empty sections remove the changes
+	 * of the type when the state is read
+	 * 
+	 * @param typeName the name of the type
+	 * @param compatible the compatible changes of the type or <code>null</code>
+	 * @param breaking the breaking changes of the type or <code>null</code>
+	 * @param out
+	 * @throws IOException
+	 */
+	private static void writeSection(String typeName, Set<IDelta> compatible, Set<IDelta> breaking, DataOutputStream out) throws IOException {
+		out.writeByte(TYPE_SECTION);
+		out.writeUTF(typeName);
+		writeDeltas(compatible, out);
+		writeDeltas(breaking, out);
+	}
+
+	/**
+	 * Writes the given deltas preceded by their count
+	 * 
+	 * @param deltas the deltas or <code>null</code>
+	 * @param out
+	 * @throws IOException
+	 */
+	private static void writeDeltas(Set<IDelta> deltas, DataOutputStream out) throws IOException {
+		if (deltas == null) {
+			out.writeInt(0);
+			return;
+		}
+		out.writeInt(deltas.size());
+		for (Iterator<IDelta> iterator = deltas.iterator(); iterator.hasNext();) {
+			writeDelta(iterator.next(), out);
+		}
+	}
+
+	/**
+	 * Returns if the given sets hold equal deltas. {@link IDelta}s are
+	 * compared with {@link Object#equals(Object)} only, since deltas read from
+	 * a saved state and computed by the builder do not share hash codes.
+	 * 
+	 * @param deltas the deltas or <code>null</code>
+	 * @param others the other deltas or <code>null</code>
+	 * @return <code>true</code> if the sets hold equal deltas
+	 */
+	private static boolean sameDeltas(Set<IDelta> deltas, Set<IDelta> others) {
+		int size = deltas == null ? 0 : deltas.size();
+		int otherSize = others == null ? 0 : others.size();
+		if (size != otherSize) {
+			return false;
+		}
+		if (size == 0) {
+			return true;
 		}
+		ArrayList<IDelta> remaining = new ArrayList<IDelta>(others);
+		for (Iterator<IDelta> iterator = deltas.iterator(); iterator.hasNext();) {
+			if (!remaining.remove(iterator.next())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Records the section of the given type as it was last read or written,
+	 * before the type's changes are modified
+	 * 
+	 * @param typeName the name of the type
+	 */
+	private void changing(String typeName) {
+		if (this.savedSections != null && !this.savedSections.containsKey(typeName)) {
+			this.savedSections.put(typeName, new Section(copy(this.compatibleChanges.get(typeName)), copy(this.breakingChanges.get(typeName))));
+		}
+	}
+
+	private static Set<IDelta> copy(Set<IDelta> deltas) {
+		return deltas == null ? null : new HashSet<IDelta>(deltas);
+	}
+
+	/**
+	 * @return the names of the types with recorded changes
+	 */
+	private Set<String> getTypeNames() {
+		Set<String> names = new HashSet<String>(this.compatibleChanges.keySet());
+		names.addAll(this.breakingChanges.keySet());
+		return names;
 	}
 
 	/**
@@ -298,6 +566,7 @@ public class BuildState {
 	 */
 	public void addCompatibleChange(IDelta delta) {
 		String typeName = delta.getTypeName();
+		changing(typeName);
 		Set<IDelta> object = this.compatibleChanges.get(typeName);
 		if (object == null) {
 			Set<IDelta> changes = new HashSet<IDelta>();
@@ -316,6 +585,7 @@ public class BuildState {
 	 */
 	public void addBreakingChange(IDelta delta) {
 		String typeName = delta.getTypeName();
+		changing(typeName);
 		Set<IDelta> object = this.breakingChanges.get(typeName);
 		if (object == null) {
 			Set<IDelta> changes = new HashSet<IDelta>();
@@ -374,6 +644,7 @@ public class BuildState {
 	 * @param typeName the given type name
 	 */
 	public void cleanup(String typeName) {
+		changing(typeName);
 		this.breakingChanges.remove(typeName);
 		this.compatibleChanges.remove(typeName);
 		this.reexportedComponents = null;
@@ -545,7 +816,9 @@ public class BuildState {
 	}
 
 	/**
-	 * Reads the build state for the relevant project.
+	 * Reads the build state for the relevant project. The state kept in memory
+	 * is returned if the saved file has not changed since it was read or
+	 * saved.
 	 * 
 	 * @return the current {@link BuildState} for the given project or
 	 *         <code>null</code> if there is not one
@@ -553,30 +826,97 @@ public class BuildState {
 	static BuildState readState(IProject project) throws CoreException {
 		File file = getSerializationFile(project);
 		if (file != null && file.exists()) {
+			BuildState state = getResidentState(project, file);
+			ApiAnalysisMetrics.cacheLookup(ApiAnalysisMetrics.CACHE_BUILD_STATES, state != null);
+			if (state != null) {
+				return state;
+			}
 			try {
 				DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
 				try {
-					return read(in);
+					state = read(in);
 				} finally {
 					if (ApiPlugin.DEBUG_BUILDER) {
 						System.out.println("ApiAnalysisBuilder: Saved state thinks last build failed for " + project.getName()); //$NON-NLS-1$
 					}
 					in.close();
 				}
+				if (state != null) {
+					state.setFile(file);
+					setResidentState(project, state);
+				}
+				return state;
 			} catch (Exception e) {
 				e.printStackTrace();
 				throw new CoreException(new Status(IStatus.ERROR, JavaCore.PLUGIN_ID, Platform.PLUGIN_ERROR, "Error reading last build state for project " + project.getName(), e)); //$NON-NLS-1$
 			}
-		} else if (ApiPlugin.DEBUG_BUILDER) {
-			if (file == null) {
-				System.out.println("ApiAnalysisBuilder: Project does not exist: " + project); //$NON-NLS-1$
-			} else {
-				System.out.println("ApiAnalysisBuilder: Build state file " + file.getPath() + " does not exist"); //$NON-NLS-1$ //$NON-NLS-2$
+		} else {
+			setResidentState(project, null);
+			if (ApiPlugin.DEBUG_BUILDER) {
+				if (file == null) {
+					System.out.println("ApiAnalysisBuilder: Project does not exist: " + project); //$NON-NLS-1$
+				} else {
+					System.out.println("ApiAnalysisBuilder: Build state file " + file.getPath() + " does not exist"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
 			}
 		}
 		return null;
 	}
 
+	/**
+	 * Returns the state of the given project kept in memory if it is the one
+	 * saved in the given file
+	 * 
+	 * @param project the project
+	 * @param file the file the state of the project is saved to
+	 * @return the state kept in memory or <code>null</code>
+	 */
+	private static synchronized BuildState getResidentState(IProject project, File file) {
+		BuildState state = fStates.get(project);
+		if (state != null && !state.isSavedIn(file)) {
+			fStates.remove(project);
+			return null;
+		}
+		return state;
+	}
+
+	/**
+	 * Keeps the given state of the given project in memory, <code>null</code>
+	 * forgets the kept state
+	 * 
+	 * @param project the project
+	 * @param state the state or <code>null</code>
+	 */
+	private static synchronized void setResidentState(IProject project, BuildState state) {
+		if (state == null) {
+			fStates.remove(project);
+		} else {
+			fStates.put(project, state);
+		}
+	}
+
+	/**
+	 * Remembers the given file as the one the state was last read from or
+	 * saved to
+	 * 
+	 * @param file
+	 */
+	private void setFile(File file) {
+		this.fileLength = file.length();
+		this.fileTimeStamp = file.lastModified();
+	}
+
+	/**
+	 * Returns if the state was last read from or saved to the given file and
+	 * the file has not changed since
+	 * 
+	 * @param file
+	 * @return <code>true</code> if the file holds the saved form of the state
+	 */
+	private boolean isSavedIn(File file) {
+		return this.fileLength == file.length() && this.fileTimeStamp == file.lastModified();
+	}
+
 	/**
 	 * Sets the last built state for the given project, or null to reset it.
 	 * 
@@ -589,6 +929,7 @@ public class BuildState {
 			if (state != null) {
 				saveBuiltState(project, state);
 			} else {
+				setResidentState(project, null);
 				try {
 					File file = getSerializationFile(project);
 					if (file != null && file.exists()) {
@@ -618,7 +959,10 @@ public class BuildState {
 	}
 
 	/**
-	 * Saves the current build state
+	 * Saves the current build state. Only the changes made since the state was
+	 * read from or saved to the project's file are appended to it, nothing is
+	 * written if the state did not change. The state is kept in memory as the
+	 * last built state of the project.
 	 * 
 	 * @param project
 	 * @param state
@@ -637,13 +981,31 @@ public class BuildState {
 			t = System.currentTimeMillis();
 		}
 		try {
-			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
-			try {
-				write(state, out);
-			} finally {
-				out.close();
+			if (file.exists() && state.isSavedIn(file) && state.shouldAppendChanges()) {
+				ByteArrayOutputStream changes = new ByteArrayOutputStream();
+				DataOutputStream out = new DataOutputStream(changes);
+				writeChanges(state, out);
+				out.flush();
+				if (changes.size() > 0) {
+					FileOutputStream stream = new FileOutputStream(file, true);
+					try {
+						changes.writeTo(stream);
+					} finally {
+						stream.close();
+					}
+				}
+			} else {
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+				try {
+					write(state, out);
+				} finally {
+					out.close();
+				}
 			}
+			state.setFile(file);
+			setResidentState(project, state);
 		} catch (RuntimeException e) {
+			setResidentState(project, null);
 			try {
 				file.delete();
 			} catch (SecurityException se) {
@@ -651,6 +1013,7 @@ public class BuildState {
 			}
 			throw new CoreException(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, Platform.PLUGIN_ERROR, NLS.bind(BuilderMessages.build_cannotSaveState, project.getName()), e));
 		} catch (IOException e) {
+			setResidentState(project, null);
 			try {
 				file.delete();
 			} catch (SecurityException se) {
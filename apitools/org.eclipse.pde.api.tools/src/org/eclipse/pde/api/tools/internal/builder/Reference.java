@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2014 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -153,13 +153,7 @@ public class Reference implements IReference {
 	 */
 	public static Reference methodReference(IApiMember origin, String typeName, String methodName, String signature, int kind, int flags) {
 		Reference ref = new Reference();
-		ref.fSourceMember = origin;
-		ref.fTypeName = typeName;
-		ref.fMemberName = methodName;
-		ref.fSignature = signature;
-		ref.fKind = kind;
-		ref.fType = IReference.T_METHOD_REFERENCE;
-		ref.fFlags = flags;
+		ref.set(origin, IReference.T_METHOD_REFERENCE, typeName, methodName, signature, kind, flags);
 		return ref;
 	}
 
@@ -188,12 +182,7 @@ public class Reference implements IReference {
 	 */
 	public static Reference fieldReference(IApiMember origin, String typeName, String fieldName, int kind, int flags) {
 		Reference ref = new Reference();
-		ref.fSourceMember = origin;
-		ref.fTypeName = typeName;
-		ref.fMemberName = fieldName;
-		ref.fKind = kind;
-		ref.fType = IReference.T_FIELD_REFERENCE;
-		ref.fFlags = flags;
+		ref.set(origin, IReference.T_FIELD_REFERENCE, typeName, fieldName, null, kind, flags);
 		return ref;
 	}
 
@@ -233,15 +222,40 @@ public class Reference implements IReference {
 	 */
 	public static Reference typeReference(IApiMember origin, String typeName, String signature, int kind, int flags) {
 		Reference ref = new Reference();
-		ref.fSourceMember = origin;
-		ref.fTypeName = typeName;
-		ref.fKind = kind;
-		ref.fType = IReference.T_TYPE_REFERENCE;
-		ref.fSignature = signature;
-		ref.fFlags = flags;
+		ref.set(origin, IReference.T_TYPE_REFERENCE, typeName, null, signature, kind, flags);
 		return ref;
 	}
 
+	/**
+	 * Initializes this reference, resetting any line number, resolution or
+	 * problem from a previous use. Used by the factory methods and by the
+	 * {@link ReferencePool}.
+	 * 
+	 * @param origin where the reference occurred from
+	 * @param type one of {@link IReference#T_TYPE_REFERENCE},
+	 *            {@link IReference#T_FIELD_REFERENCE} or
+	 *            {@link IReference#T_METHOD_REFERENCE}
+	 * @param typeName name of the referenced type
+	 * @param memberName name of the referenced member or <code>null</code>
+	 * @param signature signature of the reference or <code>null</code>
+	 * @param kind kind of reference
+	 * @param flags flags for the reference
+	 * @since 1.0.700
+	 */
+	void set(IApiMember origin, int type, String typeName, String memberName, String signature, int kind, int flags) {
+		fSourceLine = -1;
+		fSourceMember = origin;
+		fType = type;
+		fTypeName = typeName;
+		fMemberName = memberName;
+		fSignature = signature;
+		fKind = kind;
+		fFlags = flags;
+		fResolved = null;
+		fStatus = true;
+		fProblems = null;
+	}
+
 	@Override
 	public int getLineNumber() {
 		return fSourceLine;
@@ -642,6 +656,15 @@ public class Reference implements IReference {
 		this.fStatus = value;
 	}
 
+	/**
+	 * Returns if this reference is to be resolved
+	 *
+	 * @return the status set with {@link #setResolveStatus(boolean)}
+	 */
+	boolean getResolveStatus() {
+		return this.fStatus;
+	}
+
 	/**
 	 * Returns the string representation for the given reference kind or
 	 * <code>UKNOWN_KIND</code> if the kind cannot be determined.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -99,6 +99,7 @@ public class ReferenceAnalyzer {
 					if (type.isMemberType() || type.isLocal() || type.isAnonymous()) {
 						return;
 					}
+					fTypesVisited++;
 					List<IReference> references = type.extractReferences(fAllReferenceKinds, null);
 					// keep potential matches
 					for (IReference ref : references) {
@@ -147,6 +148,37 @@ public class ReferenceAnalyzer {
 	 */
 	IApiProblemDetector[][] fIndexedDetectors;
 
+	/**
+	 * Number of types scanned for references
+	 */
+	int fTypesVisited = 0;
+
+	/**
+	 * Number of references resolved
+	 */
+	int fReferencesResolved = 0;
+
+	/**
+	 * Returns the number of types whose references were extracted by this
+	 * analyzer
+	 * 
+	 * @return the number of types visited
+	 * @since 1.0.700
+	 */
+	public int getTypesVisited() {
+		return fTypesVisited;
+	}
+
+	/**
+	 * Returns the number of references resolved by this analyzer
+	 * 
+	 * @return the number of references resolved
+	 * @since 1.0.700
+	 */
+	public int getReferencesResolved() {
+		return fReferencesResolved;
+	}
+
 	/**
 	 * Indexes the problem detectors by the reference kinds they are interested
 	 * in. For example, a detector interested in a
@@ -250,6 +282,7 @@ public class ReferenceAnalyzer {
 			localMonitor.subTask(BuilderMessages.ReferenceAnalyzer_analyzing_api_checking_use);
 			if (fReferences.size() != 0) {
 				ReferenceResolver.resolveReferences(fReferences, localMonitor);
+				fReferencesResolved += fReferences.size();
 			}
 			localMonitor.worked(1);
 			if (localMonitor.isCanceled()) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 IBM Corporation and others.
+ * Copyright (c) 2007, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -109,14 +109,14 @@ public class ReferenceExtractor extends ClassVisitor {
 		protected void processType(String name) {
 			Type type = ReferenceExtractor.this.resolveType(Type.getObjectType(name).getDescriptor());
 			if (type != null) {
-				String tname = type.getClassName();
+				String tname = ReferenceExtractor.this.getQualifiedName(type);
 				if (tname.equals("E") || tname.equals("T")) { //$NON-NLS-1$//$NON-NLS-2$
 					type = Type.getObjectType("java.lang.Object"); //$NON-NLS-1$
 					tname = type.getClassName();
 				}
 				if (ReferenceExtractor.this.consider(tname) && this.kind != -1) {
 					if (this.name != null && this.signature != null) {
-						this.references.add(Reference.typeReference(ReferenceExtractor.this.getMember(), tname, this.signature, this.kind));
+						this.references.add(ReferenceExtractor.this.newTypeReference(ReferenceExtractor.this.getMember(), tname, this.signature, this.kind, 0));
 					}
 				}
 			}
@@ -349,7 +349,7 @@ public class ReferenceExtractor extends ClassVisitor {
 				case Opcodes.INVOKESPECIAL: {
 					kind = ("<init>".equals(name) ? IReference.REF_CONSTRUCTORMETHOD : IReference.REF_SPECIALMETHOD); //$NON-NLS-1$
 					if (kind == IReference.REF_CONSTRUCTORMETHOD) {
-						if (!implicitConstructor && this.methodName.equals("<init>") && !fSuperStack.isEmpty() && (fSuperStack.peek()).equals(declaringType.getClassName())) { //$NON-NLS-1$
+						if (!implicitConstructor && this.methodName.equals("<init>") && !fSuperStack.isEmpty() && (fSuperStack.peek()).equals(getQualifiedName(declaringType))) { //$NON-NLS-1$
 							implicitConstructor = true;
 							kind = IReference.REF_SUPER_CONSTRUCTORMETHOD;
 						} else {
@@ -704,7 +704,7 @@ public class ReferenceExtractor extends ClassVisitor {
 				refs = accessors.get(field.getMember().getName());
 				if (refs != null) {
 					for (Reference accessor : refs) {
-						Reference refer = Reference.fieldReference(accessor.getMember(), field.getReferencedTypeName(), field.getReferencedMemberName(), field.getReferenceKind());
+						Reference refer = this.extractor.newFieldReference(accessor.getMember(), field.getReferencedTypeName(), field.getReferencedMemberName(), field.getReferenceKind());
 						refer.setLineNumber(accessor.getLineNumber());
 						this.extractor.collector.add(refer);
 					}
@@ -980,6 +980,14 @@ public class ReferenceExtractor extends ClassVisitor {
 	 */
 	private ClassFileFieldVisitor fieldvisitor = new ClassFileFieldVisitor();
 
+	/**
+	 * Pool used to create references or <code>null</code> to allocate a new
+	 * reference each time
+	 * 
+	 * @since 1.0.700
+	 */
+	private ReferencePool fPool = null;
+
 	/**
 	 * Constructor
 	 * 
@@ -1014,6 +1022,22 @@ public class ReferenceExtractor extends ClassVisitor {
 		fieldtracker = tracker;
 	}
 
+	/**
+	 * Constructor
+	 * 
+	 * @param type the type to extract references from
+	 * @param collector the listing of references to annotate from this pass
+	 * @param referenceKinds kinds of references to extract as defined by
+	 *            {@link ReferenceModifiers}
+	 * @param pool the pool to create the references from, the references
+	 *            that are not collected are given back to it
+	 * @since 1.0.700
+	 */
+	public ReferenceExtractor(IApiType type, Set<Reference> collector, int referenceKinds, ReferencePool pool) {
+		this(type, collector, referenceKinds);
+		fPool = pool;
+	}
+
 	@Override
 	public String toString() {
 		StringBuffer buffer = new StringBuffer();
@@ -1081,12 +1105,65 @@ public class ReferenceExtractor extends ClassVisitor {
 	 * @return
 	 */
 	protected String processName(String name) {
-		String newname = name;
-		Type type = Type.getObjectType(name);
-		if (type != null && type.getSort() == Type.OBJECT) {
-			newname = type.getInternalName();
+		if (fPool != null) {
+			return fPool.getQualifiedName(name);
+		}
+		return name.replace('/', '.');
+	}
+
+	/**
+	 * Returns the qualified name of the given object type, shared through the
+	 * pool if any
+	 * 
+	 * @param type
+	 * @return the '.' separated name of the type
+	 * @since 1.0.700
+	 */
+	String getQualifiedName(Type type) {
+		if (fPool != null) {
+			return fPool.getQualifiedName(type.getInternalName());
+		}
+		return type.getClassName();
+	}
+
+	/**
+	 * Creates a type reference, from the pool if any
+	 * 
+	 * @see Reference#typeReference(IApiMember, String, String, int, int)
+	 * @since 1.0.700
+	 */
+	Reference newTypeReference(IApiMember origin, String typeName, String signature, int kind, int flags) {
+		if (fPool != null) {
+			return fPool.typeReference(origin, typeName, signature, kind, flags);
+		}
+		return Reference.typeReference(origin, typeName, signature, kind, flags);
+	}
+
+	/**
+	 * Creates a field reference, from the pool if any
+	 * 
+	 * @see Reference#fieldReference(IApiMember, String, String, int)
+	 * @since 1.0.700
+	 */
+	Reference newFieldReference(IApiMember origin, String typeName, String fieldName, int kind) {
+		if (fPool != null) {
+			return fPool.fieldReference(origin, typeName, fieldName, kind, 0);
+		}
+		return Reference.fieldReference(origin, typeName, fieldName, kind);
+	}
+
+	/**
+	 * Creates a method reference, from the pool if any
+	 * 
+	 * @see Reference#methodReference(IApiMember, String, String, String, int,
+	 *      int)
+	 * @since 1.0.700
+	 */
+	Reference newMethodReference(IApiMember origin, String typeName, String methodName, String signature, int kind, int flags) {
+		if (fPool != null) {
+			return fPool.methodReference(origin, typeName, methodName, signature, kind, flags);
 		}
-		return newname.replaceAll("/", "."); //$NON-NLS-1$ //$NON-NLS-2$
+		return Reference.methodReference(origin, typeName, methodName, signature, kind, flags);
 	}
 
 	/**
@@ -1102,7 +1179,7 @@ public class ReferenceExtractor extends ClassVisitor {
 	protected Reference addTypeReference(Type type, int kind) {
 		Type rtype = this.resolveType(type.getDescriptor());
 		if (rtype != null) {
-			return addReference(Reference.typeReference(getMember(), rtype.getClassName(), kind));
+			return addReference(newTypeReference(getMember(), getQualifiedName(rtype), null, kind, 0));
 		}
 		return null;
 	}
@@ -1120,7 +1197,7 @@ public class ReferenceExtractor extends ClassVisitor {
 	protected Reference addFieldReference(Type declaringType, String name, int kind) {
 		Type rtype = this.resolveType(declaringType.getDescriptor());
 		if (rtype != null) {
-			return addReference(Reference.fieldReference(getMember(), rtype.getClassName(), name, kind));
+			return addReference(newFieldReference(getMember(), getQualifiedName(rtype), name, kind));
 		}
 		return null;
 	}
@@ -1141,7 +1218,7 @@ public class ReferenceExtractor extends ClassVisitor {
 	protected Reference addMethodReference(Type declaringType, String name, String signature, int kind, int flags) {
 		Type rtype = this.resolveType(declaringType.getDescriptor());
 		if (rtype != null) {
-			return this.addReference(Reference.methodReference(getMember(), rtype.getClassName(), name, signature, kind, flags));
+			return this.addReference(newMethodReference(getMember(), getQualifiedName(rtype), name, signature, kind, flags));
 		}
 		return null;
 	}
@@ -1150,7 +1227,8 @@ public class ReferenceExtractor extends ClassVisitor {
 	 * Adds a reference to the given target member from the given line number in
 	 * the class file being scanned. If the target member is contained in the
 	 * class file being scanned it is discarded based on the setting to include
-	 * local references.
+	 * local references. A discarded reference is given back to the pool, if
+	 * any.
 	 * 
 	 * @param target reference
 	 * @param reference added, or <code>null</code> if none
@@ -1160,6 +1238,9 @@ public class ReferenceExtractor extends ClassVisitor {
 			this.collector.add(target);
 			return target;
 		}
+		if (fPool != null) {
+			fPool.recycle(target);
+		}
 		return null;
 	}
 
@@ -1346,6 +1427,7 @@ public class ReferenceExtractor extends ClassVisitor {
 	private Set<Reference> processInnerClass(IApiType type, int refkinds) throws CoreException {
 		HashSet<Reference> refs = new HashSet<Reference>();
 		ReferenceExtractor extractor = new ReferenceExtractor(type, refs, refkinds, this.fieldtracker);
+		extractor.fPool = fPool;
 		ClassReader reader = new ClassReader(((AbstractApiTypeRoot) type.getTypeRoot()).getContents());
 		reader.accept(extractor, ClassReader.SKIP_FRAMES);
 		return refs;
@@ -1398,10 +1480,10 @@ public class ReferenceExtractor extends ClassVisitor {
 						def = getDefaultDefined(owner, name, desc, true);
 					}
 					if (def != null) {
-						addReference(Reference.methodReference(method, def.getName(), method.getName(), method.getSignature(), IReference.REF_OVERRIDE, IReference.F_DEFAULT_METHOD));
+						addReference(newMethodReference(method, def.getName(), method.getName(), method.getSignature(), IReference.REF_OVERRIDE, IReference.F_DEFAULT_METHOD));
 					} else if (!this.fSuperStack.isEmpty()) {
 						String superTypeName = this.fSuperStack.peek();
-						addReference(Reference.methodReference(method, superTypeName, method.getName(), method.getSignature(), IReference.REF_OVERRIDE));
+						addReference(newMethodReference(method, superTypeName, method.getName(), method.getSignature(), IReference.REF_OVERRIDE, 0));
 					}
 				} catch (CoreException e) {
 					// Do nothing, skip this reference
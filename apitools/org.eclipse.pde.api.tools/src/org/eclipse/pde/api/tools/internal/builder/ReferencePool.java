@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.builder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.eclipse.pde.api.tools.internal.provisional.builder.IReference;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiMember;
+
+/**
+ * Per scan pool of {@link Reference}s and symbol table for the names they
+ * refer to, used by the {@link ReferenceExtractor} to avoid allocating a new
+ * reference for every call site and a new string for every referenced name.
+ * <p>
+ * References given back to the pool with {@link #recycle(IReference)} are
+ * reused for the next references created, so only references that nobody
+ * keeps (the ones that were filtered out) must be recycled. The names of the
+ * references are shared through the symbol table, so the references kept by
+ * a scan do not each hold their own copy of the same type names.
+ * </p>
+ * <p>
+ * A pool is not thread safe: each scan uses its own pool.
+ * </p>
+ *
+ * @since 1.0.700
+ */
+public final class ReferencePool {
+
+	/**
+	 * Maximum number of free references kept for reuse
+	 */
+	static final int MAX_FREE = 4096;
+
+	private final ArrayList<Reference> fFree = new ArrayList<Reference>();
+
+	/**
+	 * Map of names to their shared instance
+	 */
+	private final HashMap<String, String> fSymbols = new HashMap<String, String>();
+
+	/**
+	 * Map of internal ('/' separated) names to shared qualified ('.'
+	 * separated) names
+	 */
+	private final HashMap<String, String> fQualifiedNames = new HashMap<String, String>();
+
+	private long fCreated = 0;
+	private long fReused = 0;
+
+	/**
+	 * Returns a method reference, reusing a recycled reference if possible.
+	 *
+	 * @see Reference#methodReference(IApiMember, String, String, String, int,
+	 *      int)
+	 */
+	public Reference methodReference(IApiMember origin, String typeName, String methodName, String signature, int kind, int flags) {
+		Reference ref = obtain();
+		ref.set(origin, IReference.T_METHOD_REFERENCE, intern(typeName), intern(methodName), intern(signature), kind, flags);
+		return ref;
+	}
+
+	/**
+	 * Returns a field reference, reusing a recycled reference if possible.
+	 *
+	 * @see Reference#fieldReference(IApiMember, String, String, int, int)
+	 */
+	public Reference fieldReference(IApiMember origin, String typeName, String fieldName, int kind, int flags) {
+		Reference ref = obtain();
+		ref.set(origin, IReference.T_FIELD_REFERENCE, intern(typeName), intern(fieldName), null, kind, flags);
+		return ref;
+	}
+
+	/**
+	 * Returns a type reference, reusing a recycled reference if possible.
+	 *
+	 * @see Reference#typeReference(IApiMember, String, String, int, int)
+	 */
+	public Reference typeReference(IApiMember origin, String typeName, String signature, int kind, int flags) {
+		Reference ref = obtain();
+		ref.set(origin, IReference.T_TYPE_REFERENCE, intern(typeName), null, intern(signature), kind, flags);
+		return ref;
+	}
+
+	/**
+	 * Gives the given reference back to the pool. The reference must not be
+	 * used by the caller or kept by anybody else afterwards.
+	 *
+	 * @param reference the reference to recycle, ignored if it was not
+	 *            created by a {@link ReferencePool}
+	 */
+	public void recycle(IReference reference) {
+		if (reference instanceof Reference && fFree.size() < MAX_FREE) {
+			Reference ref = (Reference) reference;
+			// do not keep the source and resolved members alive
+			ref.set(null, 0, null, null, null, 0, 0);
+			fFree.add(ref);
+		}
+	}
+
+	/**
+	 * Returns the shared instance of the given name
+	 *
+	 * @param name the name or <code>null</code>
+	 * @return the shared instance equal to the given name or <code>null</code>
+	 */
+	public String intern(String name) {
+		if (name == null) {
+			return null;
+		}
+		String shared = fSymbols.get(name);
+		if (shared == null) {
+			fSymbols.put(name, name);
+			return name;
+		}
+		return shared;
+	}
+
+	/**
+	 * Returns the shared qualified ('.' separated) name for the given internal
+	 * ('/' separated) name
+	 *
+	 * @param internalName the internal name of a type
+	 * @return the qualified name
+	 */
+	public String getQualifiedName(String internalName) {
+		String name = fQualifiedNames.get(internalName);
+		if (name == null) {
+			name = intern(internalName.replace('/', '.'));
+			fQualifiedNames.put(internalName, name);
+		}
+		return name;
+	}
+
+	/**
+	 * @return the number of references this pool had to allocate
+	 */
+	public long getCreatedCount() {
+		return fCreated;
+	}
+
+	/**
+	 * @return the number of references this pool handed out again after
+	 *         they were recycled
+	 */
+	public long getReusedCount() {
+		return fReused;
+	}
+
+	/**
+	 * Returns a recycled reference or a new one
+	 *
+	 * @return a reference to initialize
+	 */
+	private Reference obtain() {
+		int size = fFree.size();
+		if (size > 0) {
+			fReused++;
+			return fFree.remove(size - 1);
+		}
+		fCreated++;
+		return new Reference();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2013 IBM Corporation and others.
+ * Copyright (c) 2009, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,18 +11,29 @@
 package org.eclipse.pde.api.tools.internal.builder;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.pde.api.tools.internal.model.ApiModelCache;
 import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
 import org.eclipse.pde.api.tools.internal.provisional.builder.IReference;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiMember;
 
 /**
  * Utility class used to resolve {@link IReference}s
+ * <p>
+ * Resolutions are shared through the {@link ApiModelCache}, so a reference
+ * already resolved by a previous or concurrent scan of the same baseline is
+ * not resolved again. The cached resolutions are dropped when a type of the
+ * baseline changes or when the baseline is disposed.
+ * </p>
  * 
  * @since 1.0.0
  * @noinstantiate This class is not intended to be instantiated by clients.
@@ -43,7 +54,7 @@ public final class ReferenceResolver {
 	 * @throws CoreException if something goes wrong
 	 */
 	public static void resolveReferences(List<IReference> references, IProgressMonitor monitor) throws CoreException {
-		// sort references by target type for 'shared' resolution
+		// group references by target type for 'shared' resolution
 		int refcount = references.size();
 		Map<String, List<IReference>> sigtoref = new HashMap<String, List<IReference>>(refcount);
 
@@ -90,26 +101,94 @@ public final class ReferenceResolver {
 	}
 
 	/**
-	 * Resolves the collect sets of references.
+	 * Resolves the collect sets of references. The sets are resolved in the
+	 * order of the referenced type names, so that the references into the same
+	 * package (and so the same component and container) are resolved one
+	 * after the other.
 	 * 
 	 * @param map the mapping of keys to sets of {@link IReference}s
 	 * @throws CoreException if something bad happens
 	 */
 	private static void resolveReferenceSets(Map<String, List<IReference>> map, IProgressMonitor monitor) throws CoreException {
-		IReference ref = null;
-		for (List<IReference> refs : map.values()) {
+		List<Map.Entry<String, List<IReference>>> entries = new ArrayList<Map.Entry<String, List<IReference>>>(map.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, List<IReference>>>() {
+			@Override
+			public int compare(Map.Entry<String, List<IReference>> o1, Map.Entry<String, List<IReference>> o2) {
+				return o1.getValue().get(0).getReferencedTypeName().compareTo(o2.getValue().get(0).getReferencedTypeName());
+			}
+		});
+		ApiModelCache cache = ApiModelCache.getCache();
+		int cached = 0;
+		for (Map.Entry<String, List<IReference>> entry : entries) {
 			if (monitor.isCanceled()) {
 				return;
 			}
-			ref = refs.get(0);
-			((Reference) ref).resolve();
-			IApiMember resolved = ref.getResolvedReference();
+			List<IReference> refs = entry.getValue();
+			Reference ref = getResolvableReference(refs);
+			if (ref == null) {
+				continue;
+			}
+			String baselineid = getBaselineId(ref);
+			Object resolution = cache.getResolution(baselineid, entry.getKey());
+			IApiMember resolved = null;
+			if (resolution == ApiModelCache.UNRESOLVED) {
+				cached++;
+				continue;
+			} else if (resolution instanceof IApiMember) {
+				cached++;
+				resolved = (IApiMember) resolution;
+			} else {
+				ref.resolve();
+				resolved = ref.getResolvedReference();
+				cache.cacheResolution(baselineid, entry.getKey(), resolved);
+			}
 			if (resolved != null) {
 				for (IReference ref2 : refs) {
 					((Reference) ref2).setResolution(resolved);
 				}
 			}
 		}
+		if (ApiPlugin.DEBUG_REFERENCE_RESOLVER) {
+			System.out.println("Reference resolver: " + cached + " of " + entries.size() + " unique references were already resolved"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Returns the first reference of the given set that is to be resolved
+	 * 
+	 * @param refs the set of references
+	 * @return the reference to resolve or <code>null</code> if none of them
+	 *         are to be resolved
+	 */
+	private static Reference getResolvableReference(List<IReference> refs) {
+		for (IReference ref : refs) {
+			if (((Reference) ref).getResolveStatus()) {
+				return (Reference) ref;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the id of the baseline the given reference is resolved in
+	 * 
+	 * @param reference the reference
+	 * @return the baseline id or <code>null</code> if the reference has no
+	 *         baseline, in which case its resolution is not cached
+	 */
+	private static String getBaselineId(IReference reference) {
+		IApiComponent component = reference.getMember().getApiComponent();
+		if (component != null) {
+			try {
+				IApiBaseline baseline = component.getBaseline();
+				if (baseline != null) {
+					return baseline.getName();
+				}
+			} catch (CoreException e) {
+				// do not cache the resolution
+			}
+		}
+		return null;
 	}
 
 	/**
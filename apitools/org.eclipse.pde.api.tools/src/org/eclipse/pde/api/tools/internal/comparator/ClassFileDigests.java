@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.comparator;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.pde.api.tools.internal.model.AbstractApiTypeRoot;
+import org.eclipse.pde.api.tools.internal.provisional.IApiAnnotations;
+import org.eclipse.pde.api.tools.internal.provisional.IApiDescription;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiField;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiMember;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiMethod;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiType;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeRoot;
+import org.eclipse.pde.api.tools.internal.util.Signatures;
+import org.eclipse.pde.api.tools.internal.util.Util;
+
+/**
+ * Detects types that cannot have changed between two baselines using the
+ * content digests of their class files, so the {@link ClassFileComparator}
+ * does not have to run for them.
+ * <p>
+ * Identical class files are not enough: the comparator also looks at the API
+ * descriptions of the type and of its members, at its member types, at its
+ * super types (which can live in other components) and at the hierarchy of
+ * the exceptions its methods throw. A type is only considered unchanged when
+ * all of the types it reaches this way have identical class files on both
+ * sides and the same visibility and restrictions.
+ * </p>
+ *
+ * @since 1.0.700
+ */
+public final class ClassFileDigests {
+
+	/**
+	 * Constructor - no instantiation
+	 */
+	private ClassFileDigests() {
+	}
+
+	/**
+	 * Returns if comparing the given types cannot produce any delta.
+	 *
+	 * @param type the type from the reference baseline
+	 * @param typeRoot2 the type root of the same type in the other baseline
+	 * @param component the component providing the type in the reference
+	 *            baseline
+	 * @param component2 the component providing the type in the other
+	 *            baseline
+	 * @return <code>true</code> if the types and everything the comparison
+	 *         depends on are identical, <code>false</code> if they have to be
+	 *         compared
+	 */
+	public static boolean isUnchanged(IApiType type, IApiTypeRoot typeRoot2, IApiComponent component, IApiComponent component2) {
+		if (type == null || typeRoot2 == null || component == null || component2 == null) {
+			return false;
+		}
+		try {
+			if (component.hasApiDescription() != component2.hasApiDescription()) {
+				return false;
+			}
+			if (!hasSameContents(type.getTypeRoot(), typeRoot2)) {
+				return false;
+			}
+			return isUnchanged(type, component, component2, new HashSet<String>());
+		} catch (CoreException e) {
+			// compare the types
+			return false;
+		}
+	}
+
+	/**
+	 * Checks the given type, whose class file is identical in both baselines,
+	 * and the types it depends on
+	 *
+	 * @param type the reference type
+	 * @param component the component of the reference type
+	 * @param component2 the component of the other type
+	 * @param visited the already checked types
+	 * @return if nothing changed
+	 * @throws CoreException
+	 */
+	private static boolean isUnchanged(IApiType type, IApiComponent component, IApiComponent component2, Set<String> visited) throws CoreException {
+		if (!hasSameAnnotations(type, component.getApiDescription(), component2.getApiDescription())) {
+			return false;
+		}
+		IApiType[] members = type.getMemberTypes();
+		for (int i = 0; i < members.length; i++) {
+			IApiType member = members[i];
+			if (!visited.add(getKey(component, component2, member.getName()))) {
+				continue;
+			}
+			IApiTypeRoot memberRoot2 = component2.findTypeRoot(member.getName());
+			if (!hasSameContents(member.getTypeRoot(), memberRoot2)) {
+				return false;
+			}
+			if (!isUnchanged(member, component, component2, visited)) {
+				return false;
+			}
+		}
+		if (!isUnchanged(type.getSuperclassName(), component, component2, visited)) {
+			return false;
+		}
+		String[] interfaces = type.getSuperInterfaceNames();
+		if (interfaces != null) {
+			for (int i = 0; i < interfaces.length; i++) {
+				if (!isUnchanged(interfaces[i], component, component2, visited)) {
+					return false;
+				}
+			}
+		}
+		IApiMethod[] methods = type.getMethods();
+		for (int i = 0; i < methods.length; i++) {
+			String[] exceptions = methods[i].getExceptionNames();
+			if (exceptions != null) {
+				for (int j = 0; j < exceptions.length; j++) {
+					if (!isUnchanged(exceptions[j], component, component2, visited)) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Resolves the type with the given name from both components and checks
+	 * it
+	 *
+	 * @param typename the name of the type to resolve or <code>null</code>
+	 * @param component the reference component to resolve from
+	 * @param component2 the other component to resolve from
+	 * @param visited the already checked types
+	 * @return if nothing changed
+	 * @throws CoreException
+	 */
+	private static boolean isUnchanged(String typename, IApiComponent component, IApiComponent component2, Set<String> visited) throws CoreException {
+		if (typename == null || !visited.add(getKey(component, component2, typename))) {
+			return true;
+		}
+		String packageName = Signatures.getPackageName(typename);
+		IApiTypeRoot root = Util.getClassFile(component.getBaseline().resolvePackage(component, packageName), typename);
+		IApiTypeRoot root2 = Util.getClassFile(component2.getBaseline().resolvePackage(component2, packageName), typename);
+		if (root == null || root2 == null) {
+			// unresolved on both sides is handled the same way by the
+			// comparator
+			return root == null && root2 == null;
+		}
+		if (!hasSameContents(root, root2)) {
+			return false;
+		}
+		IApiType type = root.getStructure();
+		if (type == null || root.getApiComponent() == null || root2.getApiComponent() == null) {
+			return false;
+		}
+		return isUnchanged(type, root.getApiComponent(), root2.getApiComponent(), visited);
+	}
+
+	/**
+	 * Returns if both type roots have the same content digest
+	 *
+	 * @param root
+	 * @param root2
+	 * @return <code>true</code> if the class files are known to be identical
+	 * @throws CoreException
+	 */
+	private static boolean hasSameContents(IApiTypeRoot root, IApiTypeRoot root2) throws CoreException {
+		if (!(root instanceof AbstractApiTypeRoot) || !(root2 instanceof AbstractApiTypeRoot)) {
+			return false;
+		}
+		byte[] digest = ((AbstractApiTypeRoot) root).getContentDigest();
+		return digest != null && Arrays.equals(digest, ((AbstractApiTypeRoot) root2).getContentDigest());
+	}
+
+	/**
+	 * Returns if the type and its fields and methods have the same visibility
+	 * and restrictions in both API descriptions
+	 *
+	 * @param type
+	 * @param description
+	 * @param description2
+	 * @return if the annotations are the same
+	 */
+	private static boolean hasSameAnnotations(IApiType type, IApiDescription description, IApiDescription description2) {
+		if (!hasSameMemberAnnotations(type, description, description2)) {
+			return false;
+		}
+		IApiField[] fields = type.getFields();
+		for (int i = 0; i < fields.length; i++) {
+			if (!hasSameMemberAnnotations(fields[i], description, description2)) {
+				return false;
+			}
+		}
+		IApiMethod[] methods = type.getMethods();
+		for (int i = 0; i < methods.length; i++) {
+			if (!hasSameMemberAnnotations(methods[i], description, description2)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns if the member has the same visibility and restrictions in both
+	 * API descriptions
+	 *
+	 * @param member
+	 * @param description
+	 * @param description2
+	 * @return if the annotations are the same
+	 */
+	private static boolean hasSameMemberAnnotations(IApiMember member, IApiDescription description, IApiDescription description2) {
+		if (description == null || description2 == null) {
+			return description == description2;
+		}
+		IApiAnnotations annotations = description.resolveAnnotations(member.getHandle());
+		IApiAnnotations annotations2 = description2.resolveAnnotations(member.getHandle());
+		if (annotations == null || annotations2 == null) {
+			return annotations == annotations2;
+		}
+		return annotations.getVisibility() == annotations2.getVisibility() && annotations.getRestrictions() == annotations2.getRestrictions();
+	}
+
+	/**
+	 * Returns the key of a type resolved from the given components
+	 *
+	 * @param component
+	 * @param component2
+	 * @param typename
+	 * @return the key for the visited set
+	 */
+	private static String getKey(IApiComponent component, IApiComponent component2, String typename) {
+		StringBuffer buffer = new StringBuffer();
+		buffer.append(component.getSymbolicName()).append(' ').append(component2.getSymbolicName()).append(' ').append(typename);
+		return buffer.toString();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2013 IBM Corporation and others.
+ * Copyright (c) 2007, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,8 +10,21 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.internal.comparator;
 
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.pde.api.tools.internal.IApiXmlConstants;
+import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
 import org.eclipse.pde.api.tools.internal.provisional.comparator.ApiComparator;
 import org.eclipse.pde.api.tools.internal.provisional.comparator.DeltaProcessor;
 import org.eclipse.pde.api.tools.internal.provisional.comparator.DeltaVisitor;
@@ -22,6 +35,11 @@ import org.w3c.dom.Element;
 
 /**
  * Delta visitor that generates XML for the delta.
+ * <p>
+ * The XML is either built as a document in memory, or written to a
+ * {@link Writer} as each leaf delta is visited when the visitor is created with
+ * {@link #DeltaXmlVisitor(Writer)}.
+ * </p>
  * 
  * @since 1.0.0
  */
@@ -36,6 +54,27 @@ public class DeltaXmlVisitor extends DeltaVisitor {
 	 */
 	private Element fDeltas;
 
+	/**
+	 * Writer the delta elements are streamed to, or <code>null</code> if the
+	 * document is built in memory
+	 */
+	private Writer fWriter = null;
+
+	/**
+	 * Transformer used to write each delta element to {@link #fWriter}
+	 */
+	private Transformer fTransformer = null;
+
+	/**
+	 * Whether the start of the document has been written to {@link #fWriter}
+	 */
+	private boolean fStarted = false;
+
+	/**
+	 * The first error raised while writing to {@link #fWriter}
+	 */
+	private Exception fWriteError = null;
+
 	/**
 	 * Constructs a new visitor for the given component.
 	 * 
@@ -48,6 +87,30 @@ public class DeltaXmlVisitor extends DeltaVisitor {
 		fDoc.appendChild(fDeltas);
 	}
 
+	/**
+	 * Constructs a new visitor that writes the XML for the visited deltas to
+	 * the given writer instead of building a document in memory.
+	 * {@link #endDocument()} must be called once all deltas have been visited.
+	 * The writer is expected to encode characters in UTF-8.
+	 * 
+	 * @param writer the writer to write the XML to
+	 * @throws CoreException if unable to construct the visitor
+	 * @since 1.0.700
+	 */
+	public DeltaXmlVisitor(Writer writer) throws CoreException {
+		this();
+		fWriter = writer;
+		try {
+			fTransformer = TransformerFactory.newInstance().newTransformer();
+		} catch (TransformerException e) {
+			throw new CoreException(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, "Unable to serialize XML document.", e)); //$NON-NLS-1$
+		}
+		fTransformer.setOutputProperty(OutputKeys.METHOD, "xml"); //$NON-NLS-1$
+		fTransformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes"); //$NON-NLS-1$
+		fTransformer.setOutputProperty(OutputKeys.INDENT, "yes"); //$NON-NLS-1$
+		fTransformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see
@@ -95,7 +158,85 @@ public class DeltaXmlVisitor extends DeltaVisitor {
 			}
 			deltaElement.appendChild(messageArgumentsElement);
 		}
-		fDeltas.appendChild(deltaElement);
+		if (fWriter != null) {
+			write(deltaElement);
+		} else {
+			fDeltas.appendChild(deltaElement);
+		}
+	}
+
+	/**
+	 * Adds the given element to the deltas element, after the deltas visited
+	 * so far. When the visitor writes to a {@link Writer}, the element is
+	 * written right away.
+	 * 
+	 * @param element an element created by the document of this visitor, see
+	 *            {@link #getDocument()}
+	 * @since 1.0.700
+	 */
+	public void addElement(Element element) {
+		if (fWriter != null) {
+			write(element);
+		} else {
+			fDeltas.appendChild(element);
+		}
+	}
+
+	/**
+	 * Writes the given element to the writer of this visitor
+	 * 
+	 * @param deltaElement
+	 */
+	private void write(Element deltaElement) {
+		if (fWriteError != null) {
+			return;
+		}
+		try {
+			if (!fStarted) {
+				fStarted = true;
+				fWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"); //$NON-NLS-1$
+				fWriter.write(Util.LINE_DELIMITER);
+				fWriter.write('<' + IApiXmlConstants.DELTAS_ELEMENT_NAME + '>');
+				fWriter.write(Util.LINE_DELIMITER);
+			}
+			fTransformer.transform(new DOMSource(deltaElement), new StreamResult(fWriter));
+		} catch (IOException e) {
+			fWriteError = e;
+		} catch (TransformerException e) {
+			fWriteError = e;
+		}
+	}
+
+	/**
+	 * Ends the document written by a visitor created with
+	 * {@link #DeltaXmlVisitor(Writer)} and flushes the writer. The writer is
+	 * not closed.
+	 * 
+	 * @throws CoreException if the XML could not be written
+	 * @since 1.0.700
+	 */
+	public void endDocument() throws CoreException {
+		if (fWriter == null) {
+			return;
+		}
+		try {
+			if (fWriteError == null) {
+				if (fStarted) {
+					fWriter.write("</" + IApiXmlConstants.DELTAS_ELEMENT_NAME + '>'); //$NON-NLS-1$
+				} else {
+					fWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"); //$NON-NLS-1$
+					fWriter.write(Util.LINE_DELIMITER);
+					fWriter.write('<' + IApiXmlConstants.DELTAS_ELEMENT_NAME + "/>"); //$NON-NLS-1$
+				}
+				fWriter.write(Util.LINE_DELIMITER);
+				fWriter.flush();
+			}
+		} catch (IOException e) {
+			fWriteError = e;
+		}
+		if (fWriteError != null) {
+			throw new CoreException(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, "Unable to serialize XML document.", fWriteError)); //$NON-NLS-1$
+		}
 	}
 
 	/*
@@ -111,7 +252,8 @@ public class DeltaXmlVisitor extends DeltaVisitor {
 	}
 
 	/**
-	 * Returns the settings as a UTF-8 string containing XML.
+	 * Returns the settings as a UTF-8 string containing XML. When the visitor
+	 * writes to a {@link Writer}, the returned document has no delta.
 	 * 
 	 * @return XML
 	 * @throws CoreException if something goes wrong
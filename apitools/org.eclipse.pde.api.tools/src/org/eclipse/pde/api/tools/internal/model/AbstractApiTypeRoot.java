@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,9 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.internal.model;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
@@ -57,7 +60,7 @@ public abstract class AbstractApiTypeRoot extends ApiElement implements IApiType
 			type = (IApiType) cache.getElementInfo(baseline.getName(), comp.getSymbolicName(), this.getTypeName(), IApiElement.TYPE);
 		}
 		if (type == null) {
-			type = TypeStructureBuilder.buildTypeStructure(getContents(), getApiComponent(), this);
+			type = buildStructure();
 			if (type == null) {
 				return null;
 			}
@@ -66,6 +69,56 @@ public abstract class AbstractApiTypeRoot extends ApiElement implements IApiType
 		return type;
 	}
 
+	/**
+	 * Builds the structure of this type root when it is not found in the
+	 * {@link ApiModelCache}
+	 * 
+	 * @return the type structure or <code>null</code> if the class file is
+	 *         invalid
+	 * @throws CoreException if the contents cannot be read
+	 */
+	protected IApiType buildStructure() throws CoreException {
+		return TypeStructureBuilder.buildTypeStructure(getContents(), getApiComponent(), this);
+	}
+
+	/**
+	 * Returns a digest of the contents of this type root. Digests are cached
+	 * per baseline in the {@link ApiModelCache} and are dropped with the type
+	 * structures, so two type roots with equal digests have the same class
+	 * file without either being parsed.
+	 * 
+	 * @return the digest of the contents or <code>null</code> if it cannot be
+	 *         computed
+	 * @throws CoreException if the contents cannot be read
+	 * @since 1.0.700
+	 */
+	public byte[] getContentDigest() throws CoreException {
+		ApiModelCache cache = ApiModelCache.getCache();
+		IApiComponent comp = getApiComponent();
+		String baselineid = null;
+		String componentid = null;
+		if (comp != null) {
+			baselineid = comp.getBaseline().getName();
+			componentid = comp.getSymbolicName();
+			byte[] digest = cache.getContentDigest(baselineid, componentid, getTypeName());
+			if (digest != null) {
+				return digest;
+			}
+		}
+		byte[] contents = getContents();
+		if (contents == null) {
+			return null;
+		}
+		byte[] digest = null;
+		try {
+			digest = MessageDigest.getInstance("MD5").digest(contents); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+		cache.cacheContentDigest(baselineid, componentid, getTypeName(), digest);
+		return digest;
+	}
+
 	/**
 	 * @see org.eclipse.pde.api.tools.internal.provisional.IApiTypeRoot#getApiComponent()
 	 */
@@ -28,6 +28,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
@@ -89,7 +91,7 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 	/**
 	 * Component representing the system library
 	 */
-	private IApiComponent fSystemLibraryComponent;
+	private volatile IApiComponent fSystemLibraryComponent;
 
 	/**
 	 * Whether an execution environment should be automatically resolved as API
@@ -97,6 +99,12 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 	 */
 	private boolean fAutoResolve = false;
 
+	/**
+	 * Whether the type structures built from the archives of this baseline are
+	 * persisted in a {@link TypeStructureCache}.
+	 */
+	private boolean fCacheTypeStructures = false;
+
 	/**
 	 * Contains the location of the baseline if the baseline was created with a
 	 * location.
@@ -113,15 +121,20 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 	private AnyValue ANY_VALUE = new AnyValue("*"); //$NON-NLS-1$
 
 	/**
-	 * Cache of resolved packages.
+	 * Index of the packages visible to the source components of this baseline.
 	 * <p>
-	 * Map of <code>PackageName -> Map(componentName -> IApiComponent[])</code>
+	 * Map of <code>source component -> {@link VisiblePackages}</code>
 	 * </p>
-	 * For each package the cache contains a map of API components that provide
-	 * that package, by source component name (including the <code>null</code>
-	 * component name).
+	 * Entries are built from the state the first time a package is resolved
+	 * for a source component and are then read without locking.
 	 */
-	private HashMap<String, HashMap<IApiComponent, IApiComponent[]>> fComponentsProvidingPackageCache = null;
+	private final ConcurrentHashMap<IApiComponent, VisiblePackages> fVisiblePackages = new ConcurrentHashMap<IApiComponent, VisiblePackages>();
+
+	/**
+	 * Incremented each time {@link #fVisiblePackages} is cleared, so that an
+	 * index built from the components in place before the clear is not kept
+	 */
+	private final AtomicInteger fVisiblePackagesGeneration = new AtomicInteger();
 
 	/**
 	 * Maps component id's to components.
@@ -140,7 +153,7 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 	/**
 	 * Cache of system package names
 	 */
-	private HashSet<String> fSystemPackageNames = null;
+	private volatile Set<String> fSystemPackageNames = null;
 
 	/**
 	 * The VM install this baseline is bound to for system libraries or
@@ -288,10 +301,7 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 		if (fSystemLibraryComponent != null && fComponentsById != null) {
 			fComponentsById.remove(fSystemLibraryComponent.getSymbolicName());
 		}
-		if (fSystemPackageNames != null) {
-			fSystemPackageNames.clear();
-			fSystemPackageNames = null;
-		}
+		fSystemPackageNames = null;
 		clearComponentsCache();
 		// set new system library
 		fSystemLibraryComponent = new SystemLibraryApiComponent(this, description, systemPackages);
@@ -299,13 +309,11 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 	}
 
 	/**
-	 * Clears the package -> components cache and sets it to <code>null</code>
+	 * Clears the index of the packages visible to the source components
 	 */
-	private synchronized void clearComponentsCache() {
-		if (fComponentsProvidingPackageCache != null) {
-			fComponentsProvidingPackageCache.clear();
-			fComponentsProvidingPackageCache = null;
-		}
+	private void clearComponentsCache() {
+		fVisiblePackagesGeneration.incrementAndGet();
+		fVisiblePackages.clear();
 	}
 
 	/**
@@ -321,6 +329,8 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 			fComponentsById = new HashMap<String, IApiComponent>();
 		}
 		fComponentsById.put(component.getSymbolicName(), component);
+		// the exporters recorded for the source components may have changed
+		clearComponentsCache();
 		if (component instanceof ProjectComponent) {
 			ProjectComponent projectApiComponent = (ProjectComponent) component;
 			if (this.fComponentsByProjectNames == null) {
@@ -477,101 +487,182 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 	 * @see IApiBaseline#resolvePackage(IApiComponent, String)
 	 */
 	@Override
-	public synchronized IApiComponent[] resolvePackage(IApiComponent sourceComponent, String packageName) throws CoreException {
-		HashMap<IApiComponent, IApiComponent[]> componentsForPackage = null;
-		if (fComponentsProvidingPackageCache != null) {
-			componentsForPackage = fComponentsProvidingPackageCache.get(packageName);
-		} else {
-			fComponentsProvidingPackageCache = new HashMap<String, HashMap<IApiComponent, IApiComponent[]>>(8);
-		}
-		IApiComponent[] cachedComponents = null;
-		if (componentsForPackage != null) {
-			cachedComponents = componentsForPackage.get(sourceComponent);
-			if (cachedComponents != null && cachedComponents.length > 0) {
-				return cachedComponents;
-			}
-		} else {
-			componentsForPackage = new HashMap<IApiComponent, IApiComponent[]>(8);
-			fComponentsProvidingPackageCache.put(packageName, componentsForPackage);
-		}
+	public IApiComponent[] resolvePackage(IApiComponent sourceComponent, String packageName) throws CoreException {
 		// check system packages first
 		if (isSystemPackage(packageName)) {
-			if (fSystemLibraryComponent != null) {
-				cachedComponents = new IApiComponent[] { fSystemLibraryComponent };
-			} else {
+			IApiComponent system = fSystemLibraryComponent;
+			if (system != null) {
+				return new IApiComponent[] { system };
+			}
+			return EMPTY_COMPONENTS;
+		}
+		if (!(sourceComponent instanceof BundleComponent)) {
+			return EMPTY_COMPONENTS;
+		}
+		VisiblePackages visible = getVisiblePackages((BundleComponent) sourceComponent);
+		if (visible == null) {
+			return EMPTY_COMPONENTS;
+		}
+		IApiComponent[] components = visible.fResolved.get(packageName);
+		if (components == null) {
+			ArrayList<IApiComponent> componentsList = new ArrayList<IApiComponent>();
+			boolean contained = resolvePackage0(visible, packageName, componentsList);
+			if (componentsList.isEmpty()) {
+				// the package may still be added to the workspace, do not
+				// remember the miss
 				return EMPTY_COMPONENTS;
 			}
-		} else {
-			if (sourceComponent != null) {
-				ArrayList<IApiComponent> componentsList = new ArrayList<IApiComponent>();
-				resolvePackage0(sourceComponent, packageName, componentsList);
-				if (componentsList.size() != 0) {
-					cachedComponents = new IApiComponent[componentsList.size()];
-					componentsList.toArray(cachedComponents);
+			components = componentsList.toArray(new IApiComponent[componentsList.size()]);
+			if (!contained) {
+				// concurrent resolutions of the same package compute equal
+				// results
+				visible.fResolved.put(packageName, components);
+			}
+		}
+		return components;
+	}
+
+	/**
+	 * Returns the index of the packages visible to the given component,
+	 * building it from the state if it is not known yet.
+	 *
+	 * @param component the source component
+	 * @return the index of the visible packages or <code>null</code> if the
+	 *         component has no bundle description
+	 * @throws CoreException
+	 */
+	private VisiblePackages getVisiblePackages(BundleComponent component) throws CoreException {
+		VisiblePackages visible = fVisiblePackages.get(component);
+		if (visible != null) {
+			return visible;
+		}
+		BundleDescription bundle = component.getBundleDescription();
+		if (bundle == null) {
+			return null;
+		}
+		int generation = fVisiblePackagesGeneration.get();
+		StateHelper helper = getState().getStateHelper();
+		ExportPackageDescription[] visiblePackages = helper.getVisiblePackages(bundle);
+		HashMap<String, List<IApiComponent>> exporters = new HashMap<String, List<IApiComponent>>(visiblePackages.length);
+		for (int i = 0, max = visiblePackages.length; i < max; i++) {
+			ExportPackageDescription pkg = visiblePackages[i];
+			String pkgName = pkg.getName();
+			if (pkgName.equals(".")) { //$NON-NLS-1$
+				// translate . to default package
+				pkgName = Util.DEFAULT_PACKAGE_NAME;
+			}
+			IApiComponent exporter = getApiComponent(pkg.getExporter().getSymbolicName());
+			if (exporter != null) {
+				List<IApiComponent> list = exporters.get(pkgName);
+				if (list == null) {
+					list = new ArrayList<IApiComponent>(1);
+					exporters.put(pkgName, list);
 				}
+				list.add(exporter);
 			}
 		}
-		if (cachedComponents == null) {
-			cachedComponents = EMPTY_COMPONENTS;
+		IApiComponent[] hosts = EMPTY_COMPONENTS;
+		if (component.isFragment()) {
+			// a fragment can see all the packages from the host
+			HostSpecification host = bundle.getHost();
+			BundleDescription[] descriptions = host.getHosts();
+			ArrayList<IApiComponent> list = new ArrayList<IApiComponent>(descriptions.length);
+			for (int i = 0, max = descriptions.length; i < max; i++) {
+				IApiComponent apiComponent = component.getBaseline().getApiComponent(descriptions[i].getName());
+				if (apiComponent != null) {
+					list.add(apiComponent);
+				}
+			}
+			hosts = list.toArray(new IApiComponent[list.size()]);
 		}
-		if (cachedComponents.length == 0) {
-			return EMPTY_COMPONENTS;
+		visible = new VisiblePackages(component, exporters, hosts);
+		if (fVisiblePackagesGeneration.get() != generation) {
+			// components were added meanwhile, do not keep a stale index
+			return visible;
+		}
+		VisiblePackages existing = fVisiblePackages.putIfAbsent(component, visible);
+		if (existing != null) {
+			return existing;
 		}
-		componentsForPackage.put(sourceComponent, cachedComponents);
-		return cachedComponents;
+		if (fVisiblePackagesGeneration.get() != generation) {
+			// cleared while being added
+			fVisiblePackages.remove(component, visible);
+		}
+		return visible;
 	}
 
 	/**
 	 * Resolves the listing of {@link IApiComponent}s that export the given
-	 * package name. The collection of {@link IApiComponent}s is written into
-	 * the specified list <code>componentList</code>
+	 * package name to the component of the given index. The collection of
+	 * {@link IApiComponent}s is written into the specified list
+	 * <code>componentList</code>
 	 *
-	 * @param component
+	 * @param visible
 	 * @param packageName
 	 * @param componentsList
+	 * @return whether the package was found in the source component or one of
+	 *         its hosts rather than only in exporters from the state
 	 * @throws CoreException
 	 */
-	private void resolvePackage0(IApiComponent component, String packageName, List<IApiComponent> componentsList) throws CoreException {
-		if (component instanceof BundleComponent) {
-			BundleDescription bundle = ((BundleComponent) component).getBundleDescription();
-			if (bundle != null) {
-				StateHelper helper = getState().getStateHelper();
-				ExportPackageDescription[] visiblePackages = helper.getVisiblePackages(bundle);
-				for (int i = 0, max = visiblePackages.length; i < max; i++) {
-					ExportPackageDescription pkg = visiblePackages[i];
-					String pkgName = pkg.getName();
-					if (pkgName.equals(".")) { //$NON-NLS-1$
-						// translate . to default package
-						pkgName = Util.DEFAULT_PACKAGE_NAME;
-					}
-					if (packageName.equals(pkgName)) {
-						BundleDescription bundleDescription = pkg.getExporter();
-						IApiComponent exporter = getApiComponent(bundleDescription.getSymbolicName());
-						if (exporter != null) {
-							componentsList.add(exporter);
-						}
-					}
-				}
-				if (component.isFragment()) {
-					// a fragment can see all the packages from the host
-					HostSpecification host = bundle.getHost();
-					BundleDescription[] hosts = host.getHosts();
-					for (int i = 0, max = hosts.length; i < max; i++) {
-						BundleDescription currentHost = hosts[i];
-						IApiComponent apiComponent = component.getBaseline().getApiComponent(currentHost.getName());
-						if (apiComponent != null) {
-							resolvePackage0(apiComponent, packageName, componentsList);
-						}
-					}
-				}
-				// check for package within the source component
-				String[] packageNames = component.getPackageNames();
-				int index = Arrays.binarySearch(packageNames, packageName, null);
-				if (index >= 0) {
-					componentsList.add(component);
+	private boolean resolvePackage0(VisiblePackages visible, String packageName, List<IApiComponent> componentsList) throws CoreException {
+		boolean contained = false;
+		IApiComponent[] exporters = visible.fExporters.get(packageName);
+		if (exporters != null) {
+			for (int i = 0; i < exporters.length; i++) {
+				componentsList.add(exporters[i]);
+			}
+		}
+		for (int i = 0; i < visible.fHosts.length; i++) {
+			IApiComponent host = visible.fHosts[i];
+			if (host instanceof BundleComponent) {
+				VisiblePackages hostPackages = getVisiblePackages((BundleComponent) host);
+				if (hostPackages != null) {
+					contained |= resolvePackage0(hostPackages, packageName, componentsList);
 				}
 			}
 		}
+		// check for package within the source component
+		String[] packageNames = visible.fComponent.getPackageNames();
+		int index = Arrays.binarySearch(packageNames, packageName, null);
+		if (index >= 0) {
+			componentsList.add(visible.fComponent);
+			contained = true;
+		}
+		return contained;
+	}
+
+	/**
+	 * The packages visible to one source component: the exporters of the
+	 * packages it can see and the hosts it can see the packages of. The
+	 * packages contained in the component itself are read from the component
+	 * on each resolution, as they change with the workspace: only resolutions
+	 * satisfied by exporters alone are kept in {@link #fResolved}.
+	 */
+	static final class VisiblePackages {
+
+		final IApiComponent fComponent;
+
+		/**
+		 * Map of <code>package name -> IApiComponent[]</code> exporting it
+		 */
+		final HashMap<String, IApiComponent[]> fExporters;
+
+		final IApiComponent[] fHosts;
+
+		/**
+		 * Resolved providers by package name
+		 */
+		final ConcurrentHashMap<String, IApiComponent[]> fResolved = new ConcurrentHashMap<String, IApiComponent[]>();
+
+		VisiblePackages(IApiComponent component, Map<String, List<IApiComponent>> exporters, IApiComponent[] hosts) {
+			fComponent = component;
+			fExporters = new HashMap<String, IApiComponent[]>(exporters.size());
+			for (Entry<String, List<IApiComponent>> entry : exporters.entrySet()) {
+				List<IApiComponent> list = entry.getValue();
+				fExporters.put(entry.getKey(), list.toArray(new IApiComponent[list.size()]));
+			}
+			fHosts = hosts;
+		}
 	}
 
 	/**
@@ -607,14 +698,17 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 		if (packageName.startsWith("java.")) { //$NON-NLS-1$
 			return true;
 		}
-		if (fSystemPackageNames == null) {
+		Set<String> names = fSystemPackageNames;
+		if (names == null) {
 			ExportPackageDescription[] systemPackages = getState().getSystemPackages();
-			fSystemPackageNames = new HashSet<String>(systemPackages.length);
+			names = new HashSet<String>(systemPackages.length);
 			for (int i = 0; i < systemPackages.length; i++) {
-				fSystemPackageNames.add(systemPackages[i].getName());
+				names.add(systemPackages[i].getName());
 			}
+			// racing threads build equal sets
+			fSystemPackageNames = names;
 		}
-		return fSystemPackageNames.contains(packageName);
+		return names.contains(packageName);
 	}
 
 	/**
@@ -756,9 +850,7 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 			fComponentsByProjectNames.clear();
 			fComponentsByProjectNames = null;
 		}
-		if (fSystemPackageNames != null) {
-			fSystemPackageNames.clear();
-		}
+		fSystemPackageNames = null;
 		if (fSystemLibraryComponent != null) {
 			fSystemLibraryComponent.dispose();
 			fSystemLibraryComponent = null;
@@ -855,9 +947,9 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 	 * @nooverride This method is not intended to be re-implemented or extended
 	 *             by clients.
 	 */
-	public synchronized void clearPackage(String packageName) {
-		if (fComponentsProvidingPackageCache != null) {
-			fComponentsProvidingPackageCache.remove(packageName);
+	public void clearPackage(String packageName) {
+		for (VisiblePackages visible : fVisiblePackages.values()) {
+			visible.fResolved.remove(packageName);
 		}
 	}
 
@@ -976,6 +1068,26 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 		this.fLocation = location;
 	}
 
+	/**
+	 * Sets whether the type structures built from the archives of this
+	 * baseline are persisted in a {@link TypeStructureCache}, so they do not
+	 * have to be built again the next time the baseline is loaded. Must be set
+	 * before the components of the baseline are used.
+	 * 
+	 * @param cache whether to cache type structures
+	 */
+	public void setCachingTypeStructures(boolean cache) {
+		this.fCacheTypeStructures = cache;
+	}
+
+	/**
+	 * @return whether the type structures built from the archives of this
+	 *         baseline are persisted in a {@link TypeStructureCache}
+	 */
+	public boolean isCachingTypeStructures() {
+		return this.fCacheTypeStructures;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline#
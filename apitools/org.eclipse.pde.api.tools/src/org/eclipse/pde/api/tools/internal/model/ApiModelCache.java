@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2013 IBM Corporation and others.
+ * Copyright (c) 2009, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,83 +10,295 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.internal.model;
 
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.jdt.internal.core.OverflowingLRUCache;
-import org.eclipse.jdt.internal.core.util.LRUCache;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiElement;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiMember;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiType;
 
 /**
  * Manages the caches of {@link IApiElement}s
- * 
+ * <p>
+ * Types are cached by baseline, component and root type name, member types
+ * being kept with their root type. The cache is split in segments, each with
+ * its own lock and its own share of the maximum weight, so concurrent builder
+ * and search threads rarely contend. Each segment evicts its least recently
+ * used root types once the estimated footprint of its types exceeds its
+ * share.
+ * </p>
+ * <p>
+ * The maximum weight defaults to {@link #DEFAULT_MAX_WEIGHT} and can be set
+ * using the {@value #MAX_WEIGHT_PROPERTY} system property (in bytes).
+ * </p>
+ * <p>
+ * The cache also keeps the content digests of type roots, keyed the same way.
+ * Digests are small and are not weighed, they are only dropped along with
+ * the types of their baseline or component, or when their type is removed.
+ * </p>
+ * <p>
+ * Finally the cache keeps the resolution of references per baseline, shared
+ * by all of the scans of the baseline. As the resolution of a reference
+ * depends on the whole hierarchy of the referenced type, the resolutions of
+ * a baseline are all dropped when any of its types is removed. Resolutions
+ * are weighed as well and get {@link #RESOLUTION_SHARE} of the maximum
+ * weight, the types getting the rest. Resolved members are only held softly
+ * so that resolutions do not keep evicted types alive.
+ * </p>
+ *
  * @since 1.0.2
  */
 public final class ApiModelCache {
 
 	/**
-	 * Cache used for {@link IApiElement}s
+	 * Key of a root type and its member types
 	 */
-	class Cache extends OverflowingLRUCache {
+	static final class TypeKey {
+		final String baseline;
+		final String component;
+		final String rootname;
+		private final int hashcode;
 
-		/**
-		 * Constructor
-		 * 
-		 * @param size
-		 * @param overflow
-		 */
-		public Cache(int size, int overflow) {
-			super(size, overflow);
+		TypeKey(String baseline, String component, String rootname) {
+			this.baseline = baseline;
+			this.component = component;
+			this.rootname = rootname;
+			this.hashcode = (baseline.hashCode() * 31 + component.hashCode()) * 31 + rootname.hashCode();
 		}
 
-		/*
-		 * (non-Javadoc)
-		 * @see
-		 * org.eclipse.jdt.internal.core.OverflowingLRUCache#close(org.eclipse
-		 * .jdt.internal.core.util.LRUCache.LRUCacheEntry)
-		 */
 		@Override
-		protected boolean close(LRUCacheEntry entry) {
-			return true;
+		public boolean equals(Object obj) {
+			if (obj instanceof TypeKey) {
+				TypeKey other = (TypeKey) obj;
+				return this.hashcode == other.hashcode && this.rootname.equals(other.rootname) && this.component.equals(other.component) && this.baseline.equals(other.baseline);
+			}
+			return false;
 		}
 
-		/*
-		 * (non-Javadoc)
-		 * @see
-		 * org.eclipse.jdt.internal.core.OverflowingLRUCache#newInstance(int,
-		 * int)
-		 */
 		@Override
-		protected LRUCache newInstance(int size, int newOverflow) {
-			return new Cache(size, newOverflow);
+		public int hashCode() {
+			return this.hashcode;
+		}
+	}
+
+	/**
+	 * A cached root type and its cached member types. Only accessed while
+	 * holding the lock of its {@link Segment}.
+	 */
+	static final class TypeEntry {
+		IApiType root = null;
+		Map<String, IApiType> members = null;
+		long weight = 0;
+
+		boolean isEmpty() {
+			return root == null && (members == null || members.isEmpty());
+		}
+	}
+
+	/**
+	 * The cached resolutions of a baseline. The map is read without locking,
+	 * it is only modified while holding the lock of
+	 * {@link ApiModelCache#fResolutions}.
+	 */
+	static final class Resolutions {
+		final ConcurrentHashMap<String, Object> map = new ConcurrentHashMap<String, Object>();
+		long weight = 0;
+	}
+
+	/**
+	 * One stripe of the cache: an access ordered map of entries bounded by
+	 * weight
+	 */
+	final class Segment {
+		private final LinkedHashMap<TypeKey, TypeEntry> fEntries = new LinkedHashMap<TypeKey, TypeEntry>(16, 0.75f, true);
+		private long fWeight = 0;
+
+		synchronized IApiType get(TypeKey key, String typename, boolean member) {
+			TypeEntry entry = fEntries.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (member) {
+				return entry.members != null ? entry.members.get(typename) : null;
+			}
+			return entry.root;
+		}
+
+		synchronized void put(TypeKey key, IApiType type, boolean member) {
+			TypeEntry entry = fEntries.get(key);
+			if (entry == null) {
+				entry = new TypeEntry();
+				fEntries.put(key, entry);
+			}
+			IApiType old = null;
+			if (member) {
+				if (entry.members == null) {
+					entry.members = new HashMap<String, IApiType>(4);
+				}
+				old = entry.members.put(type.getName(), type);
+			} else {
+				old = entry.root;
+				entry.root = type;
+			}
+			long delta = weigh(type) - (old != null ? weigh(old) : 0);
+			entry.weight += delta;
+			fWeight += delta;
+			evict(key);
+		}
+
+		synchronized boolean remove(TypeKey key, String typename, boolean member) {
+			TypeEntry entry = fEntries.get(key);
+			if (entry == null) {
+				return false;
+			}
+			if (member) {
+				IApiType old = entry.members != null ? entry.members.remove(typename) : null;
+				if (old == null) {
+					return false;
+				}
+				long weight = weigh(old);
+				entry.weight -= weight;
+				fWeight -= weight;
+				if (entry.isEmpty()) {
+					fEntries.remove(key);
+				}
+				return true;
+			}
+			// removing a root type removes its member types as well
+			fEntries.remove(key);
+			fWeight -= entry.weight;
+			return entry.root != null;
+		}
+
+		synchronized boolean removeAll(String baselineid, String componentid) {
+			boolean removed = false;
+			for (Iterator<Map.Entry<TypeKey, TypeEntry>> iter = fEntries.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry<TypeKey, TypeEntry> entry = iter.next();
+				TypeKey key = entry.getKey();
+				if (key.baseline.equals(baselineid) && (componentid == null || key.component.equals(componentid))) {
+					fWeight -= entry.getValue().weight;
+					iter.remove();
+					removed = true;
+				}
+			}
+			return removed;
+		}
+
+		synchronized void clear() {
+			fEntries.clear();
+			fWeight = 0;
+		}
+
+		synchronized boolean isEmpty() {
+			return fEntries.isEmpty();
+		}
+
+		synchronized long getWeight() {
+			return fWeight;
 		}
 
 		/**
-		 * Returns if the cache has any elements in it or not
-		 * 
-		 * @return true if the cache has no entries, false otherwise
+		 * Evicts the least recently used entries until the segment fits in its
+		 * share of the maximum weight. The entry that was just added is never
+		 * evicted.
+		 *
+		 * @param added the key of the entry that was just added
 		 */
-		public boolean isEmpty() {
-			return !keys().hasMoreElements();
+		private void evict(TypeKey added) {
+			long max = (fMaxWeight - fMaxWeight / RESOLUTION_SHARE) / SEGMENT_COUNT;
+			if (fWeight <= max) {
+				return;
+			}
+			for (Iterator<Map.Entry<TypeKey, TypeEntry>> iter = fEntries.entrySet().iterator(); iter.hasNext() && fWeight > max;) {
+				Map.Entry<TypeKey, TypeEntry> entry = iter.next();
+				if (entry.getKey().equals(added)) {
+					continue;
+				}
+				fWeight -= entry.getValue().weight;
+				iter.remove();
+				fEvictions.incrementAndGet();
+			}
 		}
 	}
 
-	static final int DEFAULT_CACHE_SIZE = 100;
-	static final int DEFAULT_OVERFLOW = (int) (DEFAULT_CACHE_SIZE * 0.1f);
+	/**
+	 * Name of the system property that can be used to set the maximum
+	 * estimated footprint of the cached types and resolutions, in bytes
+	 */
+	public static final String MAX_WEIGHT_PROPERTY = "org.eclipse.pde.api.tools.modelCacheSize"; //$NON-NLS-1$
+
+	/**
+	 * Default maximum estimated footprint of the cached types and resolutions:
+	 * 64MB
+	 */
+	static final long DEFAULT_MAX_WEIGHT = 64L * 1024 * 1024;
+
+	/**
+	 * Number of segments, must be a power of two
+	 */
+	static final int SEGMENT_COUNT = 16;
+
 	static ApiModelCache fInstance = null;
 
-	Cache fRootCache = null;
-	Cache fMemberTypeCache = null;
+	final Segment[] fSegments = new Segment[SEGMENT_COUNT];
+	volatile long fMaxWeight = DEFAULT_MAX_WEIGHT;
+
+	final ConcurrentHashMap<TypeKey, ConcurrentHashMap<String, byte[]>> fDigests = new ConcurrentHashMap<TypeKey, ConcurrentHashMap<String, byte[]>>();
+
+	/**
+	 * Marker cached for references that do not resolve
+	 *
+	 * @since 1.0.700
+	 */
+	public static final Object UNRESOLVED = new Object();
+
+	/**
+	 * The resolutions get one in that many of the maximum weight
+	 */
+	static final int RESOLUTION_SHARE = 8;
+
+	/**
+	 * Estimated footprint of a cached resolution, besides the characters of
+	 * its key
+	 */
+	static final int RESOLUTION_OVERHEAD = 128;
+
+	final ConcurrentHashMap<String, Resolutions> fResolutions = new ConcurrentHashMap<String, Resolutions>();
+
+	/**
+	 * The estimated footprint of all of the cached resolutions, only modified
+	 * while holding the lock of {@link #fResolutions}
+	 */
+	volatile long fResolutionWeight = 0;
+
+	final AtomicLong fHits = new AtomicLong();
+	final AtomicLong fMisses = new AtomicLong();
+	final AtomicLong fEvictions = new AtomicLong();
 
 	/**
 	 * Constructor - no instantiation
 	 */
 	private ApiModelCache() {
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			fSegments[i] = new Segment();
+		}
+		Long max = Long.getLong(MAX_WEIGHT_PROPERTY);
+		if (max != null && max.longValue() > 0) {
+			fMaxWeight = max.longValue();
+		}
 	}
 
 	/**
 	 * Returns the singleton instance of this cache
-	 * 
+	 *
 	 * @return the cache
 	 */
 	public static synchronized ApiModelCache getCache() {
@@ -97,24 +309,35 @@ public final class ApiModelCache {
 	}
 
 	/**
-	 * Returns the key to use in a cache. The key is of the form:
-	 * <code>[baselineid].[componentid].[typename]</code><br>
-	 * 
-	 * @param baseline
-	 * @param component
-	 * @param typename
-	 * @return the member type cache key to use
+	 * Returns the segment responsible for the given key
+	 *
+	 * @param key
+	 * @return the segment for the key
+	 */
+	private Segment segmentFor(TypeKey key) {
+		int h = key.hashCode();
+		h ^= (h >>> 20) ^ (h >>> 12);
+		h ^= (h >>> 7) ^ (h >>> 4);
+		return fSegments[h & (SEGMENT_COUNT - 1)];
+	}
+
+	/**
+	 * Returns the estimated footprint of the given type
+	 *
+	 * @param type
+	 * @return the weight of the type in the cache
 	 */
-	private String getCacheKey(String baseline, String component, String typename) {
-		StringBuffer buffer = new StringBuffer();
-		buffer.append(baseline).append('.').append(component).append('.').append(typename);
-		return buffer.toString();
+	static long weigh(IApiType type) {
+		if (type instanceof ApiType) {
+			return ((ApiType) type).getFootprint();
+		}
+		return 256;
 	}
 
 	/**
 	 * Caches the given {@link IApiElement} in the correct cache based on its
 	 * type.
-	 * 
+	 *
 	 * @param element the element to cache
 	 * @throws CoreException if there is a problem accessing any of the
 	 *             {@link IApiElement} info in order to cache it - pass the
@@ -123,9 +346,6 @@ public final class ApiModelCache {
 	public void cacheElementInfo(IApiElement element) throws CoreException {
 		switch (element.getType()) {
 			case IApiElement.TYPE: {
-				if (fRootCache == null) {
-					fRootCache = new Cache(DEFAULT_CACHE_SIZE, DEFAULT_OVERFLOW);
-				}
 				IApiComponent comp = element.getApiComponent();
 				if (comp != null) {
 					IApiBaseline baseline = comp.getBaseline();
@@ -133,46 +353,12 @@ public final class ApiModelCache {
 					if (id == null) {
 						return;
 					}
-					Cache compcache = (Cache) fRootCache.get(baseline.getName());
-					if (compcache == null) {
-						compcache = new Cache(DEFAULT_CACHE_SIZE, DEFAULT_OVERFLOW);
-						fRootCache.put(baseline.getName(), compcache);
-					}
-					Cache typecache = (Cache) compcache.get(id);
-					if (typecache == null) {
-						typecache = new Cache(DEFAULT_CACHE_SIZE, DEFAULT_OVERFLOW);
-						compcache.put(comp.getSymbolicName(), typecache);
-					}
 					ApiType type = (ApiType) element;
-					if (type.isMemberType() || isMemberType(type.getName()) /*
-																			 * cache
-																			 * even
-																			 * a
-																			 * root
-																			 * type
-																			 * with
-																			 * a
-																			 * '$'
-																			 * in
-																			 * its
-																			 * name
-																			 * here
-																			 * as
-																			 * well
-																			 */) {
-						if (this.fMemberTypeCache == null) {
-							this.fMemberTypeCache = new Cache(DEFAULT_CACHE_SIZE, DEFAULT_OVERFLOW);
-						}
-						String key = getCacheKey(baseline.getName(), id, getRootName(type.getName()));
-						Cache mcache = (Cache) this.fMemberTypeCache.get(key);
-						if (mcache == null) {
-							mcache = new Cache(DEFAULT_CACHE_SIZE, DEFAULT_OVERFLOW);
-							this.fMemberTypeCache.put(key, mcache);
-						}
-						mcache.put(type.getName(), type);
-					} else {
-						typecache.put(element.getName(), element);
-					}
+					// cache even a root type with a '$' in its name as a member
+					// type
+					boolean member = type.isMemberType() || isMemberType(type.getName());
+					TypeKey key = new TypeKey(baseline.getName(), id, getRootName(type.getName()));
+					segmentFor(key).put(key, type, member);
 				}
 				break;
 			}
@@ -184,7 +370,7 @@ public final class ApiModelCache {
 	/**
 	 * Returns the root type name assuming that the '$' char is a member type
 	 * boundary
-	 * 
+	 *
 	 * @param typename
 	 * @return the pruned name or the original name
 	 */
@@ -198,7 +384,7 @@ public final class ApiModelCache {
 
 	/**
 	 * Method to see if the type boundary char appears in the type name
-	 * 
+	 *
 	 * @param typename
 	 * @return true if the type name contains '$' false otherwise
 	 */
@@ -209,7 +395,7 @@ public final class ApiModelCache {
 	/**
 	 * Returns the {@link IApiElement} infos for the element referenced by the
 	 * given identifier and of the given type.
-	 * 
+	 *
 	 * @param baselineid the id of the baseline the component + element belongs
 	 *            to
 	 * @param componentid the id of the {@link IApiComponent} the element
@@ -217,7 +403,7 @@ public final class ApiModelCache {
 	 * @param identifier for example the qualified name of the type or the id of
 	 *            an API component
 	 * @param type the kind of the element to look for info for
-	 * 
+	 *
 	 * @return the cached {@link IApiElement} or <code>null</code> if no such
 	 *         element is cached
 	 */
@@ -227,25 +413,17 @@ public final class ApiModelCache {
 		}
 		switch (type) {
 			case IApiElement.TYPE: {
-				if (isMemberType(identifier)) {
-					if (this.fMemberTypeCache != null) {
-						Cache mcache = (Cache) this.fMemberTypeCache.get(getCacheKey(baselineid, componentid, getRootName(identifier)));
-						if (mcache != null) {
-							return (IApiElement) mcache.get(identifier);
-						}
-					}
+				if (identifier == null) {
+					return null;
+				}
+				TypeKey key = new TypeKey(baselineid, componentid, getRootName(identifier));
+				IApiType cached = segmentFor(key).get(key, identifier, isMemberType(identifier));
+				if (cached != null) {
+					fHits.incrementAndGet();
 				} else {
-					if (this.fRootCache != null) {
-						Cache compcache = (Cache) fRootCache.get(baselineid);
-						if (compcache != null) {
-							Cache typecache = (Cache) compcache.get(componentid);
-							if (typecache != null && identifier != null) {
-								return (IApiElement) typecache.get(identifier);
-							}
-						}
-					}
+					fMisses.incrementAndGet();
 				}
-				break;
+				return cached;
 			}
 			default:
 				break;
@@ -256,11 +434,11 @@ public final class ApiModelCache {
 	/**
 	 * Removes the {@link IApiElement} from the given component (given its id)
 	 * with the given identifier and of the given type.
-	 * 
+	 *
 	 * @param componentid the id of the component the element resides in
 	 * @param identifier the id (name) of the element to remove
 	 * @param type the type of the element (TYPE, METHOD, FIELD, etc)
-	 * 
+	 *
 	 * @return true if the element was removed, false otherwise
 	 */
 	public boolean removeElementInfo(String baselineid, String componentid, String identifier, int type) {
@@ -270,60 +448,22 @@ public final class ApiModelCache {
 		switch (type) {
 			case IApiElement.TYPE: {
 				if (componentid != null && identifier != null) {
-					boolean removed = true;
-					// clean member type cache
-					if (this.fMemberTypeCache != null) {
-						if (isMemberType(identifier)) {
-							Cache mcache = (Cache) this.fMemberTypeCache.get(getCacheKey(baselineid, componentid, getRootName(identifier)));
-							if (mcache != null) {
-								return mcache.remove(identifier) != null;
-							}
-						} else {
-							this.fMemberTypeCache.remove(getCacheKey(baselineid, componentid, getRootName(identifier)));
-						}
-					}
-					if (fRootCache != null) {
-						Cache compcache = (Cache) fRootCache.get(baselineid);
-						if (compcache != null) {
-							Cache typecache = (Cache) compcache.get(componentid);
-							if (typecache != null) {
-								removed &= typecache.remove(identifier) != null;
-								if (typecache.isEmpty()) {
-									removed &= compcache.remove(componentid) != null;
-								}
-								if (compcache.isEmpty()) {
-									removed &= fRootCache.remove(baselineid) != null;
-								}
-								return removed;
-							}
-
-						}
-					} else {
-						return false;
-					}
+					TypeKey key = new TypeKey(baselineid, componentid, getRootName(identifier));
+					boolean member = isMemberType(identifier);
+					removeContentDigest(key, identifier, member);
+					removeResolutions(baselineid);
+					return segmentFor(key).remove(key, identifier, member);
 				}
 				break;
 			}
 			case IApiElement.COMPONENT: {
-				flushMemberCache();
-				if (fRootCache != null && componentid != null) {
-					Cache compcache = (Cache) fRootCache.get(baselineid);
-					if (compcache != null) {
-						boolean removed = compcache.remove(componentid) != null;
-						if (compcache.isEmpty()) {
-							removed &= fRootCache.remove(baselineid) != null;
-						}
-						return removed;
-					}
+				if (componentid != null) {
+					return removeAll(baselineid, componentid);
 				}
 				break;
 			}
 			case IApiElement.BASELINE: {
-				flushMemberCache();
-				if (fRootCache != null) {
-					return fRootCache.remove(baselineid) != null;
-				}
-				break;
+				return removeAll(baselineid, null);
 			}
 			default:
 				break;
@@ -331,10 +471,33 @@ public final class ApiModelCache {
 		return false;
 	}
 
+	/**
+	 * Removes all of the types cached for the given baseline and component
+	 *
+	 * @param baselineid the baseline id
+	 * @param componentid the component id or <code>null</code> to remove all
+	 *            of the types of the baseline
+	 * @return true if any type was removed, false otherwise
+	 */
+	private boolean removeAll(String baselineid, String componentid) {
+		removeResolutions(baselineid);
+		for (Iterator<TypeKey> iter = fDigests.keySet().iterator(); iter.hasNext();) {
+			TypeKey key = iter.next();
+			if (key.baseline.equals(baselineid) && (componentid == null || key.component.equals(componentid))) {
+				iter.remove();
+			}
+		}
+		boolean removed = false;
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			removed |= fSegments[i].removeAll(baselineid, componentid);
+		}
+		return removed;
+	}
+
 	/**
 	 * Removes the given {@link IApiElement} info from the cache and returns it
 	 * if present
-	 * 
+	 *
 	 * @param element
 	 * @return true if the {@link IApiElement} was removed false otherwise
 	 * @throws CoreException if there is a problem accessing any of the
@@ -348,25 +511,19 @@ public final class ApiModelCache {
 		switch (element.getType()) {
 			case IApiElement.COMPONENT:
 			case IApiElement.TYPE: {
-				if (fRootCache != null) {
-					IApiComponent comp = element.getApiComponent();
-					if (comp != null) {
-						try {
-							IApiBaseline baseline = comp.getBaseline();
-							return removeElementInfo(baseline.getName(), comp.getSymbolicName(), element.getName(), element.getType());
-						} catch (CoreException ce) {
-						}
+				IApiComponent comp = element.getApiComponent();
+				if (comp != null) {
+					try {
+						IApiBaseline baseline = comp.getBaseline();
+						return removeElementInfo(baseline.getName(), comp.getSymbolicName(), element.getName(), element.getType());
+					} catch (CoreException ce) {
 					}
 				}
 				break;
 			}
 			case IApiElement.BASELINE: {
-				flushMemberCache();
-				if (fRootCache != null) {
-					IApiBaseline baseline = (IApiBaseline) element;
-					return fRootCache.remove(baseline.getName()) != null;
-				}
-				break;
+				IApiBaseline baseline = (IApiBaseline) element;
+				return removeAll(baseline.getName(), null);
 			}
 			default:
 				break;
@@ -378,34 +535,246 @@ public final class ApiModelCache {
 	 * Clears out all cached information.
 	 */
 	public void flushCaches() {
-		if (fRootCache != null) {
-			fRootCache.flush();
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			fSegments[i].clear();
+		}
+		fDigests.clear();
+		synchronized (fResolutions) {
+			fResolutions.clear();
+			fResolutionWeight = 0;
+		}
+	}
+
+	/**
+	 * Returns the cached resolution of the reference with the given key
+	 *
+	 * @param baselineid the id of the baseline the reference is resolved in
+	 * @param key the key of the reference, it must identify the component the
+	 *            reference is made from as well as the referenced member
+	 * @return the resolved {@link IApiMember}, {@link #UNRESOLVED} if the
+	 *         reference does not resolve or <code>null</code> if the
+	 *         resolution is not cached
+	 * @since 1.0.700
+	 */
+	public Object getResolution(String baselineid, String key) {
+		if (baselineid == null || key == null) {
+			return null;
+		}
+		Resolutions resolutions = fResolutions.get(baselineid);
+		if (resolutions == null) {
+			return null;
+		}
+		Object resolution = resolutions.map.get(key);
+		if (resolution instanceof SoftReference<?>) {
+			// null if the member was collected, resolve it again
+			return ((SoftReference<?>) resolution).get();
+		}
+		return resolution;
+	}
+
+	/**
+	 * Caches the resolution of the reference with the given key
+	 *
+	 * @param baselineid the id of the baseline the reference is resolved in
+	 * @param key the key of the reference
+	 * @param member the resolved member or <code>null</code> if the reference
+	 *            does not resolve
+	 * @since 1.0.700
+	 */
+	public void cacheResolution(String baselineid, String key, IApiMember member) {
+		if (baselineid == null || key == null) {
+			return;
+		}
+		Object resolution = member == null ? UNRESOLVED : new SoftReference<IApiMember>(member);
+		synchronized (fResolutions) {
+			Resolutions resolutions = fResolutions.get(baselineid);
+			if (resolutions == null) {
+				resolutions = new Resolutions();
+				fResolutions.put(baselineid, resolutions);
+			}
+			if (resolutions.map.put(key, resolution) != null) {
+				return;
+			}
+			long weight = RESOLUTION_OVERHEAD + 2L * key.length();
+			resolutions.weight += weight;
+			fResolutionWeight += weight;
+			long max = fMaxWeight / RESOLUTION_SHARE;
+			if (fResolutionWeight > max) {
+				// drop the resolutions of the other baselines first
+				for (Iterator<Map.Entry<String, Resolutions>> iter = fResolutions.entrySet().iterator(); iter.hasNext() && fResolutionWeight > max;) {
+					Map.Entry<String, Resolutions> entry = iter.next();
+					if (!entry.getKey().equals(baselineid)) {
+						fResolutionWeight -= entry.getValue().weight;
+						iter.remove();
+					}
+				}
+				if (fResolutionWeight > max) {
+					// the resolutions of this baseline alone exceed the share,
+					// start over with the new one
+					fResolutionWeight -= resolutions.weight;
+					resolutions.map.clear();
+					resolutions.map.put(key, resolution);
+					resolutions.weight = weight;
+					fResolutionWeight += weight;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes all of the resolutions cached for the given baseline
+	 *
+	 * @param baselineid the baseline id
+	 */
+	private void removeResolutions(String baselineid) {
+		synchronized (fResolutions) {
+			Resolutions resolutions = fResolutions.remove(baselineid);
+			if (resolutions != null) {
+				fResolutionWeight -= resolutions.weight;
+			}
+		}
+	}
+
+	/**
+	 * Returns the cached content digest of the type with the given name
+	 *
+	 * @param baselineid the id of the baseline the component belongs to
+	 * @param componentid the id of the component the type resides in
+	 * @param typename the fully qualified name of the type
+	 * @return the cached digest or <code>null</code> if none
+	 * @since 1.0.700
+	 */
+	public byte[] getContentDigest(String baselineid, String componentid, String typename) {
+		if (baselineid == null || componentid == null || typename == null) {
+			return null;
+		}
+		Map<String, byte[]> digests = fDigests.get(new TypeKey(baselineid, componentid, getRootName(typename)));
+		if (digests == null) {
+			return null;
 		}
-		flushMemberCache();
+		return digests.get(typename);
 	}
 
 	/**
-	 * Flushes the cache of member types
+	 * Caches the content digest of the type with the given name. The digest
+	 * is removed with the type.
+	 *
+	 * @param baselineid the id of the baseline the component belongs to
+	 * @param componentid the id of the component the type resides in
+	 * @param typename the fully qualified name of the type
+	 * @param digest the digest of the contents of the type
+	 * @since 1.0.700
 	 */
-	private void flushMemberCache() {
-		if (this.fMemberTypeCache != null) {
-			this.fMemberTypeCache.flush();
+	public void cacheContentDigest(String baselineid, String componentid, String typename, byte[] digest) {
+		if (baselineid == null || componentid == null || typename == null || digest == null) {
+			return;
+		}
+		TypeKey key = new TypeKey(baselineid, componentid, getRootName(typename));
+		ConcurrentHashMap<String, byte[]> digests = fDigests.get(key);
+		if (digests == null) {
+			digests = new ConcurrentHashMap<String, byte[]>(4);
+			ConcurrentHashMap<String, byte[]> existing = fDigests.putIfAbsent(key, digests);
+			if (existing != null) {
+				digests = existing;
+			}
+		}
+		digests.put(typename, digest);
+	}
+
+	/**
+	 * Removes the digest of the given type, or the digests of a root type and
+	 * all of its member types
+	 *
+	 * @param key the key of the root type
+	 * @param typename the name of the removed type
+	 * @param member if the removed type is a member type
+	 */
+	private void removeContentDigest(TypeKey key, String typename, boolean member) {
+		if (member) {
+			Map<String, byte[]> digests = fDigests.get(key);
+			if (digests != null) {
+				digests.remove(typename);
+			}
+		} else {
+			fDigests.remove(key);
 		}
 	}
 
 	/**
 	 * Returns if the cache has any elements in it or not
-	 * 
+	 *
 	 * @return true if the cache has no entries, false otherwise
 	 */
 	public boolean isEmpty() {
-		boolean empty = true;
-		if (fRootCache != null) {
-			empty &= fRootCache.isEmpty();
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			if (!fSegments[i].isEmpty()) {
+				return false;
+			}
 		}
-		if (this.fMemberTypeCache != null) {
-			empty &= this.fMemberTypeCache.isEmpty();
+		return true;
+	}
+
+	/**
+	 * Sets the maximum estimated footprint of the cached types and
+	 * resolutions, in bytes. The cache shrinks to the new size as types and
+	 * resolutions are added.
+	 *
+	 * @param maxWeight the new maximum weight, must be positive
+	 */
+	public void setMaxWeight(long maxWeight) {
+		if (maxWeight > 0) {
+			fMaxWeight = maxWeight;
 		}
-		return empty;
+	}
+
+	/**
+	 * @return the maximum estimated footprint of the cached types and
+	 *         resolutions, in bytes
+	 */
+	public long getMaxWeight() {
+		return fMaxWeight;
+	}
+
+	/**
+	 * @return the current estimated footprint of the cached types and
+	 *         resolutions, in bytes
+	 */
+	public long getWeight() {
+		long weight = fResolutionWeight;
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			weight += fSegments[i].getWeight();
+		}
+		return weight;
+	}
+
+	/**
+	 * @return the number of type lookups answered from the cache
+	 */
+	public long getHitCount() {
+		return fHits.get();
+	}
+
+	/**
+	 * @return the number of type lookups not answered from the cache
+	 */
+	public long getMissCount() {
+		return fMisses.get();
+	}
+
+	/**
+	 * @return the number of root types (with their member types) evicted to
+	 *         keep the cache under its maximum weight
+	 */
+	public long getEvictionCount() {
+		return fEvictions.get();
+	}
+
+	/**
+	 * Resets the hit, miss and eviction counters
+	 */
+	public void resetStatistics() {
+		fHits.set(0);
+		fMisses.set(0);
+		fEvictions.set(0);
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,6 +17,7 @@ import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -24,6 +25,7 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.pde.api.tools.internal.builder.Reference;
 import org.eclipse.pde.api.tools.internal.builder.ReferenceExtractor;
+import org.eclipse.pde.api.tools.internal.builder.ReferencePool;
 import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
 import org.eclipse.pde.api.tools.internal.provisional.builder.IReference;
 import org.eclipse.pde.api.tools.internal.provisional.descriptors.IMemberDescriptor;
@@ -162,10 +164,24 @@ public class ApiType extends ApiMember implements IApiType {
 	@Override
 	public List<IReference> extractReferences(int referenceMask, IProgressMonitor monitor) throws CoreException {
 		HashSet<Reference> references = new HashSet<Reference>();
-		ReferenceExtractor extractor = new ReferenceExtractor(this, references, referenceMask);
+		extractReferences(referenceMask, references, null);
+		return new LinkedList<IReference>(references);
+	}
+
+	/**
+	 * Extracts the references from this type into the given collector
+	 * 
+	 * @param referenceMask kinds of references to extract as defined by
+	 *            {@link IReference}
+	 * @param collector the set to add the references to
+	 * @param pool the pool to create the references from or <code>null</code>
+	 * @throws CoreException if the class file cannot be read
+	 * @since 1.0.700
+	 */
+	public void extractReferences(int referenceMask, Set<Reference> collector, ReferencePool pool) throws CoreException {
+		ReferenceExtractor extractor = new ReferenceExtractor(this, collector, referenceMask, pool);
 		ClassReader reader = new ClassReader(((AbstractApiTypeRoot) fStorage).getContents());
 		reader.accept(extractor, ClassReader.SKIP_FRAMES);
-		return new LinkedList<IReference>(references);
 	}
 
 	/*
@@ -649,6 +665,75 @@ public class ApiType extends ApiMember implements IApiType {
 		return members;
 	}
 
+	/**
+	 * Returns a rough estimate of the heap used by this type structure, in
+	 * bytes. Only used to weigh the type in the {@link ApiModelCache}.
+	 *
+	 * @return the estimated footprint of this type
+	 */
+	int getFootprint() {
+		int footprint = 256;
+		if (fMethods != null) {
+			footprint += fMethods.size() * 192;
+		}
+		if (fFields != null) {
+			footprint += fFields.size() * 128;
+		}
+		if (fMemberTypes != null) {
+			footprint += fMemberTypes.size() * 64;
+		}
+		if (fSuperInterfaceNames != null) {
+			footprint += fSuperInterfaceNames.length * 64;
+		}
+		return footprint;
+	}
+
+	/**
+	 * @return the name of the enclosing type as given when this type was
+	 *         created, or <code>null</code>. Used by the
+	 *         {@link TypeStructureCache}.
+	 */
+	String getEnclosingTypeName() {
+		return fEnclosingTypeName;
+	}
+
+	/**
+	 * @return the simple name set while building this type, or
+	 *         <code>null</code>. Used by the {@link TypeStructureCache}.
+	 */
+	String getDeclaredSimpleName() {
+		return fSimpleName;
+	}
+
+	/**
+	 * @return the name of the enclosing method as set while building this type,
+	 *         or <code>null</code> if not known yet. Used by the
+	 *         {@link TypeStructureCache}.
+	 */
+	String getEnclosingMethodName() {
+		return fEnclosingMethodName;
+	}
+
+	/**
+	 * @return the signature of the enclosing method as set while building this
+	 *         type, or <code>null</code> if not known yet. Used by the
+	 *         {@link TypeStructureCache}.
+	 */
+	String getEnclosingMethodSignature() {
+		return fEnclosingMethodSignature;
+	}
+
+	/**
+	 * @return the simple names of the member types of this type, never
+	 *         <code>null</code>. Used by the {@link TypeStructureCache}.
+	 */
+	String[] getMemberTypeNames() {
+		if (fMemberTypes == null) {
+			return new String[0];
+		}
+		return fMemberTypes.keySet().toArray(new String[fMemberTypes.size()]);
+	}
+
 	/**
 	 * @see java.lang.Object#toString()
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2013 IBM Corporation and others.
+ * Copyright (c) 2007, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,14 +10,11 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.internal.model;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -25,9 +22,13 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.pde.api.tools.internal.builder.ApiAnalysisMetrics;
 import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
 import org.eclipse.pde.api.tools.internal.provisional.model.ApiTypeContainerVisitor;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiElement;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiType;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeContainer;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeRoot;
 import org.eclipse.pde.api.tools.internal.util.Util;
@@ -106,45 +107,19 @@ public class ArchiveApiTypeContainer extends ApiElement implements IApiTypeConta
 		@Override
 		public byte[] getContents() throws CoreException {
 			ArchiveApiTypeContainer archive = (ArchiveApiTypeContainer) getParent();
-			ZipFile zipFile;
-			try {
-				zipFile = new ZipFile(archive.fLocation);
-			} catch (IOException e) {
-				abort("Failed to open archive: " + archive.fLocation, e); //$NON-NLS-1$
-				return null;
-			}
-			try {
-				ZipEntry entry = zipFile.getEntry(getName());
-				InputStream stream = null;
-				if (entry != null) {
-					try {
-						stream = zipFile.getInputStream(entry);
-					} catch (IOException e) {
-						abort("Failed to open class file: " + getTypeName() + " in archive: " + archive.fLocation, e); //$NON-NLS-1$ //$NON-NLS-2$
-						return null;
-					}
-					try {
-						return Util.getInputStreamAsByteArray(stream, -1);
-					} catch (IOException ioe) {
-						abort("Unable to read class file: " + getTypeName(), ioe); //$NON-NLS-1$
-						return null;
-					} finally {
-						try {
-							stream.close();
-						} catch (IOException e) {
-							ApiPlugin.log(e);
-						}
-					}
-				}
-			} finally {
-				try {
-					zipFile.close();
-				} catch (IOException e) {
-					abort("Failed to close class file archive", e); //$NON-NLS-1$
-				}
-			}
-			abort("Class file not found: " + getTypeName() + " in archive: " + archive.fLocation, null); //$NON-NLS-1$ //$NON-NLS-2$
-			return null;
+			return archive.getContents(getName(), getTypeName());
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see
+		 * org.eclipse.pde.api.tools.internal.model.AbstractApiTypeRoot#buildStructure
+		 * ()
+		 */
+		@Override
+		protected IApiType buildStructure() throws CoreException {
+			ArchiveApiTypeContainer archive = (ArchiveApiTypeContainer) getParent();
+			return archive.buildStructure(this);
 		}
 
 		/*
@@ -163,15 +138,23 @@ public class ArchiveApiTypeContainer extends ApiElement implements IApiTypeConta
 	String fLocation;
 
 	/**
-	 * Cache of package names to class file paths in that package, or
-	 * <code>null</code> if not yet initialized.
+	 * The index, packages and mapping of the archive, shared with the other
+	 * containers on the same archive, or <code>null</code> if not yet
+	 * initialized or closed.
+	 */
+	private SharedArchive fArchive;
+
+	/**
+	 * On-disk cache of the type structures of the archive, or <code>null</code>
+	 * if not opened yet or if the baseline does not cache type structures.
 	 */
-	private Map<String, Set<String>> fPackages;
+	private TypeStructureCache fStructureCache;
 
 	/**
-	 * Cache of package names in this archive.
+	 * Whether opening the type structure cache has been attempted since the
+	 * archive was last closed.
 	 */
-	private String[] fPackageNames;
+	private boolean fStructureCacheOpened = false;
 
 	/**
 	 * Constructs an {@link IApiTypeContainer} container for the given jar or
@@ -191,12 +174,11 @@ public class ArchiveApiTypeContainer extends ApiElement implements IApiTypeConta
 	@Override
 	public void accept(ApiTypeContainerVisitor visitor) throws CoreException {
 		if (visitor.visit(this)) {
-			init();
-			List<String> packages = new ArrayList<String>(fPackages.keySet());
-			Collections.sort(packages);
-			for (String pkg : packages) {
+			Map<String, Set<String>> packages = init().getPackages();
+			String[] names = getPackageNames();
+			for (String pkg : names) {
 				if (visitor.visitPackage(pkg)) {
-					List<String> types = new ArrayList<String>(fPackages.get(pkg));
+					List<String> types = new ArrayList<String>(packages.get(pkg));
 					List<ArchiveApiTypeRoot> classFiles = new ArrayList<ArchiveApiTypeRoot>(types.size());
 					for (String entryName : types) {
 						classFiles.add(new ArchiveApiTypeRoot(this, entryName));
@@ -228,6 +210,130 @@ public class ArchiveApiTypeContainer extends ApiElement implements IApiTypeConta
 	 */
 	@Override
 	public synchronized void close() throws CoreException {
+		if (fStructureCache != null) {
+			if (fArchive != null) {
+				fStructureCache.save(fArchive.getIndex());
+			}
+			fStructureCache = null;
+		}
+		fStructureCacheOpened = false;
+		if (fArchive != null) {
+			fArchive.release();
+			fArchive = null;
+		}
+	}
+
+	/**
+	 * Returns the type structure cache of the archive, opening it if required.
+	 * Type structures are only cached for archives of an {@link ApiBaseline}
+	 * that caches type structures.
+	 *
+	 * @return the type structure cache or <code>null</code>
+	 */
+	private synchronized TypeStructureCache getStructureCache() {
+		if (!fStructureCacheOpened) {
+			fStructureCacheOpened = true;
+			IApiComponent component = (IApiComponent) getAncestor(IApiElement.COMPONENT);
+			try {
+				IApiBaseline baseline = component == null ? null : component.getBaseline();
+				if (baseline instanceof ApiBaseline && ((ApiBaseline) baseline).isCachingTypeStructures()) {
+					fStructureCache = TypeStructureCache.open(new File(fLocation));
+				}
+			} catch (CoreException e) {
+				// no baseline, nothing to cache the structures for
+			}
+		}
+		return fStructureCache;
+	}
+
+	/**
+	 * Builds the structure of the given type root, using the type structure
+	 * cache when the class file did not change since it was cached.
+	 *
+	 * @param root the type root
+	 * @return the type structure or <code>null</code> if the class file is
+	 *         invalid
+	 * @throws CoreException if the class file cannot be read
+	 */
+	IApiType buildStructure(ArchiveApiTypeRoot root) throws CoreException {
+		SharedArchive archive = init();
+		TypeStructureCache cache = getStructureCache();
+		ArchiveIndex.Entry entry = cache == null ? null : archive.getIndex().getEntry(root.getName());
+		if (entry != null) {
+			IApiType type = cache.getType(entry, root.getApiComponent(), root);
+			ApiAnalysisMetrics.cacheLookup(ApiAnalysisMetrics.CACHE_TYPE_STRUCTURES, type != null);
+			if (type != null) {
+				return type;
+			}
+		}
+		IApiType type = TypeStructureBuilder.buildTypeStructure(getContents(root.getName(), root.getTypeName()), root.getApiComponent(), root);
+		if (entry != null && type instanceof ApiType) {
+			cache.putType(entry, (ApiType) type);
+		}
+		return type;
+	}
+
+	/**
+	 * Returns the contents of the given class file entry. Entries are read from
+	 * the mapped archive when possible and through {@link ZipFile} otherwise.
+	 *
+	 * @param entryName the name of the class file entry
+	 * @param typeName the name of the type, for error reporting
+	 * @return the contents of the entry
+	 * @throws CoreException if the entry cannot be read
+	 */
+	byte[] getContents(String entryName, String typeName) throws CoreException {
+		SharedArchive archive = init();
+		ArchiveIndex.Entry entry = archive.getIndex().getEntry(entryName);
+		if (entry != null && entry.isMapped()) {
+			try {
+				byte[] contents = archive.read(entry);
+				if (contents != null) {
+					return contents;
+				}
+			} catch (IOException e) {
+				// the archive may have changed underneath, try the slow path
+			}
+		}
+		ZipFile zipFile;
+		try {
+			zipFile = new ZipFile(fLocation);
+		} catch (IOException e) {
+			abort("Failed to open archive: " + fLocation, e); //$NON-NLS-1$
+			return null;
+		}
+		try {
+			ZipEntry zipEntry = zipFile.getEntry(entryName);
+			InputStream stream = null;
+			if (zipEntry != null) {
+				try {
+					stream = zipFile.getInputStream(zipEntry);
+				} catch (IOException e) {
+					abort("Failed to open class file: " + typeName + " in archive: " + fLocation, e); //$NON-NLS-1$ //$NON-NLS-2$
+					return null;
+				}
+				try {
+					return Util.getInputStreamAsByteArray(stream, -1);
+				} catch (IOException ioe) {
+					abort("Unable to read class file: " + typeName, ioe); //$NON-NLS-1$
+					return null;
+				} finally {
+					try {
+						stream.close();
+					} catch (IOException e) {
+						ApiPlugin.log(e);
+					}
+				}
+			}
+		} finally {
+			try {
+				zipFile.close();
+			} catch (IOException e) {
+				abort("Failed to close class file archive", e); //$NON-NLS-1$
+			}
+		}
+		abort("Class file not found: " + typeName + " in archive: " + fLocation, null); //$NON-NLS-1$ //$NON-NLS-2$
+		return null;
 	}
 
 	/**
@@ -235,13 +341,13 @@ public class ArchiveApiTypeContainer extends ApiElement implements IApiTypeConta
 	 */
 	@Override
 	public IApiTypeRoot findTypeRoot(String qualifiedName) throws CoreException {
-		init();
+		SharedArchive archive = init();
 		int index = qualifiedName.lastIndexOf('.');
 		String packageName = Util.DEFAULT_PACKAGE_NAME;
 		if (index >= 0) {
 			packageName = qualifiedName.substring(0, index);
 		}
-		Set<String> classFileNames = fPackages.get(packageName);
+		Set<String> classFileNames = archive.getPackages().get(packageName);
 		if (classFileNames != null) {
 			String fileName = qualifiedName.replace('.', '/') + Util.DOT_CLASS_SUFFIX;
 			if (classFileNames.contains(fileName)) {
@@ -256,61 +362,26 @@ public class ArchiveApiTypeContainer extends ApiElement implements IApiTypeConta
 	 */
 	@Override
 	public String[] getPackageNames() throws CoreException {
-		init();
-		synchronized (this) {
-			if (fPackageNames == null) {
-				Set<String> names = fPackages.keySet();
-				String[] result = new String[names.size()];
-				names.toArray(result);
-				Arrays.sort(result);
-				fPackageNames = result;
-			}
-			return fPackageNames;
-		}
+		return init().getPackageNames();
 	}
 
 	/**
-	 * Initializes cache of packages and types.
+	 * Initializes the cache of packages and types, acquiring the archive
+	 * shared with the other containers on the same archive. The archive is
+	 * acquired again if the container is used after it was closed.
 	 * 
-	 * @throws CoreException
+	 * @return the shared archive
+	 * @throws CoreException if the archive cannot be opened
 	 */
-	private synchronized void init() throws CoreException {
-		if (fPackages == null) {
-			fPackages = new HashMap<String, Set<String>>();
-			ZipFile zipFile;
+	private synchronized SharedArchive init() throws CoreException {
+		if (fArchive == null) {
 			try {
-				zipFile = new ZipFile(fLocation);
+				fArchive = SharedArchive.acquire(new File(fLocation));
 			} catch (IOException e) {
 				abort("Failed to open archive: " + fLocation, e); //$NON-NLS-1$
-				return;
-			}
-			try {
-				Enumeration<? extends ZipEntry> entries = zipFile.entries();
-				while (entries.hasMoreElements()) {
-					ZipEntry entry = entries.nextElement();
-					String name = entry.getName();
-					if (name.endsWith(Util.DOT_CLASS_SUFFIX)) {
-						String pkg = Util.DEFAULT_PACKAGE_NAME;
-						int index = name.lastIndexOf('/');
-						if (index >= 0) {
-							pkg = name.substring(0, index).replace('/', '.');
-						}
-						Set<String> fileNames = fPackages.get(pkg);
-						if (fileNames == null) {
-							fileNames = new HashSet<String>();
-							fPackages.put(pkg, fileNames);
-						}
-						fileNames.add(name);
-					}
-				}
-			} finally {
-				try {
-					zipFile.close();
-				} catch (IOException e) {
-					abort("Failed to close class file archive", e); //$NON-NLS-1$
-				}
 			}
 		}
+		return fArchive;
 	}
 
 	/*
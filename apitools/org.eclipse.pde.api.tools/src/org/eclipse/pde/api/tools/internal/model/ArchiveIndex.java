@@ -0,0 +1,506 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
+import org.eclipse.pde.api.tools.internal.util.Util;
+
+/**
+ * Index of the class file entries of an archive.
+ * <p>
+ * The index is built from the central directory of the archive and records,
+ * for each class file, where its data starts in the archive and how it is
+ * compressed. This allows class files to be read straight from a memory
+ * mapped archive without opening a {@link ZipFile}.
+ * </p>
+ * <p>
+ * Indexes are persisted in the API tools state location (or in the directory
+ * given by the {@value #INDEX_LOCATION_PROPERTY} system property when running
+ * headless) keyed by the archive path, and are only reused if the size and
+ * time stamp of the archive did not change. Archives that cannot be parsed
+ * (ZIP64, encrypted entries...) are indexed through {@link ZipFile} without
+ * entry offsets, and their class files are read through {@link ZipFile}.
+ * </p>
+ *
+ * @since 1.0.700
+ */
+public final class ArchiveIndex {
+
+	/**
+	 * A class file entry of the archive
+	 */
+	public static final class Entry {
+		final String name;
+		final int method;
+		final long offset;
+		final long compressedSize;
+		final long size;
+		final long crc;
+
+		Entry(String name, int method, long offset, long compressedSize, long size, long crc) {
+			this.name = name;
+			this.method = method;
+			this.offset = offset;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.crc = crc;
+		}
+
+		/**
+		 * @return the name of the entry in the archive
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * @return the uncompressed size of the entry
+		 */
+		public long getSize() {
+			return this.size;
+		}
+
+		/**
+		 * @return the CRC-32 of the uncompressed contents of the entry
+		 */
+		public long getCrc() {
+			return this.crc;
+		}
+
+		/**
+		 * @return <code>true</code> if the entry can be read from a mapped
+		 *         buffer of the archive
+		 */
+		public boolean isMapped() {
+			return this.offset >= 0 && (this.method == ZipEntry.STORED || this.method == ZipEntry.DEFLATED);
+		}
+	}
+
+	/**
+	 * Name of the system property that can be used to give the directory in
+	 * which indexes are persisted when the platform is not running
+	 */
+	public static final String INDEX_LOCATION_PROPERTY = "org.eclipse.pde.api.tools.archiveIndexLocation"; //$NON-NLS-1$
+
+	private static final int INDEX_MAGIC = 0x41504958;
+	private static final int INDEX_VERSION = 2;
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_HEADER_SIGNATURE = 0x06054b50;
+	private static final int END_HEADER_SIZE = 22;
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+
+	private final Entry[] fEntries;
+	private Map<String, Entry> fEntryMap = null;
+
+	private ArchiveIndex(Entry[] entries) {
+		this.fEntries = entries;
+	}
+
+	/**
+	 * @return the class file entries of the archive
+	 */
+	public Entry[] getEntries() {
+		return this.fEntries;
+	}
+
+	/**
+	 * Returns the class file entry with the given name or <code>null</code>
+	 *
+	 * @param name the entry name
+	 * @return the entry or <code>null</code>
+	 */
+	public synchronized Entry getEntry(String name) {
+		if (fEntryMap == null) {
+			fEntryMap = new HashMap<String, Entry>(fEntries.length * 4 / 3 + 1);
+			for (int i = 0; i < fEntries.length; i++) {
+				fEntryMap.put(fEntries[i].name, fEntries[i]);
+			}
+		}
+		return fEntryMap.get(name);
+	}
+
+	/**
+	 * Returns the index of the given archive, reading it from the persisted
+	 * index when it is still valid, or building (and persisting) it otherwise.
+	 *
+	 * @param archive the archive
+	 * @return the index of the archive
+	 * @throws IOException if the archive cannot be read
+	 */
+	public static ArchiveIndex getIndex(File archive) throws IOException {
+		File indexFile = getIndexFile(archive);
+		if (indexFile != null && indexFile.exists()) {
+			try {
+				ArchiveIndex index = readIndex(indexFile, archive);
+				if (index != null) {
+					return index;
+				}
+			} catch (IOException e) {
+				// corrupted index, rebuild it
+			}
+		}
+		ArchiveIndex index = null;
+		try {
+			index = buildIndex(archive);
+		} catch (IOException e) {
+			// not something we can parse, let ZipFile deal with it
+			index = buildZipFileIndex(archive);
+		} catch (InternalError e) {
+			// the archive was truncated while it was mapped
+			index = buildZipFileIndex(archive);
+		}
+		if (indexFile != null) {
+			try {
+				writeIndex(indexFile, archive, index);
+			} catch (IOException e) {
+				ApiPlugin.log(e);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the file the index of the given archive is persisted in or
+	 * <code>null</code> if indexes are not persisted
+	 *
+	 * @param archive
+	 * @return the index file or <code>null</code>
+	 */
+	private static File getIndexFile(File archive) {
+		return getIndexFile(archive, ".index"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the file the given kind of index of the given archive is
+	 * persisted in or <code>null</code> if indexes are not persisted
+	 *
+	 * @param archive
+	 * @param extension the extension of the index file
+	 * @return the index file or <code>null</code>
+	 */
+	static File getIndexFile(File archive, String extension) {
+		File dir = null;
+		String location = System.getProperty(INDEX_LOCATION_PROPERTY);
+		if (location != null) {
+			dir = new File(location);
+		} else if (Platform.isRunning() && ApiPlugin.getDefault() != null) {
+			dir = ApiPlugin.getDefault().getStateLocation().append(".archive_indexes").toFile(); //$NON-NLS-1$
+		}
+		if (dir == null) {
+			return null;
+		}
+		if (!dir.exists() && !dir.mkdirs()) {
+			return null;
+		}
+		String path = archive.getAbsolutePath();
+		return new File(dir, archive.getName() + '_' + Integer.toHexString(path.hashCode()) + extension);
+	}
+
+	/**
+	 * Reads a persisted index. Returns <code>null</code> if the index is not
+	 * for the given archive or the archive changed since it was written.
+	 *
+	 * @param indexFile
+	 * @param archive
+	 * @return the index or <code>null</code>
+	 * @throws IOException
+	 */
+	private static ArchiveIndex readIndex(File indexFile, File archive) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+		try {
+			if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+				return null;
+			}
+			if (!archive.getAbsolutePath().equals(in.readUTF()) || archive.length() != in.readLong() || archive.lastModified() != in.readLong()) {
+				return null;
+			}
+			int count = in.readInt();
+			Entry[] entries = new Entry[count];
+			for (int i = 0; i < count; i++) {
+				entries[i] = new Entry(in.readUTF(), in.readShort(), in.readLong(), in.readLong(), in.readLong(), in.readInt() & 0xFFFFFFFFL);
+			}
+			return new ArchiveIndex(entries);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Persists the given index. The index is written to a temporary file first
+	 * so concurrent readers never see a partial index.
+	 *
+	 * @param indexFile
+	 * @param archive
+	 * @param index
+	 * @throws IOException
+	 */
+	private static void writeIndex(File indexFile, File archive, ArchiveIndex index) throws IOException {
+		File tmp = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp"); //$NON-NLS-1$
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			out.writeInt(INDEX_MAGIC);
+			out.writeInt(INDEX_VERSION);
+			out.writeUTF(archive.getAbsolutePath());
+			out.writeLong(archive.length());
+			out.writeLong(archive.lastModified());
+			Entry[] entries = index.fEntries;
+			out.writeInt(entries.length);
+			for (int i = 0; i < entries.length; i++) {
+				Entry entry = entries[i];
+				out.writeUTF(entry.name);
+				out.writeShort(entry.method);
+				out.writeLong(entry.offset);
+				out.writeLong(entry.compressedSize);
+				out.writeLong(entry.size);
+				out.writeInt((int) entry.crc);
+			}
+		} finally {
+			out.close();
+		}
+		if (indexFile.exists() && !indexFile.delete()) {
+			tmp.delete();
+			return;
+		}
+		if (!tmp.renameTo(indexFile)) {
+			tmp.delete();
+		}
+	}
+
+	/**
+	 * Builds the index from the central directory of the archive
+	 *
+	 * @param archive
+	 * @return the index
+	 * @throws IOException if the archive cannot be parsed
+	 */
+	static ArchiveIndex buildIndex(File archive) throws IOException {
+		ByteBuffer buffer = map(archive);
+		if (buffer == null) {
+			throw new IOException("Archive too large to be mapped: " + archive); //$NON-NLS-1$
+		}
+		try {
+			int limit = buffer.limit();
+			int end = -1;
+			for (int i = limit - END_HEADER_SIZE, min = Math.max(0, limit - END_HEADER_SIZE - 0xFFFF); i >= min; i--) {
+				if (buffer.getInt(i) == END_HEADER_SIGNATURE) {
+					end = i;
+					break;
+				}
+			}
+			if (end < 0) {
+				throw new IOException("No central directory found: " + archive); //$NON-NLS-1$
+			}
+			int count = buffer.getShort(end + 10) & 0xFFFF;
+			long cdOffset = buffer.getInt(end + 16) & 0xFFFFFFFFL;
+			if (count == 0xFFFF || cdOffset == 0xFFFFFFFFL || cdOffset >= limit) {
+				throw new IOException("ZIP64 archives are not indexed: " + archive); //$NON-NLS-1$
+			}
+			List<Entry> entries = new ArrayList<Entry>(count);
+			int pos = (int) cdOffset;
+			for (int i = 0; i < count; i++) {
+				if (pos + CENTRAL_HEADER_SIZE > limit || buffer.getInt(pos) != CENTRAL_HEADER_SIGNATURE) {
+					throw new IOException("Invalid central directory: " + archive); //$NON-NLS-1$
+				}
+				int flags = buffer.getShort(pos + 8) & 0xFFFF;
+				int method = buffer.getShort(pos + 10) & 0xFFFF;
+				long crc = buffer.getInt(pos + 16) & 0xFFFFFFFFL;
+				long compressedSize = buffer.getInt(pos + 20) & 0xFFFFFFFFL;
+				long size = buffer.getInt(pos + 24) & 0xFFFFFFFFL;
+				int nameLength = buffer.getShort(pos + 28) & 0xFFFF;
+				int extraLength = buffer.getShort(pos + 30) & 0xFFFF;
+				int commentLength = buffer.getShort(pos + 32) & 0xFFFF;
+				long offset = buffer.getInt(pos + 42) & 0xFFFFFFFFL;
+				String name = decodeName(buffer, pos + CENTRAL_HEADER_SIZE, nameLength);
+				if (name.endsWith(Util.DOT_CLASS_SUFFIX)) {
+					if ((flags & 1) != 0 || offset == 0xFFFFFFFFL || compressedSize == 0xFFFFFFFFL) {
+						// encrypted or ZIP64 entry, read it through ZipFile
+						offset = -1;
+					}
+					entries.add(new Entry(name, method, offset, compressedSize, size, crc));
+				}
+				pos += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+			}
+			return new ArchiveIndex(entries.toArray(new Entry[entries.size()]));
+		} finally {
+			unmap(buffer);
+		}
+	}
+
+	/**
+	 * Builds an index without entry offsets by enumerating the entries of the
+	 * archive with {@link ZipFile}
+	 *
+	 * @param archive
+	 * @return the index
+	 * @throws IOException if the archive cannot be opened
+	 */
+	private static ArchiveIndex buildZipFileIndex(File archive) throws IOException {
+		ZipFile zipFile = new ZipFile(archive);
+		try {
+			List<Entry> entries = new ArrayList<Entry>();
+			Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+			while (enumeration.hasMoreElements()) {
+				ZipEntry entry = enumeration.nextElement();
+				String name = entry.getName();
+				if (name.endsWith(Util.DOT_CLASS_SUFFIX)) {
+					entries.add(new Entry(name, entry.getMethod(), -1, entry.getCompressedSize(), entry.getSize(), entry.getCrc()));
+				}
+			}
+			return new ArchiveIndex(entries.toArray(new Entry[entries.size()]));
+		} finally {
+			zipFile.close();
+		}
+	}
+
+	private static String decodeName(ByteBuffer buffer, int pos, int length) throws UnsupportedEncodingException {
+		byte[] bytes = new byte[length];
+		ByteBuffer slice = buffer.duplicate();
+		slice.position(pos);
+		slice.get(bytes);
+		return new String(bytes, "UTF-8"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Maps the given archive read-only in memory. The returned buffer is little
+	 * endian, as are the ZIP headers.
+	 *
+	 * @param archive
+	 * @return the mapped archive or <code>null</code> if it is too large to be
+	 *         mapped
+	 * @throws IOException
+	 */
+	public static ByteBuffer map(File archive) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(archive, "r"); //$NON-NLS-1$
+		try {
+			FileChannel channel = file.getChannel();
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				return null;
+			}
+			// the mapping remains valid once the channel is closed
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Releases the mapping of a buffer returned by {@link #map(File)} without
+	 * waiting for the buffer to be garbage collected, so the file can be
+	 * replaced or deleted. The buffer, and any buffer duplicated from it, must
+	 * not be accessed afterwards. Does nothing if the VM does not support it.
+	 *
+	 * @param mapped the buffer returned by {@link #map(File)}
+	 */
+	public static void unmap(ByteBuffer mapped) {
+		if (mapped == null || !mapped.isDirect()) {
+			return;
+		}
+		try {
+			Method cleanerMethod = mapped.getClass().getMethod("cleaner"); //$NON-NLS-1$
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(mapped);
+			if (cleaner != null) {
+				Method cleanMethod = cleaner.getClass().getMethod("clean"); //$NON-NLS-1$
+				cleanMethod.setAccessible(true);
+				cleanMethod.invoke(cleaner);
+			}
+		} catch (Exception e) {
+			// not supported, the mapping is released once the buffer is
+			// garbage collected
+		}
+	}
+
+	/**
+	 * Reads the contents of the given entry from the mapped archive. Stored
+	 * entries are copied straight from the mapping, deflated entries are
+	 * inflated from it.
+	 *
+	 * @param mapped the archive mapped with {@link #map(File)}
+	 * @param entry an entry for which {@link Entry#isMapped()} is
+	 *            <code>true</code>
+	 * @return the contents of the entry
+	 * @throws IOException if the entry cannot be read
+	 */
+	public static byte[] read(ByteBuffer mapped, Entry entry) throws IOException {
+		int header = (int) entry.offset;
+		if (header + LOCAL_HEADER_SIZE > mapped.limit() || mapped.getInt(header) != LOCAL_HEADER_SIGNATURE) {
+			throw new IOException("Invalid local header for entry: " + entry.name); //$NON-NLS-1$
+		}
+		int nameLength = mapped.getShort(header + 26) & 0xFFFF;
+		int extraLength = mapped.getShort(header + 28) & 0xFFFF;
+		int start = header + LOCAL_HEADER_SIZE + nameLength + extraLength;
+		if (start + entry.compressedSize > mapped.limit()) {
+			throw new IOException("Truncated entry: " + entry.name); //$NON-NLS-1$
+		}
+		ByteBuffer data = mapped.duplicate();
+		data.position(start);
+		if (entry.method == ZipEntry.STORED) {
+			byte[] contents = new byte[(int) entry.size];
+			data.get(contents);
+			return contents;
+		}
+		// nowrap inflaters need an extra dummy byte
+		byte[] input = new byte[(int) entry.compressedSize + 1];
+		data.get(input, 0, (int) entry.compressedSize);
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(input);
+			byte[] contents = new byte[(int) entry.size];
+			int read = 0;
+			while (read < contents.length) {
+				int n = inflater.inflate(contents, read, contents.length - read);
+				if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				read += n;
+			}
+			if (read != contents.length) {
+				throw new IOException("Unexpected size for entry: " + entry.name); //$NON-NLS-1$
+			}
+			return contents;
+		} catch (DataFormatException e) {
+			IOException ioe = new IOException("Invalid compressed data for entry: " + entry.name); //$NON-NLS-1$
+			ioe.initCause(e);
+			throw ioe;
+		} finally {
+			inflater.end();
+		}
+	}
+}
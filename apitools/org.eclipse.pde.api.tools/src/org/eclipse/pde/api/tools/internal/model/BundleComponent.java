@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2013 IBM Corporation and others.
+ * Copyright (c) 2007, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -49,9 +49,9 @@ import org.eclipse.osgi.service.resolver.StateObjectFactory;
 import org.eclipse.osgi.util.ManifestElement;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.pde.api.tools.internal.ApiBaselineManager;
-import org.eclipse.pde.api.tools.internal.ApiDescription;
 import org.eclipse.pde.api.tools.internal.ApiDescriptionProcessor;
 import org.eclipse.pde.api.tools.internal.BundleVersionRange;
+import org.eclipse.pde.api.tools.internal.CompactApiDescription;
 import org.eclipse.pde.api.tools.internal.CompositeApiDescription;
 import org.eclipse.pde.api.tools.internal.FilterStore;
 import org.eclipse.pde.api.tools.internal.IApiCoreConstants;
@@ -413,7 +413,7 @@ public class BundleComponent extends Component {
 	 * @throws CoreException if unable to initialize
 	 */
 	protected IApiDescription createLocalApiDescription() throws CoreException {
-		IApiDescription apiDesc = new ApiDescription(getSymbolicName());
+		CompactApiDescription apiDesc = new CompactApiDescription(getSymbolicName());
 		// first mark all packages as internal
 		initializeApiDescription(apiDesc, getBundleDescription(), getLocalPackageNames());
 		try {
@@ -425,6 +425,7 @@ public class BundleComponent extends Component {
 		} catch (IOException e) {
 			abort("Unable to load .api_description file ", e); //$NON-NLS-1$
 		}
+		apiDesc.trimToSize();
 		return apiDesc;
 	}
 
@@ -689,6 +690,12 @@ public class BundleComponent extends Component {
 					if (entry.isFile()) {
 						return new ArchiveApiTypeContainer(this, entry.getCanonicalPath());
 					} else {
+						// class folders of a baseline extracted from a tar
+						// archive are read from the archive
+						IApiTypeContainer container = TarApiTypeContainer.getExtractedContainer(this, entry);
+						if (container != null) {
+							return container;
+						}
 						return new DirectoryApiTypeContainer(this, entry.getCanonicalPath());
 					}
 				}
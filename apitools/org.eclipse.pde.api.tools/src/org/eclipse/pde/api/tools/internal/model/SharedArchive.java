@@ -0,0 +1,294 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.pde.api.tools.internal.util.Util;
+
+/**
+ * The index, package table and memory mapping of an archive, shared by all
+ * the {@link ArchiveApiTypeContainer}s opened on the same archive in this
+ * process. Adding a baseline that contains the same system libraries or
+ * bundles as another one reuses the data of the archives already open instead
+ * of indexing and mapping them again.
+ * <p>
+ * Shared archives are reference counted: containers {@link #acquire(File)} the
+ * archive when they are first used and {@link #release()} it when they are
+ * closed. The archive is forgotten, and its mapping released, once the last
+ * container released it. Archives are keyed by their path, size and time
+ * stamp so an archive that changed on disk is never served from stale data.
+ * </p>
+ * <p>
+ * The table of shared archives only holds them weakly: an archive whose
+ * containers were garbage collected without being closed is forgotten as
+ * well.
+ * </p>
+ *
+ * @since 1.0.700
+ */
+final class SharedArchive {
+
+	/**
+	 * Weak reference to a shared archive that remembers the key of the archive
+	 */
+	private static final class ArchiveReference extends WeakReference<SharedArchive> {
+		final String key;
+
+		ArchiveReference(SharedArchive archive, ReferenceQueue<SharedArchive> queue) {
+			super(archive, queue);
+			this.key = archive.fKey;
+		}
+	}
+
+	/**
+	 * The shared archives currently in use, keyed by {@link #getKey(File)}
+	 */
+	private static Map<String, ArchiveReference> fArchives = new HashMap<String, ArchiveReference>();
+
+	/**
+	 * The references of the shared archives that were garbage collected
+	 */
+	private static ReferenceQueue<SharedArchive> fCollected = new ReferenceQueue<SharedArchive>();
+
+	private final String fKey;
+	private final File fFile;
+	private final ArchiveIndex fIndex;
+
+	/**
+	 * Package names to the names of the class file entries in that package
+	 */
+	private final Map<String, Set<String>> fPackages;
+
+	/**
+	 * The sorted package names
+	 */
+	private final String[] fPackageNames;
+
+	/**
+	 * The number of containers using this archive
+	 */
+	private int fReferences = 0;
+
+	/**
+	 * The archive mapped in memory, or <code>null</code> if not yet mapped or
+	 * too large to be mapped
+	 */
+	private ByteBuffer fMappedArchive = null;
+
+	/**
+	 * Whether mapping the archive has been attempted
+	 */
+	private boolean fMapped = false;
+
+	/**
+	 * The number of threads reading from {@link #fMappedArchive}
+	 */
+	private int fReaders = 0;
+
+	/**
+	 * A mapping that is no longer used but still read from, released by the
+	 * last of its readers
+	 */
+	private ByteBuffer fRetiredMapping = null;
+
+	private SharedArchive(String key, File file, ArchiveIndex index) {
+		this.fKey = key;
+		this.fFile = file;
+		this.fIndex = index;
+		this.fPackages = new HashMap<String, Set<String>>();
+		ArchiveIndex.Entry[] entries = index.getEntries();
+		for (int i = 0; i < entries.length; i++) {
+			String name = entries[i].getName();
+			String pkg = Util.DEFAULT_PACKAGE_NAME;
+			int idx = name.lastIndexOf('/');
+			if (idx >= 0) {
+				pkg = name.substring(0, idx).replace('/', '.');
+			}
+			Set<String> fileNames = fPackages.get(pkg);
+			if (fileNames == null) {
+				fileNames = new HashSet<String>();
+				fPackages.put(pkg, fileNames);
+			}
+			fileNames.add(name);
+		}
+		String[] names = fPackages.keySet().toArray(new String[fPackages.size()]);
+		Arrays.sort(names);
+		this.fPackageNames = names;
+	}
+
+	/**
+	 * Returns the key of the given archive
+	 *
+	 * @param archive
+	 * @return the key of the archive
+	 */
+	private static String getKey(File archive) {
+		return archive.getAbsolutePath() + '|' + archive.length() + '|' + archive.lastModified();
+	}
+
+	/**
+	 * Returns the shared archive for the given file, opening it if no other
+	 * container uses it. Each call must be balanced by a call to
+	 * {@link #release()}.
+	 *
+	 * @param archive the archive file
+	 * @return the shared archive
+	 * @throws IOException if the archive cannot be indexed
+	 */
+	static synchronized SharedArchive acquire(File archive) throws IOException {
+		purgeCollected();
+		String key = getKey(archive);
+		ArchiveReference reference = fArchives.get(key);
+		SharedArchive shared = reference == null ? null : reference.get();
+		if (shared == null) {
+			shared = new SharedArchive(key, archive, ArchiveIndex.getIndex(archive));
+			fArchives.put(key, new ArchiveReference(shared, fCollected));
+		}
+		shared.fReferences++;
+		return shared;
+	}
+
+	/**
+	 * Forgets the shared archives that were garbage collected without being
+	 * released. Must be called while holding the lock of this class.
+	 */
+	private static void purgeCollected() {
+		ArchiveReference reference = (ArchiveReference) fCollected.poll();
+		while (reference != null) {
+			if (fArchives.get(reference.key) == reference) {
+				fArchives.remove(reference.key);
+			}
+			reference = (ArchiveReference) fCollected.poll();
+		}
+	}
+
+	/**
+	 * Releases this archive. Once it is no longer used by any container it is
+	 * forgotten and its mapping is released, as soon as the entries being read
+	 * from it are read.
+	 */
+	void release() {
+		synchronized (SharedArchive.class) {
+			if (--fReferences > 0) {
+				return;
+			}
+			ArchiveReference reference = fArchives.get(fKey);
+			if (reference != null && reference.get() == this) {
+				fArchives.remove(fKey);
+			}
+		}
+		synchronized (this) {
+			retireMapping();
+		}
+	}
+
+	/**
+	 * Stops reading from the mapped archive, the mapping is released once the
+	 * threads reading from it are done. Must be called while holding the lock
+	 * of this archive.
+	 */
+	private void retireMapping() {
+		fMapped = true;
+		if (fMappedArchive != null) {
+			fRetiredMapping = fMappedArchive;
+			fMappedArchive = null;
+		}
+		retireIfUnused();
+	}
+
+	/**
+	 * @return the index of the class files of the archive
+	 */
+	ArchiveIndex getIndex() {
+		return fIndex;
+	}
+
+	/**
+	 * @return the package names to the class file entries in that package
+	 */
+	Map<String, Set<String>> getPackages() {
+		return fPackages;
+	}
+
+	/**
+	 * @return the sorted package names of the archive
+	 */
+	String[] getPackageNames() {
+		return fPackageNames;
+	}
+
+	/**
+	 * Reads the contents of the given entry from the archive mapped in memory,
+	 * mapping it if required. The archive is not mapped again once it has been
+	 * released. If the archive was truncated since it was mapped, the mapping
+	 * is released and <code>null</code> is returned for this and the following
+	 * entries.
+	 *
+	 * @param entry an entry for which {@link ArchiveIndex.Entry#isMapped()} is
+	 *            <code>true</code>
+	 * @return the contents of the entry or <code>null</code> if the archive
+	 *         cannot be mapped
+	 * @throws IOException if the entry cannot be read from the mapping
+	 */
+	byte[] read(ArchiveIndex.Entry entry) throws IOException {
+		ByteBuffer mapped = null;
+		synchronized (this) {
+			if (!fMapped) {
+				fMapped = true;
+				try {
+					fMappedArchive = ArchiveIndex.map(fFile);
+				} catch (IOException e) {
+					fMappedArchive = null;
+				}
+			}
+			mapped = fMappedArchive;
+			if (mapped == null) {
+				return null;
+			}
+			fReaders++;
+		}
+		try {
+			return ArchiveIndex.read(mapped, entry);
+		} catch (InternalError e) {
+			// the VM reports a fault accessing a truncated mapping this way
+			synchronized (this) {
+				retireMapping();
+			}
+			return null;
+		} finally {
+			synchronized (this) {
+				fReaders--;
+				retireIfUnused();
+			}
+		}
+	}
+
+	/**
+	 * Releases the retired mapping if nobody reads from it anymore. Must be
+	 * called while holding the lock of this archive.
+	 */
+	private void retireIfUnused() {
+		if (fReaders == 0 && fRetiredMapping != null) {
+			ArchiveIndex.unmap(fRetiredMapping);
+			fRetiredMapping = null;
+		}
+	}
+}
@@ -43,7 +43,7 @@ public class StubApiComponent extends SystemLibraryApiComponent {
 	private static final String STUB_PATH = "/org/eclipse/pde/api/tools/internal/api_stubs/"; //$NON-NLS-1$
 	private static Map<String, IApiComponent> AllSystemLibraryApiComponents;
 
-	public static IApiComponent getStubApiComponent(int eeValue) {
+	public static synchronized IApiComponent getStubApiComponent(int eeValue) {
 		if (AllSystemLibraryApiComponents == null) {
 			AllSystemLibraryApiComponents = new HashMap<String, IApiComponent>();
 		}
@@ -206,7 +206,7 @@ public class StubApiComponent extends SystemLibraryApiComponent {
 		return false;
 	}
 
-	public static void disposeAllCaches() {
+	public static synchronized void disposeAllCaches() {
 		if (AllSystemLibraryApiComponents != null) {
 			for (IApiComponent apiComponent : AllSystemLibraryApiComponents.values()) {
 				apiComponent.dispose();
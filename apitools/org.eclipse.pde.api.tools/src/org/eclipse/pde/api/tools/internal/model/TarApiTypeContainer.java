@@ -0,0 +1,602 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.pde.api.tools.internal.provisional.model.ApiTypeContainerVisitor;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiElement;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeContainer;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeRoot;
+import org.eclipse.pde.api.tools.internal.util.TarEntry;
+import org.eclipse.pde.api.tools.internal.util.TarException;
+import org.eclipse.pde.api.tools.internal.util.TarFile;
+import org.eclipse.pde.api.tools.internal.util.Util;
+
+/**
+ * {@link IApiTypeContainer} for the class files of a tar or tar.gz archive,
+ * optionally restricted to the entries under a folder of the archive. Class
+ * files are read straight from the archive through the entry index of
+ * {@link TarFile}, without extracting the archive.
+ *
+ * @since 1.0.700
+ */
+public class TarApiTypeContainer extends ApiElement implements IApiTypeContainer {
+
+	/**
+	 * {@link IApiTypeRoot} implementation within a tar archive
+	 */
+	static class TarApiTypeRoot extends AbstractApiTypeRoot implements Comparable<Object> {
+
+		private final TarEntry fEntry;
+		private String fTypeName;
+
+		/**
+		 * The contents of the class file when they were read ahead, or
+		 * <code>null</code>
+		 */
+		byte[] fContents;
+
+		/**
+		 * Constructs a new handle to an {@link IApiTypeRoot} in the archive.
+		 *
+		 * @param container archive
+		 * @param fileName class file name relative to the root of the
+		 *            container
+		 * @param entry the entry of the class file
+		 */
+		TarApiTypeRoot(TarApiTypeContainer container, String fileName, TarEntry entry) {
+			super(container, fileName);
+			fEntry = entry;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeRoot#getTypeName()
+		 */
+		@Override
+		public String getTypeName() {
+			if (fTypeName == null) {
+				fTypeName = getName().replace('/', '.').substring(0, getName().length() - Util.DOT_CLASS_SUFFIX.length());
+			}
+			return fTypeName;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Comparable#compareTo(java.lang.Object)
+		 */
+		@Override
+		public int compareTo(Object o) {
+			return getTypeName().compareTo(((TarApiTypeRoot) o).getTypeName());
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof TarApiTypeRoot) {
+				return getName().equals(((TarApiTypeRoot) obj).getName());
+			}
+			return false;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return getName().hashCode();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.eclipse.pde.api.tools.internal.model.AbstractApiTypeRoot#getContents()
+		 */
+		@Override
+		public byte[] getContents() throws CoreException {
+			byte[] contents = fContents;
+			if (contents != null) {
+				return contents;
+			}
+			// type roots looked up at random are read in any order
+			return ((TarApiTypeContainer) getParent()).getContents(fEntry, getTypeName(), true);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return getTypeName();
+		}
+	}
+
+	/**
+	 * Orders entries by their offset in the archive
+	 */
+	static final Comparator<TarApiTypeRoot> ARCHIVE_ORDER = new Comparator<TarApiTypeRoot>() {
+		@Override
+		public int compare(TarApiTypeRoot o1, TarApiTypeRoot o2) {
+			long p1 = o1.fEntry.getPosition();
+			long p2 = o2.fEntry.getPosition();
+			return p1 < p2 ? -1 : (p1 == p2 ? 0 : 1);
+		}
+	};
+
+	/**
+	 * An archive shared by the containers reading it, with its single cursor
+	 * and a cache of the class files read at random
+	 */
+	static class SharedTarFile {
+
+		final TarFile fTarFile;
+		int fReferences = 0;
+
+		/**
+		 * Contents of the class files last read at random, most recently read
+		 * last
+		 */
+		private final LinkedHashMap<TarEntry, byte[]> fContents = new LinkedHashMap<TarEntry, byte[]>(16, 0.75f, true);
+		private long fContentsSize = 0;
+
+		SharedTarFile(TarFile tarFile) {
+			fTarFile = tarFile;
+		}
+
+		/**
+		 * Returns the contents of the given entry
+		 * 
+		 * @param entry the entry
+		 * @param cache whether to keep the contents for later random reads
+		 * @return the contents of the entry
+		 * @throws TarException
+		 * @throws IOException
+		 */
+		synchronized byte[] read(TarEntry entry, boolean cache) throws TarException, IOException {
+			byte[] contents = fContents.get(entry);
+			if (contents != null) {
+				return contents;
+			}
+			contents = fTarFile.getContents(entry);
+			if (cache) {
+				fContents.put(entry, contents);
+				fContentsSize += contents.length;
+				Iterator<byte[]> iter = fContents.values().iterator();
+				while (fContentsSize > MAX_CACHED_CONTENTS && iter.hasNext()) {
+					fContentsSize -= iter.next().length;
+					iter.remove();
+				}
+			}
+			return contents;
+		}
+	}
+
+	/**
+	 * Maximum size of the class files cached per archive
+	 */
+	static final long MAX_CACHED_CONTENTS = 4 * 1024 * 1024;
+
+	/**
+	 * The opened archives by location
+	 */
+	private static final Map<String, SharedTarFile> fgArchives = new HashMap<String, SharedTarFile>();
+
+	/**
+	 * Locations of the archives extracted without their class files, by the
+	 * canonical path of the folder they were extracted to
+	 */
+	private static final Map<String, String> fgExtractions = new HashMap<String, String>();
+
+	/**
+	 * Location of the archive in the local file system.
+	 */
+	String fLocation;
+
+	/**
+	 * The folder of the archive holding the class files, ending with a
+	 * <code>/</code>, or the empty string for the whole archive.
+	 */
+	private String fRoot;
+
+	/**
+	 * The opened archive or <code>null</code>
+	 */
+	private SharedTarFile fArchive;
+
+	/**
+	 * Cache of package names to the class files in that package (relative to
+	 * the root), or <code>null</code> if not yet initialized.
+	 */
+	private Map<String, Map<String, TarEntry>> fPackages;
+
+	/**
+	 * Cache of package names in this archive.
+	 */
+	private String[] fPackageNames;
+
+	/**
+	 * Constructs an {@link IApiTypeContainer} for the class files of the given
+	 * tar or tar.gz archive.
+	 *
+	 * @param parent the parent {@link IApiElement} or <code>null</code> if none
+	 * @param path location of the file in the local file system
+	 */
+	public TarApiTypeContainer(IApiElement parent, String path) {
+		this(parent, path, null);
+	}
+
+	/**
+	 * Constructs an {@link IApiTypeContainer} for the class files under the
+	 * given folder of the given tar or tar.gz archive.
+	 *
+	 * @param parent the parent {@link IApiElement} or <code>null</code> if none
+	 * @param path location of the file in the local file system
+	 * @param root the folder of the archive holding the class files or
+	 *            <code>null</code> for the whole archive
+	 */
+	public TarApiTypeContainer(IApiElement parent, String path, String root) {
+		super(parent, IApiElement.API_TYPE_CONTAINER, path);
+		this.fLocation = path;
+		if (root == null || root.length() == 0) {
+			this.fRoot = Util.EMPTY_STRING;
+		} else {
+			this.fRoot = root.endsWith("/") ? root : root + '/'; //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Extracts the given tar or tar.gz archive to the given folder. When its
+	 * entries can be read at random, the class files are left out and the class
+	 * files under the folders of the extraction are read from the archive, see
+	 * {@link #getExtractedContainer(IApiElement, File)}. A compressed archive
+	 * made of a single GZIP member would be decompressed from its start on
+	 * every backward read, so it is extracted entirely.
+	 *
+	 * @param path location of the archive in the local file system
+	 * @param folder the folder to extract to
+	 * @throws TarException if the archive cannot be read
+	 * @throws IOException if the archive cannot be extracted
+	 */
+	public static void extract(String path, File folder) throws TarException, IOException {
+		forgetExtraction(folder);
+		boolean randomAccessible = false;
+		File file = new File(path);
+		TarFile tarFile = new TarFile(file, getIndexFile(file));
+		try {
+			randomAccessible = tarFile.isRandomAccessible();
+		} finally {
+			tarFile.close();
+		}
+		Util.guntar(path, folder.getAbsolutePath(), !randomAccessible);
+		if (randomAccessible) {
+			synchronized (fgExtractions) {
+				fgExtractions.put(folder.getCanonicalPath(), path);
+			}
+		}
+	}
+
+	/**
+	 * Returns the file the entry index of the given archive is persisted in
+	 * 
+	 * @param file the archive
+	 * @return the index file or <code>null</code> if not persisted
+	 */
+	private static File getIndexFile(File file) {
+		return ArchiveIndex.getIndexFile(file, ".tarindex"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Forgets the archive extracted to the given folder, if any, so the
+	 * folder can be deleted or reused.
+	 *
+	 * @param folder the folder of an extraction
+	 * @throws IOException if the path of the folder cannot be resolved
+	 */
+	public static void forgetExtraction(File folder) throws IOException {
+		synchronized (fgExtractions) {
+			fgExtractions.remove(folder.getCanonicalPath());
+		}
+	}
+
+	/**
+	 * Returns a container for the class files under the given folder when the
+	 * folder is within an archive extracted by {@link #extract(String, File)}.
+	 *
+	 * @param parent the parent {@link IApiElement} or <code>null</code> if none
+	 * @param folder a folder in the local file system
+	 * @return a container reading the class files of the folder from the
+	 *         archive or <code>null</code> if the folder is not within an
+	 *         extraction
+	 * @throws IOException if the path of the folder cannot be resolved
+	 */
+	public static IApiTypeContainer getExtractedContainer(IApiElement parent, File folder) throws IOException {
+		String path = folder.getCanonicalPath();
+		synchronized (fgExtractions) {
+			for (Map.Entry<String, String> extraction : fgExtractions.entrySet()) {
+				String root = extraction.getKey();
+				if (path.equals(root)) {
+					return new TarApiTypeContainer(parent, extraction.getValue());
+				}
+				if (path.startsWith(root + File.separatorChar)) {
+					String relative = path.substring(root.length() + 1).replace(File.separatorChar, '/');
+					return new TarApiTypeContainer(parent, extraction.getValue(), relative);
+				}
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeContainer#accept(org.eclipse.pde.api.tools.internal.provisional.model.ApiTypeContainerVisitor)
+	 */
+	@Override
+	public void accept(ApiTypeContainerVisitor visitor) throws CoreException {
+		if (visitor.visit(this)) {
+			init();
+			String[] packages = getPackageNames();
+			for (String pkg : packages) {
+				if (visitor.visitPackage(pkg)) {
+					Map<String, TarEntry> types = fPackages.get(pkg);
+					List<TarApiTypeRoot> classFiles = new ArrayList<TarApiTypeRoot>(types.size());
+					for (Map.Entry<String, TarEntry> entry : types.entrySet()) {
+						classFiles.add(new TarApiTypeRoot(this, entry.getKey(), entry.getValue()));
+					}
+					// read the package ahead in archive order, so compressed
+					// archives are not decompressed again for each type
+					Collections.sort(classFiles, ARCHIVE_ORDER);
+					for (TarApiTypeRoot classFile : classFiles) {
+						classFile.fContents = getContents(classFile.fEntry, classFile.getTypeName(), false);
+					}
+					Collections.sort(classFiles);
+					try {
+						for (TarApiTypeRoot classFile : classFiles) {
+							visitor.visit(pkg, classFile);
+							visitor.end(pkg, classFile);
+						}
+					} finally {
+						for (TarApiTypeRoot classFile : classFiles) {
+							classFile.fContents = null;
+						}
+					}
+				}
+				visitor.endVisitPackage(pkg);
+			}
+		}
+		visitor.end(this);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuffer buff = new StringBuffer();
+		buff.append("Tar Class File Container: " + getName()); //$NON-NLS-1$
+		if (fRoot.length() > 0) {
+			buff.append('!').append(fRoot);
+		}
+		return buff.toString();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeContainer#close()
+	 */
+	@Override
+	public synchronized void close() throws CoreException {
+		if (fArchive != null) {
+			SharedTarFile archive = fArchive;
+			fArchive = null;
+			synchronized (fgArchives) {
+				if (--archive.fReferences > 0) {
+					return;
+				}
+				fgArchives.remove(fLocation);
+			}
+			try {
+				archive.fTarFile.close();
+			} catch (IOException e) {
+				abort("Failed to close archive: " + fLocation, e); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * Returns the opened archive, opening it if required. Containers on the
+	 * same archive share the opened archive.
+	 *
+	 * @return the archive
+	 * @throws CoreException if the archive cannot be opened
+	 */
+	private synchronized SharedTarFile getArchive() throws CoreException {
+		if (fArchive == null) {
+			synchronized (fgArchives) {
+				SharedTarFile archive = fgArchives.get(fLocation);
+				if (archive == null) {
+					File file = new File(fLocation);
+					try {
+						archive = new SharedTarFile(new TarFile(file, getIndexFile(file)));
+					} catch (IOException e) {
+						abort("Failed to open archive: " + fLocation, e); //$NON-NLS-1$
+					} catch (TarException e) {
+						abort("Failed to open archive: " + fLocation, e); //$NON-NLS-1$
+					}
+					fgArchives.put(fLocation, archive);
+				}
+				archive.fReferences++;
+				fArchive = archive;
+			}
+		}
+		return fArchive;
+	}
+
+	/**
+	 * Returns the contents of the given class file entry
+	 *
+	 * @param entry the entry
+	 * @param typeName the name of the type, for error reporting
+	 * @param cache whether to keep the contents for later random reads
+	 * @return the contents of the entry
+	 * @throws CoreException if the entry cannot be read
+	 */
+	byte[] getContents(TarEntry entry, String typeName, boolean cache) throws CoreException {
+		SharedTarFile archive = getArchive();
+		try {
+			return archive.read(entry, cache);
+		} catch (IOException e) {
+			abort("Unable to read class file: " + typeName + " in archive: " + fLocation, e); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (TarException e) {
+			abort("Unable to read class file: " + typeName + " in archive: " + fLocation, e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeContainer#findTypeRoot(java.lang.String)
+	 */
+	@Override
+	public IApiTypeRoot findTypeRoot(String qualifiedName) throws CoreException {
+		init();
+		int index = qualifiedName.lastIndexOf('.');
+		String packageName = Util.DEFAULT_PACKAGE_NAME;
+		if (index >= 0) {
+			packageName = qualifiedName.substring(0, index);
+		}
+		Map<String, TarEntry> classFiles = fPackages.get(packageName);
+		if (classFiles != null) {
+			String fileName = qualifiedName.replace('.', '/') + Util.DOT_CLASS_SUFFIX;
+			TarEntry entry = classFiles.get(fileName);
+			if (entry != null) {
+				return new TarApiTypeRoot(this, fileName, entry);
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeContainer#findTypeRoot(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public IApiTypeRoot findTypeRoot(String qualifiedName, String id) throws CoreException {
+		return findTypeRoot(qualifiedName);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeContainer#getPackageNames()
+	 */
+	@Override
+	public String[] getPackageNames() throws CoreException {
+		init();
+		synchronized (this) {
+			if (fPackageNames == null) {
+				String[] result = fPackages.keySet().toArray(new String[fPackages.size()]);
+				Arrays.sort(result);
+				fPackageNames = result;
+			}
+			return fPackageNames;
+		}
+	}
+
+	/**
+	 * Initializes cache of packages and types from the entry index of the
+	 * archive.
+	 *
+	 * @throws CoreException
+	 */
+	private synchronized void init() throws CoreException {
+		if (fPackages == null) {
+			TarEntry[] entries = null;
+			try {
+				entries = getArchive().fTarFile.getEntries();
+			} catch (IOException e) {
+				abort("Failed to open archive: " + fLocation, e); //$NON-NLS-1$
+			} catch (TarException e) {
+				abort("Failed to open archive: " + fLocation, e); //$NON-NLS-1$
+			}
+			Map<String, Map<String, TarEntry>> packages = new HashMap<String, Map<String, TarEntry>>();
+			for (int i = 0; i < entries.length; i++) {
+				String name = entries[i].getName();
+				if (name.startsWith("./")) { //$NON-NLS-1$
+					name = name.substring(2);
+				}
+				if (entries[i].getFileType() != TarEntry.FILE || !name.startsWith(fRoot) || !Util.isClassFile(name)) {
+					continue;
+				}
+				name = name.substring(fRoot.length());
+				String pkg = Util.DEFAULT_PACKAGE_NAME;
+				int index = name.lastIndexOf('/');
+				if (index >= 0) {
+					pkg = name.substring(0, index).replace('/', '.');
+				}
+				Map<String, TarEntry> fileNames = packages.get(pkg);
+				if (fileNames == null) {
+					fileNames = new HashMap<String, TarEntry>();
+					packages.put(pkg, fileNames);
+				}
+				fileNames.put(name, entries[i]);
+			}
+			fPackages = packages;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof TarApiTypeContainer) {
+			TarApiTypeContainer container = (TarApiTypeContainer) obj;
+			return this.fLocation.equals(container.fLocation) && this.fRoot.equals(container.fRoot);
+		}
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return this.fLocation.hashCode() + this.fRoot.hashCode();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeContainer#getContainerType()
+	 */
+	@Override
+	public int getContainerType() {
+		return ARCHIVE;
+	}
+
+}
@@ -0,0 +1,653 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiField;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiMethod;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeRoot;
+
+/**
+ * On-disk cache of the {@link ApiType} structures built from the class files
+ * of an archive.
+ * <p>
+ * Each record of the cache is keyed by the name of the class file entry and
+ * carries the CRC-32 and size of the class file it was built from, as recorded
+ * in the central directory of the archive. A record is only used while the
+ * entry still has the same CRC and size, so the cache invalidates itself one
+ * type at a time when the archive changes.
+ * </p>
+ * <p>
+ * The cache file is memory mapped when opened and only its table of contents
+ * is read eagerly, records are deserialized when the corresponding type is
+ * asked for. Types built while the cache is open are added to it when it is
+ * saved, which happens when the owning {@link ArchiveApiTypeContainer} is
+ * closed. Since the loaded file may still be mapped, saving writes a new
+ * generation of the cache file and older generations are deleted once they
+ * can be.
+ * </p>
+ * <p>
+ * Caches are persisted in the API tools state location (or in the directory
+ * given by the {@value #CACHE_LOCATION_PROPERTY} system property when running
+ * headless).
+ * </p>
+ *
+ * @since 1.0.700
+ */
+public final class TypeStructureCache {
+
+	/**
+	 * Name of the system property that can be used to give the directory in
+	 * which caches are persisted when the platform is not running
+	 */
+	public static final String CACHE_LOCATION_PROPERTY = "org.eclipse.pde.api.tools.typeStructureCacheLocation"; //$NON-NLS-1$
+
+	private static final int CACHE_MAGIC = 0x41505453;
+	private static final int CACHE_VERSION = 1;
+
+	private static final byte VALUE_NULL = 0;
+	private static final byte VALUE_INT = 1;
+	private static final byte VALUE_LONG = 2;
+	private static final byte VALUE_FLOAT = 3;
+	private static final byte VALUE_DOUBLE = 4;
+	private static final byte VALUE_STRING = 5;
+
+	private static final int FLAG_ANONYMOUS = 0x1;
+	private static final int FLAG_LOCAL = 0x2;
+	private static final int FLAG_MEMBER = 0x4;
+
+	/**
+	 * A serialized type structure, either in the mapped cache file or in
+	 * memory for types built since the cache was opened
+	 */
+	private static final class Record {
+		final long crc;
+		final long size;
+		final int offset;
+		final int length;
+		final byte[] bytes;
+
+		Record(long crc, long size, int offset, int length, byte[] bytes) {
+			this.crc = crc;
+			this.size = size;
+			this.offset = offset;
+			this.length = length;
+			this.bytes = bytes;
+		}
+	}
+
+	/**
+	 * Reads a region of a mapped buffer without copying it
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer fBuffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			fBuffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return fBuffer.hasRemaining() ? fBuffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (!fBuffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(len, fBuffer.remaining());
+			fBuffer.get(b, off, count);
+			return count;
+		}
+	}
+
+	private final File fArchive;
+	private final File fDirectory;
+	private final String fPrefix;
+	/**
+	 * The generation of the cache file that was loaded, <code>0</code> if none
+	 */
+	private long fGeneration = 0;
+	private ByteBuffer fMapped = null;
+	private Map<String, Record> fRecords = new HashMap<String, Record>();
+	private boolean fDirty = false;
+
+	private TypeStructureCache(File archive, File directory, String prefix) {
+		fArchive = archive;
+		fDirectory = directory;
+		fPrefix = prefix;
+	}
+
+	/**
+	 * Opens the cache of the given archive. Returns <code>null</code> if type
+	 * structures are not persisted in this environment.
+	 *
+	 * @param archive the archive
+	 * @return the cache of the archive or <code>null</code>
+	 */
+	public static TypeStructureCache open(File archive) {
+		File dir = getCacheDirectory();
+		if (dir == null) {
+			return null;
+		}
+		String path = archive.getAbsolutePath();
+		TypeStructureCache cache = new TypeStructureCache(archive, dir, archive.getName() + '_' + Integer.toHexString(path.hashCode()) + '.');
+		long generation = cache.getLatestGeneration();
+		if (generation > 0) {
+			try {
+				cache.load(generation);
+			} catch (IOException e) {
+				// corrupted cache, start over
+				cache.fMapped = null;
+				cache.fRecords.clear();
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Returns the directory type structures are persisted in or
+	 * <code>null</code> if they are not persisted
+	 *
+	 * @return the cache directory or <code>null</code>
+	 */
+	private static File getCacheDirectory() {
+		File dir = null;
+		String location = System.getProperty(CACHE_LOCATION_PROPERTY);
+		if (location != null) {
+			dir = new File(location);
+		} else if (Platform.isRunning() && ApiPlugin.getDefault() != null) {
+			dir = ApiPlugin.getDefault().getStateLocation().append(".type_structures").toFile(); //$NON-NLS-1$
+		}
+		if (dir == null) {
+			return null;
+		}
+		if (!dir.exists() && !dir.mkdirs()) {
+			return null;
+		}
+		return dir;
+	}
+
+	/**
+	 * Returns the cache file of the given generation. A mapped file cannot be
+	 * deleted or replaced on every platform, so each save writes a new
+	 * generation rather than overwriting the file that was loaded.
+	 *
+	 * @param generation
+	 * @return the cache file of the generation
+	 */
+	private File getCacheFile(long generation) {
+		return new File(fDirectory, fPrefix + generation + ".types"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the latest generation of the cache of the archive, deleting the
+	 * files of the older generations that are no longer mapped
+	 *
+	 * @return the latest generation or <code>0</code> if there is no cache
+	 *         file
+	 */
+	private long getLatestGeneration() {
+		String[] names = fDirectory.list();
+		if (names == null) {
+			return 0;
+		}
+		List<Long> generations = new ArrayList<Long>();
+		for (int i = 0; i < names.length; i++) {
+			String name = names[i];
+			if (name.startsWith(fPrefix) && name.endsWith(".types")) { //$NON-NLS-1$
+				try {
+					generations.add(Long.valueOf(name.substring(fPrefix.length(), name.length() - 6)));
+				} catch (NumberFormatException e) {
+					// not one of ours
+				}
+			}
+		}
+		long latest = 0;
+		for (int i = 0; i < generations.size(); i++) {
+			latest = Math.max(latest, generations.get(i).longValue());
+		}
+		for (int i = 0; i < generations.size(); i++) {
+			long generation = generations.get(i).longValue();
+			if (generation != latest) {
+				// fails while another reader still maps it, retried next time
+				getCacheFile(generation).delete();
+			}
+		}
+		return latest;
+	}
+
+	/**
+	 * Maps the cache file and reads its table of contents. The table is
+	 * written at the end of the file, its offset is the last int of the file.
+	 *
+	 * @param generation the generation of the cache file to load
+	 * @throws IOException
+	 */
+	private void load(long generation) throws IOException {
+		File file = getCacheFile(generation);
+		ByteBuffer mapped = ArchiveIndex.map(file);
+		if (mapped == null) {
+			return;
+		}
+		try {
+			loadRecords(file, mapped);
+		} finally {
+			if (fMapped != mapped) {
+				ArchiveIndex.unmap(mapped);
+			}
+		}
+		fGeneration = generation;
+	}
+
+	/**
+	 * Reads the table of contents of the given mapped cache file
+	 *
+	 * @param file the cache file
+	 * @param mapped the mapped cache file
+	 * @throws IOException
+	 */
+	private void loadRecords(File file, ByteBuffer mapped) throws IOException {
+		// the archive index is little endian, the cache is written by a
+		// DataOutputStream
+		mapped.order(ByteOrder.BIG_ENDIAN);
+		if (mapped.limit() < 12 || mapped.getInt(0) != CACHE_MAGIC || mapped.getInt(4) != CACHE_VERSION) {
+			return;
+		}
+		ByteBuffer header = mapped.duplicate();
+		header.position(8);
+		DataInputStream in = new DataInputStream(new ByteBufferInputStream(header));
+		if (!fArchive.getAbsolutePath().equals(in.readUTF())) {
+			return;
+		}
+		int tableOffset = mapped.getInt(mapped.limit() - 4);
+		if (tableOffset < 8 || tableOffset > mapped.limit() - 4) {
+			throw new IOException("Invalid type structure cache: " + file); //$NON-NLS-1$
+		}
+		ByteBuffer table = mapped.duplicate();
+		table.position(tableOffset);
+		in = new DataInputStream(new ByteBufferInputStream(table));
+		int count = in.readInt();
+		Map<String, Record> records = new HashMap<String, Record>(count * 4 / 3 + 1);
+		for (int i = 0; i < count; i++) {
+			String name = in.readUTF();
+			long crc = in.readInt() & 0xFFFFFFFFL;
+			long size = in.readLong();
+			int offset = in.readInt();
+			int length = in.readInt();
+			if (offset < 0 || length < 0 || offset + length > tableOffset) {
+				throw new IOException("Invalid type structure cache: " + file); //$NON-NLS-1$
+			}
+			records.put(name, new Record(crc, size, offset, length, null));
+		}
+		fRecords = records;
+		fMapped = mapped;
+	}
+
+	/**
+	 * Returns the cached structure of the type in the given class file entry,
+	 * or <code>null</code> if there is no cached structure for the current
+	 * contents of the entry.
+	 *
+	 * @param entry the class file entry in the archive index
+	 * @param component the component the type belongs to
+	 * @param root the type root of the class file
+	 * @return the type structure or <code>null</code>
+	 */
+	public synchronized ApiType getType(ArchiveIndex.Entry entry, IApiComponent component, IApiTypeRoot root) {
+		Record record = fRecords.get(entry.getName());
+		if (record == null || record.crc != entry.getCrc() || record.size != entry.getSize()) {
+			return null;
+		}
+		InputStream stream = null;
+		if (record.bytes != null) {
+			stream = new ByteArrayInputStream(record.bytes);
+		} else {
+			ByteBuffer data = fMapped.duplicate();
+			data.position(record.offset);
+			data.limit(record.offset + record.length);
+			stream = new ByteBufferInputStream(data);
+		}
+		try {
+			return readType(new DataInputStream(stream), component, root);
+		} catch (IOException e) {
+			fRecords.remove(entry.getName());
+			fDirty = true;
+			return null;
+		}
+	}
+
+	/**
+	 * Adds the structure built for the given class file entry to the cache
+	 *
+	 * @param entry the class file entry in the archive index
+	 * @param type the structure built from the entry
+	 */
+	public synchronized void putType(ArchiveIndex.Entry entry, ApiType type) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+		try {
+			writeType(new DataOutputStream(bytes), type);
+		} catch (IOException e) {
+			// not something we can represent, it will be rebuilt next time
+			return;
+		}
+		byte[] record = bytes.toByteArray();
+		fRecords.put(entry.getName(), new Record(entry.getCrc(), entry.getSize(), 0, record.length, record));
+		fDirty = true;
+	}
+
+	/**
+	 * Persists the cache if types were added to it since it was opened. Records
+	 * for entries that are no longer in the archive, or whose contents changed,
+	 * are dropped. The mapping of the cache file is released, the cache must
+	 * not be used once saved.
+	 *
+	 * @param index the current index of the archive
+	 */
+	public synchronized void save(ArchiveIndex index) {
+		if (!fDirty) {
+			close();
+			return;
+		}
+		List<Entry<String, Record>> records = new ArrayList<Entry<String, Record>>(fRecords.size());
+		for (Entry<String, Record> entry : fRecords.entrySet()) {
+			ArchiveIndex.Entry archiveEntry = index.getEntry(entry.getKey());
+			Record record = entry.getValue();
+			if (archiveEntry != null && archiveEntry.getCrc() == record.crc && archiveEntry.getSize() == record.size) {
+				records.add(entry);
+			}
+		}
+		File tmp = new File(fDirectory, fPrefix + "tmp"); //$NON-NLS-1$
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+			try {
+				out.writeInt(CACHE_MAGIC);
+				out.writeInt(CACHE_VERSION);
+				out.writeUTF(fArchive.getAbsolutePath());
+				int[] offsets = new int[records.size()];
+				byte[] buffer = new byte[4096];
+				for (int i = 0; i < offsets.length; i++) {
+					Record record = records.get(i).getValue();
+					offsets[i] = out.size();
+					if (record.bytes != null) {
+						out.write(record.bytes);
+					} else {
+						ByteBuffer data = fMapped.duplicate();
+						data.position(record.offset);
+						int remaining = record.length;
+						while (remaining > 0) {
+							int count = Math.min(remaining, buffer.length);
+							data.get(buffer, 0, count);
+							out.write(buffer, 0, count);
+							remaining -= count;
+						}
+					}
+				}
+				int tableOffset = out.size();
+				out.writeInt(offsets.length);
+				for (int i = 0; i < offsets.length; i++) {
+					Entry<String, Record> entry = records.get(i);
+					Record record = entry.getValue();
+					out.writeUTF(entry.getKey());
+					out.writeInt((int) record.crc);
+					out.writeLong(record.size);
+					out.writeInt(offsets[i]);
+					out.writeInt(record.length);
+				}
+				out.writeInt(tableOffset);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			ApiPlugin.log(e);
+			tmp.delete();
+			return;
+		} finally {
+			close();
+		}
+		// the loaded file may still be mapped by another reader, write the
+		// next generation rather than replacing it
+		long generation = Math.max(fGeneration, getLatestGeneration()) + 1;
+		if (!tmp.renameTo(getCacheFile(generation))) {
+			tmp.delete();
+			return;
+		}
+		if (fGeneration > 0) {
+			// fails while the file is still mapped, the next open deletes it
+			getCacheFile(fGeneration).delete();
+		}
+		fGeneration = 0;
+	}
+
+	/**
+	 * Forgets the records of the cache and releases the mapping of the cache
+	 * file
+	 */
+	private void close() {
+		ArchiveIndex.unmap(fMapped);
+		fMapped = null;
+		fRecords = new HashMap<String, Record>();
+		fDirty = false;
+	}
+
+	/**
+	 * Writes the given type structure. Only the state set while building the
+	 * structure from a class file is written.
+	 *
+	 * @param out
+	 * @param type
+	 * @throws IOException if the type cannot be written
+	 */
+	private static void writeType(DataOutputStream out, ApiType type) throws IOException {
+		out.writeUTF(type.getName());
+		out.writeUTF(type.getSignature());
+		writeString(out, type.getGenericSignature());
+		out.writeInt(type.getModifiers());
+		writeString(out, type.getEnclosingTypeName());
+		writeString(out, type.getSuperclassName());
+		writeStrings(out, type.getSuperInterfaceNames());
+		writeString(out, type.getDeclaredSimpleName());
+		int flags = 0;
+		if (type.isAnonymous()) {
+			flags |= FLAG_ANONYMOUS;
+		}
+		if (type.isLocal()) {
+			flags |= FLAG_LOCAL;
+		}
+		if (type.isMemberType()) {
+			flags |= FLAG_MEMBER;
+		}
+		out.writeByte(flags);
+		writeString(out, type.getEnclosingMethodName());
+		writeString(out, type.getEnclosingMethodSignature());
+		writeStrings(out, type.getMemberTypeNames());
+		IApiField[] fields = type.getFields();
+		out.writeInt(fields.length);
+		for (int i = 0; i < fields.length; i++) {
+			IApiField field = fields[i];
+			out.writeUTF(field.getName());
+			out.writeUTF(field.getSignature());
+			writeString(out, field.getGenericSignature());
+			out.writeInt(field.getModifiers());
+			writeValue(out, field.getConstantValue());
+		}
+		IApiMethod[] methods = type.getMethods();
+		out.writeInt(methods.length);
+		for (int i = 0; i < methods.length; i++) {
+			IApiMethod method = methods[i];
+			out.writeUTF(method.getName());
+			out.writeUTF(method.getSignature());
+			writeString(out, method.getGenericSignature());
+			out.writeInt(method.getModifiers());
+			writeStrings(out, method.getExceptionNames());
+			writeString(out, method.getDefaultValue());
+		}
+	}
+
+	/**
+	 * Reads a type structure written by
+	 * {@link #writeType(DataOutputStream, ApiType)}
+	 *
+	 * @param in
+	 * @param component
+	 * @param root
+	 * @return the type structure
+	 * @throws IOException
+	 */
+	private static ApiType readType(DataInputStream in, IApiComponent component, IApiTypeRoot root) throws IOException {
+		String name = in.readUTF();
+		String signature = in.readUTF();
+		String genericSig = readString(in);
+		int modifiers = in.readInt();
+		String enclosingName = readString(in);
+		ApiType type = new ApiType(component, name, signature, genericSig, modifiers, enclosingName, root);
+		String superName = readString(in);
+		if (superName != null) {
+			type.setSuperclassName(superName);
+		}
+		String[] interfaces = readStrings(in);
+		if (interfaces != null && interfaces.length > 0) {
+			type.setSuperInterfaceNames(interfaces);
+		}
+		String simpleName = readString(in);
+		if (simpleName != null) {
+			type.setSimpleName(simpleName);
+		}
+		int flags = in.readByte();
+		if ((flags & FLAG_ANONYMOUS) != 0) {
+			type.setAnonymous();
+		}
+		if ((flags & FLAG_LOCAL) != 0) {
+			type.setLocal();
+		}
+		if ((flags & FLAG_MEMBER) != 0) {
+			type.setMemberType();
+		}
+		String methodName = readString(in);
+		String methodSignature = readString(in);
+		if (methodName != null) {
+			type.setEnclosingMethodInfo(methodName, methodSignature);
+		}
+		String[] members = readStrings(in);
+		for (int i = 0; i < members.length; i++) {
+			type.addMemberType(name + '$' + members[i], 0);
+		}
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			type.addField(in.readUTF(), in.readUTF(), readString(in), in.readInt(), readValue(in));
+		}
+		count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			ApiMethod method = type.addMethod(in.readUTF(), in.readUTF(), readString(in), in.readInt(), readStrings(in));
+			String defaultValue = readString(in);
+			if (defaultValue != null) {
+				method.setDefaultValue(defaultValue);
+			}
+		}
+		return type;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+		if (values == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(values.length);
+		for (int i = 0; i < values.length; i++) {
+			out.writeUTF(values[i]);
+		}
+	}
+
+	private static String[] readStrings(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		String[] values = new String[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = in.readUTF();
+		}
+		return values;
+	}
+
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(VALUE_NULL);
+		} else if (value instanceof Integer) {
+			out.writeByte(VALUE_INT);
+			out.writeInt(((Integer) value).intValue());
+		} else if (value instanceof Long) {
+			out.writeByte(VALUE_LONG);
+			out.writeLong(((Long) value).longValue());
+		} else if (value instanceof Float) {
+			out.writeByte(VALUE_FLOAT);
+			out.writeFloat(((Float) value).floatValue());
+		} else if (value instanceof Double) {
+			out.writeByte(VALUE_DOUBLE);
+			out.writeDouble(((Double) value).doubleValue());
+		} else if (value instanceof String) {
+			out.writeByte(VALUE_STRING);
+			out.writeUTF((String) value);
+		} else {
+			throw new IOException("Unsupported constant value: " + value); //$NON-NLS-1$
+		}
+	}
+
+	private static Object readValue(DataInputStream in) throws IOException {
+		switch (in.readByte()) {
+			case VALUE_NULL:
+				return null;
+			case VALUE_INT:
+				return Integer.valueOf(in.readInt());
+			case VALUE_LONG:
+				return Long.valueOf(in.readLong());
+			case VALUE_FLOAT:
+				return Float.valueOf(in.readFloat());
+			case VALUE_DOUBLE:
+				return Double.valueOf(in.readDouble());
+			case VALUE_STRING:
+				return in.readUTF();
+			default:
+				throw new IOException("Invalid constant value"); //$NON-NLS-1$
+		}
+	}
+}
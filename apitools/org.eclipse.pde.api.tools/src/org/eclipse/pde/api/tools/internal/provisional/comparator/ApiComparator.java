@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2013 IBM Corporation and others.
+ * Copyright (c) 2007, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,14 +12,26 @@ package org.eclipse.pde.api.tools.internal.provisional.comparator;
 
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.jdt.core.Flags;
+import org.eclipse.pde.api.tools.internal.builder.ApiAnalysisMetrics;
 import org.eclipse.pde.api.tools.internal.comparator.ClassFileComparator;
+import org.eclipse.pde.api.tools.internal.comparator.ClassFileDigests;
 import org.eclipse.pde.api.tools.internal.comparator.Delta;
 import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
 import org.eclipse.pde.api.tools.internal.provisional.IApiAnnotations;
@@ -30,6 +42,7 @@ import org.eclipse.pde.api.tools.internal.provisional.VisibilityModifiers;
 import org.eclipse.pde.api.tools.internal.provisional.model.ApiTypeContainerVisitor;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiElement;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiScope;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiType;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeContainer;
@@ -116,52 +129,211 @@ public class ApiComparator {
 				if (!apiComponent.isSystemComponent()) {
 					String id = apiComponent.getSymbolicName();
 					IApiComponent apiComponent2 = baseline.getApiComponent(id);
-					IDelta delta = null;
-					if (apiComponent2 == null) {
-						// report removal of an API component
-						delta = new Delta(null, IDelta.API_BASELINE_ELEMENT_TYPE, IDelta.REMOVED, IDelta.API_COMPONENT, null, id, id);
-					} else {
+					if (apiComponent2 != null) {
 						apiComponentsIds.add(id);
-						String versionString = apiComponent.getVersion();
-						String versionString2 = apiComponent2.getVersion();
-						IDelta bundleVersionChangesDelta = checkBundleVersionChanges(apiComponent2, id, versionString, versionString2);
-						if (bundleVersionChangesDelta != null) {
-							globalDelta.add(bundleVersionChangesDelta);
-						}
-						if (!versionString.equals(versionString2) || force) {
-							long time = System.currentTimeMillis();
-							try {
-								delta = compare(apiComponent, apiComponent2, referenceBaseline, baseline, visibilityModifiers, localmonitor.newChild(1));
-							} finally {
-								if (ApiPlugin.DEBUG_API_COMPARATOR) {
-									System.out.println("Time spent for " + id + " " + versionString + " : " + (System.currentTimeMillis() - time) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
-								}
-							}
-						}
-					}
-					if (delta != null && delta != NO_DELTA) {
-						globalDelta.add(delta);
 					}
+					compareComponents(apiComponent, apiComponent2, referenceBaseline, baseline, visibilityModifiers, force, globalDelta, localmonitor.newChild(1));
 				}
 			}
 			Util.updateMonitor(localmonitor, 1);
-			for (int i = 0, max = apiComponents2.length; i < max; i++) {
+			addAddedComponents(apiComponents2, apiComponentsIds, globalDelta);
+			return globalDelta.isEmpty() ? NO_DELTA : globalDelta;
+		} finally {
+			localmonitor.done();
+		}
+	}
+
+	/**
+	 * Compares the given baselines like
+	 * {@link #compare(IApiBaseline, IApiBaseline, int, boolean, IProgressMonitor)}
+	 * does, without building the delta of the whole comparison. API components
+	 * are compared by a pool of <code>threadCount</code> workers and the deltas
+	 * of each component are passed to the given visitor as soon as they are
+	 * available, in the order of the components of the reference baseline. The
+	 * deltas of added components are reported last. At most
+	 * <code>2 * threadCount</code> component deltas are kept in memory at any
+	 * time.
+	 * <p>
+	 * The visitor is only called from the calling thread and never visits the
+	 * root baseline delta.
+	 * </p>
+	 * 
+	 * @param referenceBaseline the given API baseline which is used as the
+	 *            reference
+	 * @param baseline the given API baseline to compare with
+	 * @param visibilityModifiers the given visibility that triggers what
+	 *            visibility should be used for the comparison
+	 * @param force a flag to force the comparison of nested API components with
+	 *            the same versions
+	 * @param threadCount the number of API components compared concurrently
+	 * @param visitor the visitor the deltas are reported to
+	 * @param monitor
+	 * 
+	 * @return <code>true</code> if at least one delta has been reported,
+	 *         <code>false</code> if no difference has been found
+	 * @throws IllegalArgumentException if one of the two baselines or the
+	 *             visitor is null, or if the thread count is not positive
+	 * @since 1.0.700
+	 */
+	public static boolean compare(final IApiBaseline referenceBaseline, final IApiBaseline baseline, final int visibilityModifiers, final boolean force, final int threadCount, final DeltaVisitor visitor, final IProgressMonitor monitor) {
+		if (referenceBaseline == null || baseline == null) {
+			throw new IllegalArgumentException("None of the baselines must be null"); //$NON-NLS-1$
+		}
+		if (visitor == null) {
+			throw new IllegalArgumentException("The visitor cannot be null"); //$NON-NLS-1$
+		}
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("The thread count must be positive"); //$NON-NLS-1$
+		}
+		IApiComponent[] apiComponents = referenceBaseline.getApiComponents();
+		IApiComponent[] apiComponents2 = baseline.getApiComponents();
+		SubMonitor localmonitor = SubMonitor.convert(monitor, apiComponents.length + 1);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threadCount, apiComponents.length)));
+		try {
+			Set<String> apiComponentsIds = new HashSet<String>();
+			LinkedList<Future<Delta>> pending = new LinkedList<Future<Delta>>();
+			boolean reported = false;
+			for (int i = 0, max = apiComponents.length; i < max; i++) {
 				Util.updateMonitor(localmonitor);
-				IApiComponent apiComponent = apiComponents2[i];
+				final IApiComponent apiComponent = apiComponents[i];
 				if (!apiComponent.isSystemComponent()) {
 					String id = apiComponent.getSymbolicName();
-					if (!apiComponentsIds.contains(id)) {
-						// addition of an API component
-						globalDelta.add(new Delta(null, IDelta.API_BASELINE_ELEMENT_TYPE, IDelta.ADDED, IDelta.API_COMPONENT, null, id, id));
+					final IApiComponent apiComponent2 = baseline.getApiComponent(id);
+					if (apiComponent2 != null) {
+						apiComponentsIds.add(id);
+					}
+					pending.add(executor.submit(new Callable<Delta>() {
+						@Override
+						public Delta call() throws Exception {
+							Delta componentDelta = new Delta();
+							compareComponents(apiComponent, apiComponent2, referenceBaseline, baseline, visibilityModifiers, force, componentDelta, null);
+							return componentDelta;
+						}
+					}));
+					while (pending.size() >= 2 * threadCount) {
+						reported |= report(pending.removeFirst(), visitor);
+						localmonitor.worked(1);
 					}
+				} else {
+					localmonitor.worked(1);
 				}
 			}
-			return globalDelta.isEmpty() ? NO_DELTA : globalDelta;
+			while (!pending.isEmpty()) {
+				Util.updateMonitor(localmonitor);
+				reported |= report(pending.removeFirst(), visitor);
+				localmonitor.worked(1);
+			}
+			Delta addedDelta = new Delta();
+			addAddedComponents(apiComponents2, apiComponentsIds, addedDelta);
+			IDelta[] children = addedDelta.getChildren();
+			for (int i = 0; i < children.length; i++) {
+				children[i].accept(visitor);
+			}
+			return reported || children.length > 0;
 		} finally {
+			executor.shutdownNow();
 			localmonitor.done();
 		}
 	}
 
+	/**
+	 * Waits for the comparison of a component to complete and reports its
+	 * deltas to the given visitor
+	 * 
+	 * @param future the pending comparison
+	 * @param visitor
+	 * @return <code>true</code> if a delta has been reported
+	 */
+	private static boolean report(Future<Delta> future, DeltaVisitor visitor) {
+		Delta componentDelta = null;
+		try {
+			componentDelta = future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+		IDelta[] children = componentDelta.getChildren();
+		for (int i = 0; i < children.length; i++) {
+			children[i].accept(visitor);
+		}
+		return children.length > 0;
+	}
+
+	/**
+	 * Compares an API component of the reference baseline with the API
+	 * component with the same id in the other baseline, adding the resulting
+	 * deltas to the given delta
+	 * 
+	 * @param apiComponent the component of the reference baseline
+	 * @param apiComponent2 the component of the other baseline or
+	 *            <code>null</code> if it has been removed
+	 * @param referenceBaseline
+	 * @param baseline
+	 * @param visibilityModifiers
+	 * @param force
+	 * @param globalDelta the delta to add the deltas of the component to
+	 * @param monitor
+	 */
+	static void compareComponents(IApiComponent apiComponent, IApiComponent apiComponent2, IApiBaseline referenceBaseline, IApiBaseline baseline, int visibilityModifiers, boolean force, Delta globalDelta, IProgressMonitor monitor) {
+		String id = apiComponent.getSymbolicName();
+		IDelta delta = null;
+		if (apiComponent2 == null) {
+			// report removal of an API component
+			delta = new Delta(null, IDelta.API_BASELINE_ELEMENT_TYPE, IDelta.REMOVED, IDelta.API_COMPONENT, null, id, id);
+		} else {
+			String versionString = apiComponent.getVersion();
+			String versionString2 = apiComponent2.getVersion();
+			IDelta bundleVersionChangesDelta = checkBundleVersionChanges(apiComponent2, id, versionString, versionString2);
+			if (bundleVersionChangesDelta != null) {
+				globalDelta.add(bundleVersionChangesDelta);
+			}
+			if (!versionString.equals(versionString2) || force) {
+				long time = System.currentTimeMillis();
+				try {
+					delta = compare(apiComponent, apiComponent2, referenceBaseline, baseline, visibilityModifiers, monitor);
+				} finally {
+					if (ApiPlugin.DEBUG_API_COMPARATOR) {
+						System.out.println("Time spent for " + id + " " + versionString + " : " + (System.currentTimeMillis() - time) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+					}
+				}
+			}
+		}
+		if (delta != null && delta != NO_DELTA) {
+			globalDelta.add(delta);
+		}
+	}
+
+	/**
+	 * Adds a delta to the given delta for each component of the baseline that
+	 * is not in the reference baseline
+	 * 
+	 * @param apiComponents2 the components of the baseline
+	 * @param apiComponentsIds the ids of the components of the reference
+	 *            baseline that are also in the baseline
+	 * @param globalDelta
+	 */
+	private static void addAddedComponents(IApiComponent[] apiComponents2, Set<String> apiComponentsIds, Delta globalDelta) {
+		for (int i = 0, max = apiComponents2.length; i < max; i++) {
+			IApiComponent apiComponent = apiComponents2[i];
+			if (!apiComponent.isSystemComponent()) {
+				String id = apiComponent.getSymbolicName();
+				if (!apiComponentsIds.contains(id)) {
+					// addition of an API component
+					globalDelta.add(new Delta(null, IDelta.API_BASELINE_ELEMENT_TYPE, IDelta.ADDED, IDelta.API_COMPONENT, null, id, id));
+				}
+			}
+		}
+	}
+
 	/**
 	 * Returns a delta that corresponds to the difference between the given
 	 * component and the reference baseline.
@@ -427,6 +599,9 @@ public class ApiComparator {
 				}
 			}
 			Util.updateMonitor(localmonitor, 1);
+			if (ClassFileDigests.isUnchanged(typeDescriptor, typeRoot2, component, component2)) {
+				return NO_DELTA;
+			}
 			ClassFileComparator comparator = new ClassFileComparator(typeDescriptor, typeRoot2, component, component2, referenceBaseline, baseline, visibilityModifiers);
 			IDelta delta = comparator.getDelta(localmonitor.newChild(1));
 			if (ApiPlugin.DEBUG_API_COMPARATOR) {
@@ -480,6 +655,9 @@ public class ApiComparator {
 		}
 		IDelta delta = null;
 		try {
+			if (ClassFileDigests.isUnchanged(typeRoot.getStructure(), typeRoot2, component, component2)) {
+				return NO_DELTA;
+			}
 			ClassFileComparator comparator = new ClassFileComparator(typeRoot, typeRoot2, component, component2, referenceBaseline, baseline, visibilityModifiers);
 			delta = comparator.getDelta(SubMonitor.convert(monitor));
 			if (ApiPlugin.DEBUG_API_COMPARATOR) {
@@ -568,23 +746,8 @@ public class ApiComparator {
 				iterator.next().accept(new DeltaVisitor() {
 					@Override
 					public void endVisit(IDelta localDelta) {
-						if (localDelta.getChildren().length == 0) {
-							switch (localDelta.getElementType()) {
-								case IDelta.ANNOTATION_ELEMENT_TYPE:
-								case IDelta.ENUM_ELEMENT_TYPE:
-								case IDelta.CONSTRUCTOR_ELEMENT_TYPE:
-								case IDelta.METHOD_ELEMENT_TYPE:
-								case IDelta.INTERFACE_ELEMENT_TYPE:
-								case IDelta.CLASS_ELEMENT_TYPE:
-								case IDelta.FIELD_ELEMENT_TYPE:
-								case IDelta.API_COMPONENT_ELEMENT_TYPE:
-								case IDelta.API_BASELINE_ELEMENT_TYPE: {
-									globalDelta.add(localDelta);
-									break;
-								}
-								default:
-									break;
-							}
+						if (isScopeLeafDelta(localDelta)) {
+							globalDelta.add(localDelta);
 						}
 					}
 				});
@@ -596,6 +759,183 @@ public class ApiComparator {
 		}
 	}
 
+	/**
+	 * Compares the elements of the given scope with the reference baseline
+	 * like
+	 * {@link #compare(IApiScope, IApiBaseline, int, boolean, boolean, IProgressMonitor)}
+	 * does, without building the delta of the whole comparison. The elements
+	 * of the scope are compared by a pool of <code>threadCount</code> workers
+	 * and the leaf deltas of each element are passed to the given visitor as
+	 * soon as they are available, in the order of the elements of the scope.
+	 * At most <code>2 * threadCount</code> element deltas are kept in memory at
+	 * any time.
+	 * <p>
+	 * The visitor is only called from the calling thread.
+	 * </p>
+	 * 
+	 * @param scope the given scope for the comparison
+	 * @param baseline the given API baseline which is used as the reference
+	 * @param visibilityModifiers the given visibility that triggers what
+	 *            visibility should be used for the comparison
+	 * @param force a flag to force the comparison of nested API components with
+	 *            the same versions
+	 * @param continueOnResolverError if <code>true</code> the comparison will
+	 *            continue even if a component in the scope has a resolver error
+	 * @param threadCount the number of scope elements compared concurrently
+	 * @param visitor the visitor the deltas are reported to
+	 * @param monitor the given progress monitor to report progress
+	 * 
+	 * @return <code>true</code> if at least one delta has been reported,
+	 *         <code>false</code> if no difference has been found
+	 * @throws IllegalArgumentException if the scope, the baseline or the
+	 *             visitor is null, or if the thread count is not positive
+	 * @throws CoreException if one of the element in the scope cannot be
+	 *             visited, or if a compared component has a resolver error
+	 *             and the comparison is not set to continue on resolver
+	 *             errors. The deltas of the elements compared before are
+	 *             reported.
+	 * @since 1.0.700
+	 */
+	public static boolean compare(final IApiScope scope, final IApiBaseline baseline, final int visibilityModifiers, final boolean force, final boolean continueOnResolverError, final int threadCount, final DeltaVisitor visitor, final IProgressMonitor monitor) throws CoreException {
+		if (scope == null || baseline == null) {
+			throw new IllegalArgumentException("None of the scope or the baseline must be null"); //$NON-NLS-1$
+		}
+		if (visitor == null) {
+			throw new IllegalArgumentException("The visitor cannot be null"); //$NON-NLS-1$
+		}
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("The thread count must be positive"); //$NON-NLS-1$
+		}
+		IApiElement[] elements = scope.getApiElements();
+		SubMonitor localmonitor = SubMonitor.convert(monitor, elements.length);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threadCount, elements.length)));
+		try {
+			LinkedList<Future<ScopeElementDeltas>> pending = new LinkedList<Future<ScopeElementDeltas>>();
+			boolean reported = false;
+			boolean containsError = false;
+			for (int i = 0, max = elements.length; i < max; i++) {
+				Util.updateMonitor(localmonitor);
+				final IApiElement element = elements[i];
+				pending.add(executor.submit(new Callable<ScopeElementDeltas>() {
+					@Override
+					public ScopeElementDeltas call() throws Exception {
+						ScopeElementDeltas result = new ScopeElementDeltas();
+						ApiScope elementScope = new ApiScope();
+						elementScope.addElement(element);
+						CompareApiScopeVisitor scopeVisitor = new CompareApiScopeVisitor(result.deltas, baseline, force, visibilityModifiers, continueOnResolverError, new NullProgressMonitor());
+						elementScope.accept(scopeVisitor);
+						result.containsError = scopeVisitor.containsError();
+						return result;
+					}
+				}));
+				while (pending.size() >= 2 * threadCount) {
+					ScopeElementDeltas result = report(pending.removeFirst());
+					containsError |= result.containsError;
+					reported |= report(result, visitor);
+					localmonitor.worked(1);
+				}
+			}
+			while (!pending.isEmpty()) {
+				Util.updateMonitor(localmonitor);
+				ScopeElementDeltas result = report(pending.removeFirst());
+				containsError |= result.containsError;
+				reported |= report(result, visitor);
+				localmonitor.worked(1);
+			}
+			if (!continueOnResolverError && containsError) {
+				throw new CoreException(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, "The comparison failed because of resolver errors")); //$NON-NLS-1$
+			}
+			return reported;
+		} finally {
+			executor.shutdownNow();
+			localmonitor.done();
+		}
+	}
+
+	/**
+	 * The leaf deltas of the comparison of one scope element, in the order
+	 * they were found
+	 */
+	static class ScopeElementDeltas {
+		final Set<IDelta> deltas = new LinkedHashSet<IDelta>();
+		boolean containsError;
+	}
+
+	/**
+	 * Waits for the comparison of a scope element to complete
+	 * 
+	 * @param future the pending comparison
+	 * @return the deltas of the element
+	 * @throws CoreException if the element could not be visited
+	 */
+	private static ScopeElementDeltas report(Future<ScopeElementDeltas> future) throws CoreException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof CoreException) {
+				throw (CoreException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * Reports the leaf deltas of a scope element that a scope comparison keeps
+	 * to the given visitor
+	 * 
+	 * @param result the deltas of the element
+	 * @param visitor
+	 * @return <code>true</code> if a delta has been reported
+	 */
+	private static boolean report(ScopeElementDeltas result, DeltaVisitor visitor) {
+		boolean reported = false;
+		for (Iterator<IDelta> iterator = result.deltas.iterator(); iterator.hasNext();) {
+			IDelta delta = iterator.next();
+			if (isScopeLeafDelta(delta)) {
+				delta.accept(visitor);
+				reported = true;
+			}
+		}
+		return reported;
+	}
+
+	/**
+	 * Returns whether the given delta is a leaf delta kept in the delta of a
+	 * scope comparison
+	 * 
+	 * @param delta
+	 * @return <code>true</code> if the delta is kept
+	 */
+	static boolean isScopeLeafDelta(IDelta delta) {
+		if (delta.getChildren().length != 0) {
+			return false;
+		}
+		switch (delta.getElementType()) {
+			case IDelta.ANNOTATION_ELEMENT_TYPE:
+			case IDelta.ENUM_ELEMENT_TYPE:
+			case IDelta.CONSTRUCTOR_ELEMENT_TYPE:
+			case IDelta.METHOD_ELEMENT_TYPE:
+			case IDelta.INTERFACE_ELEMENT_TYPE:
+			case IDelta.CLASS_ELEMENT_TYPE:
+			case IDelta.FIELD_ELEMENT_TYPE:
+			case IDelta.API_COMPONENT_ELEMENT_TYPE:
+			case IDelta.API_BASELINE_ELEMENT_TYPE:
+				return true;
+			default:
+				return false;
+		}
+	}
+
 	/**
 	 * Returns true, if the given type descriptor should be skipped, false
 	 * otherwise.
@@ -744,12 +1084,6 @@ public class ApiComparator {
 										// their visibility
 										return;
 									}
-									IApiType typeDescriptor2 = typeRoot2.getStructure();
-									IApiAnnotations elementDescription2 = providerApiDesc.resolveAnnotations(typeDescriptor2.getHandle());
-									int visibility2 = 0;
-									if (elementDescription2 != null) {
-										visibility2 = elementDescription2.getVisibility();
-									}
 									if (visibilityModifiers == VisibilityModifiers.API) {
 										// if the visibility is API, we only
 										// consider public and protected types
@@ -757,6 +1091,20 @@ public class ApiComparator {
 											return;
 										}
 									}
+									ApiAnalysisMetrics.count(component2.getSymbolicName(), ApiAnalysisMetrics.COUNTER_TYPES_COMPARED, 1);
+									if (ClassFileDigests.isUnchanged(typeDescriptor, typeRoot2, component, provider)) {
+										// same class file and same API
+										// description: no need to parse the
+										// type again
+										typeRootBaseLineNames.add(typeName);
+										return;
+									}
+									IApiType typeDescriptor2 = typeRoot2.getStructure();
+									IApiAnnotations elementDescription2 = providerApiDesc.resolveAnnotations(typeDescriptor2.getHandle());
+									int visibility2 = 0;
+									if (elementDescription2 != null) {
+										visibility2 = elementDescription2.getVisibility();
+									}
 									if (Util.isAPI(visibility, typeDescriptor)) {
 										if (!Util.isAPI(visibility2, typeDescriptor2)) {
 											globalDelta.add(new Delta(deltaComponentID, IDelta.API_COMPONENT_ELEMENT_TYPE, IDelta.REMOVED, reexported ? IDelta.REEXPORTED_API_TYPE : IDelta.API_TYPE, elementDescription2 != null ? elementDescription2.getRestrictions() : RestrictionModifiers.NO_RESTRICTIONS, RestrictionModifiers.NO_RESTRICTIONS, typeDescriptor.getModifiers(), typeDescriptor2.getModifiers(), typeName, typeName, new String[] {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2014 IBM Corporation and others.
+ * Copyright (c) 2009, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,7 +11,9 @@
 package org.eclipse.pde.api.tools.internal.provisional.search;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 
@@ -22,7 +24,10 @@ import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.pde.api.tools.internal.AntFilterStore;
+import org.eclipse.pde.api.tools.internal.builder.Reference;
+import org.eclipse.pde.api.tools.internal.builder.ReferencePool;
 import org.eclipse.pde.api.tools.internal.builder.ReferenceResolver;
+import org.eclipse.pde.api.tools.internal.model.ApiType;
 import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
 import org.eclipse.pde.api.tools.internal.provisional.builder.IReference;
 import org.eclipse.pde.api.tools.internal.provisional.model.ApiTypeContainerVisitor;
@@ -52,7 +57,10 @@ public final class ApiSearchEngine {
 	public static final IReference[] NO_REFERENCES = new IReference[0];
 
 	/**
-	 * Visitor used to extract references from the component is is passed to
+	 * Visitor used to extract references from the component is is passed to.
+	 * References are created from a pool shared by the whole component,
+	 * references that are not accepted go back to the pool and the buffers
+	 * used for each type are reused.
 	 */
 	class ReferenceExtractor extends ApiTypeContainerVisitor {
 		static final int COLLECTOR_MAX = 2500;
@@ -61,6 +69,9 @@ public final class ApiSearchEngine {
 		private IApiSearchReporter reporter = null;
 		IApiElement element = null;
 		private SubMonitor monitor = null;
+		private ReferencePool pool = new ReferencePool();
+		private HashSet<Reference> extracted = new HashSet<Reference>();
+		private ArrayList<IReference> references = new ArrayList<IReference>();
 
 		/**
 		 * Constructor
@@ -101,7 +112,16 @@ public final class ApiSearchEngine {
 				if (type == null || !requestor.acceptMember(type)) {
 					return;
 				}
-				collector.addAll(acceptReferences(requestor, type, getResolvedReferences(requestor, type, monitor.newChild(1)), monitor.newChild(1)));
+				if (type instanceof ApiType) {
+					((ApiType) type).extractReferences(requestor.getReferenceKinds(), extracted, pool);
+					references.addAll(extracted);
+					extracted.clear();
+					ReferenceResolver.resolveReferences(references, monitor.newChild(1));
+					acceptReferences(requestor, type, references, collector, pool, monitor.newChild(1));
+					references.clear();
+				} else {
+					collector.addAll(acceptReferences(requestor, type, getResolvedReferences(requestor, type, monitor.newChild(1)), monitor.newChild(1)));
+				}
 			} catch (CoreException ce) {
 				ApiPlugin.log(ce);
 			}
@@ -184,30 +204,48 @@ public final class ApiSearchEngine {
 	 */
 	List<IReference> acceptReferences(IApiSearchRequestor requestor, IApiType type, List<IReference> references, IProgressMonitor monitor) throws CoreException {
 		ArrayList<IReference> refs = new ArrayList<IReference>();
+		if (!acceptReferences(requestor, type, references, refs, null, monitor)) {
+			return Collections.EMPTY_LIST;
+		}
+		return refs;
+	}
+
+	/**
+	 * Runs the given list of references through the search requestor and adds
+	 * the ones to keep to the given collection
+	 * 
+	 * @param requestor
+	 * @param type
+	 * @param references
+	 * @param accepted the collection to add the accepted references to
+	 * @param pool the pool to give the references that are not kept back to
+	 *            or <code>null</code>
+	 * @param monitor
+	 * @return <code>false</code> if the search was canceled
+	 * @throws CoreException
+	 */
+	boolean acceptReferences(IApiSearchRequestor requestor, IApiType type, List<IReference> references, Collection<IReference> accepted, ReferencePool pool, IProgressMonitor monitor) throws CoreException {
 		IReference ref = null;
 		SubMonitor localmonitor = SubMonitor.convert(monitor, references.size());
-		IApiMember member = null;
+		localmonitor.setTaskName(MessageFormat.format(SearchMessages.ApiSearchEngine_searching_for_use_from, new Object[] {
+				fRequestorContext, type.getName() }));
 		try {
 			for (Iterator<IReference> iter = references.iterator(); iter.hasNext();) {
 				if (localmonitor.isCanceled()) {
-					return Collections.EMPTY_LIST;
+					return false;
 				}
 				ref = iter.next();
-				member = ref.getResolvedReference();
-				if (member == null) {
-					continue;
-				}
-				localmonitor.setTaskName(MessageFormat.format(SearchMessages.ApiSearchEngine_searching_for_use_from, new Object[] {
-						fRequestorContext, type.getName() }));
-				if (requestor.acceptReference(ref)) {
-					refs.add(ref);
+				if (ref.getResolvedReference() != null && requestor.acceptReference(ref)) {
+					accepted.add(ref);
+				} else if (pool != null) {
+					pool.recycle(ref);
 				}
 				localmonitor.worked(1);
 			}
 		} finally {
 			localmonitor.done();
 		}
-		return refs;
+		return true;
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2011 IBM Corporation and others.
+ * Copyright (c) 2009, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -123,6 +123,13 @@ public class SearchMessages extends NLS {
 	public static String UseReportConverter_bundle;
 	public static String UseReportConverter_bundle_usage_information;
 	public static String UseReportConverter_bundles_that_were_not_searched;
+	public static String UseReportConverter_not_searched_title;
+	public static String UseReportConverter_not_searched_header;
+	public static String UseReportConverter_not_searched_click_entry;
+	public static String UseReportConverter_missing_summary_available;
+	public static String UseReportConverter_skipped_bundles;
+	public static String UseReportConverter_skipped_details;
+	public static String UseReportConverter_no_bundles_skipped;
 	public static String UseReportConverter_click_an_entry_to_see_details;
 	public static String UseReportConverter_description;
 	public static String UseReportConverter_filter_pattern;
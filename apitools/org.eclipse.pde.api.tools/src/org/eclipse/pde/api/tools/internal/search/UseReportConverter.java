@@ -22,12 +22,18 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -45,6 +51,7 @@ import javax.xml.transform.stream.StreamSource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.jdt.core.Signature;
@@ -589,6 +596,30 @@ public class UseReportConverter extends HTMLConvertor {
 		}
 	}
 
+	/**
+	 * Handler for parsing the not_searched.xml file to output the page of
+	 * bundles that were not searched without applying an XSLT
+	 */
+	static final class NotSearchedHandler extends DefaultHandler {
+		List<String[]> components = new ArrayList<String[]>();
+		boolean showMissing = false;
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+			if (IApiXmlConstants.ELEMENT_COMPONENTS.equals(qName)) {
+				// like the XSLT, only show the summary when the attribute is
+				// set to something else than false
+				String value = attributes.getValue("ShowMissing"); //$NON-NLS-1$
+				showMissing = value != null && !Boolean.FALSE.toString().equals(value);
+			} else if (IApiXmlConstants.ELEMENT_COMPONENT.equals(qName)) {
+				components.add(new String[] {
+						attributes.getValue(IApiXmlConstants.ATTR_ID),
+						attributes.getValue(IApiXmlConstants.ATTR_VERSION),
+						attributes.getValue(IApiXmlConstants.SKIPPED_DETAILS) });
+			}
+		}
+	}
+
 	/**
 	 * Visibility constant indicating an element has host-fragment level of
 	 * visibility. i.e. fragments have {@link #PRIVATE_PERMISSIBLE}-like access
@@ -601,6 +632,10 @@ public class UseReportConverter extends HTMLConvertor {
 	 * Default XSLT file name
 	 */
 	public static final String DEFAULT_XSLT = "/references.xsl"; //$NON-NLS-1$
+	/**
+	 * Default XSLT file name for the page of bundles that were not searched
+	 */
+	static final String DEFAULT_NOT_SEARCHED_XSLT = "/notsearched.xsl"; //$NON-NLS-1$
 	/**
 	 * Colour white for normal / permissible references Possibility: #C0E0C0
 	 */
@@ -629,6 +664,11 @@ public class UseReportConverter extends HTMLConvertor {
 	 * The script block used to show an expanding table of references
 	 */
 	static final String REF_SCRIPT;
+	/**
+	 * The script block used to show the expanding table of bundles that were
+	 * not searched
+	 */
+	static final String NOT_SEARCHED_SCRIPT;
 
 	static {
 		StringBuffer buffer = new StringBuffer();
@@ -647,6 +687,11 @@ public class UseReportConverter extends HTMLConvertor {
 		buffer.append("<script type=\"text/javascript\">\n\tfunction expand(location) {\n\t\tif(document.getElementById) {\n\t\t\tvar childhtml = location.firstChild;\n\t\t\tif(!childhtml.innerHTML) {\n\t\t\t\tchildhtml = childhtml.nextSibling;\n\t\t\t}\n\t\t\tchildhtml.innerHTML = childhtml.innerHTML == '[+] ' ? '[-] ' : '[+] ';\n\t\t\tvar parent = location.parentNode;\n\t\t\tchildhtml = parent.nextSibling.style ? parent.nextSibling : parent.nextSibling.nextSibling;\n\t\t\tchildhtml.style.display = childhtml.style.display == 'block' ? 'none' : 'block';\n\t\t}\n\t}\n</script>\n"); //$NON-NLS-1$
 		buffer.append("<noscript>\n\t<style type=\"text/css\">\n\t\t.types {display:block;}\n\t\t.kinds{display:block;}\n\t</style>\n</noscript>\n"); //$NON-NLS-1$
 		REF_SCRIPT = buffer.toString();
+
+		buffer = new StringBuffer();
+		buffer.append("<script type=\"text/javascript\">\n\tfunction expand(location) {\n\t\tif(document.getElementById) {\n\t\t\tvar childhtml = location.firstChild;\n\t\t\tif(!childhtml.innerHTML) {\n\t\t\t\tchildhtml = childhtml.nextSibling;\n\t\t\t}\n\t\t\tchildhtml.innerHTML = childhtml.innerHTML == '[+] ' ? '[-] ' : '[+] ';\n\t\t\tvar parent = location.parentNode.parentNode;\n\t\t\tchildhtml = parent.nextSibling.style ? parent.nextSibling : parent.nextSibling.nextSibling;\n\t\t\tchildhtml.style.display = childhtml.style.display == 'block' ? 'none' : 'block';\n\t\t}\n\t}\n</script>\n"); //$NON-NLS-1$
+		buffer.append("<noscript>\n\t<style type=\"text/css\">\n\t\t.types {display:block;}\n\t</style>\n</noscript>\n"); //$NON-NLS-1$
+		NOT_SEARCHED_SCRIPT = buffer.toString();
 	}
 
 	private String xmlLocation = null;
@@ -657,6 +702,7 @@ public class UseReportConverter extends HTMLConvertor {
 	SAXParser parser = null;
 	private UseMetadata metadata = null;
 	private int filteredCount = -1;
+	private int threadCount = Runtime.getRuntime().availableProcessors();
 	Pattern[] topatterns = null;
 	Pattern[] frompatterns = null;
 
@@ -802,11 +848,84 @@ public class UseReportConverter extends HTMLConvertor {
 		}
 	}
 
+	/**
+	 * Sets the number of threads used to parse the use scan and write the
+	 * component pages. Each thread converts one producer component at a time,
+	 * so only the components in flight are held in memory.
+	 * 
+	 * @param count the number of threads to use, values less than one are
+	 *            treated as one
+	 * @since 1.0.700
+	 */
+	public void setThreadCount(int count) {
+		this.threadCount = Math.max(1, count);
+	}
+
 	protected List<?> parse(IProgressMonitor monitor) throws Exception {
 		UseScanParser lparser = new UseScanParser();
-		Visitor convertor = new Visitor();
-		lparser.parse(getXmlLocation(), monitor, convertor);
-		return convertor.reports;
+		File[] components = lparser.getDirectories(getReportsRoot());
+		int threads = components == null ? 1 : Math.min(this.threadCount, components.length);
+		if (threads <= 1) {
+			Visitor convertor = new Visitor();
+			lparser.parse(getXmlLocation(), monitor, convertor);
+			return convertor.reports;
+		}
+		SubMonitor localmonitor = SubMonitor.convert(monitor, SearchMessages.UseScanParser_parsing, components.length);
+		ArrayList<Report> reports = new ArrayList<Report>();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			// keep the number of components in flight bounded, results are
+			// collected in submission order
+			LinkedList<Future<List<Report>>> pending = new LinkedList<Future<List<Report>>>();
+			for (int i = 0; i < components.length; i++) {
+				final File component = components[i];
+				pending.add(executor.submit(new Callable<List<Report>>() {
+					@Override
+					public List<Report> call() throws Exception {
+						Visitor convertor = new Visitor();
+						new UseScanParser().parseComponent(component, convertor);
+						return convertor.reports;
+					}
+				}));
+				while (pending.size() >= threads * 2) {
+					reports.addAll(getReports(pending.removeFirst()));
+					Util.updateMonitor(localmonitor, 1);
+				}
+			}
+			while (!pending.isEmpty()) {
+				reports.addAll(getReports(pending.removeFirst()));
+				Util.updateMonitor(localmonitor, 1);
+			}
+		} finally {
+			executor.shutdownNow();
+			localmonitor.done();
+		}
+		return reports;
+	}
+
+	/**
+	 * Waits for and returns the reports of a component being converted
+	 * 
+	 * @param future the pending conversion
+	 * @return the reports of the converted component
+	 * @throws Exception if the conversion failed
+	 */
+	private List<Report> getReports(Future<List<Report>> future) throws Exception {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
 	}
 
 	/**
@@ -1120,6 +1239,12 @@ public class UseReportConverter extends HTMLConvertor {
 				// try <root>/xml in case a raw report root is specified
 				xml = new File(getReportsRoot() + File.separator + "xml", filename + XML_EXTENSION); //$NON-NLS-1$
 			}
+			if (DEFAULT_NOT_SEARCHED_XSLT.equals(getNotSearchedXSLPath())) {
+				// the default transform is simple enough to write directly,
+				// which avoids loading the whole file into an XSLT processor
+				writeNotSearchedPage(xml, originhtml);
+				return;
+			}
 			defaultXsltInputStream = UseReportConverter.class.getResourceAsStream(getNotSearchedXSLPath());
 			Source xslt = null;
 			if (defaultXsltInputStream != null) {
@@ -1151,7 +1276,79 @@ public class UseReportConverter extends HTMLConvertor {
 	 * @return path to the XSL file
 	 */
 	String getNotSearchedXSLPath() {
-		return "/notsearched.xsl"; //$NON-NLS-1$
+		return DEFAULT_NOT_SEARCHED_XSLT;
+	}
+
+	/**
+	 * Writes the page of components that were not searched to the given HTML
+	 * file. Produces the same page as the default not-searched XSLT.
+	 * 
+	 * @param xml the not_searched.xml file, may not exist
+	 * @param originhtml the HTML file to write
+	 * @throws Exception
+	 */
+	void writeNotSearchedPage(File xml, File originhtml) throws Exception {
+		NotSearchedHandler handler = new NotSearchedHandler();
+		if (xml.exists()) {
+			getParser().parse(xml, handler);
+		}
+		Collections.sort(handler.components, new Comparator<String[]>() {
+			@Override
+			public int compare(String[] o1, String[] o2) {
+				return String.valueOf(o1[0]).compareTo(String.valueOf(o2[0]));
+			}
+		});
+		StringBuffer buffer = new StringBuffer();
+		buffer.append(HTML_HEADER);
+		buffer.append(OPEN_HTML).append(OPEN_HEAD).append(CONTENT_TYPE_META);
+		buffer.append(OPEN_TITLE).append(SearchMessages.UseReportConverter_not_searched_title).append(CLOSE_TITLE);
+		buffer.append(REF_STYLE);
+		buffer.append(NOT_SEARCHED_SCRIPT);
+		buffer.append(CLOSE_HEAD);
+		buffer.append(OPEN_BODY);
+		buffer.append(OPEN_H3).append(SearchMessages.UseReportConverter_not_searched_header).append(CLOSE_H3);
+		if (handler.components.isEmpty()) {
+			buffer.append(OPEN_P).append(SearchMessages.UseReportConverter_no_bundles_skipped).append(CLOSE_P);
+		} else {
+			if (handler.showMissing) {
+				buffer.append(OPEN_P).append(NLS.bind(SearchMessages.UseReportConverter_missing_summary_available, new String[] {
+						"<a href=\"missing.html\">", "</a>" })).append(CLOSE_P); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			buffer.append(OPEN_P).append(SearchMessages.UseReportConverter_not_searched_click_entry).append(CLOSE_P);
+			buffer.append("<div align=\"left\" class=\"main\">\n"); //$NON-NLS-1$
+			buffer.append("<table border=\"1\" width=\"60%\">\n"); //$NON-NLS-1$
+			buffer.append("<tr bgcolor=\"#E0C040\">\n"); //$NON-NLS-1$
+			buffer.append(OPEN_TD).append(OPEN_B).append(SearchMessages.UseReportConverter_skipped_bundles).append(CLOSE_B).append(CLOSE_TD).append(CLOSE_TR);
+			for (String[] component : handler.components) {
+				buffer.append(OPEN_TR).append(OPEN_TD);
+				buffer.append(OPEN_H3).append(OPEN_B);
+				buffer.append("<a href=\"javascript:void(0)\" class=\"typeslnk\" onclick=\"expand(this)\">"); //$NON-NLS-1$
+				buffer.append("<span>[+] </span>").append(component[0]).append(" (").append(component[1]).append(')'); //$NON-NLS-1$ //$NON-NLS-2$
+				buffer.append(CLOSE_A).append(CLOSE_B).append(CLOSE_H3);
+				buffer.append("<div class=\"types\">\n"); //$NON-NLS-1$
+				buffer.append("<table border=\"0\" width=\"100%\">\n"); //$NON-NLS-1$
+				buffer.append(OPEN_TR).append("<td bgcolor=\"#CCCCCC\">").append(OPEN_B).append(SearchMessages.UseReportConverter_skipped_details).append(CLOSE_B).append(CLOSE_TD).append(CLOSE_TR); //$NON-NLS-1$
+				buffer.append("<tr align=\"left\">\n"); //$NON-NLS-1$
+				buffer.append(OPEN_TD).append("<pre>").append(component[2]).append("</pre>").append(CLOSE_TD).append(CLOSE_TR); //$NON-NLS-1$ //$NON-NLS-2$
+				buffer.append(CLOSE_TABLE).append(CLOSE_DIV);
+				buffer.append(CLOSE_TD).append(CLOSE_TR);
+			}
+			buffer.append(CLOSE_TABLE).append(CLOSE_DIV);
+		}
+		buffer.append(OPEN_P).append("<a href=\"index.html\">").append(SearchMessages.UseReportConverter_back_to_bundle_index).append(CLOSE_A).append(CLOSE_P); //$NON-NLS-1$
+		buffer.append(W3C_FOOTER);
+		buffer.append(CLOSE_BODY).append(CLOSE_HTML);
+
+		PrintWriter writer = null;
+		try {
+			writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(originhtml), IApiCoreConstants.UTF_8));
+			writer.print(buffer.toString());
+			writer.flush();
+		} finally {
+			if (writer != null) {
+				writer.close();
+			}
+		}
 	}
 
 	/**
@@ -0,0 +1,671 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.pde.api.tools.internal.model.ArchiveIndex;
+import org.eclipse.pde.api.tools.internal.IApiCoreConstants;
+import org.eclipse.pde.api.tools.internal.provisional.Factory;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IComponentDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IElementDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IMemberDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IMethodDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IReferenceTypeDescriptor;
+
+/**
+ * Binary form of an API use scan, indexed by referenced component and
+ * referenced type, used by the {@link UseScanManager} to look up the
+ * references to a component without parsing the XML of the scan.
+ * <p>
+ * The index is created from the XML of a scan by
+ * {@link #convert(String, File, long, IProgressMonitor)} and read through a
+ * memory mapped buffer, so that looking up the references to some types of a
+ * component only reads the entries of those types. The file is laid out as
+ * follows, all numbers being big endian <code>int</code>s unless stated
+ * otherwise:
+ *
+ * <pre>
+ * header:     magic, version, fingerprint (long), string count, component count,
+ *             offset of the string data, offset of the component table
+ * strings:    string count + 1 offsets into the string data, the UTF-8 string data
+ * components: id, version, type count, offset of the type table - sorted by id
+ * types:      root type name, offset of the references, reference count - sorted by name
+ * references: referencing component id and version, origin type, name and
+ *             signature, line number, target element type, target type, name and
+ *             signature, kind, flags and visibility
+ * </pre>
+ *
+ * Strings are stored once and referred to by their index in the string table,
+ * <code>-1</code> standing for <code>null</code>.
+ * </p>
+ *
+ * @since 1.0.700
+ */
+public final class UseScanIndex {
+
+	/**
+	 * Magic number of index files
+	 */
+	static final int MAGIC = 0x41505553;
+	/**
+	 * Version of the index format
+	 */
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+	static final int COMPONENT_SIZE = 16;
+	static final int TYPE_SIZE = 12;
+	static final int REFERENCE_FIELDS = 13;
+	static final int REFERENCE_SIZE = REFERENCE_FIELDS * 4;
+
+	/**
+	 * Visitor collecting all of the references of a scan for the index
+	 */
+	static final class IndexBuilder extends UseScanVisitor {
+
+		HashMap<String, Integer> fStrings = new HashMap<String, Integer>();
+		List<String> fStringList = new ArrayList<String>();
+
+		/**
+		 * Map of component keys ('id version') to the map of root type names
+		 * to the references to the type
+		 */
+		TreeMap<String, TreeMap<String, IntList>> fComponents = new TreeMap<String, TreeMap<String, IntList>>();
+		HashMap<String, IComponentDescriptor> fDescriptors = new HashMap<String, IComponentDescriptor>();
+
+		private TreeMap<String, IntList> fCurrentTypes = null;
+		private IComponentDescriptor fReferencingComponent = null;
+		private IMemberDescriptor fCurrentMember = null;
+		private IntList fCurrentReferences = null;
+
+		/*
+		 * (non-Javadoc)
+		 * @see
+		 * org.eclipse.pde.api.tools.internal.search.UseScanVisitor#visitComponent
+		 * (org.eclipse.pde.api.tools.internal.provisional.descriptors.
+		 * IComponentDescriptor)
+		 */
+		@Override
+		public boolean visitComponent(IComponentDescriptor target) {
+			String key = target.getId() + ' ' + target.getVersion();
+			fCurrentTypes = fComponents.get(key);
+			if (fCurrentTypes == null) {
+				fCurrentTypes = new TreeMap<String, IntList>();
+				fComponents.put(key, fCurrentTypes);
+				fDescriptors.put(key, target);
+			}
+			return true;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.eclipse.pde.api.tools.internal.search.UseScanVisitor#
+		 * visitReferencingComponent
+		 * (org.eclipse.pde.api.tools.internal.provisional
+		 * .descriptors.IComponentDescriptor)
+		 */
+		@Override
+		public boolean visitReferencingComponent(IComponentDescriptor component) {
+			fReferencingComponent = component;
+			return true;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see
+		 * org.eclipse.pde.api.tools.internal.search.UseScanVisitor#visitMember
+		 * (org.eclipse.pde.api.tools.internal.provisional.descriptors.
+		 * IMemberDescriptor)
+		 */
+		@Override
+		public boolean visitMember(IMemberDescriptor referencedMember) {
+			String root = getRootTypeName(referencedMember);
+			fCurrentReferences = fCurrentTypes.get(root);
+			if (fCurrentReferences == null) {
+				fCurrentReferences = new IntList();
+				fCurrentTypes.put(root, fCurrentReferences);
+			}
+			fCurrentMember = referencedMember;
+			return true;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see
+		 * org.eclipse.pde.api.tools.internal.search.UseScanVisitor#visitReference
+		 * (org.eclipse.pde.api.tools.internal.search.IReferenceDescriptor)
+		 */
+		@Override
+		public void visitReference(IReferenceDescriptor reference) {
+			IntList list = fCurrentReferences;
+			list.add(indexOf(fReferencingComponent.getId()));
+			list.add(indexOf(fReferencingComponent.getVersion()));
+			addMember(list, reference.getMember(), false);
+			list.add(reference.getLineNumber());
+			addMember(list, fCurrentMember, true);
+			list.add(reference.getReferenceKind());
+			list.add(reference.getReferenceFlags());
+			list.add(reference.getVisibility());
+		}
+
+		/**
+		 * Adds the type name, member name and signature of the given member to
+		 * the given list
+		 *
+		 * @param list
+		 * @param member
+		 * @param elementType if the element type of the member must be added
+		 */
+		private void addMember(IntList list, IMemberDescriptor member, boolean elementType) {
+			if (elementType) {
+				list.add(member.getElementType());
+			}
+			switch (member.getElementType()) {
+				case IElementDescriptor.TYPE:
+					list.add(indexOf(((IReferenceTypeDescriptor) member).getQualifiedName()));
+					list.add(-1);
+					list.add(-1);
+					break;
+				case IElementDescriptor.METHOD:
+					list.add(indexOf(member.getEnclosingType().getQualifiedName()));
+					list.add(indexOf(member.getName()));
+					list.add(indexOf(((IMethodDescriptor) member).getSignature()));
+					break;
+				default:
+					list.add(indexOf(member.getEnclosingType().getQualifiedName()));
+					list.add(indexOf(member.getName()));
+					list.add(-1);
+					break;
+			}
+		}
+
+		/**
+		 * Returns the index of the given string in the string table, adding
+		 * it if needed
+		 *
+		 * @param string
+		 * @return the index or <code>-1</code> for <code>null</code>
+		 */
+		int indexOf(String string) {
+			if (string == null) {
+				return -1;
+			}
+			Integer index = fStrings.get(string);
+			if (index == null) {
+				index = new Integer(fStringList.size());
+				fStrings.put(string, index);
+				fStringList.add(string);
+			}
+			return index.intValue();
+		}
+
+		/**
+		 * Writes the index
+		 *
+		 * @param out
+		 * @param fingerprint
+		 * @throws IOException
+		 */
+		void write(DataOutputStream out, long fingerprint) throws IOException {
+			// make sure all of the strings are in the table before writing it
+			for (Iterator<String> iter = fComponents.keySet().iterator(); iter.hasNext();) {
+				IComponentDescriptor descriptor = fDescriptors.get(iter.next());
+				indexOf(descriptor.getId());
+				indexOf(descriptor.getVersion());
+			}
+			for (Iterator<TreeMap<String, IntList>> iter = fComponents.values().iterator(); iter.hasNext();) {
+				for (Iterator<String> iter2 = iter.next().keySet().iterator(); iter2.hasNext();) {
+					indexOf(iter2.next());
+				}
+			}
+			int stringCount = fStringList.size();
+			byte[][] strings = new byte[stringCount][];
+			int stringSize = 0;
+			for (int i = 0; i < stringCount; i++) {
+				strings[i] = fStringList.get(i).getBytes(IApiCoreConstants.UTF_8);
+				stringSize += strings[i].length;
+			}
+			int stringData = HEADER_SIZE + (stringCount + 1) * 4;
+			int componentTable = stringData + stringSize;
+			int typeTables = componentTable + fComponents.size() * COMPONENT_SIZE;
+			int typeCount = 0;
+			for (Iterator<TreeMap<String, IntList>> iter = fComponents.values().iterator(); iter.hasNext();) {
+				typeCount += iter.next().size();
+			}
+			int references = typeTables + typeCount * TYPE_SIZE;
+
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(fingerprint);
+			out.writeInt(stringCount);
+			out.writeInt(fComponents.size());
+			out.writeInt(stringData);
+			out.writeInt(componentTable);
+			int offset = 0;
+			for (int i = 0; i < stringCount; i++) {
+				out.writeInt(offset);
+				offset += strings[i].length;
+			}
+			out.writeInt(offset);
+			for (int i = 0; i < stringCount; i++) {
+				out.write(strings[i]);
+			}
+			// component table
+			int typeOffset = typeTables;
+			for (Iterator<Entry<String, TreeMap<String, IntList>>> iter = fComponents.entrySet().iterator(); iter.hasNext();) {
+				Entry<String, TreeMap<String, IntList>> entry = iter.next();
+				IComponentDescriptor descriptor = fDescriptors.get(entry.getKey());
+				out.writeInt(indexOf(descriptor.getId()));
+				out.writeInt(indexOf(descriptor.getVersion()));
+				out.writeInt(entry.getValue().size());
+				out.writeInt(typeOffset);
+				typeOffset += entry.getValue().size() * TYPE_SIZE;
+			}
+			// type tables
+			int referenceOffset = references;
+			for (Iterator<TreeMap<String, IntList>> iter = fComponents.values().iterator(); iter.hasNext();) {
+				for (Iterator<Entry<String, IntList>> iter2 = iter.next().entrySet().iterator(); iter2.hasNext();) {
+					Entry<String, IntList> entry = iter2.next();
+					int count = entry.getValue().size() / REFERENCE_FIELDS;
+					out.writeInt(indexOf(entry.getKey()));
+					out.writeInt(referenceOffset);
+					out.writeInt(count);
+					referenceOffset += count * REFERENCE_SIZE;
+				}
+			}
+			// references
+			for (Iterator<TreeMap<String, IntList>> iter = fComponents.values().iterator(); iter.hasNext();) {
+				for (Iterator<IntList> iter2 = iter.next().values().iterator(); iter2.hasNext();) {
+					IntList list = iter2.next();
+					for (int i = 0; i < list.size(); i++) {
+						out.writeInt(list.get(i));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Growable list of <code>int</code>s
+	 */
+	static final class IntList {
+		private int[] fValues = new int[REFERENCE_FIELDS * 4];
+		private int fSize = 0;
+
+		void add(int value) {
+			if (fSize == fValues.length) {
+				int[] values = new int[fSize * 2];
+				System.arraycopy(fValues, 0, values, 0, fSize);
+				fValues = values;
+			}
+			fValues[fSize++] = value;
+		}
+
+		int get(int index) {
+			return fValues[index];
+		}
+
+		int size() {
+			return fSize;
+		}
+	}
+
+	private ByteBuffer fBuffer = null;
+	private String[] fStrings = null;
+	private int fStringData = 0;
+	private int fComponentTable = 0;
+	private int fComponentCount = 0;
+	private long fFingerprint = 0;
+
+	/**
+	 * Constructor
+	 *
+	 * @param buffer the contents of the index
+	 * @throws IOException if the buffer does not contain an index of the
+	 *             current version
+	 */
+	private UseScanIndex(ByteBuffer buffer) throws IOException {
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("Invalid use scan index"); //$NON-NLS-1$
+		}
+		fBuffer = buffer;
+		fFingerprint = buffer.getLong(8);
+		fStrings = new String[buffer.getInt(16)];
+		fComponentCount = buffer.getInt(20);
+		fStringData = buffer.getInt(24);
+		fComponentTable = buffer.getInt(28);
+	}
+
+	/**
+	 * Opens the index in the given file
+	 *
+	 * @param file the index file
+	 * @return the index
+	 * @throws IOException if the file cannot be read or does not contain an
+	 *             index of the current version
+	 */
+	public static UseScanIndex open(File file) throws IOException {
+		FileInputStream stream = new FileInputStream(file);
+		try {
+			FileChannel channel = stream.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new UseScanIndex(buffer);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Releases the mapping of the index file. The index cannot be used
+	 * afterwards.
+	 */
+	public void close() {
+		ByteBuffer buffer = fBuffer;
+		fBuffer = null;
+		ArchiveIndex.unmap(buffer);
+	}
+
+	/**
+	 * Creates the index of the use scan at the given location
+	 *
+	 * @param xmlLocation the root of the XML of the use scan
+	 * @param file the file to write the index to
+	 * @param fingerprint the fingerprint of the scan to keep in the index
+	 * @param monitor the progress monitor
+	 * @throws Exception if the scan cannot be read or the index cannot be
+	 *             written
+	 */
+	public static void convert(String xmlLocation, File file, long fingerprint, IProgressMonitor monitor) throws Exception {
+		IndexBuilder builder = new IndexBuilder();
+		UseScanParser parser = new UseScanParser();
+		parser.parse(xmlLocation, monitor, builder);
+		File parent = file.getParentFile();
+		if (parent != null && !parent.exists()) {
+			parent.mkdirs();
+		}
+		// write to a temporary file so a partial index is never opened
+		File temp = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+		try {
+			builder.write(out, fingerprint);
+		} finally {
+			out.close();
+		}
+		if (file.exists()) {
+			file.delete();
+		}
+		if (!temp.renameTo(file)) {
+			throw new IOException(file.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Returns a fingerprint of the XML files of the use scan at the given
+	 * location, it changes when any of the files of the scan changes
+	 *
+	 * @param xmlLocation the root of the XML of the use scan
+	 * @return the fingerprint
+	 */
+	public static long getFingerprint(String xmlLocation) {
+		return getFingerprint(new File(xmlLocation), 17);
+	}
+
+	/**
+	 * Adds the given file or the files in the given folder to the given
+	 * fingerprint
+	 *
+	 * @param file
+	 * @param fingerprint
+	 * @return the new fingerprint
+	 */
+	private static long getFingerprint(File file, long fingerprint) {
+		long result = fingerprint * 31 + file.getName().hashCode();
+		if (file.isDirectory()) {
+			String[] names = file.list();
+			if (names != null) {
+				Arrays.sort(names);
+				for (int i = 0; i < names.length; i++) {
+					result = getFingerprint(new File(file, names[i]), result);
+				}
+			}
+		} else {
+			result = result * 31 + file.lastModified();
+			result = result * 31 + file.length();
+		}
+		return result;
+	}
+
+	/**
+	 * @return the fingerprint of the scan this index was created from
+	 */
+	public long getFingerprint() {
+		return fFingerprint;
+	}
+
+	/**
+	 * Adds the references to the component with the given id to the given
+	 * collection
+	 *
+	 * @param componentId the symbolic name of the referenced component, the
+	 *            references to all of the versions of the component are added
+	 * @param types the names of the referenced (root) types to add the
+	 *            references of or <code>null</code> to add all of the
+	 *            references to the component
+	 * @param references the collection to add the references to
+	 */
+	public void collect(String componentId, String[] types, IReferenceCollection references) {
+		int component = findComponent(componentId);
+		if (component < 0) {
+			return;
+		}
+		for (int i = component; i < fComponentCount; i++) {
+			int entry = fComponentTable + i * COMPONENT_SIZE;
+			if (!componentId.equals(getString(fBuffer.getInt(entry)))) {
+				break;
+			}
+			IComponentDescriptor target = Factory.componentDescriptor(componentId, getString(fBuffer.getInt(entry + 4)));
+			int typeCount = fBuffer.getInt(entry + 8);
+			int typeTable = fBuffer.getInt(entry + 12);
+			if (types == null) {
+				for (int j = 0; j < typeCount; j++) {
+					collect(target, typeTable + j * TYPE_SIZE, references);
+				}
+			} else {
+				for (int j = 0; j < types.length; j++) {
+					int type = findType(typeTable, typeCount, types[j]);
+					if (type >= 0) {
+						collect(target, typeTable + type * TYPE_SIZE, references);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the references of the given type entry to the given collection
+	 *
+	 * @param target the referenced component
+	 * @param entry the offset of the type entry
+	 * @param references the collection to add the references to
+	 */
+	private void collect(IComponentDescriptor target, int entry, IReferenceCollection references) {
+		String type = getString(fBuffer.getInt(entry));
+		int offset = fBuffer.getInt(entry + 4);
+		int count = fBuffer.getInt(entry + 8);
+		IComponentDescriptor from = null;
+		for (int i = 0; i < count; i++, offset += REFERENCE_SIZE) {
+			String fromId = getString(fBuffer.getInt(offset));
+			String fromVersion = getString(fBuffer.getInt(offset + 4));
+			if (from == null || !from.getId().equals(fromId) || !equals(from.getVersion(), fromVersion)) {
+				from = Factory.componentDescriptor(fromId, fromVersion);
+			}
+			IMemberDescriptor origin = getMember(offset + 8, originType(offset));
+			int line = fBuffer.getInt(offset + 20);
+			IMemberDescriptor referenced = getMember(offset + 28, fBuffer.getInt(offset + 24));
+			references.add(type, new ReferenceDescriptor(from, origin, line, target, referenced, fBuffer.getInt(offset + 40), fBuffer.getInt(offset + 44), fBuffer.getInt(offset + 48), null));
+		}
+	}
+
+	/**
+	 * Returns the element type of the origin of the reference at the given
+	 * offset
+	 *
+	 * @param offset
+	 * @return the element type
+	 */
+	private int originType(int offset) {
+		if (fBuffer.getInt(offset + 16) != -1) {
+			return IElementDescriptor.METHOD;
+		}
+		if (fBuffer.getInt(offset + 12) != -1) {
+			return IElementDescriptor.FIELD;
+		}
+		return IElementDescriptor.TYPE;
+	}
+
+	/**
+	 * Returns the member described by the type name, member name and
+	 * signature at the given offset
+	 *
+	 * @param offset
+	 * @param elementType
+	 * @return the member descriptor
+	 */
+	private IMemberDescriptor getMember(int offset, int elementType) {
+		String type = getString(fBuffer.getInt(offset));
+		switch (elementType) {
+			case IElementDescriptor.METHOD:
+				return Factory.methodDescriptor(type, getString(fBuffer.getInt(offset + 4)), getString(fBuffer.getInt(offset + 8)));
+			case IElementDescriptor.FIELD:
+				return Factory.fieldDescriptor(type, getString(fBuffer.getInt(offset + 4)));
+			default:
+				return Factory.typeDescriptor(type);
+		}
+	}
+
+	/**
+	 * Returns the index of the first entry of the component with the given id
+	 *
+	 * @param id
+	 * @return the index of the entry or <code>-1</code>
+	 */
+	private int findComponent(String id) {
+		int low = 0;
+		int high = fComponentCount - 1;
+		int found = -1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int compare = getString(fBuffer.getInt(fComponentTable + mid * COMPONENT_SIZE)).compareTo(id);
+			if (compare < 0) {
+				low = mid + 1;
+			} else {
+				if (compare == 0) {
+					found = mid;
+				}
+				high = mid - 1;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the index of the entry of the given type in the given type table
+	 *
+	 * @param table
+	 * @param count
+	 * @param type
+	 * @return the index of the entry or <code>-1</code>
+	 */
+	private int findType(int table, int count, String type) {
+		int low = 0;
+		int high = count - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int compare = getString(fBuffer.getInt(table + mid * TYPE_SIZE)).compareTo(type);
+			if (compare < 0) {
+				low = mid + 1;
+			} else if (compare > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the string with the given index in the string table
+	 *
+	 * @param index
+	 * @return the string or <code>null</code> if the index is <code>-1</code>
+	 */
+	private String getString(int index) {
+		if (index < 0) {
+			return null;
+		}
+		String string = fStrings[index];
+		if (string == null) {
+			int start = fBuffer.getInt(HEADER_SIZE + index * 4);
+			int end = fBuffer.getInt(HEADER_SIZE + (index + 1) * 4);
+			byte[] bytes = new byte[end - start];
+			ByteBuffer buffer = fBuffer.duplicate();
+			buffer.position(fStringData + start);
+			buffer.get(bytes);
+			try {
+				string = new String(bytes, IApiCoreConstants.UTF_8);
+			} catch (IOException e) {
+				string = new String(bytes);
+			}
+			fStrings[index] = string;
+		}
+		return string;
+	}
+
+	/**
+	 * Returns the name of the root type of the type of the given member
+	 *
+	 * @param member
+	 * @return the name of the root type
+	 */
+	static String getRootTypeName(IMemberDescriptor member) {
+		String name;
+		if (member instanceof IReferenceTypeDescriptor) {
+			name = ((IReferenceTypeDescriptor) member).getQualifiedName();
+		} else {
+			name = member.getEnclosingType().getQualifiedName();
+		}
+		int index = name.indexOf('$');
+		if (index > -1) {
+			name = name.substring(0, index);
+		}
+		return name;
+	}
+
+	private static boolean equals(String s1, String s2) {
+		return s1 == null ? s2 == null : s1.equals(s2);
+	}
+}
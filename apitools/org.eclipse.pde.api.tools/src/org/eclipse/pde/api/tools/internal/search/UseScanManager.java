@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2013 IBM Corporation and others.
+ * Copyright (c) 2010, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,12 +14,15 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.jar.JarFile;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
@@ -43,6 +46,11 @@ public class UseScanManager {
 	private static UseScanManager fUseScanProcessor;
 	private static String tempLocation = "${workspace_loc}/.metadata/.plugins/" + ApiPlugin.PLUGIN_ID + "/ApiUseScans/"; //$NON-NLS-1$ //$NON-NLS-2$
 
+	/**
+	 * Folder of the indexes of the use scans, under the temporary location
+	 */
+	private static final String INDEX_FOLDER = "index/"; //$NON-NLS-1$
+
 	public static final String STATE_DELIM = "*"; //$NON-NLS-1$
 	public static final String LOCATION_DELIM = "|"; //$NON-NLS-1$
 	public static final String ESCAPE_REGEX = "\\"; //$NON-NLS-1$
@@ -87,6 +95,22 @@ public class UseScanManager {
 
 	private String[] fLocations = null;
 
+	/**
+	 * Map of use scan (XML) locations to their opened index
+	 */
+	private HashMap<String, UseScanIndex> fIndexes = new HashMap<String, UseScanIndex>();
+
+	/**
+	 * Map of use scan (XML) locations to their fingerprint, computed once per
+	 * location until the report locations change
+	 */
+	private HashMap<String, Long> fFingerprints = new HashMap<String, Long>();
+
+	/**
+	 * The report locations read from the preferences by the last fetch
+	 */
+	private String[] fPreferenceLocations = null;
+
 	/**
 	 * {@link FileFilter} for finding use scan directories
 	 */
@@ -180,6 +204,7 @@ public class UseScanManager {
 			String[] locations;
 			if (fLocations == null) {
 				locations = getReportLocations();
+				checkLocations(locations);
 			} else {
 				locations = fLocations;
 			}
@@ -226,7 +251,10 @@ public class UseScanManager {
 							}
 							throw new Exception(message);
 						}
-						parser.parse(locations[i], localmonitor.newChild(2), visitor);
+						SubMonitor scanmonitor = localmonitor.newChild(2);
+						if (!collect(locations[i], apiComponent, types, references, scanmonitor)) {
+							parser.parse(locations[i], scanmonitor, visitor);
+						}
 						Util.updateMonitor(localmonitor);
 					} catch (Exception e) {
 						ApiPlugin.log(e); // log the exception and continue with
@@ -247,6 +275,88 @@ public class UseScanManager {
 		}
 	}
 
+	/**
+	 * Adds the references to the given component from the index of the use
+	 * scan at the given location. The index is used under the lock so that it
+	 * is not closed by {@link #clearCache()} meanwhile.
+	 * 
+	 * @param location the root of the XML of the use scan
+	 * @param apiComponent the referenced component
+	 * @param types the referenced types or <code>null</code> for all
+	 * @param references the collection to add the references to
+	 * @param monitor
+	 * @return <code>false</code> if there is no index, the scan has to be
+	 *         parsed instead
+	 */
+	private synchronized boolean collect(String location, IApiComponent apiComponent, String[] types, IReferenceCollection references, IProgressMonitor monitor) {
+		UseScanIndex index = getIndex(location, monitor);
+		if (index == null) {
+			return false;
+		}
+		index.collect(apiComponent.getSymbolicName(), types, references);
+		return true;
+	}
+
+	/**
+	 * Returns the index of the use scan at the given location, creating it if
+	 * it does not exist or if the scan changed since it was created
+	 * 
+	 * @param location the root of the XML of the use scan
+	 * @param monitor
+	 * @return the index or <code>null</code> if it cannot be created, the
+	 *         scan has to be parsed instead
+	 */
+	private synchronized UseScanIndex getIndex(String location, IProgressMonitor monitor) {
+		Long known = fFingerprints.get(location);
+		UseScanIndex index = fIndexes.get(location);
+		if (known != null && index != null) {
+			// the index was checked against the scan since the locations were set
+			return index;
+		}
+		long fingerprint = UseScanIndex.getFingerprint(location);
+		fFingerprints.put(location, Long.valueOf(fingerprint));
+		if (index != null) {
+			if (index.getFingerprint() == fingerprint) {
+				return index;
+			}
+			// the scan changed since the index was opened
+			fIndexes.remove(location);
+			index.close();
+			index = null;
+		}
+		File file = null;
+		try {
+			String path = tempLocation + INDEX_FOLDER + new File(location).getName() + '.' + location.hashCode() + ".idx"; //$NON-NLS-1$
+			file = new File(VariablesPlugin.getDefault().getStringVariableManager().performStringSubstitution(path));
+		} catch (CoreException e) {
+			ApiPlugin.log(e);
+			return null;
+		}
+		if (file.exists()) {
+			try {
+				index = UseScanIndex.open(file);
+				if (index.getFingerprint() != fingerprint) {
+					index.close();
+					index = null;
+				}
+			} catch (IOException e) {
+				// re-create the index
+				index = null;
+			}
+		}
+		if (index == null) {
+			try {
+				UseScanIndex.convert(location, file, fingerprint, monitor);
+				index = UseScanIndex.open(file);
+			} catch (Exception e) {
+				ApiPlugin.log(e);
+				return null;
+			}
+		}
+		fIndexes.put(location, index);
+		return index;
+	}
+
 	/**
 	 * Returns the scan
 	 * 
@@ -398,6 +508,22 @@ public class UseScanManager {
 	 */
 	public void setReportLocations(String[] locations) {
 		fLocations = locations;
+		synchronized (this) {
+			fFingerprints.clear();
+		}
+	}
+
+	/**
+	 * Forgets the fingerprints of the use scans when the given report locations
+	 * read from the preferences differ from the ones of the last fetch
+	 * 
+	 * @param locations
+	 */
+	private synchronized void checkLocations(String[] locations) {
+		if (!Arrays.equals(locations, fPreferenceLocations)) {
+			fPreferenceLocations = locations;
+			fFingerprints.clear();
+		}
 	}
 
 	/**
@@ -410,7 +536,7 @@ public class UseScanManager {
 	}
 
 	/**
-	 * Purges all reference information
+	 * Purges all reference information and deletes the indexes of the use scans
 	 */
 	public void clearCache() {
 		Enumeration<?> elementss = fApiComponentCache.elements();
@@ -419,5 +545,21 @@ public class UseScanManager {
 			reference.clear();
 		}
 		fApiComponentCache.flush();
+		synchronized (this) {
+			// release the mapped index files before deleting them
+			for (UseScanIndex index : fIndexes.values()) {
+				index.close();
+			}
+			fIndexes.clear();
+			fFingerprints.clear();
+			try {
+				File folder = new File(VariablesPlugin.getDefault().getStringVariableManager().performStringSubstitution(tempLocation + INDEX_FOLDER));
+				if (folder.exists()) {
+					Util.delete(folder);
+				}
+			} catch (CoreException e) {
+				ApiPlugin.log(e);
+			}
+		}
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2013 IBM Corporation and others.
+ * Copyright (c) 2009, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -242,70 +242,102 @@ public class UseScanParser {
 		localmonitor.subTask(SearchMessages.UseReportConverter_collecting_dir_info);
 		File[] referees = getDirectories(reportsRoot);
 		Util.updateMonitor(localmonitor, 1);
-		File[] origins = null;
-		File[] xmlfiles = null;
 		localmonitor.setWorkRemaining(referees.length);
 		visitor.visitScan();
 		try {
 			SAXParser parser = getParser();
 			// Treat each top level directory as a producer component
 			for (int i = 0; i < referees.length; i++) {
-				if (referees[i].isDirectory()) {
-					String[] idv = getIdVersion(referees[i].getName());
-					IComponentDescriptor tcomp = Factory.componentDescriptor(idv[0], idv[1]);
-					enterTargetComponent(tcomp);
-					if (visitReferencingComponent) {
-
-						// If the visitor returned true, treat sub-directories
-						// as consumer components
-						origins = getDirectories(referees[i]);
-						origins = sort(origins); // sort to visit in determined
-													// order
-						for (int j = 0; j < origins.length; j++) {
-							if (origins[j].isDirectory()) {
-								idv = getIdVersion(origins[j].getName());
-								IComponentDescriptor rcomp = Factory.componentDescriptor(idv[0], idv[1]);
-								enterReferencingComponent(rcomp);
-								if (visitMembers) {
-
-									// If the visitor returned true, open all
-									// xml files in the directory and process
-									// them to find members
-									localmonitor.subTask(NLS.bind(SearchMessages.UseScanParser_analyzing_references, new String[] { origins[j].getName() }));
-									xmlfiles = Util.getAllFiles(origins[j], new FileFilter() {
-										@Override
-										public boolean accept(File pathname) {
-											return pathname.isDirectory() || pathname.getName().endsWith(".xml"); //$NON-NLS-1$
-										}
-									});
-									if (xmlfiles != null && xmlfiles.length > 0) {
-										xmlfiles = sort(xmlfiles); // sort to
-																	// visit in
-																	// determined
-																	// order
-										for (int k = 0; k < xmlfiles.length; k++) {
-											try {
-												ReferenceHandler handler = new ReferenceHandler(getTypeFromFileName(xmlfiles[k]));
-												parser.parse(xmlfiles[k], handler);
-											} catch (SAXException e) {
-											} catch (IOException e) {
-											}
-										}
-									}
-									endMember();
+				parseComponent(referees[i], parser, localmonitor);
+				Util.updateMonitor(localmonitor, 1);
+			}
+		} finally {
+			visitor.endVisitScan();
+			localmonitor.done();
+		}
+	}
+
+	/**
+	 * Parses the references made to the single producer component whose use
+	 * scan is rooted at the given directory, i.e. one of the top level
+	 * directories of an API use scan. The visitor is notified for that
+	 * component only: {@link UseScanVisitor#visitScan()} and
+	 * {@link UseScanVisitor#endVisitScan()} are not called.
+	 * <p>
+	 * A parser is not thread safe, but separate parsers can be used to parse
+	 * separate components of the same scan concurrently.
+	 * </p>
+	 * 
+	 * @param componentLocation the directory of the component in the use scan
+	 * @param usv the visitor to notify
+	 * @throws Exception if a parser could not be created
+	 * @since 1.0.700
+	 */
+	public void parseComponent(File componentLocation, UseScanVisitor usv) throws Exception {
+		visitor = usv;
+		parseComponent(componentLocation, getParser(), null);
+	}
+
+	/**
+	 * Parses the use scan of the producer component rooted at the given
+	 * directory with the given parser
+	 * 
+	 * @param componentLocation the directory of the component in the use scan
+	 * @param parser the parser to use
+	 * @param monitor the monitor to report sub-tasks to or <code>null</code>
+	 */
+	private void parseComponent(File componentLocation, SAXParser parser, IProgressMonitor monitor) {
+		if (!componentLocation.isDirectory()) {
+			return;
+		}
+		String[] idv = getIdVersion(componentLocation.getName());
+		IComponentDescriptor tcomp = Factory.componentDescriptor(idv[0], idv[1]);
+		enterTargetComponent(tcomp);
+		if (visitReferencingComponent) {
+
+			// If the visitor returned true, treat sub-directories
+			// as consumer components
+			File[] origins = getDirectories(componentLocation);
+			origins = sort(origins); // sort to visit in determined order
+			File[] xmlfiles = null;
+			for (int j = 0; j < origins.length; j++) {
+				if (origins[j].isDirectory()) {
+					idv = getIdVersion(origins[j].getName());
+					IComponentDescriptor rcomp = Factory.componentDescriptor(idv[0], idv[1]);
+					enterReferencingComponent(rcomp);
+					if (visitMembers) {
+
+						// If the visitor returned true, open all
+						// xml files in the directory and process
+						// them to find members
+						if (monitor != null) {
+							monitor.subTask(NLS.bind(SearchMessages.UseScanParser_analyzing_references, new String[] { origins[j].getName() }));
+						}
+						xmlfiles = Util.getAllFiles(origins[j], new FileFilter() {
+							@Override
+							public boolean accept(File pathname) {
+								return pathname.isDirectory() || pathname.getName().endsWith(".xml"); //$NON-NLS-1$
+							}
+						});
+						if (xmlfiles != null && xmlfiles.length > 0) {
+							xmlfiles = sort(xmlfiles); // sort to visit in
+														// determined order
+							for (int k = 0; k < xmlfiles.length; k++) {
+								try {
+									ReferenceHandler handler = new ReferenceHandler(getTypeFromFileName(xmlfiles[k]));
+									parser.parse(xmlfiles[k], handler);
+								} catch (SAXException e) {
+								} catch (IOException e) {
 								}
-								endReferencingComponent();
 							}
 						}
+						endMember();
 					}
-					Util.updateMonitor(localmonitor, 1);
-					endComponent();
+					endReferencingComponent();
 				}
 			}
-		} finally {
-			visitor.endVisitScan();
-			localmonitor.done();
 		}
+		endComponent();
 	}
 
 	/**
@@ -0,0 +1,528 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.search;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.pde.api.tools.internal.AntFilterStore;
+import org.eclipse.pde.api.tools.internal.IApiCoreConstants;
+import org.eclipse.pde.api.tools.internal.IApiXmlConstants;
+import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
+import org.eclipse.pde.api.tools.internal.provisional.builder.IReference;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiElement;
+import org.eclipse.pde.api.tools.internal.provisional.search.IApiSearchReporter;
+import org.eclipse.pde.api.tools.internal.provisional.search.IMetadata;
+import org.eclipse.pde.api.tools.internal.util.Util;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Keeps the use scan results of each scanned component between two scans, so
+ * that a scan only has to search the components that changed.
+ * <p>
+ * The results of a component are the reference files the
+ * {@link XmlReferenceDescriptorWriter} writes for it, kept in a folder of the
+ * cache location named after the component, along with the reference counts
+ * of the component. They are reused as long as the digest of the component
+ * is the same: the digest covers the contents of the component and of all of
+ * its prerequisite components, so a component is searched again when its
+ * references may resolve differently. All results are dropped when the scan
+ * configuration changes.
+ * </p>
+ * <p>
+ * Since the reference files written for a component only contain the
+ * references from that component, copying the results of all of the
+ * components into the report location produces the same report as a full
+ * scan.
+ * </p>
+ *
+ * @since 1.0.700
+ */
+public class UseScanResultsCache {
+
+	/**
+	 * The version of the cache format, changing it drops all of the cached
+	 * results
+	 */
+	static final String VERSION = "1"; //$NON-NLS-1$
+	static final String INDEX_FILE = "index.xml"; //$NON-NLS-1$
+	static final String ELEMENT_USESCAN = "usescan"; //$NON-NLS-1$
+	static final String ATTR_CONFIGURATION = "configuration"; //$NON-NLS-1$
+	static final String ATTR_DIGEST = "digest"; //$NON-NLS-1$
+
+	/**
+	 * The cached results of one component
+	 */
+	static final class Results {
+		String digest;
+		int references = 0;
+		int illegal = 0;
+		int internal = 0;
+		int filtered = 0;
+
+		Results(String digest) {
+			this.digest = digest;
+		}
+	}
+
+	/**
+	 * Reporter writing the references of each searched component into its
+	 * folder of the cache
+	 */
+	class CachingReporter implements IApiSearchReporter {
+
+		private String fCurrentId = null;
+		private XmlSearchReporter fCurrentReporter = null;
+		private int fFilteredSize = 0;
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.eclipse.pde.api.tools.internal.provisional.search.
+		 * IApiSearchReporter
+		 * #reportResults(org.eclipse.pde.api.tools.internal.provisional
+		 * .model.IApiElement,
+		 * org.eclipse.pde.api.tools.internal.provisional.builder.IReference[])
+		 */
+		@Override
+		public void reportResults(IApiElement element, IReference[] references) {
+			IApiComponent component = element.getApiComponent();
+			if (component == null) {
+				return;
+			}
+			String id = getId(component);
+			Results results = fResults.get(id);
+			if (results == null) {
+				return;
+			}
+			if (!id.equals(fCurrentId)) {
+				fCurrentId = id;
+				fCurrentReporter = new XmlSearchReporter(getFolder(id).getAbsolutePath(), false);
+			}
+			fCurrentReporter.reportResults(element, references);
+			results.references = fCurrentReporter.getReferenceCount();
+			results.illegal = fCurrentReporter.getIllegalCount();
+			results.internal = fCurrentReporter.getInternalCount();
+			// the problems filtered from the component are added to the
+			// filter store while it is searched, before its results are
+			// reported
+			int size = AntFilterStore.filteredAPIProblems.size();
+			results.filtered += size - fFilteredSize;
+			fFilteredSize = size;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.eclipse.pde.api.tools.internal.provisional.search.
+		 * IApiSearchReporter
+		 * #reportNotSearched(org.eclipse.pde.api.tools.internal.provisional
+		 * .model.IApiElement[])
+		 */
+		@Override
+		public void reportNotSearched(IApiElement[] elements) {
+			// the cache only keeps the references
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.eclipse.pde.api.tools.internal.provisional.search.
+		 * IApiSearchReporter
+		 * #reportMetadata(org.eclipse.pde.api.tools.internal.provisional
+		 * .search.IMetadata)
+		 */
+		@Override
+		public void reportMetadata(IMetadata data) {
+			// the cache only keeps the references
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.eclipse.pde.api.tools.internal.provisional.search.
+		 * IApiSearchReporter#reportCounts()
+		 */
+		@Override
+		public void reportCounts() {
+			// the counts are kept per component
+		}
+	}
+
+	private File fLocation = null;
+	private String fConfiguration = null;
+	private String fFiltersRoot = null;
+
+	/**
+	 * Map of component ids ('name (version)') to their results
+	 */
+	HashMap<String, Results> fResults = new HashMap<String, Results>();
+
+	/**
+	 * Map of component ids to the digests of their own contents
+	 */
+	private HashMap<String, byte[]> fContentDigests = new HashMap<String, byte[]>();
+
+	/**
+	 * Constructor
+	 *
+	 * @param location the absolute path in the local file system of the
+	 *            folder to keep the results in
+	 * @param configuration a string describing all of the settings of the scan
+	 *            that change the results of a component, cached results are
+	 *            only used for the same configuration
+	 * @param filtersRoot the root of the .api_filters files used by the scan
+	 *            or <code>null</code>
+	 */
+	public UseScanResultsCache(String location, String configuration, String filtersRoot) {
+		fLocation = new File(location);
+		fConfiguration = VERSION + ' ' + configuration;
+		try {
+			fConfiguration = toHexString(newDigest().digest(fConfiguration.getBytes(IApiCoreConstants.UTF_8)));
+		} catch (CoreException e) {
+			// compare the configurations as they are
+		} catch (IOException e) {
+			// compare the configurations as they are
+		}
+		fFiltersRoot = filtersRoot;
+	}
+
+	/**
+	 * Loads the index of the cached results. If the results were produced with
+	 * another configuration they are all deleted.
+	 */
+	public void load() {
+		fResults.clear();
+		File index = new File(fLocation, INDEX_FILE);
+		if (index.exists()) {
+			try {
+				Element root = Util.parseDocument(Util.getFileContentAsString(index));
+				if (fConfiguration.equals(root.getAttribute(ATTR_CONFIGURATION))) {
+					NodeList components = root.getElementsByTagName(IApiXmlConstants.ELEMENT_COMPONENT);
+					for (int i = 0; i < components.getLength(); i++) {
+						Element component = (Element) components.item(i);
+						Results results = new Results(component.getAttribute(ATTR_DIGEST));
+						results.references = Integer.parseInt(component.getAttribute(IApiXmlConstants.ATTR_TOTAL));
+						results.illegal = Integer.parseInt(component.getAttribute(IApiXmlConstants.ATTR_COUNT_ILLEGAL));
+						results.internal = Integer.parseInt(component.getAttribute(IApiXmlConstants.ATTR_COUNT_INTERNAL));
+						results.filtered = Integer.parseInt(component.getAttribute(IApiXmlConstants.ATTR_COUNT_FILTERED));
+						fResults.put(component.getAttribute(IApiXmlConstants.ATTR_ID), results);
+					}
+					return;
+				}
+			} catch (CoreException e) {
+				ApiPlugin.log(e);
+			} catch (NumberFormatException e) {
+				ApiPlugin.log(e);
+			}
+			fResults.clear();
+		}
+		if (fLocation.exists()) {
+			Util.delete(fLocation);
+		}
+	}
+
+	/**
+	 * Saves the index of the cached results and deletes the results of the
+	 * components that are not in the given scope anymore.
+	 *
+	 * @param ids the ids of all of the components of the scope
+	 * @throws CoreException if the index cannot be written
+	 */
+	public void save(String[] ids) throws CoreException {
+		fResults.keySet().retainAll(Arrays.asList(ids));
+		if (!fLocation.exists()) {
+			fLocation.mkdirs();
+		}
+		File[] folders = fLocation.listFiles();
+		if (folders != null) {
+			for (int i = 0; i < folders.length; i++) {
+				if (folders[i].isDirectory() && !fResults.containsKey(folders[i].getName())) {
+					Util.delete(folders[i]);
+				}
+			}
+		}
+		Document doc = Util.newDocument();
+		Element root = doc.createElement(ELEMENT_USESCAN);
+		root.setAttribute(ATTR_CONFIGURATION, fConfiguration);
+		doc.appendChild(root);
+		TreeMap<String, Results> sorted = new TreeMap<String, Results>(fResults);
+		for (Iterator<Entry<String, Results>> iter = sorted.entrySet().iterator(); iter.hasNext();) {
+			Entry<String, Results> entry = iter.next();
+			Results results = entry.getValue();
+			Element component = doc.createElement(IApiXmlConstants.ELEMENT_COMPONENT);
+			component.setAttribute(IApiXmlConstants.ATTR_ID, entry.getKey());
+			component.setAttribute(ATTR_DIGEST, results.digest);
+			component.setAttribute(IApiXmlConstants.ATTR_TOTAL, Integer.toString(results.references));
+			component.setAttribute(IApiXmlConstants.ATTR_COUNT_ILLEGAL, Integer.toString(results.illegal));
+			component.setAttribute(IApiXmlConstants.ATTR_COUNT_INTERNAL, Integer.toString(results.internal));
+			component.setAttribute(IApiXmlConstants.ATTR_COUNT_FILTERED, Integer.toString(results.filtered));
+			root.appendChild(component);
+		}
+		try {
+			Util.saveFile(new File(fLocation, INDEX_FILE), Util.serializeDocument(doc));
+		} catch (IOException e) {
+			throw new CoreException(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, e.getMessage(), e));
+		}
+	}
+
+	/**
+	 * Returns if the results of the component with the given id are cached for
+	 * the given digest
+	 *
+	 * @param id the id of the component
+	 * @param digest the current digest of the component
+	 * @return <code>true</code> if the cached results can be used
+	 */
+	public boolean isUpToDate(String id, String digest) {
+		Results results = fResults.get(id);
+		return results != null && results.digest.equals(digest) && getFolder(id).exists();
+	}
+
+	/**
+	 * Drops the cached results of the component with the given id, the
+	 * component is about to be searched again. The results reported for the
+	 * component by the {@link #getReporter()} are kept with the given digest.
+	 * The cache must be saved once the scan is done for the results to be used
+	 * by the next scan.
+	 *
+	 * @param id the id of the component
+	 * @param digest the current digest of the component
+	 */
+	public void reset(String id, String digest) {
+		// the index is only valid again once the scan completed
+		File index = new File(fLocation, INDEX_FILE);
+		if (index.exists()) {
+			index.delete();
+		}
+		File folder = getFolder(id);
+		if (folder.exists()) {
+			Util.delete(folder);
+		}
+		folder.mkdirs();
+		fResults.put(id, new Results(digest));
+	}
+
+	/**
+	 * Returns a reporter that keeps the results of the components that were
+	 * {@link #reset(String, String)}
+	 *
+	 * @return a new reporter
+	 */
+	public IApiSearchReporter getReporter() {
+		return new CachingReporter();
+	}
+
+	/**
+	 * Copies the cached results of the components with the given ids into the
+	 * given report location and adds their counts to the given reporter
+	 *
+	 * @param ids the ids of the components to report
+	 * @param reportLocation the absolute path of the report location
+	 * @param reporter the reporter to write the counts with
+	 */
+	public void writeResults(String[] ids, String reportLocation, XmlSearchReporter reporter) {
+		File report = new File(reportLocation);
+		for (int i = 0; i < ids.length; i++) {
+			Results results = fResults.get(ids[i]);
+			if (results == null) {
+				continue;
+			}
+			copy(getFolder(ids[i]), report);
+			reporter.addCounts(results.references, results.illegal, results.internal, results.filtered);
+		}
+	}
+
+	/**
+	 * Returns the digest of the given component. It changes when the
+	 * component or any of its prerequisite components change.
+	 *
+	 * @param component the component
+	 * @return the digest of the component
+	 * @throws CoreException
+	 */
+	public String getDigest(IApiComponent component) throws CoreException {
+		MessageDigest digest = newDigest();
+		IApiBaseline baseline = component.getBaseline();
+		IApiComponent[] prereqs = baseline.getPrerequisiteComponents(new IApiComponent[] { component });
+		TreeMap<String, IApiComponent> sorted = new TreeMap<String, IApiComponent>();
+		sorted.put(getId(component), component);
+		for (int i = 0; i < prereqs.length; i++) {
+			sorted.put(getId(prereqs[i]), prereqs[i]);
+		}
+		try {
+			for (Iterator<Entry<String, IApiComponent>> iter = sorted.entrySet().iterator(); iter.hasNext();) {
+				Entry<String, IApiComponent> entry = iter.next();
+				digest.update(entry.getKey().getBytes(IApiCoreConstants.UTF_8));
+				digest.update(getContentDigest(entry.getKey(), entry.getValue()));
+			}
+		} catch (IOException e) {
+			throw new CoreException(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, e.getMessage(), e));
+		}
+		return toHexString(digest.digest());
+	}
+
+	/**
+	 * Returns the digest of the contents of the given component alone
+	 *
+	 * @param id the id of the component
+	 * @param component the component
+	 * @return the digest of the contents of the component
+	 * @throws CoreException
+	 */
+	private byte[] getContentDigest(String id, IApiComponent component) throws CoreException {
+		byte[] bytes = fContentDigests.get(id);
+		if (bytes == null) {
+			MessageDigest digest = newDigest();
+			try {
+				String location = component.getLocation();
+				if (location != null) {
+					update(digest, new File(location), ""); //$NON-NLS-1$
+				}
+				if (fFiltersRoot != null) {
+					File filters = new File(new File(fFiltersRoot, component.getSymbolicName()), IApiCoreConstants.API_FILTERS_XML_NAME);
+					update(digest, filters, IApiCoreConstants.API_FILTERS_XML_NAME);
+				}
+			} catch (IOException e) {
+				throw new CoreException(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, e.getMessage(), e));
+			}
+			bytes = digest.digest();
+			fContentDigests.put(id, bytes);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Adds the given file, or all of the files in the given folder, to the
+	 * digest
+	 *
+	 * @param digest
+	 * @param file
+	 * @param path the path of the file to add to the digest
+	 * @throws IOException
+	 */
+	private void update(MessageDigest digest, File file, String path) throws IOException {
+		if (file.isDirectory()) {
+			String[] names = file.list();
+			if (names != null) {
+				Arrays.sort(names);
+				for (int i = 0; i < names.length; i++) {
+					update(digest, new File(file, names[i]), path + '/' + names[i]);
+				}
+			}
+		} else if (file.isFile()) {
+			digest.update(path.getBytes(IApiCoreConstants.UTF_8));
+			InputStream stream = null;
+			try {
+				stream = new BufferedInputStream(new FileInputStream(file));
+				byte[] buffer = new byte[8192];
+				int read = 0;
+				while ((read = stream.read(buffer)) != -1) {
+					digest.update(buffer, 0, read);
+				}
+			} finally {
+				if (stream != null) {
+					stream.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies the given folder into the given destination, merging the folders
+	 * that already exist
+	 *
+	 * @param folder
+	 * @param destination
+	 */
+	private void copy(File folder, File destination) {
+		File[] files = folder.listFiles();
+		if (files == null) {
+			return;
+		}
+		if (!destination.exists()) {
+			destination.mkdirs();
+		}
+		for (int i = 0; i < files.length; i++) {
+			File target = new File(destination, files[i].getName());
+			if (files[i].isDirectory()) {
+				copy(files[i], target);
+			} else {
+				Util.copy(files[i], target);
+			}
+		}
+	}
+
+	/**
+	 * Returns the folder the results of the component with the given id are
+	 * kept in
+	 *
+	 * @param id
+	 * @return the folder of the component
+	 */
+	File getFolder(String id) {
+		return new File(fLocation, id);
+	}
+
+	/**
+	 * Returns the id of the given component, it is also the name of the
+	 * folders of the component in the report
+	 *
+	 * @param component
+	 * @return the id of the component including its version
+	 */
+	public static String getId(IApiComponent component) {
+		StringBuffer buffer = new StringBuffer();
+		buffer.append(component.getSymbolicName()).append(" ").append('(').append(component.getVersion()).append(')'); //$NON-NLS-1$
+		return buffer.toString();
+	}
+
+	/**
+	 * @return a new MD5 digest
+	 * @throws CoreException if MD5 is not available
+	 */
+	private static MessageDigest newDigest() throws CoreException {
+		try {
+			return MessageDigest.getInstance("MD5"); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			throw new CoreException(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, e.getMessage(), e));
+		}
+	}
+
+	/**
+	 * @param bytes
+	 * @return the hexadecimal representation of the given bytes
+	 */
+	private static String toHexString(byte[] bytes) {
+		StringBuffer buffer = new StringBuffer(bytes.length * 2);
+		for (int i = 0; i < bytes.length; i++) {
+			int value = bytes[i] & 0xFF;
+			if (value < 0x10) {
+				buffer.append('0');
+			}
+			buffer.append(Integer.toHexString(value));
+		}
+		return buffer.toString();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2013 IBM Corporation and others.
+ * Copyright (c) 2009, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -55,6 +55,7 @@ public class XmlSearchReporter implements IApiSearchReporter {
 	private int referenceCount = 0;
 	private int illegalCount = 0;
 	private int internalCount = 0;
+	private int filteredCount = 0;
 
 	/**
 	 * Constructor
@@ -124,6 +125,48 @@ public class XmlSearchReporter implements IApiSearchReporter {
 		writer.writeReferences(descriptors.toArray(new IReferenceDescriptor[descriptors.size()]));
 	}
 
+	/**
+	 * Adds the given counts to the counts of this reporter, used to report the
+	 * counts of references that were written to the report location by other
+	 * means
+	 * 
+	 * @param references the number of references
+	 * @param illegal the number of illegal references
+	 * @param internal the number of internal references
+	 * @param filtered the number of filtered problems
+	 * @since 1.0.700
+	 */
+	public void addCounts(int references, int illegal, int internal, int filtered) {
+		referenceCount += references;
+		illegalCount += illegal;
+		internalCount += internal;
+		filteredCount += filtered;
+	}
+
+	/**
+	 * @return the number of references reported so far
+	 * @since 1.0.700
+	 */
+	public int getReferenceCount() {
+		return referenceCount;
+	}
+
+	/**
+	 * @return the number of illegal references reported so far
+	 * @since 1.0.700
+	 */
+	public int getIllegalCount() {
+		return illegalCount;
+	}
+
+	/**
+	 * @return the number of internal references reported so far
+	 * @since 1.0.700
+	 */
+	public int getInternalCount() {
+		return internalCount;
+	}
+
 	/**
 	 * Resolves the id to use for the component in the mapping
 	 * 
@@ -250,7 +293,7 @@ public class XmlSearchReporter implements IApiSearchReporter {
 			root.setAttribute(IApiXmlConstants.ATTR_TOTAL, Integer.toString(referenceCount));
 			root.setAttribute(IApiXmlConstants.ATTR_COUNT_ILLEGAL, Integer.toString(illegalCount));
 			root.setAttribute(IApiXmlConstants.ATTR_COUNT_INTERNAL, Integer.toString(internalCount));
-			root.setAttribute(IApiXmlConstants.ATTR_COUNT_FILTERED, Integer.toString(AntFilterStore.filteredAPIProblems.size()));
+			root.setAttribute(IApiXmlConstants.ATTR_COUNT_FILTERED, Integer.toString(filteredCount + AntFilterStore.filteredAPIProblems.size()));
 
 			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), IApiCoreConstants.UTF_8));
 			writer.write(Util.serializeDocument(doc));
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,7 +17,7 @@ public class TarEntry implements Cloneable {
 	private String name;
 	private long mode, time, size;
 	private int type;
-	int filepos;
+	long filepos;
 
 	/**
 	 * Entry type for normal files.
@@ -36,7 +36,7 @@ public class TarEntry implements Cloneable {
 	 * @param name filename
 	 * @param pos position in the file in bytes
 	 */
-	TarEntry(String name, int pos) {
+	TarEntry(String name, long pos) {
 		this.name = name;
 		mode = 0644;
 		type = FILE;
@@ -95,6 +95,17 @@ public class TarEntry implements Cloneable {
 		return name;
 	}
 
+	/**
+	 * Returns the position of the header of the entry in the uncompressed
+	 * archive, or <code>-1</code> if the entry is not part of an archive.
+	 * 
+	 * @return the position of the entry
+	 * @since 1.0.700
+	 */
+	public long getPosition() {
+		return filepos;
+	}
+
 	/**
 	 * Returns the size of the file in bytes.
 	 * 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,24 +11,249 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.internal.util;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
 
 /**
  * Reads a .tar or .tar.gz archive file, providing an index enumeration and
  * allows for accessing an InputStream for arbitrary files in the archive.
+ * <p>
+ * Entries can also be read at random through {@link #getEntry(String)} and
+ * {@link #getContents(TarEntry)}. The first random access builds a table of
+ * the entries and of their offsets, which can be persisted in an index file so
+ * later instances do not scan the archive again. Compressed archives are read
+ * from the closest point where decompression can restart, that is the start of
+ * the GZIP member holding the entry. Archives written as many members (as
+ * <code>pigz --independent</code> or <code>bgzip</code> do) are therefore read
+ * without decompressing what precedes the entry, while single member archives
+ * are decompressed forward from the last entry read, or from their start.
+ * </p>
  */
 public class TarFile {
+
+	/**
+	 * Reads a GZIP stream made of one or more members, recording the offsets
+	 * at which each member starts in the compressed and uncompressed data.
+	 */
+	private static class GzipMemberInputStream extends InputStream {
+		private static final int FHCRC = 2;
+		private static final int FEXTRA = 4;
+		private static final int FNAME = 8;
+		private static final int FCOMMENT = 16;
+
+		private final InputStream in;
+		private final byte[] buf = new byte[8192];
+		private int bufPos = 0;
+		private int bufLen = 0;
+		private long bufOffset = 0;
+		private final Inflater inflater = new Inflater(true);
+		private final CRC32 crc = new CRC32();
+		private long position = 0;
+		private long memberStart = 0;
+		private boolean eof = false;
+
+		/**
+		 * The compressed and uncompressed offsets of each member
+		 */
+		final List<long[]> members = new ArrayList<long[]>();
+
+		/**
+		 * Creates a new stream reading the given compressed stream
+		 * 
+		 * @param in
+		 * @throws IOException if the stream is not in GZIP format
+		 */
+		GzipMemberInputStream(InputStream in) throws IOException {
+			this.in = in;
+			if (!readHeader(true)) {
+				throw new ZipException("Not in GZIP format"); //$NON-NLS-1$
+			}
+		}
+
+		private boolean fill() throws IOException {
+			bufOffset += bufLen;
+			bufPos = 0;
+			bufLen = in.read(buf);
+			if (bufLen < 0) {
+				bufLen = 0;
+				return false;
+			}
+			return true;
+		}
+
+		private int readByte() throws IOException {
+			if (bufPos == bufLen && !fill()) {
+				return -1;
+			}
+			return buf[bufPos++] & 0xFF;
+		}
+
+		private int readRequiredByte() throws IOException {
+			int b = readByte();
+			if (b < 0) {
+				throw new EOFException("Unexpected end of GZIP stream"); //$NON-NLS-1$
+			}
+			return b;
+		}
+
+		private long readInt() throws IOException {
+			return readRequiredByte() | (readRequiredByte() << 8) | (readRequiredByte() << 16) | ((long) readRequiredByte() << 24);
+		}
+
+		/**
+		 * Reads the header of the next member
+		 * 
+		 * @param first whether this is the first member of the stream
+		 * @return <code>false</code> if there is no further member
+		 * @throws IOException
+		 */
+		private boolean readHeader(boolean first) throws IOException {
+			long offset = bufOffset + bufPos;
+			int magic = readByte();
+			if (magic != 0x1f) {
+				if (first) {
+					throw new ZipException("Not in GZIP format"); //$NON-NLS-1$
+				}
+				// end of stream, or padding after the last member
+				return false;
+			}
+			if (readRequiredByte() != 0x8b || readRequiredByte() != 8) {
+				throw new ZipException("Not in GZIP format"); //$NON-NLS-1$
+			}
+			int flags = readRequiredByte();
+			// modification time, extra flags and operating system
+			for (int i = 0; i < 6; i++) {
+				readRequiredByte();
+			}
+			if ((flags & FEXTRA) != 0) {
+				int length = readRequiredByte() | (readRequiredByte() << 8);
+				for (int i = 0; i < length; i++) {
+					readRequiredByte();
+				}
+			}
+			if ((flags & FNAME) != 0) {
+				while (readRequiredByte() != 0) {
+					// skip the file name
+				}
+			}
+			if ((flags & FCOMMENT) != 0) {
+				while (readRequiredByte() != 0) {
+					// skip the comment
+				}
+			}
+			if ((flags & FHCRC) != 0) {
+				readRequiredByte();
+				readRequiredByte();
+			}
+			members.add(new long[] { offset, position });
+			memberStart = position;
+			inflater.reset();
+			crc.reset();
+			return true;
+		}
+
+		/**
+		 * Reads and checks the trailer of the current member
+		 * 
+		 * @throws IOException
+		 */
+		private void readTrailer() throws IOException {
+			if (readInt() != crc.getValue() || readInt() != ((position - memberStart) & 0xFFFFFFFFL)) {
+				throw new ZipException("Corrupt GZIP trailer"); //$NON-NLS-1$
+			}
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.io.InputStream#read(byte[], int, int)
+		 */
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			while (!eof) {
+				if (inflater.finished()) {
+					readTrailer();
+					if (!readHeader(false)) {
+						eof = true;
+					}
+					continue;
+				}
+				if (inflater.needsInput()) {
+					if (bufPos == bufLen && !fill()) {
+						throw new EOFException("Unexpected end of GZIP stream"); //$NON-NLS-1$
+					}
+					inflater.setInput(buf, bufPos, bufLen - bufPos);
+				}
+				int n;
+				try {
+					n = inflater.inflate(b, off, len);
+				} catch (DataFormatException e) {
+					throw new ZipException(e.getMessage());
+				}
+				bufPos = bufLen - inflater.getRemaining();
+				if (n > 0) {
+					crc.update(b, off, n);
+					position += n;
+					return n;
+				}
+				if (inflater.needsDictionary()) {
+					throw new ZipException("Invalid GZIP stream"); //$NON-NLS-1$
+				}
+			}
+			return -1;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.io.InputStream#read()
+		 */
+		@Override
+		public int read() throws IOException {
+			byte[] data = new byte[1];
+			int size = read(data, 0, 1);
+			if (size < 0) {
+				return size;
+			}
+			return data[0] & 0xFF;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.io.InputStream#close()
+		 */
+		@Override
+		public void close() throws IOException {
+			inflater.end();
+			in.close();
+		}
+	}
+
 	private static class TarInputStream extends FilterInputStream {
-		private int nextEntry = 0;
-		private int nextEOF = 0;
-		private int filepos = 0;
-		private int bytesread = 0;
+		private long nextEntry = 0;
+		private long nextEOF = 0;
+		private long filepos = 0;
+		private long bytesread = 0;
 		private TarEntry firstEntry = null;
 		private String longLinkName = null;
 
@@ -85,7 +310,7 @@ public class TarFile {
 		 * @throws IOException
 		 */
 		boolean skipToEntry(TarEntry entry) throws TarException, IOException {
-			int bytestoskip = entry.filepos - bytesread;
+			long bytestoskip = entry.filepos - bytesread;
 			if (bytestoskip < 0) {
 				return false;
 			}
@@ -262,9 +487,9 @@ public class TarFile {
 			if (size.charAt(0) != '0') {
 				size.insert(0, '0');
 			}
-			int fileSize;
+			long fileSize;
 			try {
-				fileSize = Integer.decode(size.toString()).intValue();
+				fileSize = Long.decode(size.toString()).longValue();
 			} catch (NumberFormatException nfe) {
 				throw new TarException("Not a valid tar format", nfe); //$NON-NLS-1$
 			}
@@ -324,7 +549,7 @@ public class TarFile {
 			if (nextEOF == 0) {
 				return -1;
 			}
-			int size = super.read(b, off, (len > nextEOF ? nextEOF : len));
+			int size = super.read(b, off, (len > nextEOF ? (int) nextEOF : len));
 			nextEntry -= size;
 			nextEOF -= size;
 			bytesread += size;
@@ -346,6 +571,9 @@ public class TarFile {
 		}
 	}
 
+	private static final int INDEX_MAGIC = 0x54415249;
+	private static final int INDEX_VERSION = 1;
+
 	private File file;
 	TarInputStream entryEnumerationStream;
 	TarEntry curEntry;
@@ -353,6 +581,36 @@ public class TarFile {
 
 	private InputStream internalEntryStream;
 
+	/**
+	 * The file the entry index is persisted in or <code>null</code>
+	 */
+	private File indexFile;
+
+	/**
+	 * The indexed entries of the archive, or <code>null</code> if the index
+	 * has not been built yet
+	 */
+	private TarEntry[] indexedEntries;
+	private Map<String, TarEntry> entryMap;
+
+	/**
+	 * Whether the archive is compressed
+	 */
+	private boolean compressed;
+
+	/**
+	 * The compressed and uncompressed offsets where decompression can restart
+	 */
+	private long[] restartOffsets;
+	private long[] restartPositions;
+
+	/**
+	 * The stream random accesses read from and its position in the
+	 * uncompressed archive
+	 */
+	private InputStream cursor;
+	private long cursorPosition;
+
 	/**
 	 * Create a new TarFile for the given file.
 	 * 
@@ -361,7 +619,23 @@ public class TarFile {
 	 * @throws IOException
 	 */
 	public TarFile(File file) throws TarException, IOException {
+		this(file, null);
+	}
+
+	/**
+	 * Create a new TarFile for the given file, persisting the index of its
+	 * entries in the given index file.
+	 * 
+	 * @param file
+	 * @param indexFile the file to persist the entry index in or
+	 *            <code>null</code> to not persist it
+	 * @throws TarException
+	 * @throws IOException
+	 * @since 1.0.700
+	 */
+	public TarFile(File file, File indexFile) throws TarException, IOException {
 		this.file = file;
+		this.indexFile = indexFile;
 
 		InputStream in = new FileInputStream(file);
 		// First, check if it's a GZIPInputStream.
@@ -394,6 +668,7 @@ public class TarFile {
 		if (internalEntryStream != null) {
 			internalEntryStream.close();
 		}
+		closeCursor();
 	}
 
 	/**
@@ -467,6 +742,304 @@ public class TarFile {
 		return entryStream;
 	}
 
+	/**
+	 * Returns all the entries of the archive, building the entry index if
+	 * required.
+	 * 
+	 * @return the entries of the archive in the order they are stored
+	 * @throws TarException
+	 * @throws IOException
+	 * @since 1.0.700
+	 */
+	public synchronized TarEntry[] getEntries() throws TarException, IOException {
+		if (indexedEntries == null) {
+			if (indexFile == null || !readIndex()) {
+				buildIndex();
+				if (indexFile != null) {
+					writeIndex();
+				}
+			}
+			entryMap = new HashMap<String, TarEntry>(indexedEntries.length * 4 / 3 + 1);
+			for (int i = 0; i < indexedEntries.length; i++) {
+				entryMap.put(indexedEntries[i].getName(), indexedEntries[i]);
+			}
+		}
+		return indexedEntries;
+	}
+
+	/**
+	 * Returns whether entries can be read at random without decompressing the
+	 * archive from its start, that is whether the archive is not compressed or
+	 * is made of several GZIP members.
+	 * 
+	 * @return whether random reads are cheap
+	 * @throws TarException
+	 * @throws IOException
+	 * @since 1.0.700
+	 */
+	public synchronized boolean isRandomAccessible() throws TarException, IOException {
+		getEntries();
+		return !compressed || restartPositions.length > 1;
+	}
+
+	/**
+	 * Returns the entry with the given name or <code>null</code> if none.
+	 * 
+	 * @param name
+	 * @return the entry or <code>null</code>
+	 * @throws TarException
+	 * @throws IOException
+	 * @since 1.0.700
+	 */
+	public synchronized TarEntry getEntry(String name) throws TarException, IOException {
+		getEntries();
+		return entryMap.get(name);
+	}
+
+	/**
+	 * Returns the contents of the given entry, reading it straight from its
+	 * offset in the archive.
+	 * 
+	 * @param entry an entry returned by {@link #getEntries()} or
+	 *            {@link #getEntry(String)}
+	 * @return the contents of the entry
+	 * @throws TarException
+	 * @throws IOException
+	 * @since 1.0.700
+	 */
+	public synchronized byte[] getContents(TarEntry entry) throws TarException, IOException {
+		getEntries();
+		long size = entry.getSize();
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Entry too large: " + entry.getName()); //$NON-NLS-1$
+		}
+		// the data follows the 512 bytes header
+		long position = entry.filepos + 512;
+		InputStream in = openAt(position);
+		byte[] contents = new byte[(int) size];
+		int read = 0;
+		try {
+			while (read < contents.length) {
+				int n = in.read(contents, read, contents.length - read);
+				if (n < 0) {
+					throw new IOException("early end of stream"); //$NON-NLS-1$
+				}
+				read += n;
+			}
+		} catch (IOException e) {
+			closeCursor();
+			throw e;
+		}
+		cursorPosition = position + read;
+		return contents;
+	}
+
+	/**
+	 * Returns a stream positioned at the given offset in the uncompressed
+	 * archive. The current cursor is reused when it is before the offset and
+	 * no closer restart point exists.
+	 * 
+	 * @param position
+	 * @return the positioned stream
+	 * @throws IOException
+	 */
+	private InputStream openAt(long position) throws IOException {
+		long restartOffset = 0;
+		long restartPosition = 0;
+		if (compressed) {
+			int index = restartPositions.length - 1;
+			while (index > 0 && restartPositions[index] > position) {
+				index--;
+			}
+			restartOffset = restartOffsets[index];
+			restartPosition = restartPositions[index];
+		} else {
+			restartOffset = position;
+			restartPosition = position;
+		}
+		if (cursor == null || cursorPosition > position || cursorPosition < restartPosition) {
+			closeCursor();
+			InputStream in = new FileInputStream(file);
+			skipFully(in, restartOffset);
+			if (compressed) {
+				in = new GZIPInputStream(new BufferedInputStream(in));
+			}
+			cursor = in;
+			cursorPosition = restartPosition;
+		}
+		try {
+			skipFully(cursor, position - cursorPosition);
+		} catch (IOException e) {
+			closeCursor();
+			throw e;
+		}
+		cursorPosition = position;
+		return cursor;
+	}
+
+	private static void skipFully(InputStream in, long count) throws IOException {
+		while (count > 0) {
+			long skipped = in.skip(count);
+			if (skipped <= 0) {
+				if (in.read() < 0) {
+					throw new IOException("early end of stream"); //$NON-NLS-1$
+				}
+				skipped = 1;
+			}
+			count -= skipped;
+		}
+	}
+
+	private void closeCursor() throws IOException {
+		if (cursor != null) {
+			InputStream in = cursor;
+			cursor = null;
+			in.close();
+		}
+	}
+
+	/**
+	 * Builds the entry index by scanning the whole archive once
+	 * 
+	 * @throws TarException
+	 * @throws IOException
+	 */
+	private void buildIndex() throws TarException, IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		GzipMemberInputStream gzip = null;
+		try {
+			in.mark(2);
+			compressed = in.read() == 0x1f && in.read() == 0x8b;
+			in.reset();
+			if (compressed) {
+				gzip = new GzipMemberInputStream(in);
+				in = gzip;
+			}
+			TarInputStream tar = new TarInputStream(in);
+			List<TarEntry> entries = new ArrayList<TarEntry>();
+			TarEntry entry;
+			while ((entry = tar.getNextEntry()) != null) {
+				entries.add(entry);
+			}
+			indexedEntries = entries.toArray(new TarEntry[entries.size()]);
+			if (gzip != null) {
+				restartOffsets = new long[gzip.members.size()];
+				restartPositions = new long[restartOffsets.length];
+				for (int i = 0; i < restartOffsets.length; i++) {
+					long[] member = gzip.members.get(i);
+					restartOffsets[i] = member[0];
+					restartPositions[i] = member[1];
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads the persisted entry index. Returns <code>false</code> if there is
+	 * none, or if the archive changed since it was written.
+	 * 
+	 * @return whether the index was read
+	 */
+	private boolean readIndex() {
+		if (!indexFile.exists()) {
+			return false;
+		}
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+			if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+				return false;
+			}
+			if (!file.getAbsolutePath().equals(in.readUTF()) || file.length() != in.readLong() || file.lastModified() != in.readLong()) {
+				return false;
+			}
+			boolean gzip = in.readBoolean();
+			TarEntry[] entries = new TarEntry[in.readInt()];
+			for (int i = 0; i < entries.length; i++) {
+				TarEntry entry = new TarEntry(in.readUTF(), in.readLong());
+				entry.setFileType(in.readInt());
+				entry.setMode(in.readLong());
+				entry.setSize(in.readLong());
+				entries[i] = entry;
+			}
+			long[] offsets = null;
+			long[] positions = null;
+			if (gzip) {
+				offsets = new long[in.readInt()];
+				positions = new long[offsets.length];
+				for (int i = 0; i < offsets.length; i++) {
+					offsets[i] = in.readLong();
+					positions[i] = in.readLong();
+				}
+			}
+			compressed = gzip;
+			restartOffsets = offsets;
+			restartPositions = positions;
+			indexedEntries = entries;
+			return true;
+		} catch (IOException e) {
+			// corrupted index, rebuild it
+			return false;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * Persists the entry index. The index is written to a temporary file first
+	 * so concurrent readers never see a partial index.
+	 */
+	private void writeIndex() {
+		File tmp = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp"); //$NON-NLS-1$
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+			try {
+				out.writeInt(INDEX_MAGIC);
+				out.writeInt(INDEX_VERSION);
+				out.writeUTF(file.getAbsolutePath());
+				out.writeLong(file.length());
+				out.writeLong(file.lastModified());
+				out.writeBoolean(compressed);
+				out.writeInt(indexedEntries.length);
+				for (int i = 0; i < indexedEntries.length; i++) {
+					TarEntry entry = indexedEntries[i];
+					out.writeUTF(entry.getName());
+					out.writeLong(entry.filepos);
+					out.writeInt(entry.getFileType());
+					out.writeLong(entry.getMode());
+					out.writeLong(entry.getSize());
+				}
+				if (compressed) {
+					out.writeInt(restartOffsets.length);
+					for (int i = 0; i < restartOffsets.length; i++) {
+						out.writeLong(restartOffsets[i]);
+						out.writeLong(restartPositions[i]);
+					}
+				}
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			tmp.delete();
+			return;
+		}
+		if (indexFile.exists() && !indexFile.delete()) {
+			tmp.delete();
+			return;
+		}
+		if (!tmp.renameTo(indexFile)) {
+			tmp.delete();
+		}
+	}
+
 	/**
 	 * Returns the path name of the file this archive represents.
 	 * 
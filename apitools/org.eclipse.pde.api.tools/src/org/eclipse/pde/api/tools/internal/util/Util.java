@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2013 IBM Corporation and others.
+ * Copyright (c) 2007, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -1881,6 +1881,21 @@ public final class Util {
 	 * it doesn't exist)
 	 */
 	public static void guntar(String zipPath, String destDirPath) throws TarException, IOException {
+		guntar(zipPath, destDirPath, true);
+	}
+
+	/**
+	 * Untar the contents of the given tar or tar.gz archive in the given
+	 * directory (create it if it doesn't exist), optionally leaving out the
+	 * class files. The folders holding the class files are created in any
+	 * case.
+	 *
+	 * @param zipPath the location of the archive
+	 * @param destDirPath the directory to extract to
+	 * @param classFiles whether to extract the class files
+	 * @since 1.0.700
+	 */
+	public static void guntar(String zipPath, String destDirPath, boolean classFiles) throws TarException, IOException {
 		TarFile tarFile = new TarFile(zipPath);
 		Enumeration<?> entries = tarFile.entries();
 		byte[] buf = new byte[8192];
@@ -1901,6 +1916,9 @@ public final class Util {
 				}
 				// create directory for a file
 				new File(destDirPath, fileDir).mkdirs();
+				if (!classFiles && isClassFile(filePath)) {
+					continue;
+				}
 				// write file
 				File outFile = new File(destDirPath, filePath);
 				BufferedOutputStream outputStream = new BufferedOutputStream(new FileOutputStream(outFile));
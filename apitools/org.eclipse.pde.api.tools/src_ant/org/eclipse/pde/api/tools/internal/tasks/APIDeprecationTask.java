@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 IBM Corporation and others.
+ * Copyright (c) 2010, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,19 +12,19 @@ package org.eclipse.pde.api.tools.internal.tasks;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 
 import org.apache.tools.ant.BuildException;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.osgi.util.NLS;
+import org.eclipse.pde.api.tools.internal.IApiCoreConstants;
 import org.eclipse.pde.api.tools.internal.model.StubApiComponent;
-import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
 import org.eclipse.pde.api.tools.internal.provisional.VisibilityModifiers;
 import org.eclipse.pde.api.tools.internal.provisional.comparator.ApiComparator;
-import org.eclipse.pde.api.tools.internal.provisional.comparator.IDelta;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.util.FilteredElements;
 
@@ -39,6 +39,7 @@ public class APIDeprecationTask extends CommonUtilsTask {
 	private String eeFileLocation;
 	private String excludeListLocation;
 	private String includeListLocation;
+	private int threadCount = 1;
 	private static final String REPORT_XML_FILE_NAME = "apiDeprecation.xml"; //$NON-NLS-1$
 
 	@Override
@@ -101,18 +102,53 @@ public class APIDeprecationTask extends CommonUtilsTask {
 			System.out.println(includedElements);
 		}
 
-		IDelta delta = null;
 		if (this.debug) {
 			System.out.println("Creation of both baselines : " + (System.currentTimeMillis() - time) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
 			time = System.currentTimeMillis();
 		}
+		File outputFile = new File(this.reportLocation);
+		if (outputFile.exists()) {
+			if (outputFile.isDirectory()) {
+				outputFile = new File(this.reportLocation, REPORT_XML_FILE_NAME);
+			}
+			// delete the file
+			// TODO we might want to customize it
+			outputFile.delete();
+		} else {
+			File outputDir = outputFile.getParentFile();
+			if (!outputDir.exists()) {
+				if (!outputDir.mkdirs()) {
+					throw new BuildException(NLS.bind(Messages.errorCreatingParentReportFile, outputDir.getAbsolutePath()));
+				}
+			}
+		}
+		// the deltas are written to the report as each component is compared
+		boolean hasDeltas = false;
+		BufferedWriter writer = null;
+		FilterListDeltaVisitor visitor = null;
 		try {
-			delta = ApiComparator.compare(referenceBaseline, currentBaseline, VisibilityModifiers.API, true, null);
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), IApiCoreConstants.UTF_8));
+			visitor = new FilterListDeltaVisitor(excludedElements, includedElements, FilterListDeltaVisitor.CHECK_DEPRECATION, writer);
+			hasDeltas = ApiComparator.compare(referenceBaseline, currentBaseline, VisibilityModifiers.API, true, this.threadCount, visitor, null);
+			visitor.endDocument();
+		} catch (IOException e) {
+			// an error occurred during the comparison, the partial report is
+			// kept
+			throw new BuildException(Messages.errorInComparison, e);
+		} catch (CoreException e) {
+			throw new BuildException(Messages.errorInComparison, e);
 		} finally {
 			if (this.debug) {
 				System.out.println("API deprecation check : " + (System.currentTimeMillis() - time) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
 				time = System.currentTimeMillis();
 			}
+			try {
+				if (writer != null) {
+					writer.close();
+				}
+			} catch (IOException e) {
+				// ignore
+			}
 			referenceBaseline.dispose();
 			currentBaseline.dispose();
 			StubApiComponent.disposeAllCaches();
@@ -123,57 +159,14 @@ public class APIDeprecationTask extends CommonUtilsTask {
 				time = System.currentTimeMillis();
 			}
 		}
-		if (delta == null) {
-			// an error occurred during the comparison
-			throw new BuildException(Messages.errorInComparison);
-		}
-		if (delta != ApiComparator.NO_DELTA) {
-			// dump the report in the appropriate folder
-			BufferedWriter writer = null;
-			File outputFile = new File(this.reportLocation);
-			if (outputFile.exists()) {
-				if (outputFile.isDirectory()) {
-					outputFile = new File(this.reportLocation, REPORT_XML_FILE_NAME);
-				}
-				// delete the file
-				// TODO we might want to customize it
-				outputFile.delete();
-			} else {
-				File outputDir = outputFile.getParentFile();
-				if (!outputDir.exists()) {
-					if (!outputDir.mkdirs()) {
-						throw new BuildException(NLS.bind(Messages.errorCreatingParentReportFile, outputDir.getAbsolutePath()));
-					}
-				}
-			}
-			try {
-				writer = new BufferedWriter(new FileWriter(outputFile));
-				FilterListDeltaVisitor visitor = new FilterListDeltaVisitor(excludedElements, includedElements, FilterListDeltaVisitor.CHECK_DEPRECATION);
-				delta.accept(visitor);
-				writer.write(visitor.getXML());
-				writer.flush();
-				if (this.debug) {
-					String potentialExcludeList = visitor.getPotentialExcludeList();
-					if (potentialExcludeList.length() != 0) {
-						System.out.println("Potential exclude list:"); //$NON-NLS-1$
-						System.out.println(potentialExcludeList);
-					}
-				}
-			} catch (IOException e) {
-				ApiPlugin.log(e);
-			} catch (CoreException e) {
-				ApiPlugin.log(e);
-			} finally {
-				try {
-					if (writer != null) {
-						writer.close();
-					}
-				} catch (IOException e) {
-					// ignore
-				}
-			}
-			if (this.debug) {
-				System.out.println("Report generation : " + (System.currentTimeMillis() - time) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
+		if (!hasDeltas) {
+			// no report when there is no difference
+			outputFile.delete();
+		} else if (this.debug && visitor != null) {
+			String potentialExcludeList = visitor.getPotentialExcludeList();
+			if (potentialExcludeList.length() != 0) {
+				System.out.println("Potential exclude list:"); //$NON-NLS-1$
+				System.out.println(potentialExcludeList);
 			}
 		}
 	}
@@ -304,4 +297,31 @@ public class APIDeprecationTask extends CommonUtilsTask {
 	public void setReport(String reportLocation) {
 		this.reportLocation = reportLocation;
 	}
+
+	/**
+	 * Set the number of threads used to compare the API components of the two
+	 * baselines.
+	 * 
+	 * <p>
+	 * The deltas of each component are written to the report as soon as the
+	 * component has been compared, in the same order whatever the number of
+	 * threads.
+	 * </p>
+	 * <p>
+	 * Defaults to <code>1</code>, comparing components one after the other.
+	 * </p>
+	 * 
+	 * @param threadCount the number of threads to use, must be a positive
+	 *            integer
+	 */
+	public void setThreadCount(String threadCount) {
+		try {
+			this.threadCount = Integer.parseInt(threadCount.trim());
+		} catch (NumberFormatException e) {
+			throw new BuildException(NLS.bind(Messages.invalidThreadCount, threadCount));
+		}
+		if (this.threadCount < 1) {
+			throw new BuildException(NLS.bind(Messages.invalidThreadCount, threadCount));
+		}
+	}
 }
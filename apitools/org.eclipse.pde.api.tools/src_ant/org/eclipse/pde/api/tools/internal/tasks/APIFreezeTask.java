@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,8 +12,9 @@ package org.eclipse.pde.api.tools.internal.tasks;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.HashMap;
@@ -23,21 +24,18 @@ import org.apache.tools.ant.BuildException;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.osgi.service.resolver.ResolverError;
 import org.eclipse.osgi.util.NLS;
+import org.eclipse.pde.api.tools.internal.IApiCoreConstants;
 import org.eclipse.pde.api.tools.internal.IApiXmlConstants;
 import org.eclipse.pde.api.tools.internal.model.StubApiComponent;
-import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
 import org.eclipse.pde.api.tools.internal.provisional.VisibilityModifiers;
 import org.eclipse.pde.api.tools.internal.provisional.comparator.ApiComparator;
 import org.eclipse.pde.api.tools.internal.provisional.comparator.ApiScope;
-import org.eclipse.pde.api.tools.internal.provisional.comparator.IDelta;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiScope;
 import org.eclipse.pde.api.tools.internal.util.FilteredElements;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 /**
  * Ant task to run the API freeze check during Eclipse build.
@@ -56,6 +54,7 @@ public class APIFreezeTask extends CommonUtilsTask {
 	 * will be included in the output xml. Set to <code>true</code> by default.
 	 */
 	private boolean processUnresolvedBundles = true;
+	private int threadCount = 1;
 	/**
 	 * If {@link #continueOnResolverError} is <code>true</code> this map will
 	 * store the resolver errors of components. Maps String component IDs to an
@@ -141,20 +140,48 @@ public class APIFreezeTask extends CommonUtilsTask {
 			System.out.println(includedElements);
 		}
 
-		IDelta delta = null;
 		if (this.debug) {
 			System.out.println("Creation of both baselines : " + (System.currentTimeMillis() - time) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
 			time = System.currentTimeMillis();
 		}
+		// the deltas are written to a temporary report as each component is
+		// compared, which replaces the report only if there is a difference
+		File tmpFile = new File(outputFile.getParentFile(), outputFile.getName() + ".tmp"); //$NON-NLS-1$
+		boolean hasDeltas = false;
+		boolean completed = false;
+		BufferedWriter writer = null;
+		FilterListDeltaVisitor visitor = null;
 		try {
-			delta = ApiComparator.compare(getScope(currentBaseline), referenceBaseline, VisibilityModifiers.API, true, processUnresolvedBundles, null);
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), IApiCoreConstants.UTF_8));
+			visitor = new FilterListDeltaVisitor(excludedElements, includedElements, FilterListDeltaVisitor.CHECK_OTHER, writer);
+			hasDeltas = ApiComparator.compare(getScope(currentBaseline), referenceBaseline, VisibilityModifiers.API, true, processUnresolvedBundles, this.threadCount, visitor, null);
+			if (hasDeltas && processUnresolvedBundles) {
+				// Store any components that had resolver errors in the xml
+				// to add warnings in the html
+				addResolverErrors(visitor);
+			}
+			visitor.endDocument();
+			completed = true;
+		} catch (IOException e) {
+			// an error occurred during the comparison
+			throw new BuildException(Messages.errorInComparison, e);
 		} catch (CoreException e) {
-			// ignore
+			throw new BuildException(Messages.errorInComparison, e);
 		} finally {
 			if (this.debug) {
 				System.out.println("API freeze check : " + (System.currentTimeMillis() - time) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
 				time = System.currentTimeMillis();
 			}
+			try {
+				if (writer != null) {
+					writer.close();
+				}
+			} catch (IOException e) {
+				// ignore
+			}
+			if (!completed || !hasDeltas) {
+				tmpFile.delete();
+			}
 			referenceBaseline.dispose();
 			currentBaseline.dispose();
 			StubApiComponent.disposeAllCaches();
@@ -165,50 +192,17 @@ public class APIFreezeTask extends CommonUtilsTask {
 				time = System.currentTimeMillis();
 			}
 		}
-		if (delta == null) {
-			// an error occurred during the comparison
-			throw new BuildException(Messages.errorInComparison);
-		}
-		if (delta != ApiComparator.NO_DELTA) {
+		if (hasDeltas) {
 			// dump the report in the appropriate folder
-			BufferedWriter writer = null;
-			try {
-				writer = new BufferedWriter(new FileWriter(outputFile));
-				FilterListDeltaVisitor visitor = new FilterListDeltaVisitor(excludedElements, includedElements, FilterListDeltaVisitor.CHECK_OTHER);
-				delta.accept(visitor);
-
-				Document doc = visitor.getDocument();
-				if (processUnresolvedBundles) {
-					// Store any components that had resolver errors in the xml
-					// to add warnings in the html
-					addResolverErrors(doc);
-				}
-
-				String serializedXml = org.eclipse.pde.api.tools.internal.util.Util.serializeDocument(doc);
-				writer.write(serializedXml);
-				writer.flush();
-				if (this.debug) {
-					String potentialExcludeList = visitor.getPotentialExcludeList();
-					if (potentialExcludeList.length() != 0) {
-						System.out.println("Potential exclude list:"); //$NON-NLS-1$
-						System.out.println(potentialExcludeList);
-					}
-				}
-			} catch (IOException e) {
-				ApiPlugin.log(e);
-			} catch (CoreException e) {
-				ApiPlugin.log(e);
-			} finally {
-				try {
-					if (writer != null) {
-						writer.close();
-					}
-				} catch (IOException e) {
-					// ignore
-				}
+			if ((outputFile.exists() && !outputFile.delete()) || !tmpFile.renameTo(outputFile)) {
+				throw new BuildException(NLS.bind(Messages.errorCreatingReportFile, outputFile.getAbsolutePath()));
 			}
 			if (this.debug) {
-				System.out.println("Report generation : " + (System.currentTimeMillis() - time) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
+				String potentialExcludeList = visitor.getPotentialExcludeList();
+				if (potentialExcludeList.length() != 0) {
+					System.out.println("Potential exclude list:"); //$NON-NLS-1$
+					System.out.println(potentialExcludeList);
+				}
 			}
 		} else {
 			if (this.debug) {
@@ -390,14 +384,42 @@ public class APIFreezeTask extends CommonUtilsTask {
 	}
 
 	/**
-	 * Modifies the given doc to add a new element under the root element that
-	 * lists all the components that had resolver errors which could affect the
-	 * results of the comparison.
+	 * Set the number of threads used to compare the API components of the
+	 * current baseline with the reference baseline.
+	 * 
+	 * <p>
+	 * The deltas of each component are written to the report as soon as the
+	 * component has been compared, in the same order whatever the number of
+	 * threads.
+	 * </p>
+	 * <p>
+	 * Defaults to <code>1</code>, comparing components one after the other.
+	 * </p>
+	 * 
+	 * @param threadCount the number of threads to use, must be a positive
+	 *            integer
+	 */
+	public void setThreadCount(String threadCount) {
+		try {
+			this.threadCount = Integer.parseInt(threadCount.trim());
+		} catch (NumberFormatException e) {
+			throw new BuildException(NLS.bind(Messages.invalidThreadCount, threadCount));
+		}
+		if (this.threadCount < 1) {
+			throw new BuildException(NLS.bind(Messages.invalidThreadCount, threadCount));
+		}
+	}
+
+	/**
+	 * Adds a new element under the root element of the report written by the
+	 * given visitor that lists all the components that had resolver errors
+	 * which could affect the results of the comparison.
 	 * 
-	 * @param document XML document to modify
+	 * @param visitor the visitor writing the report
 	 */
-	private void addResolverErrors(Document document) {
+	private void addResolverErrors(FilterListDeltaVisitor visitor) {
 		if (resolverErrors != null && !resolverErrors.isEmpty()) {
+			Document document = visitor.getDocument();
 			Element errorElement = document.createElement(IApiXmlConstants.ELEMENT_RESOLVER_ERRORS);
 
 			// Create XML elements for each component with resolver errors
@@ -419,15 +441,7 @@ public class APIFreezeTask extends CommonUtilsTask {
 			}
 
 			// Append the resolver errors element to the root node
-			NodeList rootNodes = document.getChildNodes();
-			for (int i = 0; i < rootNodes.getLength(); ++i) {
-				Node node = rootNodes.item(i);
-				if (node.getNodeType() == Node.ELEMENT_NODE) {
-					// Should only have one root element node
-					node.appendChild(errorElement);
-					break;
-				}
-			}
+			visitor.addElement(errorElement);
 		}
 	}
 }
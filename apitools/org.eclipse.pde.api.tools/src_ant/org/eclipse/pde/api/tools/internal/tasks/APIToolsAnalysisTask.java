@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -26,6 +26,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.tools.ant.BuildException;
 import org.eclipse.core.runtime.CoreException;
@@ -34,6 +39,7 @@ import org.eclipse.osgi.service.resolver.ResolverError;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.pde.api.tools.internal.AntFilterStore;
 import org.eclipse.pde.api.tools.internal.IApiXmlConstants;
+import org.eclipse.pde.api.tools.internal.builder.ApiAnalysisMetrics;
 import org.eclipse.pde.api.tools.internal.builder.BaseApiAnalyzer;
 import org.eclipse.pde.api.tools.internal.builder.BuildContext;
 import org.eclipse.pde.api.tools.internal.model.StubApiComponent;
@@ -167,6 +173,18 @@ public class APIToolsAnalysisTask extends CommonUtilsTask {
 	 */
 	private boolean processUnresolvedBundles = true;
 
+	/**
+	 * The number of threads used to analyze API components. Components are
+	 * analyzed one after the other by default.
+	 */
+	private int threadCount = 1;
+
+	/**
+	 * The file the analysis metrics are written to, or <code>null</code> if
+	 * metrics are not collected.
+	 */
+	private String metricsLocation;
+
 	private Summary[] createAllSummaries(Map<String, IApiProblem[]> allProblems) {
 		Set<Map.Entry<String, IApiProblem[]>> entrySet = allProblems.entrySet();
 		int size = entrySet.size();
@@ -347,6 +365,10 @@ public class APIToolsAnalysisTask extends CommonUtilsTask {
 				System.out.println("No include list location"); //$NON-NLS-1$
 			}
 		}
+		if (this.metricsLocation != null) {
+			ApiAnalysisMetrics.reset();
+			ApiAnalysisMetrics.setEnabled(true);
+		}
 		// unzip reference
 		long time = 0;
 		if (this.debug) {
@@ -392,6 +414,7 @@ public class APIToolsAnalysisTask extends CommonUtilsTask {
 			IApiComponent[] apiComponents = currentBaseline.getApiComponents();
 			int length = apiComponents.length;
 			Set<String> visitedApiComponentNames = new HashSet<String>();
+			List<IApiComponent> componentsToAnalyze = new ArrayList<IApiComponent>(length);
 			for (int i = 0; i < length; i++) {
 				IApiComponent apiComponent = apiComponents[i];
 				String name = apiComponent.getSymbolicName();
@@ -426,25 +449,9 @@ public class APIToolsAnalysisTask extends CommonUtilsTask {
 				}
 
 				allApiBundles.add(name);
-				BaseApiAnalyzer analyzer = new BaseApiAnalyzer();
-				try {
-					analyzer.setContinueOnResolverError(true);
-					analyzer.analyzeComponent(null, getFilterStore(name), this.properties, referenceBaseline, apiComponent, new BuildContext(), new NullProgressMonitor());
-					IApiProblem[] problems = analyzer.getProblems();
-					// remove duplicates
-					problems = removeDuplicates(problems);
-					if (problems.length != 0) {
-						allProblems.put(name, problems);
-					} else if (this.debug) {
-						System.out.println(name + " has no problems"); //$NON-NLS-1$
-					}
-				} catch (RuntimeException e) {
-					ApiPlugin.log(e);
-					throw e;
-				} finally {
-					analyzer.dispose();
-				}
+				componentsToAnalyze.add(apiComponent);
 			}
+			analyzeComponents(referenceBaseline, componentsToAnalyze, allProblems);
 			if (debug) {
 				System.out.println("=========================="); //$NON-NLS-1$
 				System.out.println("Total number of components in current baseline :" + length); //$NON-NLS-1$
@@ -519,6 +526,103 @@ public class APIToolsAnalysisTask extends CommonUtilsTask {
 			ApiPlugin.log(e);
 			throw e;
 		}
+		if (this.metricsLocation != null) {
+			try {
+				ApiAnalysisMetrics.writeJSON(new File(this.metricsLocation));
+			} catch (IOException e) {
+				throw new BuildException(NLS.bind(Messages.could_not_create_file, this.metricsLocation), e);
+			}
+		}
+	}
+
+	/**
+	 * Analyzes the given components against the reference baseline and
+	 * collects the problems found for each of them.
+	 * <p>
+	 * If more than one thread has been requested, the components are analyzed
+	 * concurrently on a bounded pool of workers, each using its own
+	 * {@link BaseApiAnalyzer}. Results are collected in the order the
+	 * components were given so the report does not depend on scheduling.
+	 * </p>
+	 * 
+	 * @param referenceBaseline the baseline to compare against
+	 * @param components the components to analyze
+	 * @param allProblems the map to collect the problems into, keyed by
+	 *            component symbolic name
+	 * @throws BuildException if the analysis of a component fails or the
+	 *             task is interrupted
+	 */
+	private void analyzeComponents(final IApiBaseline referenceBaseline, List<IApiComponent> components, Map<String, IApiProblem[]> allProblems) {
+		int size = components.size();
+		if (this.threadCount <= 1 || size <= 1) {
+			for (IApiComponent component : components) {
+				addProblems(component.getSymbolicName(), analyzeComponent(referenceBaseline, component), allProblems);
+			}
+			return;
+		}
+		if (this.debug) {
+			System.out.println("Analyzing " + size + " components using " + Math.min(this.threadCount, size) + " threads"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.threadCount, size));
+		try {
+			List<Future<IApiProblem[]>> results = new ArrayList<Future<IApiProblem[]>>(size);
+			for (final IApiComponent component : components) {
+				results.add(executor.submit(new Callable<IApiProblem[]>() {
+					@Override
+					public IApiProblem[] call() throws Exception {
+						return analyzeComponent(referenceBaseline, component);
+					}
+				}));
+			}
+			for (int i = 0; i < size; i++) {
+				try {
+					addProblems(components.get(i).getSymbolicName(), results.get(i).get(), allProblems);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new BuildException(e);
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					throw new BuildException(cause);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Runs a new {@link BaseApiAnalyzer} on the given component and returns
+	 * the problems found, duplicates removed. This method can be called
+	 * concurrently for different components.
+	 * 
+	 * @param referenceBaseline the baseline to compare against
+	 * @param component the component to analyze
+	 * @return the problems found, never <code>null</code>
+	 */
+	IApiProblem[] analyzeComponent(IApiBaseline referenceBaseline, IApiComponent component) {
+		String name = component.getSymbolicName();
+		BaseApiAnalyzer analyzer = new BaseApiAnalyzer();
+		try {
+			analyzer.setContinueOnResolverError(true);
+			analyzer.analyzeComponent(null, getFilterStore(name), this.properties, referenceBaseline, component, new BuildContext(), new NullProgressMonitor());
+			return removeDuplicates(analyzer.getProblems());
+		} catch (RuntimeException e) {
+			ApiPlugin.log(e);
+			throw e;
+		} finally {
+			analyzer.dispose();
+		}
+	}
+
+	private void addProblems(String componentID, IApiProblem[] problems, Map<String, IApiProblem[]> allProblems) {
+		if (problems.length != 0) {
+			allProblems.put(componentID, problems);
+		} else if (this.debug) {
+			System.out.println(componentID + " has no problems"); //$NON-NLS-1$
+		}
 	}
 
 	/**
@@ -922,4 +1026,46 @@ public class APIToolsAnalysisTask extends CommonUtilsTask {
 		this.processUnresolvedBundles = processUnresolvedBundles;
 	}
 
+	/**
+	 * Set the number of threads used to analyze the API components of the
+	 * current baseline.
+	 * 
+	 * <p>
+	 * Each component is analyzed independently, so on a multi-core machine
+	 * large baselines can be analyzed much faster using several threads. The
+	 * generated reports are the same whatever the number of threads.
+	 * </p>
+	 * <p>
+	 * Defaults to <code>1</code>, analyzing components one after the other.
+	 * </p>
+	 * 
+	 * @param threadCount the number of threads to use, must be a positive
+	 *            integer
+	 */
+	public void setThreadCount(String threadCount) {
+		try {
+			this.threadCount = Integer.parseInt(threadCount.trim());
+		} catch (NumberFormatException e) {
+			throw new BuildException(NLS.bind(Messages.invalidThreadCount, threadCount));
+		}
+		if (this.threadCount < 1) {
+			throw new BuildException(NLS.bind(Messages.invalidThreadCount, threadCount));
+		}
+	}
+
+	/**
+	 * Set the file the metrics collected while analyzing the API components
+	 * are written to, as JSON.
+	 * 
+	 * <p>
+	 * The metrics give the time spent in each phase of the analysis of each
+	 * component, counters such as the number of problems created and the hit
+	 * rates of the caches. Metrics are not collected unless this is set.
+	 * </p>
+	 * 
+	 * @param metricsLocation the location of the metrics file
+	 */
+	public void setMetrics(String metricsLocation) {
+		this.metricsLocation = metricsLocation;
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2012 IBM Corporation and others.
+ * Copyright (c) 2009, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,6 +32,7 @@ public final class ApiUseReportConversionTask extends CommonUtilsTask {
 	private String xsltFileLocation = null;
 	private String[] filterPatterns = null;
 	private String[] toPatterns = null;
+	private int threadCount = -1;
 
 	/**
 	 * Set the debug value.
@@ -119,6 +120,32 @@ public final class ApiUseReportConversionTask extends CommonUtilsTask {
 		this.xsltFileLocation = xsltFileLocation;
 	}
 
+	/**
+	 * Set the number of threads used to convert the reports.
+	 * 
+	 * <p>
+	 * Each referenced bundle is converted independently. The generated HTML is
+	 * the same whatever the number of threads.
+	 * </p>
+	 * <p>
+	 * This is optional. If not set, one thread per available processor is
+	 * used.
+	 * </p>
+	 * 
+	 * @param threadCount the number of threads to use, must be a positive
+	 *            integer
+	 */
+	public void setThreadCount(String threadCount) {
+		try {
+			this.threadCount = Integer.parseInt(threadCount.trim());
+		} catch (NumberFormatException e) {
+			throw new BuildException(NLS.bind(Messages.invalidThreadCount, threadCount));
+		}
+		if (this.threadCount < 1) {
+			throw new BuildException(NLS.bind(Messages.invalidThreadCount, threadCount));
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.apache.tools.ant.Task#execute()
@@ -137,6 +164,9 @@ public final class ApiUseReportConversionTask extends CommonUtilsTask {
 		try {
 			Util.delete(new File(this.htmlReportsLocation));
 			UseReportConverter converter = new UseReportConverter(this.htmlReportsLocation, this.xmlReportsLocation, this.toPatterns, this.filterPatterns);
+			if (this.threadCount > 0) {
+				converter.setThreadCount(this.threadCount);
+			}
 			ApiPlugin.DEBUG_USE_REPORT_CONVERTER = this.debug;
 			converter.convert(this.xsltFileLocation, null);
 			File index = converter.getReportIndex();
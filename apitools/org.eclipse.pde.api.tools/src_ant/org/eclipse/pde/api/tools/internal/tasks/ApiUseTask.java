@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2013 IBM Corporation and others.
+ * Copyright (c) 2009, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,8 +14,12 @@ package org.eclipse.pde.api.tools.internal.tasks;
 import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.regex.Pattern;
@@ -24,16 +28,17 @@ import org.apache.tools.ant.BuildException;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.osgi.service.resolver.ResolverError;
 import org.eclipse.osgi.util.NLS;
+import org.eclipse.pde.api.tools.internal.AntFilterStore;
 import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiElement;
 import org.eclipse.pde.api.tools.internal.provisional.search.ApiSearchEngine;
-import org.eclipse.pde.api.tools.internal.provisional.search.IApiSearchReporter;
 import org.eclipse.pde.api.tools.internal.provisional.search.IApiSearchRequestor;
 import org.eclipse.pde.api.tools.internal.search.ApiDescriptionModifier;
 import org.eclipse.pde.api.tools.internal.search.SkippedComponent;
 import org.eclipse.pde.api.tools.internal.search.UseMetadata;
+import org.eclipse.pde.api.tools.internal.search.UseScanResultsCache;
 import org.eclipse.pde.api.tools.internal.search.UseSearchRequestor;
 import org.eclipse.pde.api.tools.internal.search.XmlSearchReporter;
 import org.eclipse.pde.api.tools.internal.util.FilteredElements;
@@ -116,6 +121,12 @@ public final class ApiUseTask extends CommonUtilsTask {
 	 */
 	private String filters = null;
 
+	/**
+	 * Location of the results kept between two scans or <code>null</code> to
+	 * always search all of the components
+	 */
+	private String cacheLocation = null;
+
 	/**
 	 * Set the location of the current product you want to search.
 	 * 
@@ -310,14 +321,24 @@ public final class ApiUseTask extends CommonUtilsTask {
 		cleanReportLocation();
 		UseMetadata data = new UseMetadata(getSearchFlags(), this.scopepattern, this.referencepattern, this.currentBaselineLocation, this.reportLocation, this.apiPatterns, this.internalPatterns, this.archivePatterns, DateFormat.getDateTimeInstance().format(Calendar.getInstance().getTime()), getDescription());
 		IApiBaseline baseline = getBaseline(CURRENT_BASELINE_NAME, this.currentBaselineLocation);
-		IApiSearchReporter reporter = new XmlSearchReporter(this.reportLocation, this.debug);
+		XmlSearchReporter reporter = new XmlSearchReporter(this.reportLocation, this.debug);
+		UseScanResultsCache cache = null;
+		String[] scopeids = null;
+		boolean completed = false;
 
 		try {
 			Set<String> ids = new HashSet<String>();
 			TreeSet<IApiComponent> scope = new TreeSet<IApiComponent>(Util.componentsorter);
 			getContext(baseline, ids, scope);
+			IApiElement[] elements = scope.toArray(new IApiElement[scope.size()]);
+			if (this.cacheLocation != null) {
+				cache = new UseScanResultsCache(this.cacheLocation, getConfiguration(ids), this.filters);
+				cache.load();
+				scopeids = new String[scope.size()];
+				elements = getChangedComponents(cache, scope, scopeids);
+			}
 			ApiSearchEngine engine = new ApiSearchEngine();
-			UseSearchRequestor requestor = new UseSearchRequestor(ids, scope.toArray(new IApiElement[scope.size()]), getSearchFlags());
+			UseSearchRequestor requestor = new UseSearchRequestor(ids, elements, getSearchFlags());
 			requestor.setJarPatterns(archivePatterns);
 			requestor.setFilterRoot(filters);
 			// override API descriptions as required
@@ -335,7 +356,8 @@ public final class ApiUseTask extends CommonUtilsTask {
 			}
 
 			ApiPlugin.DEBUG_SEARCH_ENGINE = this.debug;
-			engine.search(baseline, requestor, reporter, null);
+			engine.search(baseline, requestor, cache != null ? cache.getReporter() : reporter, null);
+			completed = true;
 		} catch (CoreException ce) {
 			throw new BuildException(Messages.ApiUseTask_search_engine_problem, ce);
 		} finally {
@@ -343,12 +365,80 @@ public final class ApiUseTask extends CommonUtilsTask {
 				baseline.dispose();
 				deleteBaseline(this.currentBaselineLocation, this.baselinedir);
 			}
+			if (cache != null && scopeids != null) {
+				cache.writeResults(scopeids, this.reportLocation, reporter);
+				// the filtered problems of the searched components are
+				// counted with their results
+				AntFilterStore.filteredAPIProblems.clear();
+				if (completed) {
+					try {
+						cache.save(scopeids);
+					} catch (CoreException ce) {
+						ApiPlugin.log(ce);
+					}
+				}
+			}
 			reporter.reportNotSearched(this.notsearched.toArray(new IApiElement[this.notsearched.size()]));
 			reporter.reportMetadata(data);
 			reporter.reportCounts();
 		}
 	}
 
+	/**
+	 * Returns the components of the scope that have to be searched because
+	 * their cached results cannot be used
+	 * 
+	 * @param cache the cache of results
+	 * @param scope the components to search
+	 * @param scopeids the array to fill with the ids of all of the components
+	 *            of the scope
+	 * @return the components to search
+	 * @throws CoreException
+	 */
+	private IApiElement[] getChangedComponents(UseScanResultsCache cache, Set<IApiComponent> scope, String[] scopeids) throws CoreException {
+		long time = 0;
+		if (this.debug) {
+			time = System.currentTimeMillis();
+			System.out.println("Computing the components to search..."); //$NON-NLS-1$
+		}
+		List<IApiElement> changed = new ArrayList<IApiElement>();
+		int i = 0;
+		for (Iterator<IApiComponent> iter = scope.iterator(); iter.hasNext();) {
+			IApiComponent component = iter.next();
+			String id = UseScanResultsCache.getId(component);
+			String digest = cache.getDigest(component);
+			if (!cache.isUpToDate(id, digest)) {
+				cache.reset(id, digest);
+				changed.add(component);
+			}
+			scopeids[i++] = id;
+		}
+		if (this.debug) {
+			System.out.println("done in: " + (System.currentTimeMillis() - time) + " ms"); //$NON-NLS-1$ //$NON-NLS-2$
+			System.out.println("Searching " + changed.size() + " of " + scope.size() + " components, reusing the results of the others"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		return changed.toArray(new IApiElement[changed.size()]);
+	}
+
+	/**
+	 * Returns a string describing the settings of this task that change the
+	 * references found in a component
+	 * 
+	 * @param ids the ids of the components references are searched to
+	 * @return the configuration of the scan
+	 */
+	private String getConfiguration(Set<String> ids) {
+		StringBuffer buffer = new StringBuffer();
+		buffer.append(getSearchFlags());
+		buffer.append('|').append(this.eeFileLocation);
+		buffer.append('|').append(this.filters);
+		buffer.append('|').append(this.apiPatterns == null ? null : Arrays.asList(this.apiPatterns));
+		buffer.append('|').append(this.internalPatterns == null ? null : Arrays.asList(this.internalPatterns));
+		buffer.append('|').append(this.archivePatterns == null ? null : Arrays.asList(this.archivePatterns));
+		buffer.append('|').append(new TreeSet<String>(ids));
+		return buffer.toString();
+	}
+
 	/**
 	 * Returns if we should add the given component to our search scope
 	 * 
@@ -644,4 +734,27 @@ public final class ApiUseTask extends CommonUtilsTask {
 	public void setFilters(String filters) {
 		this.filters = filters;
 	}
+
+	/**
+	 * Set the location to keep the results of each searched component in
+	 * between two scans.
+	 * 
+	 * <p>
+	 * When it is set, only the components that changed since the previous scan
+	 * using the same location, or whose prerequisite components changed, are
+	 * searched. The results of the other components are taken from this
+	 * location, producing the same report as a scan of all of the components.
+	 * All of the components are searched again if any of the other settings of
+	 * the task changed.
+	 * </p>
+	 * <p>
+	 * The location is set using an absolute path. It must not be inside of the
+	 * report location, which is cleaned before each scan.
+	 * </p>
+	 * 
+	 * @param cacheLocation the location of the results to reuse
+	 */
+	public void setCacheLocation(String cacheLocation) {
+		this.cacheLocation = cacheLocation;
+	}
 }
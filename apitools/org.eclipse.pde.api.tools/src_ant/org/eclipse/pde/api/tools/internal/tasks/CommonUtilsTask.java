@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,7 @@ import org.apache.tools.ant.Task;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.pde.api.tools.internal.model.ApiModelFactory;
+import org.eclipse.pde.api.tools.internal.model.TarApiTypeContainer;
 import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
@@ -97,6 +98,11 @@ public abstract class CommonUtilsTask extends Task {
 	 */
 	protected void deleteBaseline(String referenceLocation, File folder) {
 		if (Util.isArchive(referenceLocation)) {
+			try {
+				TarApiTypeContainer.forgetExtraction(folder.getParentFile());
+			} catch (IOException e) {
+				// the folder is deleted anyway
+			}
 			Util.delete(folder.getParentFile());
 		}
 	}
@@ -131,7 +137,8 @@ public abstract class CommonUtilsTask extends Task {
 				if (Util.isZipJarFile(location)) {
 					Util.unzip(location, installDir.getAbsolutePath());
 				} else if (Util.isTGZFile(location)) {
-					Util.guntar(location, installDir.getAbsolutePath());
+					// class files are read from the archive through its index
+					TarApiTypeContainer.extract(location, installDir);
 				}
 			} catch (IOException e) {
 				throw new BuildException(NLS.bind(Messages.couldNotUnzip, new String[] {
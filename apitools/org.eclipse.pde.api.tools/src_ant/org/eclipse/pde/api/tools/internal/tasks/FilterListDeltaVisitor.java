@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,7 @@ package org.eclipse.pde.api.tools.internal.tasks;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -47,6 +48,24 @@ public class FilterListDeltaVisitor extends DeltaXmlVisitor {
 		this.flags = flags;
 	}
 
+	/**
+	 * Creates a visitor that writes the XML of the deltas that are not
+	 * filtered out to the given writer, see {@link DeltaXmlVisitor#DeltaXmlVisitor(Writer)}
+	 * 
+	 * @param excludedElements
+	 * @param includedElements
+	 * @param flags
+	 * @param writer the writer to write the XML to
+	 * @throws CoreException
+	 */
+	public FilterListDeltaVisitor(FilteredElements excludedElements, FilteredElements includedElements, int flags, Writer writer) throws CoreException {
+		super(writer);
+		this.excludedElements = excludedElements;
+		this.includedElements = includedElements;
+		this.nonExcludedElements = new ArrayList<String>();
+		this.flags = flags;
+	}
+
 	private boolean checkExclude(IDelta delta) {
 		return isExcluded(delta);
 	}
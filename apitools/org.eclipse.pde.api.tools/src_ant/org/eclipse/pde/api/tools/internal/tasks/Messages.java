@@ -75,6 +75,7 @@ public class Messages extends NLS {
 	public static String illegalElementInScope;
 	public static String errorCreatingParentReportFile;
 	public static String errorCreatingReportDirectory;
+	public static String errorCreatingReportFile;
 	public static String directoryIsEmpty;
 	public static String fileDoesnotExist;
 	public static String couldNotDelete;
@@ -82,6 +83,7 @@ public class Messages extends NLS {
 	public static String couldNotUnzip;
 	public static String couldNotUntar;
 	public static String reportLocationHasToBeAFile;
+	public static String invalidThreadCount;
 
 	public static String api_generation_printArguments;
 	public static String api_generation_projectLocationNotADirectory;
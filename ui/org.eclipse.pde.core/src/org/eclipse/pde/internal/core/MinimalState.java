@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2013 IBM Corporation and others.
+ * Copyright (c) 2005, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -79,17 +79,34 @@ public class MinimalState {
 	}
 
 	public BundleDescription addBundle(Map<String, String> manifest, File bundleLocation, long bundleId) throws CoreException {
+		BundleDescription descriptor = createBundleDescription(manifest, bundleLocation, bundleId == -1 ? getNextId() : bundleId);
+		if (descriptor == null)
+			return null;
+		// new bundle
+		if (bundleId == -1) {
+			fState.addBundle(descriptor);
+		} else if (!fState.updateBundle(descriptor)) {
+			fState.addBundle(descriptor);
+		}
+		return descriptor;
+	}
+
+	/**
+	 * Creates the description of a bundle from its manifest without adding it to
+	 * the state. The state is only read, so descriptions may be created
+	 * concurrently.
+	 * 
+	 * @param manifest the manifest of the bundle
+	 * @param bundleLocation the location of the bundle
+	 * @param bundleId the id of the new description
+	 * @return the description or <code>null</code> if the manifest is invalid
+	 * @throws CoreException if the manifest cannot be parsed
+	 */
+	protected BundleDescription createBundleDescription(Map<String, String> manifest, File bundleLocation, long bundleId) throws CoreException {
 		try {
 			// OSGi requires a dictionary over any map
 			Hashtable<String, String> dictionaryManifest = new Hashtable<String, String>(manifest);
-			BundleDescription descriptor = stateObjectFactory.createBundleDescription(fState, dictionaryManifest, bundleLocation.getAbsolutePath(), bundleId == -1 ? getNextId() : bundleId);
-			// new bundle
-			if (bundleId == -1) {
-				fState.addBundle(descriptor);
-			} else if (!fState.updateBundle(descriptor)) {
-				fState.addBundle(descriptor);
-			}
-			return descriptor;
+			return stateObjectFactory.createBundleDescription(fState, dictionaryManifest, bundleLocation.getAbsolutePath(), bundleId);
 		} catch (BundleException e) {
 			// A stack trace isn't helpful here, but need to list the plug-in location causing the issue
 			MultiStatus status = new MultiStatus(PDECore.PLUGIN_ID, 0, NLS.bind(UtilMessages.ErrorReadingManifest, bundleLocation.toString()), null);
@@ -102,22 +119,44 @@ public class MinimalState {
 	}
 
 	public BundleDescription addBundle(File bundleLocation, long bundleId) throws CoreException {
+		Map<String, String> manifest = loadManifest(bundleLocation);
+		BundleDescription desc = addBundle(manifest, bundleLocation, bundleId);
+		if (desc != null)
+			bundleAdded(desc, manifest);
+		return desc;
+	}
+
+	/**
+	 * Loads the manifest of the bundle at the given location, updated for
+	 * development mode.
+	 * 
+	 * @param bundleLocation the location of the bundle
+	 * @return the manifest
+	 * @throws CoreException if the manifest cannot be read
+	 */
+	protected static Map<String, String> loadManifest(File bundleLocation) throws CoreException {
 		Map<String, String> manifest = ManifestUtils.loadManifest(bundleLocation);
 		// update for development mode
 		TargetWeaver.weaveManifest(manifest);
+		return manifest;
+	}
 
-		BundleDescription desc = addBundle(manifest, bundleLocation, bundleId);
-		if (desc != null && manifest != null && "true".equals(manifest.get(ICoreConstants.ECLIPSE_SYSTEM_BUNDLE))) { //$NON-NLS-1$
+	/**
+	 * Records the system bundle and the auxiliary data of a bundle that was
+	 * added to the state.
+	 * 
+	 * @param desc the description added to the state
+	 * @param manifest the manifest of the bundle
+	 */
+	protected void bundleAdded(BundleDescription desc, Map<String, String> manifest) {
+		if (manifest != null && "true".equals(manifest.get(ICoreConstants.ECLIPSE_SYSTEM_BUNDLE))) { //$NON-NLS-1$
 			// if this is the system bundle then 
 			// indicate that the javaProfile has changed since the new system
 			// bundle may not contain profiles for all EE's in the list
 			fEEListChanged = true;
 			fSystemBundle = desc.getSymbolicName();
 		}
-		if (desc != null) {
-			addAuxiliaryData(desc, manifest, true);
-		}
-		return desc;
+		addAuxiliaryData(desc, manifest, true);
 	}
 
 	protected void addAuxiliaryData(BundleDescription desc, Map<String, String> manifest, boolean hasBundleStructure) {
@@ -163,6 +202,17 @@ public class MinimalState {
 		return false;
 	}
 
+	/**
+	 * Computes the platform properties of the state again on the next resolution, as the
+	 * target environment or the known execution environments may have changed. The state
+	 * is only fully resolved if the properties actually changed.
+	 */
+	public void resetPlatformProperties() {
+		fExecutionEnvironments = null;
+		fNoProfile = false;
+		fEEListChanged = true;
+	}
+
 	private Dictionary<String, String>[] getProfilePlatformProperties() {
 		return TargetPlatformHelper.getPlatformProperties(fExecutionEnvironments, this);
 	}
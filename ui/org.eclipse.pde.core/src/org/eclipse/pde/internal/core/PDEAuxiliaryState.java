@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2012 IBM Corporation and others.
+ * Copyright (c) 2006, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -48,13 +48,13 @@ public class PDEAuxiliaryState {
 	private static String ELEMENT_LIB = "library"; //$NON-NLS-1$
 	private static String ELEMENT_ROOT = "map"; //$NON-NLS-1$
 
-	protected Map<String, PluginInfo> fPluginInfos;
+	protected PluginInfoTable fPluginInfos;
 
 	/**
 	 * Constructor
 	 */
 	protected PDEAuxiliaryState() {
-		fPluginInfos = new HashMap<String, PluginInfo>();
+		fPluginInfos = new PluginInfoTable();
 	}
 
 	/**
@@ -63,23 +63,24 @@ public class PDEAuxiliaryState {
 	 * @param state state containing plugin infos to initialize this state with 
 	 */
 	protected PDEAuxiliaryState(PDEAuxiliaryState state) {
-		fPluginInfos = new HashMap<String, PluginInfo>(state.fPluginInfos);
+		fPluginInfos = new PluginInfoTable(state.fPluginInfos);
 	}
 
 	/**
-	 * Provides a simple way of storing auxiliary data for a plugin 
+	 * Provides a simple way of passing auxiliary data for a plugin to the
+	 * {@link PluginInfoTable} storing it
 	 */
-	class PluginInfo {
-		String name;
-		String providerName;
-		String className;
-		boolean hasExtensibleAPI;
-		boolean isPatchFragment;
-		boolean hasBundleStructure;
-		String[] libraries;
-		String project;
-		String localization;
-		String bundleSourceEntry;
+	public static class PluginInfo {
+		public String name;
+		public String providerName;
+		public String className;
+		public boolean hasExtensibleAPI;
+		public boolean isPatchFragment;
+		public boolean hasBundleStructure;
+		public String[] libraries;
+		public String project;
+		public String localization;
+		public String bundleSourceEntry;
 	}
 
 	/**
@@ -114,57 +115,59 @@ public class PDEAuxiliaryState {
 			}
 		}
 		info.libraries = list.toArray(new String[list.size()]);
-		fPluginInfos.put(element.getAttribute(ATTR_BUNDLE_ID), info);
+		try {
+			fPluginInfos.put(Long.parseLong(element.getAttribute(ATTR_BUNDLE_ID)), info);
+		} catch (NumberFormatException e) {
+			// ignore bundles without a valid id
+		}
 	}
 
 	public String getClassName(long bundleID) {
-		PluginInfo info = fPluginInfos.get(Long.toString(bundleID));
-		return info == null ? null : info.className;
+		return fPluginInfos.getString(bundleID, PluginInfoTable.CLASS_NAME);
 	}
 
 	public boolean hasExtensibleAPI(long bundleID) {
-		PluginInfo info = fPluginInfos.get(Long.toString(bundleID));
-		return info == null ? false : info.hasExtensibleAPI;
+		return fPluginInfos.hasFlag(bundleID, PluginInfoTable.EXTENSIBLE_API);
 	}
 
 	public boolean isPatchFragment(long bundleID) {
-		PluginInfo info = fPluginInfos.get(Long.toString(bundleID));
-		return info == null ? false : info.isPatchFragment;
+		return fPluginInfos.hasFlag(bundleID, PluginInfoTable.PATCH_FRAGMENT);
 	}
 
 	public boolean hasBundleStructure(long bundleID) {
-		PluginInfo info = fPluginInfos.get(Long.toString(bundleID));
-		return info == null ? false : info.hasBundleStructure;
+		return fPluginInfos.hasFlag(bundleID, PluginInfoTable.BUNDLE_STRUCTURE);
 	}
 
 	public String getPluginName(long bundleID) {
-		PluginInfo info = fPluginInfos.get(Long.toString(bundleID));
-		return info == null ? null : info.name;
+		return fPluginInfos.getString(bundleID, PluginInfoTable.NAME);
 	}
 
 	public String getProviderName(long bundleID) {
-		PluginInfo info = fPluginInfos.get(Long.toString(bundleID));
-		return info == null ? null : info.providerName;
+		return fPluginInfos.getString(bundleID, PluginInfoTable.PROVIDER_NAME);
 	}
 
+	/**
+	 * Returns the library names of the given bundle. The array is shared
+	 * between bundles and must not be modified.
+	 * @param bundleID id of the bundle
+	 * @return the library names
+	 */
 	public String[] getLibraryNames(long bundleID) {
-		PluginInfo info = fPluginInfos.get(Long.toString(bundleID));
-		return info == null ? new String[0] : info.libraries;
+		if (!fPluginInfos.contains(bundleID))
+			return new String[0];
+		return fPluginInfos.getLibraries(bundleID);
 	}
 
 	public String getBundleLocalization(long bundleID) {
-		PluginInfo info = fPluginInfos.get(Long.toString(bundleID));
-		return info == null ? null : info.localization;
+		return fPluginInfos.getString(bundleID, PluginInfoTable.LOCALIZATION);
 	}
 
 	public String getProject(long bundleID) {
-		PluginInfo info = fPluginInfos.get(Long.toString(bundleID));
-		return info == null ? null : info.project;
+		return fPluginInfos.getString(bundleID, PluginInfoTable.PROJECT);
 	}
 
 	public String getBundleSourceEntry(long bundleID) {
-		PluginInfo info = fPluginInfos.get(Long.toString(bundleID));
-		return info == null ? null : info.bundleSourceEntry;
+		return fPluginInfos.getString(bundleID, PluginInfoTable.BUNDLE_SOURCE_ENTRY);
 	}
 
 	/**
@@ -177,32 +180,37 @@ public class PDEAuxiliaryState {
 			Document doc = factory.newDocumentBuilder().newDocument();
 			Element root = doc.createElement(ELEMENT_ROOT);
 
-			Iterator<String> iter = fPluginInfos.keySet().iterator();
-			while (iter.hasNext()) {
-				String key = iter.next().toString();
+			long[] bundleIDs = fPluginInfos.getBundleIDs();
+			for (int j = 0; j < bundleIDs.length; j++) {
+				long id = bundleIDs[j];
 				Element element = doc.createElement(ELEMENT_BUNDLE);
-				element.setAttribute(ATTR_BUNDLE_ID, key);
-				PluginInfo info = fPluginInfos.get(key);
-				if (info.className != null)
-					element.setAttribute(ATTR_CLASS, info.className);
-				if (info.providerName != null)
-					element.setAttribute(ATTR_PROVIDER, info.providerName);
-				if (info.name != null)
-					element.setAttribute(ATTR_NAME, info.name);
-				if (info.hasExtensibleAPI)
+				element.setAttribute(ATTR_BUNDLE_ID, Long.toString(id));
+				String className = getClassName(id);
+				if (className != null)
+					element.setAttribute(ATTR_CLASS, className);
+				String providerName = getProviderName(id);
+				if (providerName != null)
+					element.setAttribute(ATTR_PROVIDER, providerName);
+				String name = getPluginName(id);
+				if (name != null)
+					element.setAttribute(ATTR_NAME, name);
+				if (hasExtensibleAPI(id))
 					element.setAttribute(ATTR_EXTENSIBLE_API, "true"); //$NON-NLS-1$ 
-				if (info.isPatchFragment)
+				if (isPatchFragment(id))
 					element.setAttribute(ATTR_PATCH, "true"); //$NON-NLS-1$ 
-				if (!info.hasBundleStructure)
+				if (!hasBundleStructure(id))
 					element.setAttribute(ATTR_BUNDLE_STRUCTURE, "false"); //$NON-NLS-1$ 
-				if (info.localization != null)
-					element.setAttribute(ATTR_LOCALIZATION, info.localization);
-				if (info.bundleSourceEntry != null)
-					element.setAttribute(ATTR_BUNDLE_SOURCE, info.bundleSourceEntry);
-				if (info.libraries != null) {
-					for (int i = 0; i < info.libraries.length; i++) {
+				String localization = getBundleLocalization(id);
+				if (localization != null)
+					element.setAttribute(ATTR_LOCALIZATION, localization);
+				String bundleSourceEntry = getBundleSourceEntry(id);
+				if (bundleSourceEntry != null)
+					element.setAttribute(ATTR_BUNDLE_SOURCE, bundleSourceEntry);
+				String[] libraries = fPluginInfos.getLibraries(id);
+				if (libraries != null) {
+					for (int i = 0; i < libraries.length; i++) {
 						Element lib = doc.createElement(ELEMENT_LIB);
-						lib.setAttribute(ATTR_NAME, info.libraries[i]);
+						lib.setAttribute(ATTR_NAME, libraries[i]);
 						element.appendChild(lib);
 					}
 				}
@@ -343,7 +351,15 @@ public class PDEAuxiliaryState {
 		info.localization = manifest.get(Constants.BUNDLE_LOCALIZATION);
 		info.hasBundleStructure = hasBundleStructure;
 		info.bundleSourceEntry = manifest.get(ICoreConstants.ECLIPSE_SOURCE_BUNDLE);
-		fPluginInfos.put(Long.toString(desc.getBundleId()), info);
+		fPluginInfos.put(desc.getBundleId(), info);
+	}
+
+	/**
+	 * Removes the auxiliary information of a bundle that is no longer in the state.
+	 * @param bundleID id of the removed bundle
+	 */
+	protected void removeAuxiliaryData(long bundleID) {
+		fPluginInfos.remove(bundleID);
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2013 IBM Corporation and others.
+ * Copyright (c) 2005, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,12 +14,13 @@ package org.eclipse.pde.internal.core;
 import java.io.File;
 import java.net.URL;
 import java.util.*;
-import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IProgressMonitor;
+import java.util.concurrent.*;
+import org.eclipse.core.runtime.*;
 import org.eclipse.osgi.service.resolver.BundleDescription;
 import org.eclipse.osgi.service.resolver.State;
 import org.eclipse.pde.core.plugin.IPluginModelBase;
 import org.eclipse.pde.core.target.LoadTargetDefinitionJob;
+import org.eclipse.pde.internal.build.IPDEBuildConstants;
 import org.eclipse.pde.internal.core.plugin.*;
 import org.eclipse.pde.internal.core.util.CoreUtility;
 
@@ -28,6 +29,16 @@ public class PDEState extends MinimalState {
 	private PDEAuxiliaryState fAuxiliaryState;
 	private ArrayList<IPluginModelBase> fTargetModels = new ArrayList<IPluginModelBase>();
 
+	/**
+	 * Absolute path of each target bundle to its fingerprint when it was read
+	 */
+	private Map<String, TargetStateSnapshot.Entry> fFingerprints = new LinkedHashMap<String, TargetStateSnapshot.Entry>();
+
+	/**
+	 * Whether bundles with the same id and version as another bundle of the state are removed
+	 */
+	private boolean fRemoveDuplicates;
+
 	/**
 	 * Creates a new PDE State containing bundles from the given URLs.
 	 * 
@@ -37,11 +48,47 @@ public class PDEState extends MinimalState {
 	 * @param monitor progress monitor
 	 */
 	public PDEState(URL[] target, boolean addResolver, boolean removeDuplicates, IProgressMonitor monitor) {
+		this(target, addResolver, removeDuplicates, null, monitor);
+	}
+
+	/**
+	 * Creates a new PDE State containing bundles from the given URLs, restored from the snapshot
+	 * saved in the given location when possible. Only bundles that changed since the snapshot was
+	 * saved are read again. The snapshot is updated when the target changed.
+	 * 
+	 * @param target urls of target bundles
+	 * @param addResolver whether to add a resolver to the state
+	 * @param removeDuplicates whether to remove duplicate conflicting bundles from the state
+	 * @param snapshotLocation directory holding the target state snapshots or <code>null</code> to always read the target
+	 * @param monitor progress monitor
+	 */
+	public PDEState(URL[] target, boolean addResolver, boolean removeDuplicates, File snapshotLocation, IProgressMonitor monitor) {
 		long start = System.currentTimeMillis();
 		fAuxiliaryState = new PDEAuxiliaryState();
+		fRemoveDuplicates = removeDuplicates;
 
-		// We no longer try and restore from a cached state as it had no performance benefit
-		createNewTargetState(addResolver, target, monitor);
+		File[] locations = new File[target.length];
+		for (int i = 0; i < target.length; i++) {
+			locations[i] = new File(target[i].getFile());
+			// fingerprint the bundles before they are read so changes made while reading are caught later
+			fFingerprints.put(locations[i].getAbsolutePath(), TargetStateSnapshot.fingerprint(locations[i]));
+		}
+		if (snapshotLocation == null) {
+			createNewTargetState(addResolver, locations, monitor);
+		} else {
+			TargetStateSnapshot snapshot = TargetStateSnapshot.read(snapshotLocation);
+			File restoredFrom = snapshot == null ? null : snapshot.getDirectory();
+			boolean save;
+			if (snapshot == null || !restoreTargetState(addResolver, snapshot)) {
+				restoredFrom = null;
+				fAuxiliaryState.clear();
+				save = createNewTargetState(addResolver, locations, monitor);
+			} else {
+				save = updateTargetState(snapshot, locations, fFingerprints, monitor);
+			}
+			if (save)
+				TargetStateSnapshot.write(snapshotLocation, restoredFrom, stateObjectFactory, fState, fAuxiliaryState, fSystemBundle, fFingerprints);
+		}
 
 		if (removeDuplicates) {
 			removeDuplicatesFromState(fState);
@@ -55,22 +102,264 @@ public class PDEState extends MinimalState {
 			System.out.println("Time to create state: " + (System.currentTimeMillis() - start) + " ms"); //$NON-NLS-1$ //$NON-NLS-2$
 	}
 
-	private void createNewTargetState(boolean resolve, URL[] urls, IProgressMonitor monitor) {
+	private boolean createNewTargetState(boolean resolve, File[] locations, IProgressMonitor monitor) {
 		fState = stateObjectFactory.createState(resolve);
-		monitor.beginTask(PDECoreMessages.PDEState_CreatingTargetModelState, urls.length);
-		for (int i = 0; i < urls.length; i++) {
-			File file = new File(urls[i].getFile());
-			try {
+		monitor.beginTask(PDECoreMessages.PDEState_CreatingTargetModelState, locations.length);
+		return loadBundles(locations, null, monitor);
+	}
+
+	/**
+	 * Restores the target state and its auxiliary data from the given snapshot.
+	 * 
+	 * @param resolve whether to add a resolver to the state
+	 * @param snapshot the snapshot to restore
+	 * @return whether the state was restored
+	 */
+	private boolean restoreTargetState(boolean resolve, TargetStateSnapshot snapshot) {
+		State state = snapshot.readState(stateObjectFactory);
+		if (state == null || !fAuxiliaryState.readPluginInfoCache(snapshot.getDirectory()))
+			return false;
+		fState = state;
+		if (resolve)
+			fState.setResolver(Platform.getPlatformAdmin().createResolver());
+		fId = fState.getHighestBundleId();
+		fSystemBundle = snapshot.getSystemBundle();
+		if (PDECore.DEBUG_MODEL)
+			System.out.println("Target state restored from " + snapshot.getDirectory()); //$NON-NLS-1$
+		return true;
+	}
+
+	/**
+	 * Brings a state restored from the given snapshot up to date with the target. Bundles that were
+	 * removed from the target or changed since the snapshot was saved are removed from the state, and
+	 * bundles that were added or changed are read.
+	 * 
+	 * @param snapshot the snapshot the state was restored from
+	 * @param locations locations of the target bundles
+	 * @param fingerprints current fingerprints of the target bundles
+	 * @param monitor progress monitor
+	 * @return whether the state changed and was completely updated
+	 */
+	private boolean updateTargetState(TargetStateSnapshot snapshot, File[] locations, Map<String, TargetStateSnapshot.Entry> fingerprints, IProgressMonitor monitor) {
+		List<File> changed = new ArrayList<File>();
+		for (int i = 0; i < locations.length; i++) {
+			String path = locations[i].getAbsolutePath();
+			TargetStateSnapshot.Entry entry = snapshot.getEntry(path);
+			if (entry == null || !entry.matches(fingerprints.get(path))) {
+				changed.add(locations[i]);
+				if (entry != null)
+					removeSnapshotBundle(entry.bundleId);
+			}
+		}
+		boolean removed = false;
+		for (Iterator<String> iter = snapshot.getLocations().iterator(); iter.hasNext();) {
+			String path = iter.next();
+			if (!fingerprints.containsKey(path)) {
+				removeSnapshotBundle(snapshot.getEntry(path).bundleId);
+				removed = true;
+			}
+		}
+		if (PDECore.DEBUG_MODEL)
+			System.out.println(changed.size() + " target bundles changed since the snapshot was saved"); //$NON-NLS-1$
+		monitor.beginTask(PDECoreMessages.PDEState_CreatingTargetModelState, changed.size());
+		boolean complete = loadBundles(changed.toArray(new File[changed.size()]), null, monitor);
+		return complete && (removed || !changed.isEmpty());
+	}
+
+	private void removeSnapshotBundle(long bundleId) {
+		if (bundleId == -1)
+			return;
+		BundleDescription desc = fState.getBundle(bundleId);
+		if (desc != null) {
+			fState.removeBundle(desc);
+			if (desc.getSymbolicName() != null && desc.getSymbolicName().equals(fSystemBundle))
+				fSystemBundle = IPDEBuildConstants.BUNDLE_OSGI;
+		}
+		fAuxiliaryState.removeAuxiliaryData(bundleId);
+	}
+
+	/**
+	 * Adds the bundles at the given locations to the state. Manifests are read and parsed on a pool
+	 * of worker threads while the descriptions are added to the state, in the order of the locations,
+	 * on the calling thread. Bundle ids are reserved by location before loading starts, so the same
+	 * locations always produce the same ids.
+	 * 
+	 * @param locations locations of the bundles
+	 * @param loaded list to collect the added descriptions in or <code>null</code>
+	 * @param monitor progress monitor
+	 * @return whether all bundles were loaded, <code>false</code> if loading was canceled
+	 */
+	private boolean loadBundles(File[] locations, List<BundleDescription> loaded, IProgressMonitor monitor) {
+		BundleLoader[] loaders = new BundleLoader[locations.length];
+		for (int i = 0; i < locations.length; i++) {
+			loaders[i] = new BundleLoader(locations[i], getNextId());
+		}
+		int threads = Math.min(Runtime.getRuntime().availableProcessors(), loaders.length);
+		if (threads <= 1) {
+			for (int i = 0; i < loaders.length; i++) {
 				if (monitor.isCanceled())
 					// if canceled, stop loading bundles
-					return;
-				monitor.subTask(file.getName());
-				addBundle(file, -1);
-			} catch (CoreException e) {
-				PDECore.log(e);
-			} finally {
-				monitor.worked(1);
+					return false;
+				monitor.subTask(loaders[i].fLocation.getName());
+				try {
+					addLoadedBundle(loaders[i], loaders[i].call(), loaded);
+				} catch (CoreException e) {
+					PDECore.log(e);
+				} finally {
+					// release the manifest once the bundle is added
+					loaders[i] = null;
+					monitor.worked(1);
+				}
 			}
+			return true;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			// bound the number of manifests held in memory ahead of the state
+			int window = threads * 4;
+			LinkedList<Future<BundleDescription>> pending = new LinkedList<Future<BundleDescription>>();
+			int submitted = 0;
+			for (int i = 0; i < loaders.length; i++) {
+				while (submitted < loaders.length && submitted - i < window) {
+					pending.add(executor.submit(loaders[submitted++]));
+				}
+				Future<BundleDescription> next = pending.removeFirst();
+				if (monitor.isCanceled())
+					// if canceled, stop loading bundles
+					return false;
+				monitor.subTask(loaders[i].fLocation.getName());
+				try {
+					addLoadedBundle(loaders[i], next.get(), loaded);
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					if (cause instanceof Error)
+						throw (Error) cause;
+					// manifests that cannot be read are logged as when loading serially
+					PDECore.log(cause);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				} finally {
+					// release the manifest once the bundle is added
+					loaders[i] = null;
+					monitor.worked(1);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return true;
+	}
+
+	/**
+	 * Adds a bundle loaded by the given loader to the state. Only called on the thread creating the state.
+	 * 
+	 * @param loader the loader of the bundle
+	 * @param desc the loaded description or <code>null</code> if the manifest was invalid
+	 * @param loaded list to collect the added description in or <code>null</code>
+	 */
+	private void addLoadedBundle(BundleLoader loader, BundleDescription desc, List<BundleDescription> loaded) {
+		if (desc == null)
+			return;
+		fState.addBundle(desc);
+		bundleAdded(desc, loader.fManifest);
+		if (loaded != null)
+			loaded.add(desc);
+	}
+
+	/**
+	 * Removes the target models whose bundles are no longer at the given locations or changed
+	 * on disk since they were read. The bundle descriptions of the removed models are left in
+	 * the state for the caller to remove.
+	 * 
+	 * @param locations locations of the current target bundles
+	 * @return the removed target models
+	 */
+	public IPluginModelBase[] removeTargetBundles(File[] locations) {
+		Map<String, TargetStateSnapshot.Entry> current = new HashMap<String, TargetStateSnapshot.Entry>();
+		for (int i = 0; i < locations.length; i++) {
+			current.put(locations[i].getAbsolutePath(), TargetStateSnapshot.fingerprint(locations[i]));
+		}
+		for (Iterator<Map.Entry<String, TargetStateSnapshot.Entry>> iter = fFingerprints.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<String, TargetStateSnapshot.Entry> next = iter.next();
+			if (!next.getValue().matches(current.get(next.getKey())))
+				iter.remove();
+		}
+		List<IPluginModelBase> removed = new ArrayList<IPluginModelBase>();
+		for (Iterator<IPluginModelBase> iter = fTargetModels.iterator(); iter.hasNext();) {
+			IPluginModelBase model = iter.next();
+			if (!fFingerprints.containsKey(new File(model.getInstallLocation()).getAbsolutePath())) {
+				iter.remove();
+				removed.add(model);
+				BundleDescription desc = model.getBundleDescription();
+				if (desc != null)
+					fAuxiliaryState.removeAuxiliaryData(desc.getBundleId());
+			}
+		}
+		return removed.toArray(new IPluginModelBase[removed.size()]);
+	}
+
+	/**
+	 * Reads the bundles at the given locations that are not yet part of the target, adds them
+	 * to the state and creates their target models.
+	 * 
+	 * @param locations locations of the current target bundles
+	 * @param monitor progress monitor
+	 * @return the created target models
+	 */
+	public IPluginModelBase[] addTargetBundles(File[] locations, IProgressMonitor monitor) {
+		List<File> added = new ArrayList<File>();
+		for (int i = 0; i < locations.length; i++) {
+			String path = locations[i].getAbsolutePath();
+			if (!fFingerprints.containsKey(path)) {
+				fFingerprints.put(path, TargetStateSnapshot.fingerprint(locations[i]));
+				added.add(locations[i]);
+			}
+		}
+		monitor.beginTask(PDECoreMessages.PDEState_CreatingTargetModelState, added.size());
+		List<BundleDescription> loaded = new ArrayList<BundleDescription>();
+		if (!loadBundles(added.toArray(new File[added.size()]), loaded, monitor)) {
+			// forget the bundles that were not read so they are read on the next update
+			Set<String> paths = new HashSet<String>();
+			for (int i = 0; i < loaded.size(); i++) {
+				paths.add(loaded.get(i).getLocation());
+			}
+			for (int i = 0; i < added.size(); i++) {
+				String path = added.get(i).getAbsolutePath();
+				if (!paths.contains(path))
+					fFingerprints.remove(path);
+			}
+		}
+		if (fRemoveDuplicates)
+			removeDuplicates(loaded);
+		IPluginModelBase[] models = new IPluginModelBase[loaded.size()];
+		for (int i = 0; i < models.length; i++) {
+			models[i] = createExternalModel(loaded.get(i));
+			fTargetModels.add(models[i]);
+		}
+		return models;
+	}
+
+	/**
+	 * Reads, weaves and parses the manifest of one target bundle with the id reserved for it.
+	 * The state is not modified, so loaders may run concurrently.
+	 */
+	private class BundleLoader implements Callable<BundleDescription> {
+
+		final File fLocation;
+		final long fId;
+		Map<String, String> fManifest;
+
+		BundleLoader(File location, long id) {
+			fLocation = location;
+			fId = id;
+		}
+
+		public BundleDescription call() throws CoreException {
+			fManifest = loadManifest(fLocation);
+			return createBundleDescription(fManifest, fLocation, fId);
 		}
 	}
 
@@ -79,10 +368,38 @@ public class PDEState extends MinimalState {
 		fAuxiliaryState.addAuxiliaryData(desc, manifest, hasBundleStructure);
 	}
 
+	/**
+	 * Removes the given added bundles that have the same id and version as another bundle of the
+	 * state from the state and from the list, as {@link #removeDuplicatesFromState(State)} does when
+	 * the state is created. The bundles already in the state are kept. The removed bundles are
+	 * forgotten so they are read again on the next update, in case the bundle they duplicate is
+	 * removed from the target.
+	 * 
+	 * @param added bundles added to the state
+	 */
+	private void removeDuplicates(List<BundleDescription> added) {
+		for (Iterator<BundleDescription> iter = added.iterator(); iter.hasNext();) {
+			BundleDescription desc = iter.next();
+			if (desc.getSymbolicName() == null)
+				continue;
+			BundleDescription[] conflicts = fState.getBundles(desc.getSymbolicName());
+			for (int i = 0; i < conflicts.length; i++) {
+				if (desc.getVersion().equals(conflicts[i].getVersion()) && desc.getBundleId() != conflicts[i].getBundleId()) {
+					fState.removeBundle(desc);
+					fAuxiliaryState.removeAuxiliaryData(desc.getBundleId());
+					fFingerprints.remove(desc.getLocation());
+					iter.remove();
+					break;
+				}
+			}
+		}
+	}
+
 	/**
 	 * When creating a target state, having duplicates of certain bundles including core runtime cause problems when launching.  The
 	 * {@link LoadTargetDefinitionJob} removes duplicates for us, but on restart the state is created from preferences.  This method
 	 * search the state for bundles with the same ID/Version.  Where multiple bundles are found, all but one are removed from the state.
+	 * The removed bundles are forgotten so they are read again on the next update, in case the bundle kept is removed from the target.
 	 * 
 	 * @param state state to search for duplicates in
 	 */
@@ -92,11 +409,16 @@ public class PDEState extends MinimalState {
 		for (int i = 0; i < bundles.length; i++) {
 			BundleDescription desc = bundles[i];
 			String id = desc.getSymbolicName();
+			if (id == null)
+				continue;
 			BundleDescription[] conflicts = state.getBundles(id);
 			if (conflicts.length > 1) {
 				for (int j = 0; j < conflicts.length; j++) {
 					if (desc.getVersion().equals(conflicts[j].getVersion()) && desc.getBundleId() != conflicts[j].getBundleId()) {
 						fState.removeBundle(desc);
+						fAuxiliaryState.removeAuxiliaryData(desc.getBundleId());
+						fFingerprints.remove(desc.getLocation());
+						break;
 					}
 				}
 			}
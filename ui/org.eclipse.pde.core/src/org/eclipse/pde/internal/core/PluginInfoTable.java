@@ -0,0 +1,321 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.internal.core;
+
+import java.util.*;
+import org.eclipse.pde.internal.core.PDEAuxiliaryState.PluginInfo;
+
+/**
+ * Column oriented storage of the auxiliary plug-in information of a state, keyed by bundle id.
+ * <p>
+ * Targets contain thousands of bundles sharing the same provider names, localization paths and
+ * libraries. Rather than one object per bundle, each row stores indexes into a pool of the
+ * distinct strings, a reference to a shared library array and its flags packed into a byte.
+ * Rows of removed bundles are reused; the pools only shrink when the table is cleared.
+ * </p>
+ */
+public final class PluginInfoTable {
+
+	public static final int NAME = 0;
+	public static final int PROVIDER_NAME = 1;
+	public static final int CLASS_NAME = 2;
+	public static final int PROJECT = 3;
+	public static final int LOCALIZATION = 4;
+	public static final int BUNDLE_SOURCE_ENTRY = 5;
+	private static final int STRING_COLUMNS = 6;
+
+	public static final int EXTENSIBLE_API = 0x01;
+	public static final int PATCH_FRAGMENT = 0x02;
+	public static final int BUNDLE_STRUCTURE = 0x04;
+
+	private static final int INITIAL_ROWS = 16;
+
+	/**
+	 * Column values of each row, <code>STRING_COLUMNS</code> consecutive indexes into the string pool
+	 * per row, <code>-1</code> for <code>null</code>
+	 */
+	private int[] fStrings;
+	private String[][] fLibraries;
+	private byte[] fFlags;
+
+	/**
+	 * Number of rows ever used, and the stack of rows freed by removed bundles
+	 */
+	private int fRows;
+	private int[] fFreeRows;
+	private int fFreeCount;
+
+	/**
+	 * Open addressed hash table from bundle id to row, with linear probing. A slot holds the row
+	 * plus one, zero marks an empty slot.
+	 */
+	private long[] fKeys;
+	private int[] fSlots;
+	private int fSize;
+
+	private ArrayList<String> fPool;
+	private HashMap<String, Integer> fPoolIndex;
+	private HashMap<List<String>, String[]> fLibraryPool;
+
+	public PluginInfoTable() {
+		clear();
+	}
+
+	/**
+	 * Creates a copy of the given table
+	 *
+	 * @param table the table to copy
+	 */
+	public PluginInfoTable(PluginInfoTable table) {
+		fStrings = table.fStrings.clone();
+		fLibraries = table.fLibraries.clone();
+		fFlags = table.fFlags.clone();
+		fRows = table.fRows;
+		fFreeRows = table.fFreeRows.clone();
+		fFreeCount = table.fFreeCount;
+		fKeys = table.fKeys.clone();
+		fSlots = table.fSlots.clone();
+		fSize = table.fSize;
+		fPool = new ArrayList<String>(table.fPool);
+		fPoolIndex = new HashMap<String, Integer>(table.fPoolIndex);
+		fLibraryPool = new HashMap<List<String>, String[]>(table.fLibraryPool);
+	}
+
+	/**
+	 * Removes all rows and empties the pools
+	 */
+	public void clear() {
+		fStrings = new int[INITIAL_ROWS * STRING_COLUMNS];
+		fLibraries = new String[INITIAL_ROWS][];
+		fFlags = new byte[INITIAL_ROWS];
+		fRows = 0;
+		fFreeRows = new int[INITIAL_ROWS];
+		fFreeCount = 0;
+		fKeys = new long[INITIAL_ROWS * 2];
+		fSlots = new int[INITIAL_ROWS * 2];
+		fSize = 0;
+		fPool = new ArrayList<String>();
+		fPoolIndex = new HashMap<String, Integer>();
+		fLibraryPool = new HashMap<List<String>, String[]>();
+	}
+
+	/**
+	 * Stores the information of the given bundle, replacing any previous information
+	 *
+	 * @param bundleID id of the bundle
+	 * @param info the information to store
+	 */
+	public void put(long bundleID, PluginInfo info) {
+		int slot = findSlot(bundleID);
+		int row;
+		if (fSlots[slot] != 0) {
+			row = fSlots[slot] - 1;
+		} else {
+			row = newRow();
+			fKeys[slot] = bundleID;
+			fSlots[slot] = row + 1;
+			if (++fSize * 4 > fKeys.length * 3)
+				rehash(fKeys.length * 2);
+		}
+		int offset = row * STRING_COLUMNS;
+		fStrings[offset + NAME] = intern(info.name);
+		fStrings[offset + PROVIDER_NAME] = intern(info.providerName);
+		fStrings[offset + CLASS_NAME] = intern(info.className);
+		fStrings[offset + PROJECT] = intern(info.project);
+		fStrings[offset + LOCALIZATION] = intern(info.localization);
+		fStrings[offset + BUNDLE_SOURCE_ENTRY] = intern(info.bundleSourceEntry);
+		fLibraries[row] = intern(info.libraries);
+		int flags = 0;
+		if (info.hasExtensibleAPI)
+			flags |= EXTENSIBLE_API;
+		if (info.isPatchFragment)
+			flags |= PATCH_FRAGMENT;
+		if (info.hasBundleStructure)
+			flags |= BUNDLE_STRUCTURE;
+		fFlags[row] = (byte) flags;
+	}
+
+	/**
+	 * Removes the information of the given bundle
+	 *
+	 * @param bundleID id of the bundle
+	 */
+	public void remove(long bundleID) {
+		int slot = findSlot(bundleID);
+		if (fSlots[slot] == 0)
+			return;
+		int row = fSlots[slot] - 1;
+		fLibraries[row] = null;
+		if (fFreeCount == fFreeRows.length)
+			fFreeRows = grow(fFreeRows, fFreeCount * 2);
+		fFreeRows[fFreeCount++] = row;
+		fSlots[slot] = 0;
+		fSize--;
+		// shift back the entries that probed past the freed slot
+		int mask = fKeys.length - 1;
+		int free = slot;
+		int next = slot;
+		while (true) {
+			next = (next + 1) & mask;
+			if (fSlots[next] == 0)
+				return;
+			int home = hash(fKeys[next]) & mask;
+			boolean reachable = free <= next ? free < home && home <= next : free < home || home <= next;
+			if (!reachable) {
+				fKeys[free] = fKeys[next];
+				fSlots[free] = fSlots[next];
+				fSlots[next] = 0;
+				free = next;
+			}
+		}
+	}
+
+	/**
+	 * @param bundleID id of a bundle
+	 * @return whether the table has information on the given bundle
+	 */
+	public boolean contains(long bundleID) {
+		return getRow(bundleID) != -1;
+	}
+
+	/**
+	 * @return the ids of all bundles in the table
+	 */
+	public long[] getBundleIDs() {
+		long[] ids = new long[fSize];
+		int count = 0;
+		for (int i = 0; i < fSlots.length; i++) {
+			if (fSlots[i] != 0)
+				ids[count++] = fKeys[i];
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns a string value of the given bundle
+	 *
+	 * @param bundleID id of the bundle
+	 * @param column one of the string column constants of this class
+	 * @return the value or <code>null</code> if not set or the bundle is unknown
+	 */
+	public String getString(long bundleID, int column) {
+		int row = getRow(bundleID);
+		if (row == -1)
+			return null;
+		int index = fStrings[row * STRING_COLUMNS + column];
+		return index == -1 ? null : fPool.get(index);
+	}
+
+	/**
+	 * Returns the libraries of the given bundle. The array is shared with the bundles having the
+	 * same libraries and must not be modified.
+	 *
+	 * @param bundleID id of the bundle
+	 * @return the libraries or <code>null</code> if not set or the bundle is unknown
+	 */
+	public String[] getLibraries(long bundleID) {
+		int row = getRow(bundleID);
+		return row == -1 ? null : fLibraries[row];
+	}
+
+	/**
+	 * Returns whether a flag is set for the given bundle
+	 *
+	 * @param bundleID id of the bundle
+	 * @param flag one of the flag constants of this class
+	 * @return whether the flag is set, <code>false</code> if the bundle is unknown
+	 */
+	public boolean hasFlag(long bundleID, int flag) {
+		int row = getRow(bundleID);
+		return row != -1 && (fFlags[row] & flag) != 0;
+	}
+
+	private int getRow(long bundleID) {
+		return fSlots[findSlot(bundleID)] - 1;
+	}
+
+	private int findSlot(long bundleID) {
+		int mask = fKeys.length - 1;
+		int slot = hash(bundleID) & mask;
+		while (fSlots[slot] != 0 && fKeys[slot] != bundleID)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	private static int hash(long bundleID) {
+		long hash = bundleID * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	private void rehash(int capacity) {
+		long[] keys = fKeys;
+		int[] slots = fSlots;
+		fKeys = new long[capacity];
+		fSlots = new int[capacity];
+		for (int i = 0; i < keys.length; i++) {
+			if (slots[i] != 0) {
+				int slot = findSlot(keys[i]);
+				fKeys[slot] = keys[i];
+				fSlots[slot] = slots[i];
+			}
+		}
+	}
+
+	private int newRow() {
+		if (fFreeCount > 0)
+			return fFreeRows[--fFreeCount];
+		if (fRows == fFlags.length) {
+			int capacity = fRows * 2;
+			fStrings = grow(fStrings, capacity * STRING_COLUMNS);
+			String[][] libraries = new String[capacity][];
+			System.arraycopy(fLibraries, 0, libraries, 0, fRows);
+			fLibraries = libraries;
+			byte[] flags = new byte[capacity];
+			System.arraycopy(fFlags, 0, flags, 0, fRows);
+			fFlags = flags;
+		}
+		return fRows++;
+	}
+
+	private static int[] grow(int[] array, int length) {
+		int[] result = new int[length];
+		System.arraycopy(array, 0, result, 0, array.length);
+		return result;
+	}
+
+	private int intern(String value) {
+		if (value == null)
+			return -1;
+		Integer index = fPoolIndex.get(value);
+		if (index == null) {
+			index = Integer.valueOf(fPool.size());
+			fPool.add(value);
+			fPoolIndex.put(value, index);
+		}
+		return index.intValue();
+	}
+
+	private String[] intern(String[] libraries) {
+		if (libraries == null)
+			return null;
+		List<String> key = Arrays.asList(libraries);
+		String[] shared = fLibraryPool.get(key);
+		if (shared == null) {
+			shared = new String[libraries.length];
+			for (int i = 0; i < libraries.length; i++) {
+				int index = intern(libraries[i]);
+				shared[i] = index == -1 ? null : fPool.get(index);
+			}
+			fLibraryPool.put(Arrays.asList(shared), shared);
+		}
+		return shared;
+	}
+}
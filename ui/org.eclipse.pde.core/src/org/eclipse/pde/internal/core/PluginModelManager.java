@@ -30,6 +30,7 @@ import org.eclipse.pde.internal.core.target.P2TargetUtils;
 
 public class PluginModelManager implements IModelProviderListener {
 	private static final String fExternalPluginListFile = "SavedExternalPluginList.txt"; //$NON-NLS-1$
+	private static final String fTargetSnapshotDir = "targetSnapshot"; //$NON-NLS-1$
 	private static PluginModelManager fModelManager;
 
 	/**
@@ -67,7 +68,7 @@ public class PluginModelManager implements IModelProviderListener {
 						fProjects.clear();
 						fContainers.clear();
 					}
-					JavaCore.setClasspathContainer(PDECore.REQUIRED_PLUGINS_CONTAINER_PATH, projects, containers, monitor);
+					setChangedContainers(projects, containers, monitor);
 					synchronized (fProjects) {
 						more = !fProjects.isEmpty();
 					}
@@ -101,6 +102,11 @@ public class PluginModelManager implements IModelProviderListener {
 	 */
 	private UpdateClasspathsJob fUpdateJob = new UpdateClasspathsJob();
 
+	/**
+	 * Results shared by the computations of required plug-ins containers
+	 */
+	private RequiredPluginsCache fClasspathCache = new RequiredPluginsCache();
+
 	/**
 	 * Subclass of ModelEntry
 	 * It adds methods that add/remove model from the entry.
@@ -159,6 +165,7 @@ public class PluginModelManager implements IModelProviderListener {
 	private ArrayList<IPluginModelListener> fListeners; // a list of listeners interested in changes to the plug-in models
 	private ArrayList<IStateDeltaListener> fStateListeners; // a list of listeners interested in changes to the PDE/resolver State
 	private boolean fCancelled = false;
+	private boolean fTargetPending = false; // whether the models were initialized without the target, waiting for it to be resolved
 
 	/**
 	 * Initialize the workspace and external (target) model manager
@@ -267,6 +274,8 @@ public class PluginModelManager implements IModelProviderListener {
 	 * @param runAsynch whether classpath updates should be done in an asynchronous job
 	 */
 	private void updateAffectedEntries(StateDelta delta, boolean runAsynch) {
+		// drop the results computed for the affected bundles before computing their containers again
+		fClasspathCache.invalidate(delta);
 		Map<IJavaProject, RequiredPluginsClasspathContainer> map = new HashMap<IJavaProject, RequiredPluginsClasspathContainer>();
 		if (delta == null) {
 			// if the delta is null, then the entire target changed.
@@ -340,13 +349,50 @@ public class PluginModelManager implements IModelProviderListener {
 			} else {
 				// else update synchronously
 				try {
-					JavaCore.setClasspathContainer(PDECore.REQUIRED_PLUGINS_CONTAINER_PATH, projects, containers, null);
+					setChangedContainers(projects, containers, null);
 				} catch (JavaModelException e) {
 				}
 			}
 		}
 	}
 
+	/**
+	 * Sets the given required plug-ins containers on their projects, skipping the containers whose
+	 * entries are the same as the entries of the container the project already has. Setting a
+	 * container triggers a build of the project and its dependents even if nothing changed.
+	 * 
+	 * @param projects the projects to update
+	 * @param containers the new container of each project
+	 * @param monitor progress monitor, may be <code>null</code>
+	 * @throws JavaModelException if the containers could not be set
+	 */
+	public static void setChangedContainers(IJavaProject[] projects, IClasspathContainer[] containers, IProgressMonitor monitor) throws JavaModelException {
+		List<IJavaProject> changedProjects = new ArrayList<IJavaProject>(projects.length);
+		List<IClasspathContainer> changedContainers = new ArrayList<IClasspathContainer>(containers.length);
+		for (int i = 0; i < projects.length; i++) {
+			if (!hasSameEntries(projects[i], containers[i])) {
+				changedProjects.add(projects[i]);
+				changedContainers.add(containers[i]);
+			}
+		}
+		if (PDECore.DEBUG_CLASSPATH) {
+			System.out.println(changedProjects.size() + " of " + projects.length + " required plug-ins containers changed"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		if (changedProjects.isEmpty())
+			return;
+		IJavaProject[] changed = changedProjects.toArray(new IJavaProject[changedProjects.size()]);
+		JavaCore.setClasspathContainer(PDECore.REQUIRED_PLUGINS_CONTAINER_PATH, changed, changedContainers.toArray(new IClasspathContainer[changed.length]), monitor);
+	}
+
+	private static boolean hasSameEntries(IJavaProject project, IClasspathContainer container) {
+		try {
+			IClasspathContainer current = JavaCore.getClasspathContainer(PDECore.REQUIRED_PLUGINS_CONTAINER_PATH, project);
+			return current != null && Arrays.equals(current.getClasspathEntries(), container.getClasspathEntries());
+		} catch (JavaModelException e) {
+			return false;
+		}
+	}
+
 	/**
 	 * Notify all interested listeners in changes made to the master table
 	 * 
@@ -466,13 +512,94 @@ public class PluginModelManager implements IModelProviderListener {
 	}
 
 	/**
-	 * Clears all existing models and recreates them
+	 * Updates the models to the content of the current target. Once the models have been
+	 * initialized, only the target bundles that were added, removed or changed are updated.
+	 * Otherwise all existing models are cleared and recreated.
 	 */
 	public void targetReloaded(IProgressMonitor monitor) {
+		if (updateTargetModels(monitor))
+			return;
 		fEntries = null;
 		initializeTable(monitor);
 	}
 
+	/**
+	 * Updates the target models to the content of the current target without recreating the
+	 * state. Bundles removed from the target or changed on disk are removed from the state and
+	 * the master table, added or changed bundles are read and added. The state is then resolved
+	 * incrementally so only the workspace plug-ins whose resolution changed are updated, and
+	 * listeners are notified of the entries that changed.
+	 * 
+	 * @param monitor progress monitor
+	 * @return whether the models were updated, <code>false</code> if they must be initialized again
+	 */
+	private synchronized boolean updateTargetModels(IProgressMonitor monitor) {
+		if (fEntries == null || fState == null || fCancelled || fTargetPending)
+			return false;
+
+		// targets with unresolved repositories are loaded asynchronously by the full initialization
+		ITargetDefinition unresolvedRepoBasedtarget = null;
+		try {
+			unresolvedRepoBasedtarget = TargetPlatformHelper.getUnresolvedRepositoryBasedWorkspaceTarget();
+		} catch (CoreException e) {
+			PDECore.log(e);
+		}
+		if (unresolvedRepoBasedtarget != null && !P2TargetUtils.isProfileValid(unresolvedRepoBasedtarget))
+			return false;
+
+		SubMonitor subMon = SubMonitor.convert(monitor, PDECoreMessages.PluginModelManager_InitializingPluginModels, 100);
+		long startTime = System.currentTimeMillis();
+		URL[] externalUrls = getExternalBundles(subMon.newChild(40));
+		if (subMon.isCanceled())
+			return false;
+
+		File[] locations = new File[externalUrls.length];
+		for (int i = 0; i < externalUrls.length; i++) {
+			locations[i] = new File(externalUrls[i].getFile());
+		}
+
+		PluginModelDelta delta = new PluginModelDelta();
+		IPluginModelBase[] removed = fState.removeTargetBundles(locations);
+		for (int i = 0; i < removed.length; i++) {
+			String id = removed[i].getPluginBase().getId();
+			if (id != null)
+				handleRemove(id, removed[i], delta);
+			else
+				fState.removeBundleDescription(removed[i].getBundleDescription());
+		}
+		IPluginModelBase[] added = fState.addTargetBundles(locations, subMon.newChild(40));
+		for (int i = 0; i < added.length; i++) {
+			String id = added[i].getPluginBase().getId();
+			if (id == null)
+				continue;
+			handleAdd(id, added[i], delta);
+			// workspace plug-ins take precedence over their target counterparts in the state
+			if (fEntries.get(id).hasWorkspaceModels())
+				fState.removeBundleDescription(added[i].getBundleDescription());
+		}
+		fExternalManager.setModels(fState.getTargetModels());
+		saveExternalPluginList(externalUrls);
+
+		if (PDECore.DEBUG_MODEL) {
+			System.out.println(removed.length + " target models removed and " + added.length + " added in " + (System.currentTimeMillis() - startTime) + " ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+
+		// the target environment may have changed along with its bundles
+		fState.resetPlatformProperties();
+		// library entries depend on the target source bundles and javadoc locations
+		fClasspathCache.clear();
+		StateDelta stateDelta = fState.resolveState(true);
+		if (removed.length > 0 || added.length > 0) {
+			// flush the extension registry cache since target bundles have been replaced
+			PDECore.getDefault().getExtensionsRegistry().targetReloaded();
+		}
+		updateAffectedEntries(stateDelta, true);
+		fireStateDelta(stateDelta);
+		fireDelta(delta);
+		subMon.done();
+		return true;
+	}
+
 	/**
 	 * Allow access to the table only through this getter.
 	 * It always calls initialize to make sure the table is initialized.
@@ -519,6 +646,7 @@ public class PluginModelManager implements IModelProviderListener {
 		// Cannot assign to fEntries here - will create a race condition with isInitialized()
 		Map<String, LocalModelEntry> entries = Collections.synchronizedMap(new TreeMap<String, LocalModelEntry>());
 		fCancelled = false;
+		fTargetPending = false;
 
 		ITargetDefinition unresolvedRepoBasedtarget = null;
 		try {
@@ -530,6 +658,7 @@ public class PluginModelManager implements IModelProviderListener {
 			//Workspace target contains unresolved p2 repositories,
 			//set empty fState, fExternalManager, fEntries- scheduling target platform resolve
 			fState = new PDEState(new URL[0], true, true, subMon);
+			fTargetPending = true;
 			fExternalManager.setModels(new IPluginModelBase[0]);
 			fEntries = entries;
 			LoadTargetDefinitionJob.load(unresolvedRepoBasedtarget);
@@ -553,7 +682,9 @@ public class PluginModelManager implements IModelProviderListener {
 			fCancelled = true;
 		}
 
-		fState = new PDEState(externalUrls, true, true, subMon.newChild(15));
+		// restore the target state saved on last startup, reading only the bundles that changed since
+		File snapshotLocation = new File(PDECore.getDefault().getStateLocation().toOSString(), fTargetSnapshotDir);
+		fState = new PDEState(externalUrls, true, true, snapshotLocation, subMon.newChild(15));
 		fExternalManager.setModels(fState.getTargetModels());
 		addToTable(entries, fExternalManager.getAllModels());
 
@@ -1146,6 +1277,15 @@ public class PluginModelManager implements IModelProviderListener {
 		return fState;
 	}
 
+	/**
+	 * Returns the results shared by the computations of required plug-ins containers
+	 * 
+	 * @return the required plug-ins cache
+	 */
+	public RequiredPluginsCache getClasspathCache() {
+		return fClasspathCache;
+	}
+
 	/**
 	 * Returns the id of the system bundle currently in the resolver state
 	 * 
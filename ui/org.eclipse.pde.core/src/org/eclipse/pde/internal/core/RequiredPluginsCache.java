@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.internal.core;
+
+import java.util.*;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.osgi.service.resolver.*;
+import org.eclipse.pde.internal.core.PDEClasspathContainer.Rule;
+
+/**
+ * Results shared by the computations of all required plug-ins classpath containers, keyed on
+ * the resolved bundle description they were computed from.
+ * <p>
+ * For each bundle the cache holds the packages visible to it in the resolved state, as access
+ * rules grouped by exporter, and for each target bundle the library entries it contributes to
+ * the classpath of its dependents, without access rules. The results of a bundle are dropped
+ * when the bundle is part of a state delta, and all results are dropped when the target changes.
+ * </p>
+ */
+public class RequiredPluginsCache {
+
+	private final Map<BundleDescription, Map<BundleDescription, Rule[]>> fVisiblePackages = new HashMap<BundleDescription, Map<BundleDescription, Rule[]>>();
+	private final Map<BundleDescription, IClasspathEntry[]> fLibraryEntries = new HashMap<BundleDescription, IClasspathEntry[]>();
+
+	/**
+	 * Incremented whenever results are dropped, so results computed from a state that
+	 * changed during the computation are not stored
+	 */
+	private long fStamp;
+
+	/**
+	 * @return the current stamp of the cache, to be passed when storing results computed afterwards
+	 */
+	public synchronized long getStamp() {
+		return fStamp;
+	}
+
+	/**
+	 * Returns the packages visible to the given bundle
+	 *
+	 * @param desc a resolved bundle
+	 * @return the access rules of the visible packages by exporter or <code>null</code> if not cached
+	 */
+	public synchronized Map<BundleDescription, Rule[]> getVisiblePackages(BundleDescription desc) {
+		return fVisiblePackages.get(desc);
+	}
+
+	/**
+	 * Stores the packages visible to the given bundle, unless results were dropped since the given stamp
+	 *
+	 * @param desc a resolved bundle
+	 * @param packages the access rules of the visible packages by exporter, must not be modified afterwards
+	 * @param stamp the stamp of the cache when the computation started
+	 */
+	public synchronized void putVisiblePackages(BundleDescription desc, Map<BundleDescription, Rule[]> packages, long stamp) {
+		if (stamp == fStamp)
+			fVisiblePackages.put(desc, packages);
+	}
+
+	/**
+	 * Returns the library entries of the given target bundle
+	 *
+	 * @param desc a target bundle
+	 * @return the library entries without access rules or <code>null</code> if not cached
+	 */
+	public synchronized IClasspathEntry[] getLibraryEntries(BundleDescription desc) {
+		return fLibraryEntries.get(desc);
+	}
+
+	/**
+	 * Stores the library entries of the given target bundle, unless results were dropped since the given stamp
+	 *
+	 * @param desc a target bundle
+	 * @param entries the library entries without access rules
+	 * @param stamp the stamp of the cache when the computation started
+	 */
+	public synchronized void putLibraryEntries(BundleDescription desc, IClasspathEntry[] entries, long stamp) {
+		if (stamp == fStamp)
+			fLibraryEntries.put(desc, entries);
+	}
+
+	/**
+	 * Drops the results of the bundles in the given delta, the results of the hosts of the fragments
+	 * in the delta, and the results of bundles no longer in the state
+	 *
+	 * @param delta the delta of a resolution, <code>null</code> to drop all results
+	 */
+	public synchronized void invalidate(StateDelta delta) {
+		fStamp++;
+		if (delta == null) {
+			fVisiblePackages.clear();
+			fLibraryEntries.clear();
+			return;
+		}
+		BundleDelta[] changes = delta.getChanges();
+		for (int i = 0; i < changes.length; i++) {
+			BundleDescription desc = changes[i].getBundle();
+			remove(desc);
+			HostSpecification host = desc.getHost();
+			if (host != null) {
+				BundleDescription[] hosts = host.getHosts();
+				for (int j = 0; hosts != null && j < hosts.length; j++)
+					remove(hosts[j]);
+			}
+		}
+		// updated bundles are replaced by new descriptions that the delta does not refer to
+		removeStale(fVisiblePackages.keySet());
+		removeStale(fLibraryEntries.keySet());
+	}
+
+	/**
+	 * Drops all results
+	 */
+	public void clear() {
+		invalidate(null);
+	}
+
+	private void remove(BundleDescription desc) {
+		fVisiblePackages.remove(desc);
+		fLibraryEntries.remove(desc);
+	}
+
+	private static void removeStale(Set<BundleDescription> bundles) {
+		for (Iterator<BundleDescription> iter = bundles.iterator(); iter.hasNext();) {
+			BundleDescription desc = iter.next();
+			if (desc.getContainingState() == null || desc.isRemovalPending())
+				iter.remove();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2013 IBM Corporation and others.
+ *  Copyright (c) 2000, 2015 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -200,6 +200,31 @@ public class RequiredPluginsClasspathContainer extends PDEClasspathContainer imp
 	private void addVisiblePackagesFromState(StateHelper helper, BundleDescription desc, Map<BundleDescription, ArrayList<Rule>> visiblePackages) {
 		if (desc == null)
 			return;
+		RequiredPluginsCache cache = PDECore.getDefault().getModelManager().getClasspathCache();
+		Map<BundleDescription, Rule[]> packages = cache.getVisiblePackages(desc);
+		if (packages == null) {
+			long stamp = cache.getStamp();
+			packages = computeVisiblePackages(helper, desc);
+			cache.putVisiblePackages(desc, packages, stamp);
+		}
+		Iterator<Map.Entry<BundleDescription, Rule[]>> iter = packages.entrySet().iterator();
+		while (iter.hasNext()) {
+			Map.Entry<BundleDescription, Rule[]> entry = iter.next();
+			ArrayList<Rule> list = visiblePackages.get(entry.getKey());
+			if (list == null) {
+				list = new ArrayList<Rule>();
+				visiblePackages.put(entry.getKey(), list);
+			}
+			Rule[] rules = entry.getValue();
+			for (int i = 0; i < rules.length; i++) {
+				if (!list.contains(rules[i]))
+					list.add(rules[i]);
+			}
+		}
+	}
+
+	private Map<BundleDescription, Rule[]> computeVisiblePackages(StateHelper helper, BundleDescription desc) {
+		Map<BundleDescription, ArrayList<Rule>> visiblePackages = new HashMap<BundleDescription, ArrayList<Rule>>();
 		ExportPackageDescription[] exports = helper.getVisiblePackages(desc);
 		for (int i = 0; i < exports.length; i++) {
 			BundleDescription exporter = exports[i].getExporter();
@@ -214,6 +239,13 @@ public class RequiredPluginsClasspathContainer extends PDEClasspathContainer imp
 			if (!list.contains(rule))
 				list.add(rule);
 		}
+		Map<BundleDescription, Rule[]> packages = new HashMap<BundleDescription, Rule[]>(visiblePackages.size() * 4 / 3 + 1);
+		Iterator<Map.Entry<BundleDescription, ArrayList<Rule>>> iter = visiblePackages.entrySet().iterator();
+		while (iter.hasNext()) {
+			Map.Entry<BundleDescription, ArrayList<Rule>> entry = iter.next();
+			packages.put(entry.getKey(), entry.getValue().toArray(new Rule[entry.getValue().size()]));
+		}
+		return packages;
 	}
 
 	private Rule getRule(StateHelper helper, BundleDescription desc, ExportPackageDescription export) {
@@ -297,11 +329,39 @@ public class RequiredPluginsClasspathContainer extends PDEClasspathContainer imp
 		if (resource != null) {
 			addProjectEntry(resource.getProject(), rules, entries);
 		} else {
-			addExternalPlugin(model, rules, entries);
+			addCachedExternalPlugin(model, rules, entries);
 		}
 		return true;
 	}
 
+	/**
+	 * Adds the library entries of a target plug-in with the given access rules. The entries
+	 * do not depend on the plug-in being added to, so they are computed once per bundle.
+	 */
+	private void addCachedExternalPlugin(IPluginModelBase model, Rule[] rules, ArrayList<IClasspathEntry> entries) {
+		BundleDescription desc = model.getBundleDescription();
+		if (desc == null) {
+			addExternalPlugin(model, rules, entries);
+			return;
+		}
+		RequiredPluginsCache cache = PDECore.getDefault().getModelManager().getClasspathCache();
+		IClasspathEntry[] libraries = cache.getLibraryEntries(desc);
+		if (libraries == null) {
+			long stamp = cache.getStamp();
+			ArrayList<IClasspathEntry> list = new ArrayList<IClasspathEntry>();
+			addExternalPlugin(model, null, list);
+			libraries = list.toArray(new IClasspathEntry[list.size()]);
+			cache.putLibraryEntries(desc, libraries, stamp);
+		}
+		IAccessRule[] accessRules = rules != null ? getAccessRules(rules) : new IAccessRule[0];
+		for (int i = 0; i < libraries.length; i++) {
+			IClasspathEntry library = libraries[i];
+			IClasspathEntry entry = JavaCore.newLibraryEntry(library.getPath(), library.getSourceAttachmentPath(), library.getSourceAttachmentRootPath(), accessRules, library.getExtraAttributes(), library.isExported());
+			if (!entries.contains(entry))
+				entries.add(entry);
+		}
+	}
+
 	private Rule[] getInclusions(Map<BundleDescription, ArrayList<Rule>> map, IPluginModelBase model) {
 		BundleDescription desc = model.getBundleDescription();
 		if (desc == null || "false".equals(System.getProperty("pde.restriction")) //$NON-NLS-1$ //$NON-NLS-2$
@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.internal.core;
+
+import java.io.*;
+import java.util.*;
+import org.eclipse.osgi.service.resolver.*;
+import org.eclipse.pde.internal.core.util.CoreUtility;
+
+/**
+ * A snapshot of the target state and its auxiliary plug-in information saved in the PDE
+ * metadata, so the target does not have to be read again on startup when it has not changed.
+ * <p>
+ * Each snapshot is written to its own sub-directory of the snapshot location. Besides the
+ * state and the plug-in information it contains a fingerprint file listing the location,
+ * size, time stamp and bundle id of every target bundle. The fingerprint file is written
+ * last, so a snapshot without a valid fingerprint file is incomplete and ignored. Snapshots
+ * are never modified once written: a restored state may still lazily read from its snapshot
+ * directory.
+ * </p>
+ */
+class TargetStateSnapshot {
+
+	private static final int MAGIC = 0x50444553; // PDES
+	private static final int VERSION = 1;
+
+	private static final String FINGERPRINT_FILE = ".fingerprint"; //$NON-NLS-1$
+	private static final String FINGERPRINT_TMP_FILE = ".fingerprint.tmp"; //$NON-NLS-1$
+
+	/**
+	 * The size and time stamp of a target bundle, and the id it had in the saved state
+	 */
+	static class Entry {
+		final long size;
+		final long lastModified;
+		long bundleId = -1;
+
+		Entry(long size, long lastModified) {
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		boolean matches(Entry entry) {
+			return entry != null && size == entry.size && lastModified == entry.lastModified;
+		}
+	}
+
+	private final File fDirectory;
+	private final String fSystemBundle;
+	private final Map<String, Entry> fEntries;
+
+	private TargetStateSnapshot(File directory, String systemBundle, Map<String, Entry> entries) {
+		fDirectory = directory;
+		fSystemBundle = systemBundle;
+		fEntries = entries;
+	}
+
+	/**
+	 * Returns the fingerprint of the bundle at the given location. Directory bundles are
+	 * fingerprinted by the files their description is read from.
+	 *
+	 * @param location the location of a bundle
+	 * @return the fingerprint of the bundle
+	 */
+	static Entry fingerprint(File location) {
+		if (!location.isDirectory())
+			return new Entry(location.length(), location.lastModified());
+		long size = 0;
+		long lastModified = location.lastModified();
+		String[] files = new String[] {ICoreConstants.BUNDLE_FILENAME_DESCRIPTOR, ICoreConstants.PLUGIN_FILENAME_DESCRIPTOR, ICoreConstants.FRAGMENT_FILENAME_DESCRIPTOR};
+		for (int i = 0; i < files.length; i++) {
+			File file = new File(location, files[i]);
+			// a negative size tells a missing file from an empty one
+			size = size * 31 + (file.exists() ? file.length() : -1);
+			lastModified = Math.max(lastModified, file.lastModified());
+		}
+		return new Entry(size, lastModified);
+	}
+
+	/**
+	 * @return the directory of this snapshot
+	 */
+	File getDirectory() {
+		return fDirectory;
+	}
+
+	/**
+	 * @return the symbolic name of the system bundle of the saved state
+	 */
+	String getSystemBundle() {
+		return fSystemBundle;
+	}
+
+	/**
+	 * Returns the saved fingerprint of the bundle at the given location
+	 *
+	 * @param location absolute path of a bundle
+	 * @return the fingerprint or <code>null</code> if the bundle is not part of the snapshot
+	 */
+	Entry getEntry(String location) {
+		return fEntries.get(location);
+	}
+
+	/**
+	 * @return the absolute paths of the bundles in the snapshot
+	 */
+	Set<String> getLocations() {
+		return fEntries.keySet();
+	}
+
+	/**
+	 * Reads the saved state
+	 *
+	 * @param factory the factory to read the state with
+	 * @return the state or <code>null</code> if it cannot be read
+	 */
+	State readState(StateObjectFactory factory) {
+		try {
+			return factory.readState(fDirectory);
+		} catch (IOException e) {
+			if (PDECore.DEBUG_MODEL)
+				System.out.println("Target state snapshot could not be read: " + e.getMessage()); //$NON-NLS-1$
+		} catch (RuntimeException e) {
+			// a corrupted state may fail in unexpected ways
+			PDECore.log(e);
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the most recent complete snapshot in the given location
+	 *
+	 * @param location the directory holding the snapshots
+	 * @return the snapshot or <code>null</code> if there is no valid snapshot
+	 */
+	static TargetStateSnapshot read(File location) {
+		File[] children = location.listFiles();
+		if (children == null)
+			return null;
+		File newest = null;
+		for (int i = 0; i < children.length; i++) {
+			File fingerprint = new File(children[i], FINGERPRINT_FILE);
+			if (fingerprint.isFile() && (newest == null || getTimestamp(children[i]) > getTimestamp(newest)))
+				newest = children[i];
+		}
+		if (newest == null)
+			return null;
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(new File(newest, FINGERPRINT_FILE))));
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				return null;
+			if (!getDevMode().equals(in.readUTF()))
+				return null;
+			String systemBundle = in.readUTF();
+			int count = in.readInt();
+			Map<String, Entry> entries = new HashMap<String, Entry>(count * 4 / 3 + 1);
+			for (int i = 0; i < count; i++) {
+				String path = in.readUTF();
+				Entry entry = new Entry(in.readLong(), in.readLong());
+				entry.bundleId = in.readLong();
+				entries.put(path, entry);
+			}
+			if (in.readInt() != MAGIC)
+				return null;
+			return new TargetStateSnapshot(newest, systemBundle, entries);
+		} catch (IOException e) {
+			if (PDECore.DEBUG_MODEL)
+				System.out.println("Target state snapshot is invalid: " + e.getMessage()); //$NON-NLS-1$
+			return null;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Saves a snapshot of the given state to a new directory in the given location, then deletes
+	 * all other snapshots except the one the state was restored from.
+	 *
+	 * @param location the directory holding the snapshots
+	 * @param restoredFrom the directory of the snapshot the state was restored from or <code>null</code>
+	 * @param factory the factory to write the state with
+	 * @param state the target state
+	 * @param auxiliaryState the plug-in information of the state
+	 * @param systemBundle the symbolic name of the system bundle
+	 * @param fingerprints absolute path of each target bundle to the fingerprint it had when it was read
+	 */
+	static void write(File location, File restoredFrom, StateObjectFactory factory, State state, PDEAuxiliaryState auxiliaryState, String systemBundle, Map<String, Entry> fingerprints) {
+		long timestamp = System.currentTimeMillis();
+		File dir = new File(location, Long.toString(timestamp));
+		while (dir.exists())
+			dir = new File(location, Long.toString(++timestamp));
+		DataOutputStream out = null;
+		try {
+			if (!dir.mkdirs())
+				throw new IOException(dir.getAbsolutePath());
+			factory.writeState(state, dir);
+			auxiliaryState.savePluginInfo(dir);
+			if (!auxiliaryState.exists(dir))
+				throw new IOException(dir.getAbsolutePath());
+
+			Map<String, Long> bundleIds = new HashMap<String, Long>();
+			BundleDescription[] bundles = state.getBundles();
+			for (int i = 0; i < bundles.length; i++) {
+				bundleIds.put(bundles[i].getLocation(), new Long(bundles[i].getBundleId()));
+			}
+			File tmp = new File(dir, FINGERPRINT_TMP_FILE);
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(getDevMode());
+			out.writeUTF(systemBundle);
+			out.writeInt(fingerprints.size());
+			for (Iterator<Map.Entry<String, Entry>> iter = fingerprints.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry<String, Entry> next = iter.next();
+				Long id = bundleIds.get(next.getKey());
+				out.writeUTF(next.getKey());
+				out.writeLong(next.getValue().size);
+				out.writeLong(next.getValue().lastModified);
+				out.writeLong(id == null ? -1 : id.longValue());
+			}
+			out.writeInt(MAGIC);
+			out.close();
+			out = null;
+			if (!tmp.renameTo(new File(dir, FINGERPRINT_FILE)))
+				throw new IOException(tmp.getAbsolutePath());
+		} catch (IOException e) {
+			PDECore.log(e);
+			CoreUtility.deleteContent(dir);
+			return;
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+		File[] children = location.listFiles();
+		if (children != null) {
+			for (int i = 0; i < children.length; i++) {
+				if (!children[i].equals(dir) && !children[i].equals(restoredFrom))
+					CoreUtility.deleteContent(children[i]);
+			}
+		}
+	}
+
+	private static long getTimestamp(File dir) {
+		try {
+			return Long.parseLong(dir.getName());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Manifests are woven in development mode, so a snapshot is only valid for the same
+	 * development settings.
+	 *
+	 * @return the development mode settings
+	 */
+	private static String getDevMode() {
+		String dev = System.getProperty("osgi.dev"); //$NON-NLS-1$
+		return dev == null ? "" : dev; //$NON-NLS-1$
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2012 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -54,11 +54,12 @@ public class TargetWeaver {
 	}
 
 	/**
-	 * Returns the dev.properties as a property store.
+	 * Returns the dev.properties as a property store. Synchronized as manifests
+	 * may be woven concurrently while the target state is created.
 	 * 
 	 * @return properties
 	 */
-	protected static Properties getDevProperties() {
+	protected static synchronized Properties getDevProperties() {
 		if (fgIsDev) {
 			if (fgDevProperties == null) {
 				fgDevProperties = new Properties();
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.ui.tests.classpathcontributor;
+
+import java.util.*;
+import junit.framework.*;
+import org.eclipse.core.resources.*;
+import org.eclipse.core.runtime.*;
+import org.eclipse.jdt.core.*;
+import org.eclipse.osgi.service.resolver.*;
+import org.eclipse.pde.core.plugin.IPluginModelBase;
+import org.eclipse.pde.core.plugin.PluginRegistry;
+import org.eclipse.pde.internal.core.*;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+
+/**
+ * Tests the cache shared by the computations of the required plug-ins classpath containers,
+ * and that containers with unchanged entries are not set on their projects again.
+ *
+ * @since 3.11
+ */
+public class RequiredPluginsCacheTest extends TestCase {
+
+	public static Test suite() {
+		return new TestSuite(RequiredPluginsCacheTest.class);
+	}
+
+	private static final IProgressMonitor monitor = new NullProgressMonitor();
+	private IWorkspace workspace = ResourcesPlugin.getWorkspace();
+	private IProject project;
+
+	protected void setUp() throws Exception {
+		project = new ClasspathContributorTest().importProject(workspace);
+	}
+
+	protected void tearDown() throws Exception {
+		project.delete(true, true, monitor);
+	}
+
+	/**
+	 * Tests that containers computed again from the shared cache have the same entries
+	 * as the container computed when the project was created, and after the cache is cleared.
+	 *
+	 * @throws Exception
+	 */
+	public void testRecomputedClasspathEntries() throws Exception {
+		IJavaProject jProject = JavaCore.create(project);
+		IClasspathContainer container = JavaCore.getClasspathContainer(PDECore.REQUIRED_PLUGINS_CONTAINER_PATH, jProject);
+		assertNotNull("Could not find PDE classpath container", container);
+		IPluginModelBase model = PluginRegistry.findModel(project);
+		assertNotNull("Could not find plug-in model", model);
+
+		IClasspathEntry[] cached = new RequiredPluginsClasspathContainer(model).getClasspathEntries();
+		assertTrue("Wrong cached entries", Arrays.equals(container.getClasspathEntries(), cached));
+
+		PDECore.getDefault().getModelManager().getClasspathCache().clear();
+		IClasspathEntry[] computed = new RequiredPluginsClasspathContainer(model).getClasspathEntries();
+		assertTrue("Wrong computed entries", Arrays.equals(cached, computed));
+	}
+
+	/**
+	 * Tests that a container with the same entries as the container of its project is not set,
+	 * and that a container with other entries is.
+	 *
+	 * @throws Exception
+	 */
+	public void testUnchangedContainerSkipped() throws Exception {
+		IJavaProject jProject = JavaCore.create(project);
+		IClasspathContainer current = JavaCore.getClasspathContainer(PDECore.REQUIRED_PLUGINS_CONTAINER_PATH, jProject);
+		assertNotNull("Could not find PDE classpath container", current);
+		IPluginModelBase model = PluginRegistry.findModel(project);
+		assertNotNull("Could not find plug-in model", model);
+
+		IClasspathContainer same = new RequiredPluginsClasspathContainer(model);
+		PluginModelManager.setChangedContainers(new IJavaProject[] {jProject}, new IClasspathContainer[] {same}, monitor);
+		assertSame("An unchanged container should not be set", current, JavaCore.getClasspathContainer(PDECore.REQUIRED_PLUGINS_CONTAINER_PATH, jProject));
+
+		List entries = new ArrayList(Arrays.asList(current.getClasspathEntries()));
+		entries.add(JavaCore.newLibraryEntry(new Path("/" + project.getName() + "/extra.jar"), null, null));
+		IClasspathContainer changed = new TestContainer((IClasspathEntry[]) entries.toArray(new IClasspathEntry[entries.size()]));
+		PluginModelManager.setChangedContainers(new IJavaProject[] {jProject}, new IClasspathContainer[] {changed}, monitor);
+		assertSame("A changed container should be set", changed, JavaCore.getClasspathContainer(PDECore.REQUIRED_PLUGINS_CONTAINER_PATH, jProject));
+	}
+
+	/**
+	 * Tests that a state delta drops the results of the bundles in the delta and of the hosts
+	 * of the fragments in it, keeps the other results, and that results computed before the
+	 * delta are not stored.
+	 *
+	 * @throws Exception
+	 */
+	public void testDeltaInvalidatesCache() throws Exception {
+		StateObjectFactory factory = Platform.getPlatformAdmin().getFactory();
+		State state = factory.createState(true);
+		state.setResolver(Platform.getPlatformAdmin().createResolver());
+		BundleDescription a = addBundle(factory, state, "a", null, 1);
+		BundleDescription b = addBundle(factory, state, "b", null, 2);
+		state.resolve();
+
+		RequiredPluginsCache cache = new RequiredPluginsCache();
+		long stamp = cache.getStamp();
+		Map packages = new HashMap();
+		IClasspathEntry[] entries = new IClasspathEntry[0];
+		cache.putVisiblePackages(a, packages, stamp);
+		cache.putLibraryEntries(a, entries, stamp);
+		cache.putVisiblePackages(b, packages, stamp);
+		cache.putLibraryEntries(b, entries, stamp);
+		assertSame("Missing visible packages", packages, cache.getVisiblePackages(b));
+
+		BundleDescription fragment = addBundle(factory, state, "b.fragment", "b", 3);
+		StateDelta delta = state.resolve(false);
+		assertTrue("The fragment should be resolved", fragment.isResolved());
+		cache.invalidate(delta);
+
+		assertSame("Results of a bundle not in the delta should be kept", packages, cache.getVisiblePackages(a));
+		assertSame("Results of a bundle not in the delta should be kept", entries, cache.getLibraryEntries(a));
+		assertNull("Results of the host of a fragment in the delta should be dropped", cache.getVisiblePackages(b));
+		assertNull("Results of the host of a fragment in the delta should be dropped", cache.getLibraryEntries(b));
+
+		// results computed from the state before the delta are not stored
+		cache.putVisiblePackages(b, packages, stamp);
+		assertNull("Stale results should not be stored", cache.getVisiblePackages(b));
+		cache.putVisiblePackages(b, packages, cache.getStamp());
+		assertSame("Missing visible packages", packages, cache.getVisiblePackages(b));
+
+		cache.clear();
+		assertNull("Results should be dropped", cache.getVisiblePackages(a));
+		assertNull("Results should be dropped", cache.getVisiblePackages(b));
+	}
+
+	private BundleDescription addBundle(StateObjectFactory factory, State state, String id, String host, long bundleId) throws BundleException {
+		Hashtable manifest = new Hashtable();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, id);
+		manifest.put(Constants.BUNDLE_VERSION, "1.0.0");
+		if (host != null)
+			manifest.put(Constants.FRAGMENT_HOST, host);
+		BundleDescription desc = factory.createBundleDescription(state, manifest, id, bundleId);
+		assertTrue("Could not add bundle " + id, state.addBundle(desc));
+		return desc;
+	}
+
+	private static class TestContainer implements IClasspathContainer {
+
+		private final IClasspathEntry[] fEntries;
+
+		TestContainer(IClasspathEntry[] entries) {
+			fEntries = entries;
+		}
+
+		public IClasspathEntry[] getClasspathEntries() {
+			return fEntries;
+		}
+
+		public String getDescription() {
+			return "Test container";
+		}
+
+		public int getKind() {
+			return K_APPLICATION;
+		}
+
+		public IPath getPath() {
+			return PDECore.REQUIRED_PLUGINS_CONTAINER_PATH;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2005, 2013 IBM Corporation and others.
+ *  Copyright (c) 2005, 2015 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -11,12 +11,15 @@
 package org.eclipse.pde.ui.tests.performance.parts;
 
 import java.io.File;
+import java.net.URL;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.osgi.service.resolver.BundleDescription;
 import org.eclipse.pde.core.target.*;
 import org.eclipse.pde.internal.core.PDECore;
+import org.eclipse.pde.internal.core.PDEState;
 import org.eclipse.pde.internal.core.TargetPlatformHelper;
 import org.eclipse.test.performance.Dimension;
 import org.eclipse.test.performance.PerformanceTestCase;
@@ -72,6 +75,80 @@ public class InitializeModelsPerfTest extends PerformanceTestCase {
 		assertPerformance();
 	}
 
+	/**
+	 * Measures the creation of the target state, where manifests are loaded in
+	 * parallel, and checks that bundle ids do not depend on the loading order.
+	 */
+	public void testCreateState() throws Exception {
+		tagAsSummary("Create PDE Target State", Dimension.ELAPSED_PROCESS);
+		IPath testBundles = TargetPlatformPerfTest.extractTargetPerfTestPlugins();
+		File[] files = testBundles.toFile().listFiles();
+		URL[] urls = new URL[files.length];
+		for (int i = 0; i < files.length; i++) {
+			urls[i] = files[i].toURI().toURL();
+		}
+
+		PDEState expected = new PDEState(urls, true, false, new NullProgressMonitor());
+		BundleDescription[] bundles = expected.getState().getBundles();
+		assertTrue("No bundles were loaded", bundles.length > 0);
+
+		// Warm-up Iterations
+		for (int i = 0; i < 3; i++) {
+			new PDEState(urls, true, false, new NullProgressMonitor());
+		}
+		// Test Iterations
+		PDEState state = null;
+		for (int i = 0; i < 50; i++) {
+			startMeasuring();
+			state = new PDEState(urls, true, false, new NullProgressMonitor());
+			stopMeasuring();
+		}
+		commitMeasurements();
+
+		for (int i = 0; i < bundles.length; i++) {
+			BundleDescription actual = state.getState().getBundle(bundles[i].getBundleId());
+			assertNotNull("Missing bundle " + bundles[i].getSymbolicName(), actual);
+			assertEquals("Bundle ids differ between states", bundles[i].getLocation(), actual.getLocation());
+		}
+		assertPerformance();
+	}
+
+	/**
+	 * Measures the heap retained by a target state and its auxiliary plug-in information.
+	 */
+	public void testStateHeap() throws Exception {
+		tagAsSummary("PDE Target State Heap", Dimension.USED_JAVA_HEAP);
+		IPath testBundles = TargetPlatformPerfTest.extractTargetPerfTestPlugins();
+		File[] files = testBundles.toFile().listFiles();
+		URL[] urls = new URL[files.length];
+		for (int i = 0; i < files.length; i++) {
+			urls[i] = files[i].toURI().toURL();
+		}
+
+		// Warm-up Iterations
+		for (int i = 0; i < 3; i++) {
+			new PDEState(urls, true, false, new NullProgressMonitor());
+		}
+		// Test Iterations
+		PDEState[] states = new PDEState[10];
+		for (int i = 0; i < states.length; i++) {
+			System.gc();
+			startMeasuring();
+			states[i] = new PDEState(urls, true, false, new NullProgressMonitor());
+			System.gc();
+			stopMeasuring();
+		}
+		commitMeasurements();
+
+		// the states are kept reachable until measured, check they are still usable
+		BundleDescription[] bundles = states[0].getState().getBundles();
+		for (int i = 0; i < bundles.length; i++) {
+			long id = bundles[i].getBundleId();
+			assertNotNull("Missing libraries of " + bundles[i].getSymbolicName(), states[states.length - 1].getLibraryNames(id));
+		}
+		assertPerformance();
+	}
+
 	protected void tearDown() throws Exception {
 		deleteContent(new File(PDECore.getDefault().getStateLocation().toOSString()));
 	}
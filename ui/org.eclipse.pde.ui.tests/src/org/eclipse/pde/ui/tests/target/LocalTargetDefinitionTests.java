@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,11 +17,13 @@ import junit.framework.Test;
 import junit.framework.TestSuite;
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.frameworkadmin.BundleInfo;
+import org.eclipse.osgi.service.resolver.BundleDescription;
 import org.eclipse.pde.core.plugin.*;
 import org.eclipse.pde.core.target.*;
 import org.eclipse.pde.internal.core.*;
 import org.eclipse.pde.internal.core.target.TargetDefinition;
 import org.eclipse.pde.internal.core.target.TargetDefinitionPersistenceHelper;
+import org.eclipse.pde.internal.core.util.CoreUtility;
 import org.eclipse.pde.internal.launching.launcher.LaunchArgumentsHelper;
 import org.eclipse.pde.ui.tests.PDETestsPlugin;
 import org.osgi.framework.ServiceReference;
@@ -740,6 +742,108 @@ public class LocalTargetDefinitionTests extends AbstractTargetTest {
 		}
 	}
 
+	/**
+	 * Tests that changing the target only updates the models of the bundles that changed, and that
+	 * added bundles duplicating a bundle of the target are removed as when the target is loaded.
+	 * @throws Exception
+	 */
+	public void testIncrementalTargetReload() throws Exception {
+		final List deltas = new ArrayList();
+		IPluginModelListener listener = new IPluginModelListener() {
+			public void modelsChanged(PluginModelDelta delta) {
+				deltas.add(delta);
+			}
+		};
+		try {
+			IPath plugins = extractAbcdePlugins().append("plugins");
+			ITargetDefinition definition = getNewTarget();
+			definition.setTargetLocations(new ITargetLocation[]{getTargetService().newDirectoryLocation(plugins.toOSString())});
+			setTargetPlatform(definition);
+			IPluginModelBase modelA = PluginRegistry.findModel("bundle.a");
+			assertNotNull("Missing bundle.a", modelA);
+			assertNotNull("Missing bundle.e", PluginRegistry.findModel("bundle.e"));
+
+			PDECore.getDefault().getModelManager().addPluginModelListener(listener);
+			ITargetDefinition smaller = getNewTarget();
+			smaller.setTargetLocations(new ITargetLocation[]{getTargetService().newDirectoryLocation(plugins.toOSString())});
+			smaller.setIncluded(new NameVersionDescriptor[]{new NameVersionDescriptor("bundle.a", null), new NameVersionDescriptor("bundle.b", null), new NameVersionDescriptor("bundle.c", null), new NameVersionDescriptor("bundle.d", null)});
+			setTargetPlatform(smaller);
+
+			assertNull("bundle.e should have been removed", PluginRegistry.findModel("bundle.e"));
+			assertSame("bundle.a should not have been recreated", modelA, PluginRegistry.findModel("bundle.a"));
+			assertEquals("Wrong number of deltas", 1, deltas.size());
+			ModelEntry[] removed = ((PluginModelDelta) deltas.get(0)).getRemovedEntries();
+			Set ids = new HashSet();
+			for (int i = 0; i < removed.length; i++) {
+				ids.add(removed[i].getId());
+			}
+			assertTrue("bundle.e should be reported as removed", ids.contains("bundle.e"));
+			assertFalse("bundle.a should not be reported as removed", ids.contains("bundle.a"));
+			assertEquals("No entry should have been added", 0, ((PluginModelDelta) deltas.get(0)).getAddedEntries().length);
+
+			// a copy of bundle.a in another location duplicates the bundle.a already in the target
+			IPath copies = plugins.removeLastSegments(1).append("copies");
+			copies.toFile().mkdirs();
+			CoreUtility.copyFile(plugins, "bundle.a_1.0.0.jar", copies.append("bundle.a_1.0.0.jar").toFile());
+			ITargetDefinition duplicated = getNewTarget();
+			duplicated.setTargetLocations(new ITargetLocation[]{getTargetService().newDirectoryLocation(plugins.toOSString()), getTargetService().newDirectoryLocation(copies.toOSString())});
+			setTargetPlatform(duplicated);
+
+			assertNotNull("bundle.e should have been added", PluginRegistry.findModel("bundle.e"));
+			IPluginModelBase[] models = PluginRegistry.findEntry("bundle.a").getExternalModels();
+			assertEquals("The duplicate of bundle.a should not have a model", 1, models.length);
+			assertSame("bundle.a should not have been replaced by its duplicate", modelA, models[0]);
+			assertEquals("The duplicate of bundle.a should have been removed from the state", 1, TargetPlatformHelper.getState().getBundles("bundle.a").length);
+		} finally {
+			PDECore.getDefault().getModelManager().removePluginModelListener(listener);
+			resetTargetPlatform();
+		}
+	}
+
+	/**
+	 * Tests that when the copy of a duplicated bundle kept by a new target state is removed
+	 * from the target, the other copy is read again by the next incremental update.
+	 * 
+	 * @throws Exception
+	 */
+	public void testDuplicateBundleReadAgain() throws Exception {
+		IPath plugins = extractAbcdePlugins().append("plugins");
+		IPath copies = plugins.removeLastSegments(1).append("copies");
+		copies.toFile().mkdirs();
+		CoreUtility.copyFile(plugins, "bundle.a_1.0.0.jar", copies.append("bundle.a_1.0.0.jar").toFile());
+		File[] files = plugins.toFile().listFiles();
+		File[] locations = new File[files.length + 1];
+		System.arraycopy(files, 0, locations, 0, files.length);
+		locations[files.length] = copies.append("bundle.a_1.0.0.jar").toFile();
+		URL[] urls = new URL[locations.length];
+		for (int i = 0; i < locations.length; i++) {
+			urls[i] = locations[i].toURI().toURL();
+		}
+
+		PDEState state = new PDEState(urls, true, true, new NullProgressMonitor());
+		BundleDescription[] bundles = state.getState().getBundles("bundle.a");
+		assertEquals("The duplicate of bundle.a should have been removed from the state", 1, bundles.length);
+		String kept = new File(bundles[0].getLocation()).getAbsolutePath();
+
+		List remaining = new ArrayList();
+		for (int i = 0; i < locations.length; i++) {
+			if (!locations[i].getAbsolutePath().equals(kept))
+				remaining.add(locations[i]);
+		}
+		assertEquals("Only the kept copy of bundle.a should leave the target", locations.length - 1, remaining.size());
+		File[] target = (File[]) remaining.toArray(new File[remaining.size()]);
+		IPluginModelBase[] removed = state.removeTargetBundles(target);
+		assertEquals("Wrong number of removed models", 1, removed.length);
+		assertEquals("Wrong removed model", kept, new File(removed[0].getInstallLocation()).getAbsolutePath());
+		state.removeBundleDescription(removed[0].getBundleDescription());
+
+		IPluginModelBase[] added = state.addTargetBundles(target, new NullProgressMonitor());
+		assertEquals("The other copy of bundle.a should have been read again", 1, added.length);
+		assertEquals("Wrong added model", "bundle.a", added[0].getPluginBase().getId());
+		assertFalse("The removed copy should not be read again", kept.equals(new File(added[0].getInstallLocation()).getAbsolutePath()));
+		assertEquals("bundle.a should be in the state", 1, state.getState().getBundles("bundle.a").length);
+	}
+
 	protected void assertTargetDefinitionsEqual(ITargetDefinition targetA, ITargetDefinition targetB) {
 		assertTrue("Target content not equal",((TargetDefinition)targetA).isContentEqual(targetB));
 	}
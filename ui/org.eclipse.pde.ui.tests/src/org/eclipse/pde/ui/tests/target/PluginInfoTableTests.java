@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.ui.tests.target;
+
+import java.util.Arrays;
+import junit.framework.*;
+import org.eclipse.pde.internal.core.PDEAuxiliaryState.PluginInfo;
+import org.eclipse.pde.internal.core.PluginInfoTable;
+
+/**
+ * Tests the storage of the auxiliary plug-in information of a state.
+ *
+ * @since 3.11
+ */
+public class PluginInfoTableTests extends TestCase {
+
+	/**
+	 * Number of slots of the hash table of an empty table
+	 */
+	private static final int INITIAL_SLOTS = 32;
+
+	public static Test suite() {
+		return new TestSuite(PluginInfoTableTests.class);
+	}
+
+	/**
+	 * Returns the slot the given id hashes to in an empty table, as computed by the table
+	 */
+	private static int getHomeSlot(long bundleID) {
+		long hash = bundleID * 0x9E3779B97F4A7C15L;
+		return ((int) (hash ^ (hash >>> 32))) & (INITIAL_SLOTS - 1);
+	}
+
+	/**
+	 * Returns the given number of ids hashing to the given slot, starting the search after the given id
+	 */
+	private static long[] getCollidingIDs(int slot, int count, long after) {
+		long[] ids = new long[count];
+		int found = 0;
+		for (long id = after + 1; found < count; id++) {
+			if (getHomeSlot(id) == slot)
+				ids[found++] = id;
+		}
+		return ids;
+	}
+
+	private static PluginInfo newInfo(long bundleID) {
+		PluginInfo info = new PluginInfo();
+		info.name = "Bundle " + bundleID;
+		info.providerName = "Eclipse.org";
+		info.className = "org.eclipse.Activator" + bundleID;
+		info.libraries = new String[] {"lib" + bundleID + ".jar"};
+		info.hasBundleStructure = true;
+		info.hasExtensibleAPI = bundleID % 2 == 0;
+		return info;
+	}
+
+	private void assertInfo(PluginInfoTable table, long bundleID) {
+		assertTrue("Missing bundle " + bundleID, table.contains(bundleID));
+		assertEquals("Wrong name", "Bundle " + bundleID, table.getString(bundleID, PluginInfoTable.NAME));
+		assertEquals("Wrong provider", "Eclipse.org", table.getString(bundleID, PluginInfoTable.PROVIDER_NAME));
+		assertEquals("Wrong class", "org.eclipse.Activator" + bundleID, table.getString(bundleID, PluginInfoTable.CLASS_NAME));
+		assertNull("Unexpected project", table.getString(bundleID, PluginInfoTable.PROJECT));
+		assertTrue("Wrong libraries", Arrays.equals(new String[] {"lib" + bundleID + ".jar"}, table.getLibraries(bundleID)));
+		assertTrue("Missing bundle structure flag", table.hasFlag(bundleID, PluginInfoTable.BUNDLE_STRUCTURE));
+		assertEquals("Wrong extensible API flag", bundleID % 2 == 0, table.hasFlag(bundleID, PluginInfoTable.EXTENSIBLE_API));
+		assertFalse("Unexpected patch fragment flag", table.hasFlag(bundleID, PluginInfoTable.PATCH_FRAGMENT));
+	}
+
+	private void assertMissing(PluginInfoTable table, long bundleID) {
+		assertFalse("Unexpected bundle " + bundleID, table.contains(bundleID));
+		assertNull("Unexpected name", table.getString(bundleID, PluginInfoTable.NAME));
+		assertNull("Unexpected libraries", table.getLibraries(bundleID));
+		assertFalse("Unexpected flag", table.hasFlag(bundleID, PluginInfoTable.BUNDLE_STRUCTURE));
+	}
+
+	/**
+	 * Tests that ids colliding on the last slot, whose probe sequence wraps around the hash table,
+	 * are all found after any of them is removed
+	 */
+	public void testCollidingIDs() {
+		// three ids on the last slot wrap to the first slots, the fourth id is displaced by them
+		long[] last = getCollidingIDs(INITIAL_SLOTS - 1, 3, 0);
+		long[] first = getCollidingIDs(0, 1, 0);
+		long[] ids = new long[] {last[0], last[1], last[2], first[0]};
+		for (int removed = 0; removed < ids.length; removed++) {
+			PluginInfoTable table = new PluginInfoTable();
+			for (int i = 0; i < ids.length; i++)
+				table.put(ids[i], newInfo(ids[i]));
+			for (int i = 0; i < ids.length; i++)
+				assertInfo(table, ids[i]);
+			table.remove(ids[removed]);
+			assertMissing(table, ids[removed]);
+			for (int i = 0; i < ids.length; i++) {
+				if (i != removed)
+					assertInfo(table, ids[i]);
+			}
+			assertEquals("Wrong number of bundles", ids.length - 1, table.getBundleIDs().length);
+			// the removed id can be added back behind the shifted entries
+			table.put(ids[removed], newInfo(ids[removed]));
+			for (int i = 0; i < ids.length; i++)
+				assertInfo(table, ids[i]);
+		}
+	}
+
+	/**
+	 * Tests that the row of a removed bundle is reused without leaking its values, and that
+	 * replacing the information of a bundle keeps a single entry
+	 */
+	public void testRowReuse() {
+		PluginInfoTable table = new PluginInfoTable();
+		for (long id = 1; id <= 10; id++)
+			table.put(id, newInfo(id));
+		PluginInfo info = newInfo(3);
+		info.project = "project3";
+		table.put(3, info);
+		assertEquals("Wrong number of bundles", 10, table.getBundleIDs().length);
+		assertEquals("Wrong project", "project3", table.getString(3, PluginInfoTable.PROJECT));
+
+		table.remove(3);
+		table.remove(3);
+		assertMissing(table, 3);
+		assertEquals("Wrong number of bundles", 9, table.getBundleIDs().length);
+
+		// the new bundle takes the freed row, none of the values of bundle 3 must remain
+		PluginInfo empty = new PluginInfo();
+		table.put(42, empty);
+		assertTrue("Missing bundle 42", table.contains(42));
+		for (int column = PluginInfoTable.NAME; column <= PluginInfoTable.BUNDLE_SOURCE_ENTRY; column++)
+			assertNull("Unexpected value in column " + column, table.getString(42, column));
+		assertNull("Unexpected libraries", table.getLibraries(42));
+		assertFalse("Unexpected flag", table.hasFlag(42, PluginInfoTable.BUNDLE_STRUCTURE));
+		assertMissing(table, 3);
+		for (long id = 1; id <= 10; id++) {
+			if (id != 3)
+				assertInfo(table, id);
+		}
+
+		// growing past the initial capacity keeps all bundles
+		for (long id = 100; id < 200; id++)
+			table.put(id, newInfo(id));
+		assertEquals("Wrong number of bundles", 110, table.getBundleIDs().length);
+		for (long id = 100; id < 200; id++)
+			assertInfo(table, id);
+		assertInfo(table, 1);
+	}
+
+	/**
+	 * Tests that bundles with the same libraries share the library array
+	 */
+	public void testSharedLibraries() {
+		PluginInfoTable table = new PluginInfoTable();
+		PluginInfo info = new PluginInfo();
+		info.libraries = new String[] {"a.jar", "b.jar"};
+		table.put(1, info);
+		info = new PluginInfo();
+		info.libraries = new String[] {"a.jar", "b.jar"};
+		table.put(2, info);
+		assertSame("Libraries should be shared", table.getLibraries(1), table.getLibraries(2));
+	}
+
+	/**
+	 * Tests that a copy of a table is not affected by changes to the original and the reverse
+	 */
+	public void testCopyIsolation() {
+		PluginInfoTable table = new PluginInfoTable();
+		for (long id = 1; id <= 5; id++)
+			table.put(id, newInfo(id));
+		PluginInfoTable copy = new PluginInfoTable(table);
+
+		table.remove(1);
+		table.put(6, newInfo(6));
+		PluginInfo info = newInfo(2);
+		info.project = "changed";
+		table.put(2, info);
+
+		assertInfo(copy, 1);
+		assertInfo(copy, 2);
+		assertMissing(copy, 6);
+		assertEquals("Wrong number of bundles in the copy", 5, copy.getBundleIDs().length);
+
+		copy.remove(4);
+		copy.put(7, newInfo(7));
+		assertInfo(table, 4);
+		assertMissing(table, 7);
+		assertEquals("Wrong project", "changed", table.getString(2, PluginInfoTable.PROJECT));
+
+		table.clear();
+		assertEquals("The table should be empty", 0, table.getBundleIDs().length);
+		assertInfo(copy, 1);
+		assertInfo(copy, 7);
+	}
+}
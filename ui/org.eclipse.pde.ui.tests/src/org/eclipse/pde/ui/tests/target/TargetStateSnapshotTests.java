@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.ui.tests.target;
+
+import java.io.File;
+import java.net.URL;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.eclipse.pde.internal.core.PDEState;
+import org.eclipse.pde.ui.tests.PDETestsPlugin;
+
+/**
+ * Tests that the target state is restored from its snapshot and only the bundles
+ * that changed are read again.
+ *
+ * @since 3.11
+ */
+public class TargetStateSnapshotTests extends AbstractTargetTest {
+
+	private File fSnapshotLocation;
+
+	public static Test suite() {
+		return new TestSuite(TargetStateSnapshotTests.class);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		fSnapshotLocation = PDETestsPlugin.getDefault().getStateLocation().append("target-snapshot").toFile();
+		if (fSnapshotLocation.exists())
+			delete(fSnapshotLocation);
+	}
+
+	protected void tearDown() throws Exception {
+		if (fSnapshotLocation.exists())
+			delete(fSnapshotLocation);
+		super.tearDown();
+	}
+
+	private URL[] getBundleURLs(File[] files) throws Exception {
+		URL[] urls = new URL[files.length];
+		for (int i = 0; i < files.length; i++) {
+			urls[i] = files[i].toURI().toURL();
+		}
+		return urls;
+	}
+
+	private File[] getSnapshots() {
+		File[] snapshots = fSnapshotLocation.listFiles();
+		return snapshots == null ? new File[0] : snapshots;
+	}
+
+	/**
+	 * Tests that an unchanged target is restored from the snapshot with the same bundles
+	 * and plug-in information, without saving a new snapshot.
+	 *
+	 * @throws Exception
+	 */
+	public void testRestoreUnchanged() throws Exception {
+		IPath plugins = extractAbcdePlugins().append("plugins");
+		URL[] urls = getBundleURLs(plugins.toFile().listFiles());
+
+		PDEState created = new PDEState(urls, true, false, fSnapshotLocation, new NullProgressMonitor());
+		File[] snapshots = getSnapshots();
+		assertEquals("Snapshot should have been saved", 1, snapshots.length);
+
+		PDEState restored = new PDEState(urls, true, false, fSnapshotLocation, new NullProgressMonitor());
+		File[] restoredSnapshots = getSnapshots();
+		assertEquals("Snapshot should not have been saved again", 1, restoredSnapshots.length);
+		assertEquals("Snapshot should not have been replaced", snapshots[0], restoredSnapshots[0]);
+
+		BundleDescription[] bundles = created.getState().getBundles();
+		assertEquals("Wrong number of bundles", urls.length, bundles.length);
+		assertEquals("Wrong number of restored bundles", bundles.length, restored.getState().getBundles().length);
+		for (int i = 0; i < bundles.length; i++) {
+			BundleDescription desc = restored.getState().getBundle(bundles[i].getBundleId());
+			assertNotNull("Missing bundle " + bundles[i].getSymbolicName(), desc);
+			assertEquals("Wrong bundle location", bundles[i].getLocation(), desc.getLocation());
+			assertEquals("Wrong plug-in name", created.getPluginName(bundles[i].getBundleId()), restored.getPluginName(desc.getBundleId()));
+		}
+	}
+
+	/**
+	 * Tests that only bundles added to the target are read and removed bundles are dropped
+	 * from a restored state.
+	 *
+	 * @throws Exception
+	 */
+	public void testRestoreChanged() throws Exception {
+		IPath plugins = extractAbcdePlugins().append("plugins");
+		File[] files = plugins.toFile().listFiles();
+		File[] initial = new File[files.length - 1];
+		System.arraycopy(files, 1, initial, 0, initial.length);
+
+		PDEState created = new PDEState(getBundleURLs(initial), true, false, fSnapshotLocation, new NullProgressMonitor());
+		BundleDescription removed = created.getState().getBundleByLocation(initial[0].getAbsolutePath());
+		assertNotNull("Missing bundle " + initial[0], removed);
+
+		File[] changed = new File[files.length - 1];
+		System.arraycopy(files, 0, changed, 0, 1);
+		System.arraycopy(files, 2, changed, 1, changed.length - 1);
+		PDEState restored = new PDEState(getBundleURLs(changed), true, false, fSnapshotLocation, new NullProgressMonitor());
+
+		assertEquals("Wrong number of bundles", changed.length, restored.getState().getBundles().length);
+		assertNull("Removed bundle should not be restored", restored.getState().getBundleByLocation(initial[0].getAbsolutePath()));
+		BundleDescription added = restored.getState().getBundleByLocation(files[0].getAbsolutePath());
+		assertNotNull("Missing added bundle", added);
+		assertTrue("Added bundle should have a new id", added.getBundleId() > created.getState().getHighestBundleId());
+		for (int i = 1; i < changed.length; i++) {
+			BundleDescription desc = restored.getState().getBundleByLocation(changed[i].getAbsolutePath());
+			assertNotNull("Missing bundle " + changed[i], desc);
+			assertEquals("Unchanged bundle should keep its id", created.getState().getBundleByLocation(changed[i].getAbsolutePath()).getBundleId(), desc.getBundleId());
+		}
+		assertEquals("Only the new snapshot and the restored one should be kept", 2, getSnapshots().length);
+	}
+}